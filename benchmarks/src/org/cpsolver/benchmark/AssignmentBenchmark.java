@@ -0,0 +1,141 @@
+package org.cpsolver.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.DefaultParallelAssignment;
+import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.assignment.ParallelAssignmentArray;
+import org.cpsolver.ifs.example.csp.CSPModel;
+import org.cpsolver.ifs.example.csp.CSPValue;
+import org.cpsolver.ifs.example.csp.CSPVariable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Assignment hot path of the iterative forward search on a random binary CSP problem
+ * (see {@link CSPModel}): {@link Assignment#assign(long, org.cpsolver.ifs.model.Value)} and
+ * {@link Assignment#unassign(long, org.cpsolver.ifs.model.Variable)} (including all the model,
+ * constraint, and variable notifications), {@link CSPModel#conflictValues(Assignment, org.cpsolver.ifs.model.Value)},
+ * and {@link CSPModel#getTotalValue(Assignment)}, for each of the assignment implementations.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssignmentBenchmark {
+    /** Assignment implementation: single (DefaultSingleAssignment), parallel (DefaultParallelAssignment), or array (ParallelAssignmentArray) */
+    @Param({ "single", "parallel", "array" })
+    public String assignment;
+    /** Number of variables */
+    @Param({ "1000" })
+    public int nrVariables;
+    /** Number of values of each variable */
+    @Param({ "20" })
+    public int nrValues;
+    /** Number of binary constraints */
+    @Param({ "5000" })
+    public int nrConstraints;
+    /** Number of compatible pairs of values of each constraint */
+    @Param({ "300" })
+    public int nrCompatiblePairs;
+
+    private CSPModel iModel;
+    private Assignment<CSPVariable, CSPValue> iAssignment;
+    private List<CSPValue> iMoves;
+    private int iMove = 0;
+    private long iIteration = 0;
+
+    @Setup
+    public void setup() {
+        iModel = new CSPModel(nrVariables, nrValues, nrConstraints, nrCompatiblePairs, 1);
+        if ("parallel".equals(assignment))
+            iAssignment = new DefaultParallelAssignment<CSPVariable, CSPValue>(0);
+        else if ("array".equals(assignment))
+            iAssignment = new ParallelAssignmentArray<CSPVariable, CSPValue>(0);
+        else
+            iAssignment = new DefaultSingleAssignment<CSPVariable, CSPValue>();
+        Random rnd = new Random(1);
+        for (CSPVariable variable: iModel.variables()) {
+            List<CSPValue> values = variable.values(iAssignment);
+            CSPValue value = values.get(rnd.nextInt(values.size()));
+            if (iModel.conflictValues(iAssignment, value).isEmpty())
+                iAssignment.assign(0, value);
+        }
+        iMoves = new ArrayList<CSPValue>();
+        for (int i = 0; i < 1024; i++) {
+            CSPVariable variable = iModel.variables().get(rnd.nextInt(iModel.variables().size()));
+            List<CSPValue> values = variable.values(iAssignment);
+            iMoves.add(values.get(rnd.nextInt(values.size())));
+        }
+    }
+
+    private CSPValue nextMove() {
+        CSPValue value = iMoves.get(iMove);
+        iMove = (iMove + 1) % iMoves.size();
+        return value;
+    }
+
+    /** Assign a value and then restore the previous assignment of the variable */
+    @Benchmark
+    public CSPValue assignUnassign() {
+        CSPValue value = nextMove();
+        CSPValue old = iAssignment.assign(++iIteration, value);
+        if (old == null)
+            iAssignment.unassign(++iIteration, value.variable());
+        else
+            iAssignment.assign(++iIteration, old);
+        return old;
+    }
+
+    /** Conflicting values of a proposed assignment */
+    @Benchmark
+    public void conflictValues(Blackhole bh) {
+        bh.consume(iModel.conflictValues(iAssignment, nextMove()));
+    }
+
+    /** Overall solution value */
+    @Benchmark
+    public double totalValue() {
+        return iModel.getTotalValue(iAssignment);
+    }
+
+    /** Number of assigned variables */
+    @Benchmark
+    public int nrAssignedVariables() {
+        return iAssignment.nrAssignedVariables();
+    }
+}
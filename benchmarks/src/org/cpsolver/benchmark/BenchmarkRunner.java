@@ -0,0 +1,56 @@
+package org.cpsolver.benchmark;
+
+import java.io.File;
+
+import org.cpsolver.ifs.Constants;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. It accepts the same arguments as the JMH
+ * command line (e.g., a benchmark regexp, -p input=problem.xml, -f 1, -wi 3),
+ * but unless the result format and file are given, the results are written in
+ * the JSON format into jmh-cpsolver-<i>version</i>.<i>build</i>.json, so that
+ * results of different builds can be compared (e.g., using the JMH Visualizer).
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp()) {
+            cmd.showHelp();
+            return;
+        }
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmd);
+        if (!cmd.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!cmd.getResult().hasValue() && (!cmd.getResultFormat().hasValue() || cmd.getResultFormat().get() == ResultFormatType.JSON))
+            options.result(new File("jmh-cpsolver-" + Constants.getVersion() + "." + Constants.getBuildNumber() + ".json").getPath());
+        Runner runner = new Runner(options.build());
+        if (cmd.shouldList())
+            runner.list();
+        else
+            runner.run();
+    }
+}
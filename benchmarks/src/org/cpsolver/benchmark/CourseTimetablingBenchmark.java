@@ -0,0 +1,246 @@
+package org.cpsolver.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.cpsolver.coursett.Constants;
+import org.cpsolver.coursett.TimetableXMLLoader;
+import org.cpsolver.coursett.constraint.JenrlConstraint;
+import org.cpsolver.coursett.constraint.RoomConstraint;
+import org.cpsolver.coursett.model.Lecture;
+import org.cpsolver.coursett.model.Placement;
+import org.cpsolver.coursett.model.RoomLocation;
+import org.cpsolver.coursett.model.Student;
+import org.cpsolver.coursett.model.TimeLocation;
+import org.cpsolver.coursett.model.TimetableModel;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.perturbations.DefaultPerturbationsCounter;
+import org.cpsolver.ifs.solution.Solution;
+import org.cpsolver.ifs.solver.Solver;
+import org.cpsolver.ifs.util.DataProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Assignment hot path of the course timetabling: computation of the domain of a class
+ * ({@link Lecture#computeValues(Assignment, boolean)}), assignment and unassignment of a placement
+ * (including room, student conflict, and criteria updates), conflict checking, and evaluation of the
+ * solution value. A synthetic problem is generated, unless an input XML file is given (parameter input).
+ *
+ * @version CourseTT 1.3 (University Course Timetabling)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CourseTimetablingBenchmark {
+    /** Input XML file (a synthetic problem is generated when empty) */
+    @Param({ "" })
+    public String input;
+    /** Number of classes of the synthetic problem */
+    @Param({ "500" })
+    public int nrClasses;
+    /** Number of rooms of the synthetic problem */
+    @Param({ "50" })
+    public int nrRooms;
+    /** Number of students of the synthetic problem */
+    @Param({ "3000" })
+    public int nrStudents;
+
+    private TimetableModel iModel;
+    private Assignment<Lecture, Placement> iAssignment;
+    private List<Lecture> iLectures;
+    private List<Placement> iMoves;
+    private int iMove = 0, iLecture = 0;
+    private long iIteration = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        Random rnd = new Random(1);
+        iAssignment = new DefaultSingleAssignment<Lecture, Placement>();
+        if (input == null || input.isEmpty()) {
+            iModel = generate(rnd);
+            for (Lecture lecture: iModel.variables()) {
+                List<Placement> values = lecture.values(iAssignment);
+                if (values.isEmpty()) continue;
+                Placement placement = values.get(rnd.nextInt(values.size()));
+                if (iModel.conflictValues(iAssignment, placement).isEmpty())
+                    iAssignment.assign(0, placement);
+            }
+        } else {
+            DataProperties config = new DataProperties();
+            config.setProperty("General.Input", input);
+            iModel = new TimetableModel(config);
+            TimetableXMLLoader loader = new TimetableXMLLoader(iModel, iAssignment);
+            loader.setInputFile(new File(input));
+            loader.load();
+        }
+        // criteria initialization (e.g., perturbations need the perturbations counter of the solver)
+        Solver<Lecture, Placement> solver = new Solver<Lecture, Placement>(iModel.getProperties());
+        solver.setInitalSolution(new Solution<Lecture, Placement>(iModel, iAssignment));
+        solver.setPerturbationsCounter(new DefaultPerturbationsCounter<Lecture, Placement>(iModel.getProperties()));
+        iModel.init(solver);
+        iLectures = new ArrayList<Lecture>();
+        iMoves = new ArrayList<Placement>();
+        for (Lecture lecture: iModel.variables())
+            if (!lecture.isCommitted() && !lecture.values(iAssignment).isEmpty())
+                iLectures.add(lecture);
+        while (iMoves.size() < 1024) {
+            Lecture lecture = iLectures.get(rnd.nextInt(iLectures.size()));
+            List<Placement> values = lecture.values(iAssignment);
+            iMoves.add(values.get(rnd.nextInt(values.size())));
+        }
+    }
+
+    /**
+     * Synthetic problem: classes meeting three times a week (MWF) or twice a week (TTh), each with a few
+     * rooms that are big enough, and students taking four to six classes each.
+     */
+    protected TimetableModel generate(Random rnd) {
+        TimetableModel model = new TimetableModel(new DataProperties());
+        List<RoomConstraint> rooms = new ArrayList<RoomConstraint>();
+        for (int i = 0; i < nrRooms; i++) {
+            RoomConstraint room = new RoomConstraint(Long.valueOf(i), "R" + i, Long.valueOf(i % 5), 20 + 10 * rnd.nextInt(10),
+                    null, Double.valueOf(rnd.nextInt(1000)), Double.valueOf(rnd.nextInt(1000)), false, true);
+            model.addConstraint(room);
+            rooms.add(room);
+        }
+        int mwf = Constants.DAY_CODES[0] | Constants.DAY_CODES[2] | Constants.DAY_CODES[4];
+        int tth = Constants.DAY_CODES[1] | Constants.DAY_CODES[3];
+        List<Lecture> lectures = new ArrayList<Lecture>();
+        for (int i = 0; i < nrClasses; i++) {
+            boolean threeTimes = rnd.nextBoolean();
+            List<TimeLocation> times = new ArrayList<TimeLocation>();
+            for (int start = Constants.DAY_SLOTS_FIRST + 6; start + 18 <= Constants.DAY_SLOTS_LAST; start += (threeTimes ? 12 : 18)) {
+                int pref = (rnd.nextInt(5) == 0 ? (rnd.nextBoolean() ? -1 : 1) : 0);
+                times.add(new TimeLocation(threeTimes ? mwf : tth, start, threeTimes ? 12 : 18, pref, pref, null, "Full Term", null, 10));
+            }
+            int limit = 10 + rnd.nextInt(60);
+            List<RoomLocation> roomLocations = new ArrayList<RoomLocation>();
+            List<RoomConstraint> roomConstraints = new ArrayList<RoomConstraint>();
+            for (RoomConstraint room: rooms) {
+                if (room.getCapacity() < limit || rnd.nextInt(3) > 0) continue;
+                roomLocations.add(new RoomLocation(room.getResourceId(), room.getName(), room.getBuildingId(), 0, room.getCapacity(),
+                        room.getPosX(), room.getPosY(), false, room));
+                roomConstraints.add(room);
+            }
+            Lecture lecture = new Lecture(Long.valueOf(i), 1l, Long.valueOf(i / 3), "C" + i, times, roomLocations,
+                    roomLocations.isEmpty() ? 0 : 1, null, limit, limit, 1.0);
+            model.addVariable(lecture);
+            for (RoomConstraint room: roomConstraints)
+                room.addVariable(lecture);
+            lectures.add(lecture);
+        }
+        List<Student> students = new ArrayList<Student>();
+        for (int i = 0; i < nrStudents; i++) {
+            Student student = new Student(Long.valueOf(i));
+            Set<Lecture> classes = new HashSet<Lecture>();
+            int count = Math.min(4 + rnd.nextInt(3), lectures.size());
+            while (classes.size() < count)
+                classes.add(lectures.get(rnd.nextInt(lectures.size())));
+            for (Lecture lecture: classes) {
+                student.addLecture(lecture);
+                lecture.addStudent(iAssignment, student);
+            }
+            model.addStudent(student);
+            students.add(student);
+        }
+        Map<Lecture, Map<Lecture, JenrlConstraint>> jenrls = new HashMap<Lecture, Map<Lecture, JenrlConstraint>>();
+        for (Student student: students) {
+            for (Lecture l1: student.getLectures()) {
+                for (Lecture l2: student.getLectures()) {
+                    if (l1.getId() >= l2.getId()) continue;
+                    Map<Lecture, JenrlConstraint> x = jenrls.get(l1);
+                    if (x == null) {
+                        x = new HashMap<Lecture, JenrlConstraint>();
+                        jenrls.put(l1, x);
+                    }
+                    JenrlConstraint jenrl = x.get(l2);
+                    if (jenrl == null) {
+                        jenrl = new JenrlConstraint();
+                        jenrl.addVariable(l1);
+                        jenrl.addVariable(l2);
+                        model.addConstraint(jenrl);
+                        x.put(l2, jenrl);
+                    }
+                    jenrl.incJenrl(iAssignment, student);
+                }
+            }
+        }
+        return model;
+    }
+
+    private Placement nextMove() {
+        Placement placement = iMoves.get(iMove);
+        iMove = (iMove + 1) % iMoves.size();
+        return placement;
+    }
+
+    /** Domain of a class, computed from its time and room locations (the value cache is bypassed) */
+    @Benchmark
+    public void computeValues(Blackhole bh) {
+        Lecture lecture = iLectures.get(iLecture);
+        iLecture = (iLecture + 1) % iLectures.size();
+        bh.consume(lecture.computeValues(iAssignment, false));
+    }
+
+    /** Assign a placement and then restore the previous assignment of the class */
+    @Benchmark
+    public Placement assignUnassign() {
+        Placement placement = nextMove();
+        Placement old = iAssignment.assign(++iIteration, placement);
+        if (old == null)
+            iAssignment.unassign(++iIteration, placement.variable());
+        else
+            iAssignment.assign(++iIteration, old);
+        return old;
+    }
+
+    /** Conflicting placements of a proposed placement */
+    @Benchmark
+    public void conflictValues(Blackhole bh) {
+        bh.consume(iModel.conflictValues(iAssignment, nextMove()));
+    }
+
+    /** Overall solution value */
+    @Benchmark
+    public double totalValue() {
+        return iModel.getTotalValue(iAssignment);
+    }
+}
@@ -0,0 +1,196 @@
+package org.cpsolver.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.cpsolver.exam.model.Exam;
+import org.cpsolver.exam.model.ExamInstructor;
+import org.cpsolver.exam.model.ExamModel;
+import org.cpsolver.exam.model.ExamPeriod;
+import org.cpsolver.exam.model.ExamPeriodPlacement;
+import org.cpsolver.exam.model.ExamPlacement;
+import org.cpsolver.exam.model.ExamRoomPlacement;
+import org.cpsolver.exam.model.ExamStudent;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.solution.Solution;
+import org.cpsolver.ifs.solver.Solver;
+import org.cpsolver.ifs.util.DataProperties;
+import org.dom4j.io.SAXReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Assignment hot path of the examination timetabling: assignment and unassignment of an exam
+ * (including the updates of the {@link ExamModel} context, i.e., exams of each student and instructor
+ * in each period and day), conflict checking, and evaluation of the solution value.
+ * A synthetic problem is generated, unless an input XML file is given (parameter input).
+ *
+ * @version ExamTT 1.3 (Examination Timetabling)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExamBenchmark {
+    /** Input XML file (a synthetic problem is generated when empty) */
+    @Param({ "" })
+    public String input;
+    /** Number of exams of the synthetic problem */
+    @Param({ "500" })
+    public int nrExams;
+    /** Number of students of the synthetic problem */
+    @Param({ "5000" })
+    public int nrStudents;
+
+    private ExamModel iModel;
+    private Assignment<Exam, ExamPlacement> iAssignment;
+    private List<ExamPlacement> iMoves;
+    private int iMove = 0;
+    private long iIteration = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        Random rnd = new Random(1);
+        iAssignment = new DefaultSingleAssignment<Exam, ExamPlacement>();
+        if (input == null || input.isEmpty()) {
+            iModel = generate(rnd);
+            for (Exam exam: iModel.variables()) {
+                ExamPlacement placement = new ExamPlacement(exam, exam.getPeriodPlacements().get(rnd.nextInt(exam.getPeriodPlacements().size())), null);
+                if (iModel.conflictValues(iAssignment, placement).isEmpty())
+                    iAssignment.assign(0, placement);
+            }
+        } else {
+            DataProperties config = new DataProperties();
+            config.setProperty("General.Input", input);
+            iModel = new ExamModel(config);
+            iModel.load(new SAXReader().read(new File(input)), iAssignment);
+        }
+        // criteria initialization (weights are read from the configuration when the solver is initialized)
+        Solver<Exam, ExamPlacement> solver = new Solver<Exam, ExamPlacement>(iModel.getProperties());
+        solver.setInitalSolution(new Solution<Exam, ExamPlacement>(iModel, iAssignment));
+        iModel.init(solver);
+        iMoves = new ArrayList<ExamPlacement>();
+        List<Exam> exams = new ArrayList<Exam>(iModel.variables());
+        while (iMoves.size() < 1024) {
+            Exam exam = exams.get(rnd.nextInt(exams.size()));
+            List<ExamPlacement> values = exam.values(iAssignment);
+            if (!values.isEmpty())
+                iMoves.add(values.get(rnd.nextInt(values.size())));
+        }
+    }
+
+    /**
+     * Synthetic problem: three periods a day, exams with no rooms, each student and instructor has a few exams.
+     */
+    protected ExamModel generate(Random rnd) {
+        ExamModel model = new ExamModel(new DataProperties());
+        int nrPeriods = 30;
+        for (int i = 0; i < nrPeriods; i++)
+            model.addPeriod(Long.valueOf(i), "D" + (i / 3), "T" + (i % 3), 120, rnd.nextInt(3));
+        List<Exam> exams = new ArrayList<Exam>();
+        for (int i = 0; i < nrExams; i++) {
+            List<ExamPeriodPlacement> periods = new ArrayList<ExamPeriodPlacement>();
+            for (ExamPeriod period: model.getPeriods())
+                periods.add(new ExamPeriodPlacement(period, rnd.nextInt(3)));
+            Exam exam = new Exam(i, "E" + i, 120, false, 0, 0, periods, new ArrayList<ExamRoomPlacement>());
+            model.addVariable(exam);
+            exams.add(exam);
+        }
+        for (int i = 0; i < nrStudents; i++) {
+            ExamStudent student = new ExamStudent(model, i);
+            for (Exam exam: pick(rnd, exams, 3 + rnd.nextInt(4)))
+                student.addVariable(exam);
+            model.addConstraint(student);
+        }
+        for (int i = 0; i < nrExams / 3; i++) {
+            ExamInstructor instructor = new ExamInstructor(model, i, "I" + i);
+            for (Exam exam: pick(rnd, exams, 1 + rnd.nextInt(3)))
+                instructor.addVariable(exam);
+            model.addConstraint(instructor);
+        }
+        model.init();
+        return model;
+    }
+
+    private static Set<Exam> pick(Random rnd, List<Exam> exams, int count) {
+        Set<Exam> ret = new HashSet<Exam>();
+        while (ret.size() < Math.min(count, exams.size()))
+            ret.add(exams.get(rnd.nextInt(exams.size())));
+        return ret;
+    }
+
+    private ExamPlacement nextMove() {
+        ExamPlacement placement = iMoves.get(iMove);
+        iMove = (iMove + 1) % iMoves.size();
+        return placement;
+    }
+
+    /** Assign an exam and then restore its previous assignment (ExamModel context updates) */
+    @Benchmark
+    public ExamPlacement assignUnassign() {
+        ExamPlacement placement = nextMove();
+        ExamPlacement old = iAssignment.assign(++iIteration, placement);
+        if (old == null)
+            iAssignment.unassign(++iIteration, placement.variable());
+        else
+            iAssignment.assign(++iIteration, old);
+        return old;
+    }
+
+    /** Conflicting exams of a proposed placement */
+    @Benchmark
+    public void conflictValues(Blackhole bh) {
+        bh.consume(iModel.conflictValues(iAssignment, nextMove()));
+    }
+
+    /** Overall solution value */
+    @Benchmark
+    public double totalValue() {
+        return iModel.getTotalValue(iAssignment);
+    }
+
+    /** Change in the solution value of a proposed placement, evaluated without assigning it */
+    @Benchmark
+    public double weightedDelta() {
+        ExamPlacement placement = nextMove();
+        Map<Exam, ExamPlacement> changes = new HashMap<Exam, ExamPlacement>();
+        changes.put(placement.variable(), placement);
+        return iModel.getWeightedDelta(iAssignment, changes);
+    }
+}
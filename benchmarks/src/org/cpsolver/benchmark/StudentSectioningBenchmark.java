@@ -0,0 +1,207 @@
+package org.cpsolver.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.cpsolver.coursett.Constants;
+import org.cpsolver.coursett.model.Placement;
+import org.cpsolver.coursett.model.RoomLocation;
+import org.cpsolver.coursett.model.TimeLocation;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.studentsct.StudentSectioningModel;
+import org.cpsolver.studentsct.StudentSectioningXMLLoader;
+import org.cpsolver.studentsct.model.Config;
+import org.cpsolver.studentsct.model.Course;
+import org.cpsolver.studentsct.model.CourseRequest;
+import org.cpsolver.studentsct.model.Enrollment;
+import org.cpsolver.studentsct.model.Offering;
+import org.cpsolver.studentsct.model.Request;
+import org.cpsolver.studentsct.model.Section;
+import org.cpsolver.studentsct.model.Student;
+import org.cpsolver.studentsct.model.Subpart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Assignment hot path of the student sectioning: enumeration of possible enrollments of a course request
+ * ({@link CourseRequest#computeEnrollments(Assignment)}), assignment and unassignment of an enrollment
+ * (including section, configuration, course, and student conflict updates), conflict checking, and evaluation
+ * of the solution value. A synthetic problem is generated, unless an input XML file is given (parameter input).
+ *
+ * @version StudentSct 1.3 (Student Sectioning)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentSectioningBenchmark {
+    /** Input XML file (a synthetic problem is generated when empty) */
+    @Param({ "" })
+    public String input;
+    /** Number of courses of the synthetic problem */
+    @Param({ "200" })
+    public int nrCourses;
+    /** Number of students of the synthetic problem */
+    @Param({ "2000" })
+    public int nrStudents;
+
+    private StudentSectioningModel iModel;
+    private Assignment<Request, Enrollment> iAssignment;
+    private List<CourseRequest> iRequests;
+    private List<Enrollment> iMoves;
+    private int iMove = 0, iRequest = 0;
+    private long iIteration = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        Random rnd = new Random(1);
+        iAssignment = new DefaultSingleAssignment<Request, Enrollment>();
+        if (input == null || input.isEmpty()) {
+            iModel = generate(rnd);
+            for (Request request: iModel.variables()) {
+                List<Enrollment> values = request.values(iAssignment);
+                if (values.isEmpty()) continue;
+                Enrollment enrollment = values.get(rnd.nextInt(values.size()));
+                if (iModel.conflictValues(iAssignment, enrollment).isEmpty())
+                    iAssignment.assign(0, enrollment);
+            }
+        } else {
+            DataProperties config = new DataProperties();
+            config.setProperty("General.Input", input);
+            iModel = new StudentSectioningModel(config);
+            StudentSectioningXMLLoader loader = new StudentSectioningXMLLoader(iModel, iAssignment);
+            loader.setInputFile(new File(input));
+            loader.load();
+        }
+        iRequests = new ArrayList<CourseRequest>();
+        for (Request request: iModel.variables())
+            if (request instanceof CourseRequest && !request.values(iAssignment).isEmpty())
+                iRequests.add((CourseRequest)request);
+        iMoves = new ArrayList<Enrollment>();
+        while (iMoves.size() < 1024) {
+            CourseRequest request = iRequests.get(rnd.nextInt(iRequests.size()));
+            List<Enrollment> values = request.values(iAssignment);
+            iMoves.add(values.get(rnd.nextInt(values.size())));
+        }
+    }
+
+    /**
+     * Synthetic problem: each course has a lecture subpart and a recitation subpart (with each recitation
+     * belonging to one of the lectures), students are requesting four to six courses each.
+     */
+    protected StudentSectioningModel generate(Random rnd) {
+        StudentSectioningModel model = new StudentSectioningModel(new DataProperties());
+        int mwf = Constants.DAY_CODES[0] | Constants.DAY_CODES[2] | Constants.DAY_CODES[4];
+        int tth = Constants.DAY_CODES[1] | Constants.DAY_CODES[3];
+        List<Course> courses = new ArrayList<Course>();
+        long id = 0;
+        for (int i = 0; i < nrCourses; i++) {
+            Offering offering = new Offering(i, "C" + i);
+            Course course = new Course(i, "SUBJ", String.valueOf(100 + i), offering, -1, 0);
+            Config config = new Config(i, -1, "Config", offering);
+            Subpart lec = new Subpart(id++, "Lec", "Lec", config, null);
+            Subpart rec = new Subpart(id++, "Rec", "Rec", config, lec);
+            int nrLectures = 1 + rnd.nextInt(3), nrRecitations = nrLectures * (1 + rnd.nextInt(3));
+            int limit = (nrStudents * 5 / nrCourses) + 10;
+            List<Section> lectures = new ArrayList<Section>();
+            for (int j = 0; j < nrLectures; j++) {
+                TimeLocation time = new TimeLocation(mwf, Constants.DAY_SLOTS_FIRST + 6 + 12 * rnd.nextInt(10), 12, 0, 0.0, null, "Full Term", null, 10);
+                lectures.add(new Section(id++, limit / nrLectures + 1, "L" + j, lec, new Placement(null, time, new ArrayList<RoomLocation>()), null));
+            }
+            for (int j = 0; j < nrRecitations; j++) {
+                TimeLocation time = new TimeLocation(tth, Constants.DAY_SLOTS_FIRST + 6 + 18 * rnd.nextInt(6), 18, 0, 0.0, null, "Full Term", null, 10);
+                new Section(id++, limit / nrRecitations + 1, "R" + j, rec, new Placement(null, time, new ArrayList<RoomLocation>()), lectures.get(j % nrLectures));
+            }
+            model.addOffering(offering);
+            courses.add(course);
+        }
+        for (int i = 0; i < nrStudents; i++) {
+            Student student = new Student(i);
+            Set<Course> requested = new HashSet<Course>();
+            int count = Math.min(4 + rnd.nextInt(3), courses.size());
+            while (requested.size() < count)
+                requested.add(courses.get(rnd.nextInt(courses.size())));
+            int priority = 0;
+            for (Course course: requested) {
+                List<Course> alternatives = new ArrayList<Course>();
+                alternatives.add(course);
+                new CourseRequest(id++, priority++, false, student, alternatives, false, null);
+            }
+            model.addStudent(student);
+        }
+        return model;
+    }
+
+    private Enrollment nextMove() {
+        Enrollment enrollment = iMoves.get(iMove);
+        iMove = (iMove + 1) % iMoves.size();
+        return enrollment;
+    }
+
+    /** Possible enrollments of a course request (the value cache is bypassed) */
+    @Benchmark
+    public void computeEnrollments(Blackhole bh) {
+        CourseRequest request = iRequests.get(iRequest);
+        iRequest = (iRequest + 1) % iRequests.size();
+        bh.consume(request.computeEnrollments(iAssignment));
+    }
+
+    /** Assign an enrollment and then restore the previous assignment of the course request */
+    @Benchmark
+    public Enrollment assignUnassign() {
+        Enrollment enrollment = nextMove();
+        Enrollment old = iAssignment.assign(++iIteration, enrollment);
+        if (old == null)
+            iAssignment.unassign(++iIteration, enrollment.variable());
+        else
+            iAssignment.assign(++iIteration, old);
+        return old;
+    }
+
+    /** Conflicting enrollments of a proposed enrollment */
+    @Benchmark
+    public void conflictValues(Blackhole bh) {
+        bh.consume(iModel.conflictValues(iAssignment, nextMove()));
+    }
+
+    /** Overall solution value */
+    @Benchmark
+    public double totalValue() {
+        return iModel.getTotalValue(iAssignment);
+    }
+}
@@ -352,9 +352,9 @@ public class Test implements SolutionListener<Lecture, Placement> {
             iCSVFile.print(colSeparator);
             iCSVFile.print(sDoubleFormat.format((solution.getIteration()) / solution.getTime()));
             iCSVFile.print(colSeparator);
-            iCSVFile.print(model.perturbVariables(assignment).size());
+            iCSVFile.print(model.nrPerturbVariables(assignment));
             iCSVFile.print(colSeparator);
-            iCSVFile.print(sDoubleFormat.format(100.0 * model.perturbVariables(assignment).size() / model.variables().size()));
+            iCSVFile.print(sDoubleFormat.format(100.0 * model.nrPerturbVariables(assignment) / model.variables().size()));
             iCSVFile.print(colSeparator);
             iCSVFile.print(Math.round(solution.getModel().getCriterion(StudentHardConflict.class).getValue(assignment)));
             iCSVFile.print(colSeparator);
@@ -891,7 +891,7 @@ public class Test implements SolutionListener<Lecture, Placement> {
                 Map<String, Double> mppInfo = ((UniversalPerturbationsCounter)((Perturbations)m.getCriterion(Perturbations.class)).getPerturbationsCounter()).getCompactInfo(a, m, false, false);
                 int pidx = 51;
                 w.println("000." + dx.format(pidx++) + " Perturbation penalty," + sDoubleFormat.format(m.getCriterion(Perturbations.class).getValue(a)));
-                w.println("000." + dx.format(pidx++) + " Additional perturbations," + m.perturbVariables(a).size());
+                w.println("000." + dx.format(pidx++) + " Additional perturbations," + m.nrPerturbVariables(a));
                 int nrPert = 0, nrStudentPert = 0;
                 for (Lecture lecture : m.variables()) {
                     if (lecture.getInitialAssignment() != null)
@@ -1,6 +1,10 @@
 package org.cpsolver.coursett;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.BitSet;
@@ -14,6 +18,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
 
 
 import org.cpsolver.coursett.constraint.ClassLimitConstraint;
@@ -44,8 +56,10 @@ import org.cpsolver.ifs.solver.Solver;
 import org.cpsolver.ifs.util.Progress;
 import org.cpsolver.ifs.util.ToolBox;
 import org.dom4j.Document;
+import org.dom4j.DocumentFactory;
 import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
+import org.dom4j.io.STAXEventReader;
 
 /**
  * This class loads the input model from XML file. <br>
@@ -83,7 +97,14 @@ import org.dom4j.io.SAXReader;
  * <td>{@link Boolean}</td>
  * <td>Consider distances between buildings</td>
  * </tr>
+ * <tr>
+ * <td>Xml.StreamingLoader</td>
+ * <td>{@link Boolean}</td>
+ * <td>Use the streaming (StAX) loader that does not read the whole document into the memory
+ * (see {@link TimetableXMLLoader#doLoad(Solution, XMLEventReader)}), defaults to false</td>
+ * </tr>
  * </table>
+ * The input file can be compressed using gzip (file name ending with .gz).
  * 
  * @version CourseTT 1.3 (University Course Timetabling)<br>
  *          Copyright (C) 2006 - 2014 Tomas Muller<br>
@@ -116,6 +137,24 @@ public class TimetableXMLLoader extends TimetableLoader {
     private File iInputFile;
 
     private Progress iProgress = null;
+    private boolean iStreaming = false;
+    
+    // loading state, shared between the loading of the individual elements
+    private boolean iSectionWholeCourse = true, iInitialSectioning = true;
+    private int iOrd = 0;
+    private HashMap<Long, TimeLocation> iPerts = null;
+    private HashMap<String, Element> iRoomElements = null;
+    private HashMap<String, RoomConstraint> iRoomConstraints = null;
+    private HashMap<Long, List<Lecture>> iSameLectures = null;
+    private HashMap<String, InstructorConstraint> iInstructorConstraints = null;
+    private HashMap<Long, String> iDepts = null;
+    private HashMap<Long, Configuration> iConfigs = null;
+    private HashMap<Long, List<Configuration>> iAlternativeConfigurations = null;
+    private HashMap<String, Lecture> iLectures = null;
+    private HashMap<Lecture, Placement> iAssignedPlacements = null;
+    private HashMap<Lecture, String> iParents = null;
+    private HashMap<Long, Student> iStudents = null;
+    private HashMap<Long, Set<Student>> iOffering2students = null;
 
     public TimetableXMLLoader(TimetableModel model, Assignment<Lecture, Placement> assignment) {
         super(model, assignment);
@@ -125,6 +164,7 @@ public class TimetableXMLLoader extends TimetableLoader {
         iForcedPerturbances = getModel().getProperties().getPropertyInt("General.ForcedPerturbances", 0);
         iDeptBalancing = getModel().getProperties().getPropertyBoolean("General.DeptBalancing", true);
         iInteractiveMode = getModel().getProperties().getPropertyBoolean("General.InteractiveMode", iInteractiveMode);
+        iStreaming = getModel().getProperties().getPropertyBoolean("Xml.StreamingLoader", iStreaming);
     }
 
     private Solver<Lecture, Placement> iSolver = null;
@@ -146,25 +186,58 @@ public class TimetableXMLLoader extends TimetableLoader {
         load(null);
     }
     
+    /**
+     * Open the input file. When the file name ends with .gz, the input is decompressed on the fly.
+     * @return input stream of the input file
+     * @throws IOException when the file cannot be opened
+     */
+    protected InputStream openInputStream() throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(iInputFile));
+        if (iInputFile.getName().toLowerCase().endsWith(".gz"))
+            return new GZIPInputStream(in);
+        return in;
+    }
+    
+    /**
+     * Use the streaming loader (see {@link TimetableXMLLoader#doLoad(Solution, XMLEventReader)}), that is, when
+     * the Xml.StreamingLoader parameter is set to true. Since the input perturbations (MPP.TimePert) are
+     * written at the end of the file but needed before the classes are created, the whole document is read
+     * when they are requested.
+     * @return true if the streaming loader is to be used
+     */
+    public boolean isStreaming() {
+        return iStreaming && getModel().getProperties().getPropertyInt("MPP.TimePert", 0) <= 0;
+    }
+    
     public void load(Solution<Lecture, Placement> currentSolution) throws Exception {
         sLogger.debug("Reading XML data from " + iInputFile);
         iProgress.setPhase("Reading " + iInputFile.getName() + " ...");
 
-        Document document = (new SAXReader()).read(iInputFile);
-        Element root = document.getRootElement();
+        Element root = null;
+        InputStream in = openInputStream();
+        try {
+            if (isStreaming()) {
+                root = doLoad(currentSolution, XMLInputFactory.newInstance().createXMLEventReader(in));
+            } else {
+                Document document = (new SAXReader()).read(in);
+                root = document.getRootElement();
 
-        sLogger.debug("Root element: " + root.getName());
-        if (!"llrt".equals(root.getName()) && !"timetable".equals(root.getName())) {
-            throw new IllegalArgumentException("Given XML file is not large lecture room timetabling problem.");
-        }
+                sLogger.debug("Root element: " + root.getName());
+                if (!"llrt".equals(root.getName()) && !"timetable".equals(root.getName())) {
+                    throw new IllegalArgumentException("Given XML file is not large lecture room timetabling problem.");
+                }
 
-        if (root.element("input") != null)
-            root = root.element("input");
+                if (root.element("input") != null)
+                    root = root.element("input");
 
-        iProgress.load(root, true);
-        iProgress.message(Progress.MSGLEVEL_STAGE, "Restoring from backup ...");
+                iProgress.load(root, true);
+                iProgress.message(Progress.MSGLEVEL_STAGE, "Restoring from backup ...");
 
-        doLoad(currentSolution, root);
+                doLoad(currentSolution, root);
+            }
+        } finally {
+            in.close();
+        }
 
         try {
             getSolver().getClass().getMethod("load", new Class[] { Element.class }).invoke(getSolver(), new Object[] { root });
@@ -203,6 +276,208 @@ public class TimetableXMLLoader extends TimetableLoader {
     }
     
     protected void doLoad(Solution<Lecture, Placement> currentSolution, Element root) {
+        beginLoad(root);
+        
+        if (getModel().getProperties().getPropertyInt("MPP.TimePert", 0) > 0) {
+            int nrChanges = getModel().getProperties().getPropertyInt("MPP.TimePert", 0);
+            int idx = 0;
+            for (Iterator<?> i = root.element("perturbations").elementIterator("class"); i.hasNext() && idx < nrChanges; idx++)
+                loadPerturbation((Element) i.next());
+        }
+        
+        for (Section section: Section.values()) {
+            Element sectionEl = root.element(section.getName());
+            if (sectionEl == null) continue;
+            if (section.getPhase() != null)
+                iProgress.setPhase(section.getPhase(), sectionEl.elements(section.getElementName()).size());
+            for (Iterator<?> i = sectionEl.elementIterator(section.getElementName()); i.hasNext();)
+                loadElement(section, (Element) i.next());
+            sectionLoaded(section);
+        }
+        
+        endLoad(currentSolution);
+    }
+    
+    /**
+     * Streaming variant of {@link TimetableXMLLoader#doLoad(Solution, Element)}. The input is parsed using StAX,
+     * and only one element of each section (e.g., a class or a student) is read into the memory at a time and
+     * passed to the same method as in the case of the DOM loader (e.g., {@link TimetableXMLLoader#loadClass(Element)}),
+     * producing an identical model. The sections must follow the order in which they are written by
+     * {@link TimetableXMLSaver} (rooms, instructors, departments, configurations, classes, group constraints,
+     * students, and student groups), some of them may be missing.
+     * @param currentSolution current solution (best assignment is loaded into it, if not null)
+     * @param reader XML event reader of the input file
+     * @return root element (or the input element, if present) with all its attributes and all the elements that are
+     * not among the problem sections (e.g., the progress log)
+     * @throws XMLStreamException when the input cannot be parsed
+     */
+    protected Element doLoad(Solution<Lecture, Placement> currentSolution, XMLEventReader reader) throws XMLStreamException {
+        STAXEventReader elementReader = new STAXEventReader();
+        Element root = null, data = null;
+        int depth = 0;
+        Section last = null;
+        Set<Section> loaded = new HashSet<Section>();
+        while (reader.hasNext()) {
+            XMLEvent event = reader.peek();
+            if (event.isEndElement()) {
+                reader.nextEvent(); depth--;
+                continue;
+            }
+            if (!event.isStartElement()) {
+                reader.nextEvent();
+                continue;
+            }
+            StartElement start = event.asStartElement();
+            if (root == null) {
+                root = createElement(start);
+                sLogger.debug("Root element: " + root.getName());
+                if (!"llrt".equals(root.getName()) && !"timetable".equals(root.getName()))
+                    throw new IllegalArgumentException("Given XML file is not large lecture room timetabling problem.");
+                reader.nextEvent(); depth++;
+                continue;
+            }
+            if (data == null) {
+                if (depth == 1 && "input".equals(start.getName().getLocalPart())) {
+                    data = createElement(start);
+                    reader.nextEvent(); depth++;
+                } else {
+                    data = root;
+                }
+                iProgress.load(data, true);
+                iProgress.message(Progress.MSGLEVEL_STAGE, "Restoring from backup ...");
+                beginLoad(data);
+                continue;
+            }
+            if (depth != (data == root ? 1 : 2)) {
+                // outside of the input element
+                elementReader.readElement(reader);
+                continue;
+            }
+            Section section = Section.fromName(start.getName().getLocalPart());
+            if (section == null || loaded.contains(section)) {
+                Element element = elementReader.readElement(reader);
+                if (section == null) {
+                    data.add(element);
+                    if ("log".equals(element.getName()))
+                        iProgress.load(data, false);
+                }
+                continue;
+            }
+            if (last != null && section.compareTo(last) < 0)
+                throw new IllegalArgumentException("Element " + section.getName() + " must precede element " + last.getName() + " (or set Xml.StreamingLoader to false).");
+            reader.nextEvent();
+            if (section.getPhase() != null)
+                iProgress.setPhase(section.getPhase());
+            while (reader.hasNext()) {
+                XMLEvent e = reader.peek();
+                if (e.isEndElement()) {
+                    reader.nextEvent();
+                    break;
+                } else if (e.isStartElement()) {
+                    Element element = elementReader.readElement(reader);
+                    if (section.getElementName().equals(element.getName()))
+                        loadElement(section, element);
+                } else {
+                    reader.nextEvent();
+                }
+            }
+            sectionLoaded(section);
+            loaded.add(section); last = section;
+        }
+        if (data == null) {
+            // empty document
+            data = root;
+            beginLoad(data);
+        }
+        
+        endLoad(currentSolution);
+        return data;
+    }
+    
+    /**
+     * Create an element with the name and attributes of the given start element
+     */
+    private Element createElement(StartElement start) {
+        Element element = DocumentFactory.getInstance().createElement(start.getName().getLocalPart());
+        for (Iterator<?> i = start.getAttributes(); i.hasNext(); ) {
+            Attribute attribute = (Attribute) i.next();
+            element.addAttribute(attribute.getName().getLocalPart(), attribute.getValue());
+        }
+        return element;
+    }
+    
+    /**
+     * Problem sections, in the order in which they are loaded
+     */
+    protected static enum Section {
+        Rooms("rooms", "room", "Creating rooms ..."),
+        Instructors("instructors", "instructor", null),
+        Departments("departments", "department", null),
+        Configurations("configurations", "config", null),
+        Classes("classes", "class", "Creating variables ..."),
+        GroupConstraints("groupConstraints", "constraint", "Creating constraints ..."),
+        Students("students", "student", "Loading students ..."),
+        Groups("groups", "group", "Loading student groups ..."),
+        ;
+        private String iName, iElementName, iPhase;
+        Section(String name, String elementName, String phase) {
+            iName = name; iElementName = elementName; iPhase = phase;
+        }
+        /** Name of the section element */
+        public String getName() { return iName; }
+        /** Name of the elements of the section */
+        public String getElementName() { return iElementName; }
+        /** Progress phase, null if no phase is to be set */
+        public String getPhase() { return iPhase; }
+        /** Section of the given element name, null if there is no such section */
+        public static Section fromName(String name) {
+            for (Section section: values())
+                if (section.getName().equals(name)) return section;
+            return null;
+        }
+    }
+    
+    /**
+     * Load an element of a section
+     * @param section problem section
+     * @param element element of the section (e.g., a room of the rooms section)
+     */
+    protected void loadElement(Section section, Element element) {
+        switch (section) {
+            case Rooms: loadRoom(element); break;
+            case Instructors: loadInstructor(element); break;
+            case Departments: loadDepartment(element); break;
+            case Configurations: loadConfiguration(element); break;
+            case Classes: loadClass(element); break;
+            case GroupConstraints: loadGroupConstraint(element); break;
+            case Students: loadStudent(element); break;
+            case Groups: loadGroup(element); break;
+        }
+    }
+    
+    /**
+     * Called when all the elements of a section have been loaded
+     * @param section problem section
+     */
+    protected void sectionLoaded(Section section) {
+        if (section == Section.Classes) {
+            for (Map.Entry<Lecture, String> entry : iParents.entrySet()) {
+                Lecture lecture = entry.getKey();
+                Lecture parent = iLectures.get(entry.getValue());
+                if (parent == null) {
+                    iProgress.warn("Parent class " + entry.getValue() + " does not exists.");
+                } else {
+                    lecture.setParent(parent);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Initialize the loading: read the root attributes and clear the loading state
+     * @param root root element (or the input element)
+     */
+    protected void beginLoad(Element root) {
         if (root.attributeValue("term") != null)
             getModel().getProperties().setProperty("Data.Term", root.attributeValue("term"));
         if (root.attributeValue("year") != null)
@@ -221,596 +496,598 @@ public class TimetableXMLLoader extends TimetableLoader {
         String version = root.attributeValue("version");
        
         // Student sectioning considers the whole course (including committed classes), since 2.5
-        boolean sectionWholeCourse = true;
+        iSectionWholeCourse = true;
         
         if (version != null && version.indexOf('.') >= 0) {
             int majorVersion = Integer.parseInt(version.substring(0, version.indexOf('.')));
             int minorVersion = Integer.parseInt(version.substring(1 + version.indexOf('.')));
             
-            sectionWholeCourse = (majorVersion == 2 && minorVersion >= 5) || majorVersion > 2;
+            iSectionWholeCourse = (majorVersion == 2 && minorVersion >= 5) || majorVersion > 2;
         }
         
-        HashMap<Long, TimeLocation> perts = new HashMap<Long, TimeLocation>();
-        if (getModel().getProperties().getPropertyInt("MPP.TimePert", 0) > 0) {
-            int nrChanges = getModel().getProperties().getPropertyInt("MPP.TimePert", 0);
-            int idx = 0;
-            for (Iterator<?> i = root.element("perturbations").elementIterator("class"); i.hasNext() && idx < nrChanges; idx++) {
-                Element pertEl = (Element) i.next();
-                Long classId = Long.valueOf(pertEl.attributeValue("id"));
-                TimeLocation tl = new TimeLocation(Integer.parseInt(pertEl.attributeValue("days"), 2), Integer
-                        .parseInt(pertEl.attributeValue("start")), Integer.parseInt(pertEl.attributeValue("length")),
-                        0, 0.0, 0, null, null, null, 0);
-                perts.put(classId, tl);
-            }
-        }
-
-        iProgress.setPhase("Creating rooms ...", root.element("rooms").elements("room").size());
-        HashMap<String, Element> roomElements = new HashMap<String, Element>();
-        HashMap<String, RoomConstraint> roomConstraints = new HashMap<String, RoomConstraint>();
-        HashMap<Long, List<Lecture>> sameLectures = new HashMap<Long, List<Lecture>>();
-        for (Iterator<?> i = root.element("rooms").elementIterator("room"); i.hasNext();) {
-            Element roomEl = (Element) i.next();
-            iProgress.incProgress();
-            roomElements.put(roomEl.attributeValue("id"), roomEl);
-            if ("false".equals(roomEl.attributeValue("constraint")))
-                continue;
-            RoomSharingModel sharingModel = null;
-            Element sharingEl = roomEl.element("sharing");
-            if (sharingEl != null) {
-                Character freeForAllPrefChar = null;
-                Element freeForAllEl = sharingEl.element("freeForAll");
-                if (freeForAllEl != null)
-                    freeForAllPrefChar = freeForAllEl.attributeValue("value", "F").charAt(0);
-                Character notAvailablePrefChar = null;
-                Element notAvailableEl = sharingEl.element("notAvailable");
-                if (notAvailableEl != null)
-                    notAvailablePrefChar = notAvailableEl.attributeValue("value", "X").charAt(0);
-                String pattern = sharingEl.element("pattern").getText();
-                int unit = Integer.parseInt(sharingEl.element("pattern").attributeValue("unit", "1"));
-                Map<Character, Long> departments = new HashMap<Character, Long>();
-                for (Iterator<?> j = sharingEl.elementIterator("department"); j.hasNext(); ) {
-                    Element deptEl = (Element)j.next();
-                    char value = deptEl.attributeValue("value", String.valueOf((char)('0' + departments.size()))).charAt(0);
-                    Long id = Long.valueOf(deptEl.attributeValue("id")); 
-                    departments.put(value, id);
+        iOrd = 0;
+        iInitialSectioning = true;
+        iPerts = new HashMap<Long, TimeLocation>();
+        iRoomElements = new HashMap<String, Element>();
+        iRoomConstraints = new HashMap<String, RoomConstraint>();
+        iSameLectures = new HashMap<Long, List<Lecture>>();
+        iInstructorConstraints = new HashMap<String, InstructorConstraint>();
+        iDepts = new HashMap<Long, String>();
+        iConfigs = new HashMap<Long, Configuration>();
+        iAlternativeConfigurations = new HashMap<Long, List<Configuration>>();
+        iLectures = new HashMap<String, Lecture>();
+        iAssignedPlacements = new HashMap<Lecture, Placement>();
+        iParents = new HashMap<Lecture, String>();
+        iStudents = new HashMap<Long, Student>();
+        iOffering2students = new HashMap<Long, Set<Student>>();
+    }
+    
+    /**
+     * Load an input perturbation (a prohibited time of a class)
+     * @param pertEl perturbation element
+     */
+    protected void loadPerturbation(Element pertEl) {
+        Long classId = Long.valueOf(pertEl.attributeValue("id"));
+        TimeLocation tl = new TimeLocation(Integer.parseInt(pertEl.attributeValue("days"), 2), Integer
+                .parseInt(pertEl.attributeValue("start")), Integer.parseInt(pertEl.attributeValue("length")),
+                0, 0.0, 0, null, null, null, 0);
+        iPerts.put(classId, tl);
+    }
+    
+    /**
+     * Load a room
+     * @param roomEl room element
+     */
+    protected void loadRoom(Element roomEl) {
+        iProgress.incProgress();
+        iRoomElements.put(roomEl.attributeValue("id"), roomEl);
+        if ("false".equals(roomEl.attributeValue("constraint")))
+            return;
+        RoomSharingModel sharingModel = null;
+        Element sharingEl = roomEl.element("sharing");
+        if (sharingEl != null) {
+            Character freeForAllPrefChar = null;
+            Element freeForAllEl = sharingEl.element("freeForAll");
+            if (freeForAllEl != null)
+                freeForAllPrefChar = freeForAllEl.attributeValue("value", "F").charAt(0);
+            Character notAvailablePrefChar = null;
+            Element notAvailableEl = sharingEl.element("notAvailable");
+            if (notAvailableEl != null)
+                notAvailablePrefChar = notAvailableEl.attributeValue("value", "X").charAt(0);
+            String pattern = sharingEl.element("pattern").getText();
+            int unit = Integer.parseInt(sharingEl.element("pattern").attributeValue("unit", "1"));
+            Map<Character, Long> departments = new HashMap<Character, Long>();
+            for (Iterator<?> j = sharingEl.elementIterator("department"); j.hasNext(); ) {
+                Element deptEl = (Element)j.next();
+                char value = deptEl.attributeValue("value", String.valueOf((char)('0' + departments.size()))).charAt(0);
+                Long id = Long.valueOf(deptEl.attributeValue("id")); 
+                departments.put(value, id);
+            }
+            sharingModel = new RoomSharingModel(unit, departments, pattern, freeForAllPrefChar, notAvailablePrefChar);
+        }
+        boolean ignoreTooFar = false;
+        if ("true".equals(roomEl.attributeValue("ignoreTooFar")))
+            ignoreTooFar = true;
+        boolean fake = false;
+        if ("true".equals(roomEl.attributeValue("fake")))
+            fake = true;
+        Double posX = null, posY = null;
+        if (roomEl.attributeValue("location") != null) {
+            String loc = roomEl.attributeValue("location");
+            posX = Double.valueOf(loc.substring(0, loc.indexOf(',')));
+            posY = Double.valueOf(loc.substring(loc.indexOf(',') + 1));
+        }
+        boolean discouraged = "true".equals(roomEl.attributeValue("discouraged"));
+        RoomConstraint constraint = (discouraged ? new DiscouragedRoomConstraint(
+                getModel().getProperties(),
+                Long.valueOf(roomEl.attributeValue("id")),
+                (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
+                        + roomEl.attributeValue("id")),
+                (roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl.attributeValue("building"))),
+                Integer.parseInt(roomEl.attributeValue("capacity")), sharingModel, posX, posY, ignoreTooFar, !fake)
+                : new RoomConstraint(Long.valueOf(roomEl.attributeValue("id")),
+                        (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
+                                + roomEl.attributeValue("id")), (roomEl.attributeValue("building") == null ? null
+                                : Long.valueOf(roomEl.attributeValue("building"))), Integer.parseInt(roomEl
+                                .attributeValue("capacity")), sharingModel, posX, posY, ignoreTooFar, !fake));
+        if (roomEl.attributeValue("type") != null)
+            constraint.setType(Long.valueOf(roomEl.attributeValue("type")));
+        getModel().addConstraint(constraint);
+        iRoomConstraints.put(roomEl.attributeValue("id"), constraint);
+        getModel().getDistanceMetric().addLocation(constraint.getResourceId(), posX, posY);
+        
+        for (Iterator<?> j = roomEl.elementIterator("travel-time"); j.hasNext();) {
+            Element travelTimeEl = (Element)j.next();
+            getModel().getDistanceMetric().addTravelTime(constraint.getResourceId(),
+                    Long.valueOf(travelTimeEl.attributeValue("id")),
+                    Integer.valueOf(travelTimeEl.attributeValue("minutes")));
+        }
+    }
+    
+    /**
+     * Load an instructor
+     * @param instructorEl instructor element
+     */
+    protected void loadInstructor(Element instructorEl) {
+        InstructorConstraint instructorConstraint = new InstructorConstraint(Long.valueOf(instructorEl
+                .attributeValue("id")), instructorEl.attributeValue("puid"), (instructorEl
+                .attributeValue("name") != null ? instructorEl.attributeValue("name") : "i"
+                + instructorEl.attributeValue("id")), "true".equals(instructorEl.attributeValue("ignDist")));
+        if (instructorEl.attributeValue("type") != null)
+            instructorConstraint.setType(Long.valueOf(instructorEl.attributeValue("type")));
+        iInstructorConstraints.put(instructorEl.attributeValue("id"), instructorConstraint);
+
+        getModel().addConstraint(instructorConstraint);
+    }
+    
+    /**
+     * Load a department
+     * @param deptEl department element
+     */
+    protected void loadDepartment(Element deptEl) {
+        iDepts.put(Long.valueOf(deptEl.attributeValue("id")), (deptEl.attributeValue("name") != null ? deptEl
+                .attributeValue("name") : "d" + deptEl.attributeValue("id")));
+    }
+    
+    /**
+     * Load an offering configuration
+     * @param configEl configuration element
+     */
+    protected void loadConfiguration(Element configEl) {
+        Long configId = Long.valueOf(configEl.attributeValue("id"));
+        int limit = Integer.parseInt(configEl.attributeValue("limit"));
+        Long offeringId = Long.valueOf(configEl.attributeValue("offering"));
+        Configuration config = new Configuration(offeringId, configId, limit);
+        iConfigs.put(configId, config);
+        List<Configuration> altConfigs = iAlternativeConfigurations.get(offeringId);
+        if (altConfigs == null) {
+            altConfigs = new ArrayList<Configuration>();
+            iAlternativeConfigurations.put(offeringId, altConfigs);
+        }
+        altConfigs.add(config);
+        config.setAltConfigurations(altConfigs);
+    }
+    
+    /**
+     * Load a class
+     * @param classEl class element
+     */
+    protected void loadClass(Element classEl) {
+        Configuration config = null;
+        if (classEl.attributeValue("config") != null) {
+            config = iConfigs.get(Long.valueOf(classEl.attributeValue("config")));
+        }
+        if (config == null && classEl.attributeValue("offering") != null) {
+            Long offeringId = Long.valueOf(classEl.attributeValue("offering"));
+            Long configId = Long.valueOf(classEl.attributeValue("config"));
+            List<Configuration> altConfigs = iAlternativeConfigurations.get(offeringId);
+            if (altConfigs == null) {
+                altConfigs = new ArrayList<Configuration>();
+                iAlternativeConfigurations.put(offeringId, altConfigs);
+            }
+            for (Configuration c : altConfigs) {
+                if (c.getConfigId().equals(configId)) {
+                    config = c;
+                    break;
                 }
-                sharingModel = new RoomSharingModel(unit, departments, pattern, freeForAllPrefChar, notAvailablePrefChar);
             }
+            if (config == null) {
+                config = new Configuration(offeringId, configId, -1);
+                altConfigs.add(config);
+                config.setAltConfigurations(altConfigs);
+                iConfigs.put(config.getConfigId(), config);
+            }
+        }
+
+        DatePattern defaultDatePattern = new DatePattern();
+        if (classEl.attributeValue("dates") == null) {
+            int startDay = Integer.parseInt(classEl.attributeValue("startDay", "0"));
+            int endDay = Integer.parseInt(classEl.attributeValue("endDay", "1"));
+            defaultDatePattern.setPattern(startDay, endDay);
+            defaultDatePattern.setName(sDF.format(getDate(getModel().getYear(), startDay)) + "-" + sDF.format(getDate(getModel().getYear(), endDay)));
+        } else {
+            defaultDatePattern.setId(classEl.attributeValue("datePattern") == null ? null : Long.valueOf(classEl.attributeValue("datePattern")));
+            defaultDatePattern.setName(classEl.attributeValue("datePatternName"));
+            defaultDatePattern.setPattern(classEl.attributeValue("dates"));
+        }
+        Hashtable<Long, DatePattern> datePatterns = new Hashtable<Long, TimetableXMLLoader.DatePattern>();
+        for (Iterator<?> i2 = classEl.elementIterator("date"); i2.hasNext();) {
+            Element dateEl = (Element) i2.next();
+            Long id = Long.valueOf(dateEl.attributeValue("id"));
+            datePatterns.put(id, new DatePattern(
+                    id,
+                    dateEl.attributeValue("name"),
+                    dateEl.attributeValue("pattern")));
+        }
+        List<InstructorConstraint> ics = new ArrayList<InstructorConstraint>();
+        for (Iterator<?> i2 = classEl.elementIterator("instructor"); i2.hasNext();) {
+            Element instructorEl = (Element) i2.next();
+            InstructorConstraint instructorConstraint = iInstructorConstraints
+                    .get(instructorEl.attributeValue("id"));
+            if (instructorConstraint == null) {
+                instructorConstraint = new InstructorConstraint(Long.valueOf(instructorEl.attributeValue("id")),
+                        instructorEl.attributeValue("puid"),
+                        (instructorEl.attributeValue("name") != null ? instructorEl.attributeValue("name") : "i"
+                                + instructorEl.attributeValue("id")), "true".equals(instructorEl
+                                .attributeValue("ignDist")));
+                iInstructorConstraints.put(instructorEl.attributeValue("id"), instructorConstraint);
+                getModel().addConstraint(instructorConstraint);
+            }
+            ics.add(instructorConstraint);
+        }
+        List<RoomLocation> roomLocations = new ArrayList<RoomLocation>();
+        List<RoomConstraint> roomConstraintsThisClass = new ArrayList<RoomConstraint>();
+        List<RoomLocation> initialRoomLocations = new ArrayList<RoomLocation>();
+        List<RoomLocation> assignedRoomLocations = new ArrayList<RoomLocation>();
+        List<RoomLocation> bestRoomLocations = new ArrayList<RoomLocation>();
+        for (Iterator<?> i2 = classEl.elementIterator("room"); i2.hasNext();) {
+            Element roomLocationEl = (Element) i2.next();
+            Element roomEl = iRoomElements.get(roomLocationEl.attributeValue("id"));
+            RoomConstraint roomConstraint = iRoomConstraints.get(roomLocationEl.attributeValue("id"));
+
+            Long roomId = null;
+            String roomName = null;
+            Long bldgId = null;
+
+            if (roomConstraint != null) {
+                roomConstraintsThisClass.add(roomConstraint);
+                roomId = roomConstraint.getResourceId();
+                roomName = roomConstraint.getRoomName();
+                bldgId = roomConstraint.getBuildingId();
+            } else {
+                roomId = Long.valueOf(roomEl.attributeValue("id"));
+                roomName = (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
+                        + roomEl.attributeValue("id"));
+                bldgId = (roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl
+                        .attributeValue("building")));
+            }
+
             boolean ignoreTooFar = false;
             if ("true".equals(roomEl.attributeValue("ignoreTooFar")))
                 ignoreTooFar = true;
-            boolean fake = false;
-            if ("true".equals(roomEl.attributeValue("fake")))
-                fake = true;
             Double posX = null, posY = null;
             if (roomEl.attributeValue("location") != null) {
                 String loc = roomEl.attributeValue("location");
                 posX = Double.valueOf(loc.substring(0, loc.indexOf(',')));
                 posY = Double.valueOf(loc.substring(loc.indexOf(',') + 1));
             }
-            boolean discouraged = "true".equals(roomEl.attributeValue("discouraged"));
-            RoomConstraint constraint = (discouraged ? new DiscouragedRoomConstraint(
-                    getModel().getProperties(),
-                    Long.valueOf(roomEl.attributeValue("id")),
-                    (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
-                            + roomEl.attributeValue("id")),
-                    (roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl.attributeValue("building"))),
-                    Integer.parseInt(roomEl.attributeValue("capacity")), sharingModel, posX, posY, ignoreTooFar, !fake)
-                    : new RoomConstraint(Long.valueOf(roomEl.attributeValue("id")),
-                            (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
-                                    + roomEl.attributeValue("id")), (roomEl.attributeValue("building") == null ? null
-                                    : Long.valueOf(roomEl.attributeValue("building"))), Integer.parseInt(roomEl
-                                    .attributeValue("capacity")), sharingModel, posX, posY, ignoreTooFar, !fake));
-            if (roomEl.attributeValue("type") != null)
-                constraint.setType(Long.valueOf(roomEl.attributeValue("type")));
-            getModel().addConstraint(constraint);
-            roomConstraints.put(roomEl.attributeValue("id"), constraint);
-            
-            for (Iterator<?> j = roomEl.elementIterator("travel-time"); j.hasNext();) {
-                Element travelTimeEl = (Element)j.next();
-                getModel().getDistanceMetric().addTravelTime(constraint.getResourceId(),
-                        Long.valueOf(travelTimeEl.attributeValue("id")),
-                        Integer.valueOf(travelTimeEl.attributeValue("minutes")));
-            }
-        }
-
-        HashMap<String, InstructorConstraint> instructorConstraints = new HashMap<String, InstructorConstraint>();
-        if (root.element("instructors") != null) {
-            for (Iterator<?> i = root.element("instructors").elementIterator("instructor"); i.hasNext();) {
-                Element instructorEl = (Element) i.next();
-                InstructorConstraint instructorConstraint = new InstructorConstraint(Long.valueOf(instructorEl
-                        .attributeValue("id")), instructorEl.attributeValue("puid"), (instructorEl
-                        .attributeValue("name") != null ? instructorEl.attributeValue("name") : "i"
-                        + instructorEl.attributeValue("id")), "true".equals(instructorEl.attributeValue("ignDist")));
-                if (instructorEl.attributeValue("type") != null)
-                    instructorConstraint.setType(Long.valueOf(instructorEl.attributeValue("type")));
-                instructorConstraints.put(instructorEl.attributeValue("id"), instructorConstraint);
-
-                getModel().addConstraint(instructorConstraint);
-            }
+            RoomLocation rl = new RoomLocation(roomId, roomName, bldgId, Integer.parseInt(roomLocationEl
+                    .attributeValue("pref")), Integer.parseInt(roomEl.attributeValue("capacity")), posX, posY,
+                    ignoreTooFar, roomConstraint);
+            if ("true".equals(roomLocationEl.attributeValue("initial")))
+                initialRoomLocations.add(rl);
+            if ("true".equals(roomLocationEl.attributeValue("solution")))
+                assignedRoomLocations.add(rl);
+            if ("true".equals(roomLocationEl.attributeValue("best")))
+                bestRoomLocations.add(rl);
+            roomLocations.add(rl);
         }
-        HashMap<Long, String> depts = new HashMap<Long, String>();
-        if (root.element("departments") != null) {
-            for (Iterator<?> i = root.element("departments").elementIterator("department"); i.hasNext();) {
-                Element deptEl = (Element) i.next();
-                depts.put(Long.valueOf(deptEl.attributeValue("id")), (deptEl.attributeValue("name") != null ? deptEl
-                        .attributeValue("name") : "d" + deptEl.attributeValue("id")));
-            }
-        }
-
-        HashMap<Long, Configuration> configs = new HashMap<Long, Configuration>();
-        HashMap<Long, List<Configuration>> alternativeConfigurations = new HashMap<Long, List<Configuration>>();
-        if (root.element("configurations") != null) {
-            for (Iterator<?> i = root.element("configurations").elementIterator("config"); i.hasNext();) {
-                Element configEl = (Element) i.next();
-                Long configId = Long.valueOf(configEl.attributeValue("id"));
-                int limit = Integer.parseInt(configEl.attributeValue("limit"));
-                Long offeringId = Long.valueOf(configEl.attributeValue("offering"));
-                Configuration config = new Configuration(offeringId, configId, limit);
-                configs.put(configId, config);
-                List<Configuration> altConfigs = alternativeConfigurations.get(offeringId);
-                if (altConfigs == null) {
-                    altConfigs = new ArrayList<Configuration>();
-                    alternativeConfigurations.put(offeringId, altConfigs);
-                }
-                altConfigs.add(config);
-                config.setAltConfigurations(altConfigs);
+        List<TimeLocation> timeLocations = new ArrayList<TimeLocation>();
+        TimeLocation initialTimeLocation = null;
+        TimeLocation assignedTimeLocation = null;
+        TimeLocation bestTimeLocation = null;
+        TimeLocation prohibitedTime = iPerts.get(Long.valueOf(classEl.attributeValue("id")));
+        
+        for (Iterator<?> i2 = classEl.elementIterator("time"); i2.hasNext();) {
+            Element timeLocationEl = (Element) i2.next();
+            DatePattern dp = defaultDatePattern;
+            if (timeLocationEl.attributeValue("date") != null)
+                dp = datePatterns.get(Long.valueOf(timeLocationEl.attributeValue("date")));
+            TimeLocation tl = new TimeLocation(
+                    Integer.parseInt(timeLocationEl.attributeValue("days"), 2),
+                    Integer.parseInt(timeLocationEl.attributeValue("start")),
+                    Integer.parseInt(timeLocationEl.attributeValue("length")),
+                    (int) Double.parseDouble(timeLocationEl.attributeValue("pref")),
+                    Double.parseDouble(timeLocationEl.attributeValue("npref", timeLocationEl.attributeValue("pref"))),
+                    Integer.parseInt(timeLocationEl.attributeValue("datePref", "0")),
+                    dp.getId(), dp.getName(), dp.getPattern(),
+                    Integer.parseInt(timeLocationEl.attributeValue("breakTime") == null ? "-1" : timeLocationEl.attributeValue("breakTime")));
+            if (tl.getBreakTime() < 0) tl.setBreakTime(tl.getLength() == 18 ? 15 : 10);
+            if (timeLocationEl.attributeValue("pattern") != null)
+                tl.setTimePatternId(Long.valueOf(timeLocationEl.attributeValue("pattern")));
+            /*
+             * if (timePatternTransform) tl =
+             * transformTimePattern(Long.valueOf
+             * (classEl.attributeValue("id")),tl);
+             */
+            if (prohibitedTime != null && prohibitedTime.getDayCode() == tl.getDayCode()
+                    && prohibitedTime.getStartSlot() == tl.getStartSlot()
+                    && prohibitedTime.getLength() == tl.getLength()) {
+                sLogger.info("Time " + tl.getLongName(true) + " is prohibited for class " + classEl.attributeValue("id"));
+                continue;
             }
+            if ("true".equals(timeLocationEl.attributeValue("solution")))
+                assignedTimeLocation = tl;
+            if ("true".equals(timeLocationEl.attributeValue("initial")))
+                initialTimeLocation = tl;
+            if ("true".equals(timeLocationEl.attributeValue("best")))
+                bestTimeLocation = tl;
+            timeLocations.add(tl);
+        }
+        if (timeLocations.isEmpty()) {
+            sLogger.error("  ERROR: No time.");
+            return;
         }
 
-        iProgress.setPhase("Creating variables ...", root.element("classes").elements("class").size());
-
-        HashMap<String, Element> classElements = new HashMap<String, Element>();
-        HashMap<String, Lecture> lectures = new HashMap<String, Lecture>();
-        HashMap<Lecture, Placement> assignedPlacements = new HashMap<Lecture, Placement>();
-        HashMap<Lecture, String> parents = new HashMap<Lecture, String>();
-        int ord = 0;
-        for (Iterator<?> i1 = root.element("classes").elementIterator("class"); i1.hasNext();) {
-            Element classEl = (Element) i1.next();
-
-            Configuration config = null;
-            if (classEl.attributeValue("config") != null) {
-                config = configs.get(Long.valueOf(classEl.attributeValue("config")));
-            }
-            if (config == null && classEl.attributeValue("offering") != null) {
-                Long offeringId = Long.valueOf(classEl.attributeValue("offering"));
-                Long configId = Long.valueOf(classEl.attributeValue("config"));
-                List<Configuration> altConfigs = alternativeConfigurations.get(offeringId);
-                if (altConfigs == null) {
-                    altConfigs = new ArrayList<Configuration>();
-                    alternativeConfigurations.put(offeringId, altConfigs);
-                }
-                for (Configuration c : altConfigs) {
-                    if (c.getConfigId().equals(configId)) {
-                        config = c;
-                        break;
-                    }
-                }
-                if (config == null) {
-                    config = new Configuration(offeringId, configId, -1);
-                    altConfigs.add(config);
-                    config.setAltConfigurations(altConfigs);
-                    configs.put(config.getConfigId(), config);
-                }
-            }
-
-            DatePattern defaultDatePattern = new DatePattern();
-            if (classEl.attributeValue("dates") == null) {
-                int startDay = Integer.parseInt(classEl.attributeValue("startDay", "0"));
-                int endDay = Integer.parseInt(classEl.attributeValue("endDay", "1"));
-                defaultDatePattern.setPattern(startDay, endDay);
-                defaultDatePattern.setName(sDF.format(getDate(getModel().getYear(), startDay)) + "-" + sDF.format(getDate(getModel().getYear(), endDay)));
+        int minClassLimit = 0;
+        int maxClassLimit = 0;
+        float room2limitRatio = 1.0f;
+        if (!"true".equals(classEl.attributeValue("committed"))) {
+            if (classEl.attributeValue("expectedCapacity") != null) {
+                minClassLimit = maxClassLimit = Integer.parseInt(classEl.attributeValue("expectedCapacity"));
+                int roomCapacity = Integer.parseInt(classEl.attributeValue("roomCapacity", classEl
+                        .attributeValue("expectedCapacity")));
+                if (minClassLimit == 0)
+                    minClassLimit = maxClassLimit = roomCapacity;
+                room2limitRatio = (minClassLimit == 0 ? 1.0f : ((float) roomCapacity) / minClassLimit);
             } else {
-                defaultDatePattern.setId(classEl.attributeValue("datePattern") == null ? null : Long.valueOf(classEl.attributeValue("datePattern")));
-                defaultDatePattern.setName(classEl.attributeValue("datePatternName"));
-                defaultDatePattern.setPattern(classEl.attributeValue("dates"));
-            }
-            Hashtable<Long, DatePattern> datePatterns = new Hashtable<Long, TimetableXMLLoader.DatePattern>();
-            for (Iterator<?> i2 = classEl.elementIterator("date"); i2.hasNext();) {
-                Element dateEl = (Element) i2.next();
-                Long id = Long.valueOf(dateEl.attributeValue("id"));
-                datePatterns.put(id, new DatePattern(
-                        id,
-                        dateEl.attributeValue("name"),
-                        dateEl.attributeValue("pattern")));
-            }
-            classElements.put(classEl.attributeValue("id"), classEl);
-            List<InstructorConstraint> ics = new ArrayList<InstructorConstraint>();
-            for (Iterator<?> i2 = classEl.elementIterator("instructor"); i2.hasNext();) {
-                Element instructorEl = (Element) i2.next();
-                InstructorConstraint instructorConstraint = instructorConstraints
-                        .get(instructorEl.attributeValue("id"));
-                if (instructorConstraint == null) {
-                    instructorConstraint = new InstructorConstraint(Long.valueOf(instructorEl.attributeValue("id")),
-                            instructorEl.attributeValue("puid"),
-                            (instructorEl.attributeValue("name") != null ? instructorEl.attributeValue("name") : "i"
-                                    + instructorEl.attributeValue("id")), "true".equals(instructorEl
-                                    .attributeValue("ignDist")));
-                    instructorConstraints.put(instructorEl.attributeValue("id"), instructorConstraint);
-                    getModel().addConstraint(instructorConstraint);
-                }
-                ics.add(instructorConstraint);
-            }
-            List<RoomLocation> roomLocations = new ArrayList<RoomLocation>();
-            List<RoomConstraint> roomConstraintsThisClass = new ArrayList<RoomConstraint>();
-            List<RoomLocation> initialRoomLocations = new ArrayList<RoomLocation>();
-            List<RoomLocation> assignedRoomLocations = new ArrayList<RoomLocation>();
-            List<RoomLocation> bestRoomLocations = new ArrayList<RoomLocation>();
-            for (Iterator<?> i2 = classEl.elementIterator("room"); i2.hasNext();) {
-                Element roomLocationEl = (Element) i2.next();
-                Element roomEl = roomElements.get(roomLocationEl.attributeValue("id"));
-                RoomConstraint roomConstraint = roomConstraints.get(roomLocationEl.attributeValue("id"));
-
-                Long roomId = null;
-                String roomName = null;
-                Long bldgId = null;
-
-                if (roomConstraint != null) {
-                    roomConstraintsThisClass.add(roomConstraint);
-                    roomId = roomConstraint.getResourceId();
-                    roomName = roomConstraint.getRoomName();
-                    bldgId = roomConstraint.getBuildingId();
+                if (classEl.attribute("classLimit") != null) {
+                    minClassLimit = maxClassLimit = Integer.parseInt(classEl.attributeValue("classLimit"));
                 } else {
-                    roomId = Long.valueOf(roomEl.attributeValue("id"));
-                    roomName = (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
-                            + roomEl.attributeValue("id"));
-                    bldgId = (roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl
-                            .attributeValue("building")));
+                    minClassLimit = Integer.parseInt(classEl.attributeValue("minClassLimit"));
+                    maxClassLimit = Integer.parseInt(classEl.attributeValue("maxClassLimit"));
                 }
-
-                boolean ignoreTooFar = false;
-                if ("true".equals(roomEl.attributeValue("ignoreTooFar")))
-                    ignoreTooFar = true;
-                Double posX = null, posY = null;
-                if (roomEl.attributeValue("location") != null) {
-                    String loc = roomEl.attributeValue("location");
-                    posX = Double.valueOf(loc.substring(0, loc.indexOf(',')));
-                    posY = Double.valueOf(loc.substring(loc.indexOf(',') + 1));
-                }
-                RoomLocation rl = new RoomLocation(roomId, roomName, bldgId, Integer.parseInt(roomLocationEl
-                        .attributeValue("pref")), Integer.parseInt(roomEl.attributeValue("capacity")), posX, posY,
-                        ignoreTooFar, roomConstraint);
-                if ("true".equals(roomLocationEl.attributeValue("initial")))
-                    initialRoomLocations.add(rl);
-                if ("true".equals(roomLocationEl.attributeValue("solution")))
-                    assignedRoomLocations.add(rl);
-                if ("true".equals(roomLocationEl.attributeValue("best")))
-                    bestRoomLocations.add(rl);
-                roomLocations.add(rl);
-            }
-            List<TimeLocation> timeLocations = new ArrayList<TimeLocation>();
-            TimeLocation initialTimeLocation = null;
-            TimeLocation assignedTimeLocation = null;
-            TimeLocation bestTimeLocation = null;
-            TimeLocation prohibitedTime = perts.get(Long.valueOf(classEl.attributeValue("id")));
-            
-            for (Iterator<?> i2 = classEl.elementIterator("time"); i2.hasNext();) {
-                Element timeLocationEl = (Element) i2.next();
-                DatePattern dp = defaultDatePattern;
-                if (timeLocationEl.attributeValue("date") != null)
-                    dp = datePatterns.get(Long.valueOf(timeLocationEl.attributeValue("date")));
-                TimeLocation tl = new TimeLocation(
-                        Integer.parseInt(timeLocationEl.attributeValue("days"), 2),
-                        Integer.parseInt(timeLocationEl.attributeValue("start")),
-                        Integer.parseInt(timeLocationEl.attributeValue("length")),
-                        (int) Double.parseDouble(timeLocationEl.attributeValue("pref")),
-                        Double.parseDouble(timeLocationEl.attributeValue("npref", timeLocationEl.attributeValue("pref"))),
-                        Integer.parseInt(timeLocationEl.attributeValue("datePref", "0")),
-                        dp.getId(), dp.getName(), dp.getPattern(),
-                        Integer.parseInt(timeLocationEl.attributeValue("breakTime") == null ? "-1" : timeLocationEl.attributeValue("breakTime")));
-                if (tl.getBreakTime() < 0) tl.setBreakTime(tl.getLength() == 18 ? 15 : 10);
-                if (timeLocationEl.attributeValue("pattern") != null)
-                    tl.setTimePatternId(Long.valueOf(timeLocationEl.attributeValue("pattern")));
-                /*
-                 * if (timePatternTransform) tl =
-                 * transformTimePattern(Long.valueOf
-                 * (classEl.attributeValue("id")),tl);
-                 */
-                if (prohibitedTime != null && prohibitedTime.getDayCode() == tl.getDayCode()
-                        && prohibitedTime.getStartSlot() == tl.getStartSlot()
-                        && prohibitedTime.getLength() == tl.getLength()) {
-                    sLogger.info("Time " + tl.getLongName(true) + " is prohibited for class " + classEl.attributeValue("id"));
-                    continue;
-                }
-                if ("true".equals(timeLocationEl.attributeValue("solution")))
-                    assignedTimeLocation = tl;
-                if ("true".equals(timeLocationEl.attributeValue("initial")))
-                    initialTimeLocation = tl;
-                if ("true".equals(timeLocationEl.attributeValue("best")))
-                    bestTimeLocation = tl;
-                timeLocations.add(tl);
-            }
-            if (timeLocations.isEmpty()) {
-                sLogger.error("  ERROR: No time.");
-                continue;
+                room2limitRatio = Float.parseFloat(classEl.attributeValue("roomToLimitRatio", "1.0"));
             }
+        }
 
-            int minClassLimit = 0;
-            int maxClassLimit = 0;
-            float room2limitRatio = 1.0f;
-            if (!"true".equals(classEl.attributeValue("committed"))) {
-                if (classEl.attributeValue("expectedCapacity") != null) {
-                    minClassLimit = maxClassLimit = Integer.parseInt(classEl.attributeValue("expectedCapacity"));
-                    int roomCapacity = Integer.parseInt(classEl.attributeValue("roomCapacity", classEl
-                            .attributeValue("expectedCapacity")));
-                    if (minClassLimit == 0)
-                        minClassLimit = maxClassLimit = roomCapacity;
-                    room2limitRatio = (minClassLimit == 0 ? 1.0f : ((float) roomCapacity) / minClassLimit);
-                } else {
-                    if (classEl.attribute("classLimit") != null) {
-                        minClassLimit = maxClassLimit = Integer.parseInt(classEl.attributeValue("classLimit"));
-                    } else {
-                        minClassLimit = Integer.parseInt(classEl.attributeValue("minClassLimit"));
-                        maxClassLimit = Integer.parseInt(classEl.attributeValue("maxClassLimit"));
-                    }
-                    room2limitRatio = Float.parseFloat(classEl.attributeValue("roomToLimitRatio", "1.0"));
-                }
-            }
+        Lecture lecture = new Lecture(Long.valueOf(classEl.attributeValue("id")),
+                (classEl.attributeValue("solverGroup") != null ? Long
+                        .valueOf(classEl.attributeValue("solverGroup")) : null), Long.valueOf(classEl
+                        .attributeValue("subpart", classEl.attributeValue("course", "-1"))), (classEl
+                        .attributeValue("name") != null ? classEl.attributeValue("name") : "c"
+                        + classEl.attributeValue("id")), timeLocations, roomLocations, Integer.parseInt(classEl
+                        .attributeValue("nrRooms", roomLocations.isEmpty() ? "0" : "1")), null, minClassLimit, maxClassLimit, room2limitRatio);
+        lecture.setNote(classEl.attributeValue("note"));
 
-            Lecture lecture = new Lecture(Long.valueOf(classEl.attributeValue("id")),
-                    (classEl.attributeValue("solverGroup") != null ? Long
-                            .valueOf(classEl.attributeValue("solverGroup")) : null), Long.valueOf(classEl
-                            .attributeValue("subpart", classEl.attributeValue("course", "-1"))), (classEl
-                            .attributeValue("name") != null ? classEl.attributeValue("name") : "c"
-                            + classEl.attributeValue("id")), timeLocations, roomLocations, Integer.parseInt(classEl
-                            .attributeValue("nrRooms", roomLocations.isEmpty() ? "0" : "1")), null, minClassLimit, maxClassLimit, room2limitRatio);
-            lecture.setNote(classEl.attributeValue("note"));
+        if ("true".equals(classEl.attributeValue("committed")))
+            lecture.setCommitted(true);
 
-            if ("true".equals(classEl.attributeValue("committed")))
-                lecture.setCommitted(true);
+        if (!lecture.isCommitted() && classEl.attributeValue("ord") != null)
+            lecture.setOrd(Integer.parseInt(classEl.attributeValue("ord")));
+        else
+            lecture.setOrd(iOrd++);
 
-            if (!lecture.isCommitted() && classEl.attributeValue("ord") != null)
-                lecture.setOrd(Integer.parseInt(classEl.attributeValue("ord")));
-            else
-                lecture.setOrd(ord++);
+        lecture.setWeight(Double.parseDouble(classEl.attributeValue("weight", "1.0")));
+        
+        if (lecture.getNrRooms() > 1)
+            lecture.setMaxRoomCombinations(Integer.parseInt(classEl.attributeValue("maxRoomCombinations", "-1")));
 
-            lecture.setWeight(Double.parseDouble(classEl.attributeValue("weight", "1.0")));
-            
-            if (lecture.getNrRooms() > 1)
-                lecture.setMaxRoomCombinations(Integer.parseInt(classEl.attributeValue("maxRoomCombinations", "-1")));
-
-            if (config != null)
-                lecture.setConfiguration(config);
-
-            if (initialTimeLocation != null && initialRoomLocations.size() == lecture.getNrRooms()) {
-                lecture.setInitialAssignment(new Placement(lecture, initialTimeLocation, initialRoomLocations));
-            }
-            if (assignedTimeLocation != null && assignedRoomLocations.size() == lecture.getNrRooms()) {
-                assignedPlacements.put(lecture, new Placement(lecture, assignedTimeLocation, assignedRoomLocations));
-            } else if (lecture.getInitialAssignment() != null) {
-                // assignedPlacements.put(lecture, lecture.getInitialAssignment());
-            }
-            if (bestTimeLocation != null && bestRoomLocations.size() == lecture.getNrRooms()) {
-                lecture.setBestAssignment(new Placement(lecture, bestTimeLocation, bestRoomLocations), 0);
-            } else if (assignedTimeLocation != null && assignedRoomLocations.size() == lecture.getNrRooms()) {
-                // lecture.setBestAssignment(assignedPlacements.get(lecture), 0);
-            }
-
-            lectures.put(classEl.attributeValue("id"), lecture);
-            if (classEl.attributeValue("department") != null)
-                lecture.setDepartment(Long.valueOf(classEl.attributeValue("department")));
-            if (classEl.attribute("scheduler") != null)
-                lecture.setScheduler(Long.valueOf(classEl.attributeValue("scheduler")));
-            if ((sectionWholeCourse || !lecture.isCommitted()) && classEl.attributeValue("subpart", classEl.attributeValue("course")) != null) {
-                Long subpartId = Long.valueOf(classEl.attributeValue("subpart", classEl.attributeValue("course")));
-                List<Lecture> sames = sameLectures.get(subpartId);
-                if (sames == null) {
-                    sames = new ArrayList<Lecture>();
-                    sameLectures.put(subpartId, sames);
-                }
-                sames.add(lecture);
-            }
-            String parent = classEl.attributeValue("parent");
-            if (parent != null)
-                parents.put(lecture, parent);
+        if (config != null)
+            lecture.setConfiguration(config);
 
-            getModel().addVariable(lecture);
+        if (initialTimeLocation != null && initialRoomLocations.size() == lecture.getNrRooms()) {
+            lecture.setInitialAssignment(new Placement(lecture, initialTimeLocation, initialRoomLocations));
+        }
+        if (assignedTimeLocation != null && assignedRoomLocations.size() == lecture.getNrRooms()) {
+            iAssignedPlacements.put(lecture, new Placement(lecture, assignedTimeLocation, assignedRoomLocations));
+        } else if (lecture.getInitialAssignment() != null) {
+            // iAssignedPlacements.put(lecture, lecture.getInitialAssignment());
+        }
+        if (bestTimeLocation != null && bestRoomLocations.size() == lecture.getNrRooms()) {
+            lecture.setBestAssignment(new Placement(lecture, bestTimeLocation, bestRoomLocations), 0);
+        } else if (assignedTimeLocation != null && assignedRoomLocations.size() == lecture.getNrRooms()) {
+            // lecture.setBestAssignment(iAssignedPlacements.get(lecture), 0);
+        }
 
-            if (lecture.isCommitted()) {
-                Placement placement = assignedPlacements.get(lecture);
-                if (classEl.attribute("assignment") != null)
-                    placement.setAssignmentId(Long.valueOf(classEl.attributeValue("assignment")));
-                for (InstructorConstraint ic : ics)
-                    ic.setNotAvailable(placement);
-                for (RoomConstraint rc : roomConstraintsThisClass)
-                    rc.setNotAvailable(placement);
-            } else {
-                for (InstructorConstraint ic : ics)
-                    ic.addVariable(lecture);
-                for (RoomConstraint rc : roomConstraintsThisClass)
-                    rc.addVariable(lecture);
+        iLectures.put(classEl.attributeValue("id"), lecture);
+        if (classEl.attributeValue("department") != null)
+            lecture.setDepartment(Long.valueOf(classEl.attributeValue("department")));
+        if (classEl.attribute("scheduler") != null)
+            lecture.setScheduler(Long.valueOf(classEl.attributeValue("scheduler")));
+        if ((iSectionWholeCourse || !lecture.isCommitted()) && classEl.attributeValue("subpart", classEl.attributeValue("course")) != null) {
+            Long subpartId = Long.valueOf(classEl.attributeValue("subpart", classEl.attributeValue("course")));
+            List<Lecture> sames = iSameLectures.get(subpartId);
+            if (sames == null) {
+                sames = new ArrayList<Lecture>();
+                iSameLectures.put(subpartId, sames);
             }
-
-            iProgress.incProgress();
+            sames.add(lecture);
+        }
+        String parent = classEl.attributeValue("parent");
+        if (parent != null)
+            iParents.put(lecture, parent);
+
+        getModel().addVariable(lecture);
+
+        if (lecture.isCommitted()) {
+            Placement placement = iAssignedPlacements.get(lecture);
+            if (classEl.attribute("assignment") != null)
+                placement.setAssignmentId(Long.valueOf(classEl.attributeValue("assignment")));
+            for (InstructorConstraint ic : ics)
+                ic.setNotAvailable(placement);
+            for (RoomConstraint rc : roomConstraintsThisClass)
+                rc.setNotAvailable(placement);
+        } else {
+            for (InstructorConstraint ic : ics)
+                ic.addVariable(lecture);
+            for (RoomConstraint rc : roomConstraintsThisClass)
+                rc.addVariable(lecture);
         }
 
-        for (Map.Entry<Lecture, String> entry : parents.entrySet()) {
-            Lecture lecture = entry.getKey();
-            Lecture parent = lectures.get(entry.getValue());
-            if (parent == null) {
-                iProgress.warn("Parent class " + entry.getValue() + " does not exists.");
-            } else {
-                lecture.setParent(parent);
-            }
-        }
-
-        iProgress.setPhase("Creating constraints ...", root.element("groupConstraints").elements("constraint").size());
-        HashMap<String, Element> grConstraintElements = new HashMap<String, Element>();
-        HashMap<String, Constraint<Lecture, Placement>> groupConstraints = new HashMap<String, Constraint<Lecture, Placement>>();
-        for (Iterator<?> i1 = root.element("groupConstraints").elementIterator("constraint"); i1.hasNext();) {
-            Element grConstraintEl = (Element) i1.next();
-            Constraint<Lecture, Placement> c = null;
-            if ("SPREAD".equals(grConstraintEl.attributeValue("type"))) {
-                c = new SpreadConstraint(getModel().getProperties(), grConstraintEl.attributeValue("name", "spread"));
-            } else if ("MIN_ROOM_USE".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedRoomsConstraint(getModel().getProperties());
-            } else if ("CLASS_LIMIT".equals(grConstraintEl.attributeValue("type"))) {
-                if (grConstraintEl.element("parentClass") == null) {
-                    c = new ClassLimitConstraint(Integer.parseInt(grConstraintEl.attributeValue("courseLimit")),
-                            grConstraintEl.attributeValue("name", "class-limit"));
-                } else {
-                    String classId = grConstraintEl.element("parentClass").attributeValue("id");
-                    c = new ClassLimitConstraint(lectures.get(classId), grConstraintEl.attributeValue("name",
-                            "class-limit"));
-                }
-                if (grConstraintEl.attributeValue("delta") != null)
-                    ((ClassLimitConstraint) c).setClassLimitDelta(Integer.parseInt(grConstraintEl
-                            .attributeValue("delta")));
-            } else if ("MIN_GRUSE(10x1h)".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "10x1h",
-                        MinimizeNumberOfUsedGroupsOfTime.sGroups10of1h);
-            } else if ("MIN_GRUSE(5x2h)".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "5x2h",
-                        MinimizeNumberOfUsedGroupsOfTime.sGroups5of2h);
-            } else if ("MIN_GRUSE(3x3h)".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "3x3h",
-                        MinimizeNumberOfUsedGroupsOfTime.sGroups3of3h);
-            } else if ("MIN_GRUSE(2x5h)".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "2x5h",
-                        MinimizeNumberOfUsedGroupsOfTime.sGroups2of5h);
-            } else if (IgnoreStudentConflictsConstraint.REFERENCE.equals(grConstraintEl.attributeValue("type"))) {
-                c = new IgnoreStudentConflictsConstraint();
+        iProgress.incProgress();
+    }
+    
+    /**
+     * Load a group constraint
+     * @param grConstraintEl group constraint element
+     */
+    protected void loadGroupConstraint(Element grConstraintEl) {
+        Constraint<Lecture, Placement> c = null;
+        if ("SPREAD".equals(grConstraintEl.attributeValue("type"))) {
+            c = new SpreadConstraint(getModel().getProperties(), grConstraintEl.attributeValue("name", "spread"));
+        } else if ("MIN_ROOM_USE".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedRoomsConstraint(getModel().getProperties());
+        } else if ("CLASS_LIMIT".equals(grConstraintEl.attributeValue("type"))) {
+            if (grConstraintEl.element("parentClass") == null) {
+                c = new ClassLimitConstraint(Integer.parseInt(grConstraintEl.attributeValue("courseLimit")),
+                        grConstraintEl.attributeValue("name", "class-limit"));
             } else {
+                String classId = grConstraintEl.element("parentClass").attributeValue("id");
+                c = new ClassLimitConstraint(iLectures.get(classId), grConstraintEl.attributeValue("name",
+                        "class-limit"));
+            }
+            if (grConstraintEl.attributeValue("delta") != null)
+                ((ClassLimitConstraint) c).setClassLimitDelta(Integer.parseInt(grConstraintEl
+                        .attributeValue("delta")));
+        } else if ("MIN_GRUSE(10x1h)".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "10x1h",
+                    MinimizeNumberOfUsedGroupsOfTime.sGroups10of1h);
+        } else if ("MIN_GRUSE(5x2h)".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "5x2h",
+                    MinimizeNumberOfUsedGroupsOfTime.sGroups5of2h);
+        } else if ("MIN_GRUSE(3x3h)".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "3x3h",
+                    MinimizeNumberOfUsedGroupsOfTime.sGroups3of3h);
+        } else if ("MIN_GRUSE(2x5h)".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "2x5h",
+                    MinimizeNumberOfUsedGroupsOfTime.sGroups2of5h);
+        } else if (IgnoreStudentConflictsConstraint.REFERENCE.equals(grConstraintEl.attributeValue("type"))) {
+            c = new IgnoreStudentConflictsConstraint();
+        } else {
+            try {
+                FlexibleConstraintType f = FlexibleConstraintType.valueOf(grConstraintEl.attributeValue("type"));
                 try {
-                    FlexibleConstraintType f = FlexibleConstraintType.valueOf(grConstraintEl.attributeValue("type"));
-                    try {
-                        c = f.create(
-                                Long.valueOf(grConstraintEl.attributeValue("id")),
-                                grConstraintEl.attributeValue("owner"),
-                                grConstraintEl.attributeValue("pref"),
-                                grConstraintEl.attributeValue("reference"));
-                    } catch (IllegalArgumentException e) {
-                            iProgress.warn("Failed to create flexible constraint " + grConstraintEl.attributeValue("type") + ": " + e.getMessage(), e);
-                            continue;
-                    }
-                } catch (IllegalArgumentException e) {
-                    // type did not match, continue with group constraint types
-                    c = new GroupConstraint(
+                    c = f.create(
                             Long.valueOf(grConstraintEl.attributeValue("id")),
-                            GroupConstraint.getConstraintType(grConstraintEl.attributeValue("type")),
-                            grConstraintEl.attributeValue("pref"));
+                            grConstraintEl.attributeValue("owner"),
+                            grConstraintEl.attributeValue("pref"),
+                            grConstraintEl.attributeValue("reference"));
+                } catch (IllegalArgumentException e) {
+                        iProgress.warn("Failed to create flexible constraint " + grConstraintEl.attributeValue("type") + ": " + e.getMessage(), e);
+                        return;
                 }
+            } catch (IllegalArgumentException e) {
+                // type did not match, continue with group constraint types
+                c = new GroupConstraint(
+                        Long.valueOf(grConstraintEl.attributeValue("id")),
+                        GroupConstraint.getConstraintType(grConstraintEl.attributeValue("type")),
+                        grConstraintEl.attributeValue("pref"));
             }
-            getModel().addConstraint(c);
-            for (Iterator<?> i2 = grConstraintEl.elementIterator("class"); i2.hasNext();) {
-                String classId = ((Element) i2.next()).attributeValue("id");
-                Lecture other = lectures.get(classId);
-                if (other != null)
-                    c.addVariable(other);
-                else
-                    iProgress.warn("Class " + classId + " does not exists, but it is referred from group constraint " + c.getId() + " (" + c.getName() + ")");
-            }
-            grConstraintElements.put(grConstraintEl.attributeValue("id"), grConstraintEl);
-            groupConstraints.put(grConstraintEl.attributeValue("id"), c);
-            iProgress.incProgress();
-        }   
-
-        iProgress.setPhase("Loading students ...", root.element("students").elements("student").size());
-        boolean initialSectioning = true;
-        HashMap<Long, Student> students = new HashMap<Long, Student>();
-        HashMap<Long, Set<Student>> offering2students = new HashMap<Long, Set<Student>>();
-        for (Iterator<?> i1 = root.element("students").elementIterator("student"); i1.hasNext();) {
-            Element studentEl = (Element) i1.next();
-            List<Lecture> lecturesThisStudent = new ArrayList<Lecture>();
-            Long studentId = Long.valueOf(studentEl.attributeValue("id"));
-            Student student = students.get(studentId);
-            if (student == null) {
-                student = new Student(studentId);
-                students.put(studentId, student);
-                getModel().addStudent(student);
-            }
-            student.setAcademicArea(studentEl.attributeValue("area"));
-            student.setAcademicClassification(studentEl.attributeValue("classification"));
-            student.setMajor(studentEl.attributeValue("major"));
-            student.setCurriculum(studentEl.attributeValue("curriculum"));
-            for (Iterator<?> i2 = studentEl.elementIterator("offering"); i2.hasNext();) {
-                Element ofEl = (Element) i2.next();
-                Long offeringId = Long.valueOf(ofEl.attributeValue("id"));
-                String priority = ofEl.attributeValue("priority");
-                student.addOffering(offeringId, Double.parseDouble(ofEl.attributeValue("weight", "1.0")), priority == null ? null : Double.valueOf(priority));
-                Set<Student> studentsThisOffering = offering2students.get(offeringId);
-                if (studentsThisOffering == null) {
-                    studentsThisOffering = new HashSet<Student>();
-                    offering2students.put(offeringId, studentsThisOffering);
-                }
-                studentsThisOffering.add(student);
+        }
+        getModel().addConstraint(c);
+        for (Iterator<?> i2 = grConstraintEl.elementIterator("class"); i2.hasNext();) {
+            String classId = ((Element) i2.next()).attributeValue("id");
+            Lecture other = iLectures.get(classId);
+            if (other != null)
+                c.addVariable(other);
+            else
+                iProgress.warn("Class " + classId + " does not exists, but it is referred from group constraint " + c.getId() + " (" + c.getName() + ")");
+        }
+        iProgress.incProgress();
+    }
+    
+    /**
+     * Load a student
+     * @param studentEl student element
+     */
+    protected void loadStudent(Element studentEl) {
+        List<Lecture> lecturesThisStudent = new ArrayList<Lecture>();
+        Long studentId = Long.valueOf(studentEl.attributeValue("id"));
+        Student student = iStudents.get(studentId);
+        if (student == null) {
+            student = new Student(studentId);
+            iStudents.put(studentId, student);
+            getModel().addStudent(student);
+        }
+        student.setAcademicArea(studentEl.attributeValue("area"));
+        student.setAcademicClassification(studentEl.attributeValue("classification"));
+        student.setMajor(studentEl.attributeValue("major"));
+        student.setCurriculum(studentEl.attributeValue("curriculum"));
+        for (Iterator<?> i2 = studentEl.elementIterator("offering"); i2.hasNext();) {
+            Element ofEl = (Element) i2.next();
+            Long offeringId = Long.valueOf(ofEl.attributeValue("id"));
+            String priority = ofEl.attributeValue("priority");
+            student.addOffering(offeringId, Double.parseDouble(ofEl.attributeValue("weight", "1.0")), priority == null ? null : Double.valueOf(priority));
+            Set<Student> studentsThisOffering = iOffering2students.get(offeringId);
+            if (studentsThisOffering == null) {
+                studentsThisOffering = new HashSet<Student>();
+                iOffering2students.put(offeringId, studentsThisOffering);
             }
-            for (Iterator<?> i2 = studentEl.elementIterator("class"); i2.hasNext();) {
-                String classId = ((Element) i2.next()).attributeValue("id");
-                Lecture lecture = lectures.get(classId);
-                if (lecture == null) {
-                    iProgress.warn("Class " + classId + " does not exists, but it is referred from student " + student.getId());
-                    continue;
-                }
-                if (lecture.isCommitted()) {
-                    if (sectionWholeCourse && (lecture.getParent() != null || lecture.getConfiguration() != null)) {
-                        // committed, but with course structure -- sectioning can be used
-                        student.addLecture(lecture);
-                        student.addConfiguration(lecture.getConfiguration());
-                        lecture.addStudent(getAssignment(), student);
-                        lecturesThisStudent.add(lecture);
-                        initialSectioning = false;
-                    } else {
-                        Placement placement = assignedPlacements.get(lecture);
-                        student.addCommitedPlacement(placement);
-                    }
-                } else {
+            studentsThisOffering.add(student);
+        }
+        for (Iterator<?> i2 = studentEl.elementIterator("class"); i2.hasNext();) {
+            String classId = ((Element) i2.next()).attributeValue("id");
+            Lecture lecture = iLectures.get(classId);
+            if (lecture == null) {
+                iProgress.warn("Class " + classId + " does not exists, but it is referred from student " + student.getId());
+                continue;
+            }
+            if (lecture.isCommitted()) {
+                if (iSectionWholeCourse && (lecture.getParent() != null || lecture.getConfiguration() != null)) {
+                    // committed, but with course structure -- sectioning can be used
                     student.addLecture(lecture);
                     student.addConfiguration(lecture.getConfiguration());
                     lecture.addStudent(getAssignment(), student);
                     lecturesThisStudent.add(lecture);
-                    initialSectioning = false;
+                    iInitialSectioning = false;
+                } else {
+                    Placement placement = iAssignedPlacements.get(lecture);
+                    student.addCommitedPlacement(placement);
                 }
+            } else {
+                student.addLecture(lecture);
+                student.addConfiguration(lecture.getConfiguration());
+                lecture.addStudent(getAssignment(), student);
+                lecturesThisStudent.add(lecture);
+                iInitialSectioning = false;
             }
+        }
 
-            for (Iterator<?> i2 = studentEl.elementIterator("prohibited-class"); i2.hasNext();) {
-                String classId = ((Element) i2.next()).attributeValue("id");
-                Lecture lecture = lectures.get(classId);
-                if (lecture != null)
-                    student.addCanNotEnroll(lecture);
-                else
-                    iProgress.warn("Class " + classId + " does not exists, but it is referred from student " + student.getId());
-            }
-            
-            if (studentEl.attributeValue("instructor") != null)
-                student.setInstructor(instructorConstraints.get(studentEl.attributeValue("instructor")));
-
-            iProgress.incProgress();
+        for (Iterator<?> i2 = studentEl.elementIterator("prohibited-class"); i2.hasNext();) {
+            String classId = ((Element) i2.next()).attributeValue("id");
+            Lecture lecture = iLectures.get(classId);
+            if (lecture != null)
+                student.addCanNotEnroll(lecture);
+            else
+                iProgress.warn("Class " + classId + " does not exists, but it is referred from student " + student.getId());
         }
         
-        if (root.element("groups") != null) {
-            iProgress.setPhase("Loading student groups ...", root.element("groups").elements("group").size());
-            for (Iterator<?> i1 = root.element("groups").elementIterator("group"); i1.hasNext();) {
-                Element groupEl = (Element)i1.next();
-                long groupId = Long.parseLong(groupEl.attributeValue("id"));
-                StudentGroup group = new StudentGroup(groupId, Double.parseDouble(groupEl.attributeValue("weight", "1.0")), groupEl.attributeValue("name", "Group-" + groupId));
-                getModel().addStudentGroup(group);
-                for (Iterator<?> i2 = groupEl.elementIterator("student"); i2.hasNext();) {
-                    Element studentEl = (Element)i2.next();
-                    Student student = students.get(Long.valueOf(studentEl.attributeValue("id")));
-                    if (student != null) {
-                        group.addStudent(student); student.addGroup(group);
-                    }
-                }
+        if (studentEl.attributeValue("instructor") != null)
+            student.setInstructor(iInstructorConstraints.get(studentEl.attributeValue("instructor")));
+
+        iProgress.incProgress();
+    }
+    
+    /**
+     * Load a student group
+     * @param groupEl student group element
+     */
+    protected void loadGroup(Element groupEl) {
+        long groupId = Long.parseLong(groupEl.attributeValue("id"));
+        StudentGroup group = new StudentGroup(groupId, Double.parseDouble(groupEl.attributeValue("weight", "1.0")), groupEl.attributeValue("name", "Group-" + groupId));
+        getModel().addStudentGroup(group);
+        for (Iterator<?> i2 = groupEl.elementIterator("student"); i2.hasNext();) {
+            Element studentEl = (Element)i2.next();
+            Student student = iStudents.get(Long.valueOf(studentEl.attributeValue("id")));
+            if (student != null) {
+                group.addStudent(student); student.addGroup(group);
             }
         }
-
-        for (List<Lecture> sames: sameLectures.values()) {
+    }
+    
+    /**
+     * Finalize the loading: initial sectioning, student conflicts, department spread constraints, and
+     * the initial, best, and current assignments
+     * @param currentSolution current solution (best assignment is loaded into it, if not null)
+     */
+    protected void endLoad(Solution<Lecture, Placement> currentSolution) {
+        for (List<Lecture> sames: iSameLectures.values()) {
             for (Lecture lect : sames) {
                 lect.setSameSubpartLectures(sames);
             }
         }
 
-        if (initialSectioning) {
-            iProgress.setPhase("Initial sectioning ...", offering2students.size());
-            for (Map.Entry<Long, Set<Student>> entry : offering2students.entrySet()) {
+        if (iInitialSectioning) {
+            iProgress.setPhase("Initial sectioning ...", iOffering2students.size());
+            for (Map.Entry<Long, Set<Student>> entry : iOffering2students.entrySet()) {
                 Long offeringId = entry.getKey();
                 Set<Student> studentsThisOffering = entry.getValue();
-                List<Configuration> altConfigs = alternativeConfigurations.get(offeringId);
+                List<Configuration> altConfigs = iAlternativeConfigurations.get(offeringId);
                 getModel().getStudentSectioning().initialSectioning(getAssignment(), offeringId, String.valueOf(offeringId), studentsThisOffering, altConfigs);
                 iProgress.incProgress();
             }
-            for (Student student: students.values()) {
+            for (Student student: iStudents.values()) {
                 student.clearDistanceCache();
                 if (student.getInstructor() != null)
                     for (Lecture lecture: student.getInstructor().variables()) {
@@ -821,9 +1098,9 @@ public class TimetableXMLLoader extends TimetableLoader {
             }
         }
 
-        iProgress.setPhase("Computing jenrl ...", students.size());
+        iProgress.setPhase("Computing jenrl ...", iStudents.size());
         HashMap<Lecture, HashMap<Lecture, JenrlConstraint>> jenrls = new HashMap<Lecture, HashMap<Lecture, JenrlConstraint>>();
-        for (Iterator<Student> i1 = students.values().iterator(); i1.hasNext();) {
+        for (Iterator<Student> i1 = iStudents.values().iterator(); i1.hasNext();) {
             Student st = i1.next();
             for (Iterator<Lecture> i2 = st.getLectures().iterator(); i2.hasNext();) {
                 Lecture l1 = i2.next();
@@ -858,7 +1135,7 @@ public class TimetableXMLLoader extends TimetableLoader {
                     continue;
                 DepartmentSpreadConstraint deptConstr = depSpreadConstraints.get(lecture.getDepartment());
                 if (deptConstr == null) {
-                    String name = depts.get(lecture.getDepartment());
+                    String name = iDepts.get(lecture.getDepartment());
                     deptConstr = new DepartmentSpreadConstraint(getModel().getProperties(), lecture.getDepartment(),
                             (name != null ? name : "d" + lecture.getDepartment()));
                     depSpreadConstraints.put(lecture.getDepartment(), deptConstr);
@@ -878,8 +1155,8 @@ public class TimetableXMLLoader extends TimetableLoader {
         }
         
         if (getModel().hasConstantVariables() && getModel().constantVariables().size() > 0) {
-            iProgress.setPhase("Assigning committed classes ...", assignedPlacements.size());
-            for (Map.Entry<Lecture, Placement> entry : assignedPlacements.entrySet()) {
+            iProgress.setPhase("Assigning committed classes ...", iAssignedPlacements.size());
+            for (Map.Entry<Lecture, Placement> entry : iAssignedPlacements.entrySet()) {
                 Lecture lecture = entry.getKey();
                 Placement placement = entry.getValue();
                 if (!lecture.isCommitted()) { iProgress.incProgress(); continue; }
@@ -920,8 +1197,8 @@ public class TimetableXMLLoader extends TimetableLoader {
             }
         }
 
-        iProgress.setPhase("Creating initial assignment ...", assignedPlacements.size());
-        for (Map.Entry<Lecture, Placement> entry : assignedPlacements.entrySet()) {
+        iProgress.setPhase("Creating initial assignment ...", iAssignedPlacements.size());
+        for (Map.Entry<Lecture, Placement> entry : iAssignedPlacements.entrySet()) {
             Lecture lecture = entry.getKey();
             Placement placement = entry.getValue();
             if (lecture.isCommitted()) { iProgress.incProgress(); continue; }
@@ -947,7 +1224,7 @@ public class TimetableXMLLoader extends TimetableLoader {
             iProgress.incProgress();
         }
 
-        if (initialSectioning && getAssignment().nrAssignedVariables() != 0 && !getModel().getProperties().getPropertyBoolean("Global.LoadStudentEnrlsFromSolution", false))
+        if (iInitialSectioning && getAssignment().nrAssignedVariables() != 0 && !getModel().getProperties().getPropertyBoolean("Global.LoadStudentEnrlsFromSolution", false))
             getModel().switchStudents(getAssignment());
 
         if (iForcedPerturbances > 0) {
@@ -974,6 +1251,10 @@ public class TimetableXMLLoader extends TimetableLoader {
                 ((MinimizeNumberOfUsedGroupsOfTime) c).setEnabled(true);
         }
          */
+        
+        iPerts = null; iRoomElements = null; iRoomConstraints = null; iSameLectures = null; iInstructorConstraints = null;
+        iDepts = null; iConfigs = null; iAlternativeConfigurations = null; iLectures = null; iAssignedPlacements = null;
+        iParents = null; iStudents = null; iOffering2students = null;
     }
 
     public static Date getDate(int year, int dayOfYear) {
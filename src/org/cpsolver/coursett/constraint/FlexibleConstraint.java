@@ -6,6 +6,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.coursett.Constants;
@@ -15,6 +16,7 @@ import org.cpsolver.coursett.model.Placement;
 import org.cpsolver.coursett.model.TimeLocation;
 import org.cpsolver.coursett.model.TimetableModel;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.OverlayAssignment;
 import org.cpsolver.ifs.assignment.context.AssignmentConstraintContext;
 import org.cpsolver.ifs.assignment.context.ConstraintWithContext;
 import org.cpsolver.ifs.criteria.Criterion;
@@ -314,6 +316,38 @@ public abstract class FlexibleConstraint extends ConstraintWithContext<Lecture,
         return Math.abs(iPreference) * pref;
     }
 
+    /**
+     * Return the preference of the flexible constraint if the given changes were made (the assignment is not modified).
+     * Used to compute the change in the flexible constraint criterion, see {@link FlexibleConstraintCriterion#getDelta(Assignment, Map)}.
+     * @param assignment current assignment
+     * @param changes proposed changes (lecture, new placement or null if the lecture is to be unassigned)
+     * @return the preference of the flexible constraint after the changes
+     */
+    public double getCurrentPreference(Assignment<Lecture, Placement> assignment, Map<Lecture, Placement> changes) {
+        if (isHard()) return 0;
+        HashMap<Lecture, Placement> relevant = new HashMap<Lecture, Placement>();
+        for (Map.Entry<Lecture, Placement> change: changes.entrySet())
+            if (variables().contains(change.getKey()))
+                relevant.put(change.getKey(), change.getValue());
+        double pref = getNrViolations(assignment, relevant);
+        if (pref == 0){
+            return - Math.abs(iPreference);
+        }
+        return Math.abs(iPreference) * pref;
+    }
+
+    /**
+     * Number of violations if the given changes were made. By default, the violations are counted on the assignment
+     * with the changes laid on top of it (see {@link OverlayAssignment}). Constraints that count their violations
+     * using the assignment context need to override this method.
+     * @param assignment current assignment
+     * @param changes proposed changes of the lectures of this constraint (lecture, new placement or null if the lecture is to be unassigned)
+     * @return number of violations after the changes
+     */
+    protected double getNrViolations(Assignment<Lecture, Placement> assignment, HashMap<Lecture, Placement> changes) {
+        return getNrViolations(new OverlayAssignment<Lecture, Placement>(assignment, changes), null, null);
+    }
+
     /**
      * A block is a list of placements sorted by startSlot, which are BTB.
      * maxSlotsBetweenBackToBack determines the number of free slots between two BTB placements
@@ -5,6 +5,7 @@ import java.util.BitSet;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.coursett.Constants;
@@ -14,6 +15,7 @@ import org.cpsolver.coursett.model.Placement;
 import org.cpsolver.coursett.model.TimeLocation;
 import org.cpsolver.coursett.model.TimetableModel;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.OverlayAssignment;
 import org.cpsolver.ifs.assignment.context.AssignmentConstraintContext;
 import org.cpsolver.ifs.assignment.context.ConstraintWithContext;
 import org.cpsolver.ifs.util.DistanceMetric;
@@ -445,6 +447,16 @@ public class InstructorConstraint extends ConstraintWithContext<Lecture, Placeme
         return getContext(assignment).getPreference();
     }
 
+    /**
+     * Overall back-to-back preference of this instructor if the given changes were made (the assignment is not modified)
+     * @param assignment current assignment
+     * @param changes proposed changes (lecture, new placement or null if the lecture is to be unassigned)
+     * @return distance preference after the changes
+     */
+    public int getPreference(Assignment<Lecture, Placement> assignment, Map<Lecture, Placement> changes) {
+        return new InstructorConstraintContext(new OverlayAssignment<Lecture, Placement>(assignment, changes), false).getPreference();
+    }
+
     public int getPreferenceCombination(Assignment<Lecture, Placement> assignment, Placement value) {
         Lecture lecture = value.variable();
         Placement placement = value;
@@ -574,8 +586,17 @@ public class InstructorConstraint extends ConstraintWithContext<Lecture, Placeme
         public int iPreference = 0;
         protected List<Placement>[] iResource;
  
-        @SuppressWarnings("unchecked")
         public InstructorConstraintContext(Assignment<Lecture, Placement> assignment) {
+            this(assignment, true);
+        }
+
+        /**
+         * Constructor
+         * @param assignment current assignment
+         * @param updateCriterion when false, the {@link BackToBackInstructorPreferences} criterion is not updated (the context is only used to compute the preference)
+         */
+        @SuppressWarnings("unchecked")
+        public InstructorConstraintContext(Assignment<Lecture, Placement> assignment, boolean updateCriterion) {
             iResource = new List[Constants.SLOTS_PER_DAY * Constants.DAY_CODES.length];
             for (int i = 0; i < iResource.length; i++)
                 iResource[i] = new ArrayList<Placement>(3);
@@ -589,7 +610,8 @@ public class InstructorConstraint extends ConstraintWithContext<Lecture, Placeme
                 }
             }
             iPreference = countPreference(assignment);
-            getModel().getCriterion(BackToBackInstructorPreferences.class).inc(assignment, iPreference);
+            if (updateCriterion)
+                getModel().getCriterion(BackToBackInstructorPreferences.class).inc(assignment, iPreference);
         }
 
         @Override
@@ -57,6 +57,11 @@ public class MaxDaysFlexibleConstraint extends FlexibleConstraint {
     public double getNrViolations(Assignment<Lecture, Placement> assignment, Set<Placement> conflicts, HashMap<Lecture, Placement> assignments) {
         return ((MaxDaysFlexibleConstraintContext)getContext(assignment)).nrViolations(assignments, conflicts);
     }
+    
+    @Override
+    protected double getNrViolations(Assignment<Lecture, Placement> assignment, HashMap<Lecture, Placement> changes) {
+        return ((MaxDaysFlexibleConstraintContext)getContext(assignment)).nrViolations(changes);
+    }
 
     @Override
     public void computeConflicts(Assignment<Lecture, Placement> assignment, Placement value, Set<Placement> conflicts) {
@@ -192,6 +197,25 @@ public class MaxDaysFlexibleConstraint extends FlexibleConstraint {
             }
             return (days <= iMaxDays ? 0 : days - iMaxDays);
         }
+        
+        /**
+         * Number of violations if the given changes were made
+         * @param changes proposed changes (lecture, new placement or null if the lecture is to be unassigned)
+         * @return number of days over the limit after the changes
+         */
+        public int nrViolations(Map<Lecture, Placement> changes) {
+            int days = 0;
+            for (int i = 0; i < iDayAssignments.length; i++) {
+                int cnt = iDayAssignments[i].size();
+                for (Map.Entry<Lecture, Placement> change: changes.entrySet()) {
+                    if (iDayAssignments[i].contains(change.getKey())) cnt --;
+                    Placement placement = change.getValue();
+                    if (placement != null && (placement.getTimeLocation().getDayCode() & Constants.DAY_CODES[i]) != 0) cnt ++;
+                }
+                if (cnt > 0) days ++;
+            }
+            return (days <= iMaxDays ? 0 : days - iMaxDays);
+        }
     
     }
 }
\ No newline at end of file
@@ -85,6 +85,11 @@ public class MaxHalfDaysFlexibleConstraint extends FlexibleConstraint {
     public double getNrViolations(Assignment<Lecture, Placement> assignment, Set<Placement> conflicts, HashMap<Lecture, Placement> assignments) {
         return ((MaxHalfDaysFlexibleConstraintContext)getContext(assignment)).nrViolations(assignments, conflicts);
     }
+    
+    @Override
+    protected double getNrViolations(Assignment<Lecture, Placement> assignment, HashMap<Lecture, Placement> changes) {
+        return ((MaxHalfDaysFlexibleConstraintContext)getContext(assignment)).nrViolations(changes);
+    }
 
     @Override
     public void computeConflicts(Assignment<Lecture, Placement> assignment, Placement value, Set<Placement> conflicts) {
@@ -229,6 +234,28 @@ public class MaxHalfDaysFlexibleConstraint extends FlexibleConstraint {
             }
             return (halfDays <= iMaxHalfDays ? 0 : halfDays - iMaxHalfDays);
         }
+        
+        /**
+         * Number of violations if the given changes were made
+         * @param changes proposed changes (lecture, new placement or null if the lecture is to be unassigned)
+         * @return number of half-days over the limit after the changes
+         */
+        public int nrViolations(Map<Lecture, Placement> changes) {
+            int halfDays = 0;
+            for (int i = 0; i < Constants.DAY_CODES.length; i++) {
+                for (int j = 0; j < getNrHalfDays(); j++) {
+                    int idx = i * getNrHalfDays() + j;
+                    int cnt = iHalfDayAssignments[idx].size();
+                    for (Map.Entry<Lecture, Placement> change: changes.entrySet()) {
+                        if (iHalfDayAssignments[idx].contains(change.getKey())) cnt --;
+                        Placement placement = change.getValue();
+                        if (placement != null && (placement.getTimeLocation().getDayCode() & Constants.DAY_CODES[i]) != 0 && j == getHalfDay(placement.getTimeLocation())) cnt ++;
+                    }
+                    if (cnt > 0) halfDays ++;
+                }
+            }
+            return (halfDays <= iMaxHalfDays ? 0 : halfDays - iMaxHalfDays);
+        }
     
     }
 }
\ No newline at end of file
@@ -67,6 +67,11 @@ public class MaxWeeksFlexibleConstraint extends FlexibleConstraint {
     public double getNrViolations(Assignment<Lecture, Placement> assignment, Set<Placement> conflicts, HashMap<Lecture, Placement> assignments) {
         return ((MaxWeeksFlexibleConstraintContext)getContext(assignment)).nrViolations(assignments, conflicts);
     }
+    
+    @Override
+    protected double getNrViolations(Assignment<Lecture, Placement> assignment, HashMap<Lecture, Placement> changes) {
+        return ((MaxWeeksFlexibleConstraintContext)getContext(assignment)).nrViolations(changes, null);
+    }
 
     @Override
     public void computeConflicts(Assignment<Lecture, Placement> assignment, Placement value, Set<Placement> conflicts) {
@@ -2,6 +2,7 @@ package org.cpsolver.coursett.criteria;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.coursett.Constants;
@@ -86,6 +87,24 @@ public class BackToBackInstructorPreferences extends TimetablingCriterion {
         return ret;
     }
     
+    @Override
+    public double getDelta(Assignment<Lecture, Placement> assignment, Map<Lecture, Placement> changes) {
+        double delta = 0.0;
+        Set<InstructorConstraint> constraints = new HashSet<InstructorConstraint>();
+        for (Lecture lect: changes.keySet()) {
+            for (InstructorConstraint ic: lect.getInstructorConstraints()) {
+                if (!constraints.add(ic)) continue;
+                delta += ic.getPreference(assignment, changes) - ic.getPreference(assignment);
+            }
+        }
+        return delta;
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     protected double[] computeBounds(Assignment<Lecture, Placement> assignment) {
         double[] bounds = new double[] { 0.0, 0.0 };
@@ -2,6 +2,7 @@ package org.cpsolver.coursett.criteria;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.coursett.constraint.GroupConstraint;
@@ -9,6 +10,7 @@ import org.cpsolver.coursett.model.Lecture;
 import org.cpsolver.coursett.model.Placement;
 import org.cpsolver.coursett.model.TimetableModel;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.OverlayAssignment;
 import org.cpsolver.ifs.util.DataProperties;
 
 
@@ -74,6 +76,26 @@ public class DistributionPreferences extends TimetablingCriterion {
         }
         return ret;
     }
+    
+    @Override
+    public double getDelta(Assignment<Lecture, Placement> assignment, Map<Lecture, Placement> changes) {
+        if (changes.isEmpty()) return 0.0;
+        double delta = 0.0;
+        OverlayAssignment<Lecture, Placement> overlay = new OverlayAssignment<Lecture, Placement>(assignment, changes);
+        Set<GroupConstraint> constraints = new HashSet<GroupConstraint>();
+        for (Lecture lect: changes.keySet()) {
+            for (GroupConstraint gc: lect.groupConstraints()) {
+                if (gc.isHard() || !constraints.add(gc)) continue;
+                delta += gc.getCurrentPreference(overlay) + Math.abs(gc.getPreference()) - gc.getContext(assignment).getPreference();
+            }
+        }
+        return delta;
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
         
     @Override
     protected double[] computeBounds(Assignment<Lecture, Placement> assignment) {
@@ -136,6 +136,24 @@ public class FlexibleConstraintCriterion extends TimetablingCriterion  {
         return ret;
     }  
     
+    @Override
+    public double getDelta(Assignment<Lecture, Placement> assignment, Map<Lecture, Placement> changes) {
+        Set<FlexibleConstraint> flexibleConstraints = new HashSet<FlexibleConstraint>();
+        double delta = 0.0;
+        for (Lecture lecture: changes.keySet()) {
+            for (FlexibleConstraint gc: lecture.getFlexibleGroupConstraints()) {
+                if (gc.isHard() || !flexibleConstraints.add(gc)) continue;
+                delta += gc.getCurrentPreference(assignment, changes) - gc.getContext(assignment).getPreference();
+            }
+        }
+        return delta;
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public double getValue(Assignment<Lecture, Placement> assignment, Placement value, Set<Placement> conflicts) {
         HashMap<Lecture, Placement> assignments = new HashMap<Lecture, Placement>();
@@ -1,6 +1,7 @@
 package org.cpsolver.coursett.criteria;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.coursett.model.Lecture;
@@ -59,6 +60,16 @@ public class RoomPreferences extends TimetablingCriterion {
                 ret -= conflict.variable().getWeight() * preference(conflict);
         return ret;
     }
+    
+    @Override
+    public double getDelta(Assignment<Lecture, Placement> assignment, Map<Lecture, Placement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
 
     @Override
     public double[] getBounds(Assignment<Lecture, Placement> assignment, Collection<Lecture> variables) {
@@ -1,6 +1,7 @@
 package org.cpsolver.coursett.criteria;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.coursett.Constants;
@@ -50,6 +51,16 @@ public class RoomViolations extends TimetablingCriterion {
         return ret;
     }
     
+    @Override
+    public double getDelta(Assignment<Lecture, Placement> assignment, Map<Lecture, Placement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public double[] getBounds(Assignment<Lecture, Placement> assignment) {
         return new double[] { getModel().variables().size(), 0.0 };
@@ -2,6 +2,7 @@ package org.cpsolver.coursett.heuristics;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -10,10 +11,13 @@ import org.cpsolver.coursett.model.Lecture;
 import org.cpsolver.coursett.model.Placement;
 import org.cpsolver.coursett.model.TimetableModel;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.context.AssignmentContextHelper;
 import org.cpsolver.ifs.criteria.Criterion;
 import org.cpsolver.ifs.extension.Extension;
 import org.cpsolver.ifs.extension.MacPropagation;
+import org.cpsolver.ifs.heuristics.ParallelValueScoring;
 import org.cpsolver.ifs.heuristics.ValueSelection;
+import org.cpsolver.ifs.model.ConflictCollector;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.solver.Solver;
 import org.cpsolver.ifs.util.DataProperties;
@@ -67,6 +71,17 @@ import org.cpsolver.ifs.util.ToolBox;
  * <td>{@link Double}</td>
  * <td>MPP: limit on the perturbations penalty (-1 for no limit)</td>
  * </tr>
+ * <tr>
+ * <td>Placement.ScoringThreads</td>
+ * <td>{@link Integer}</td>
+ * <td>Number of threads scoring the placements in parallel (see {@link ParallelValueScoring},
+ * 1 means no parallel scoring)</td>
+ * </tr>
+ * <tr>
+ * <td>Placement.ScoringMinValues</td>
+ * <td>{@link Integer}</td>
+ * <td>Minimal number of placements for the parallel scoring to be used</td>
+ * </tr>
  * </table>
  * <br>
  * Parameters (for each level of selection):
@@ -216,6 +231,8 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
     private boolean iMPP = false;
 
     private boolean iCanUnassingSingleton = false;
+    
+    private ParallelValueScoring iScoring = null;
 
     @Override
     public void init(Solver<Lecture, Placement> solver) {
@@ -223,6 +240,9 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
             if (MacPropagation.class.isInstance(extension))
                 iProp = (MacPropagation<Lecture, Placement>) extension;
         }
+        iScoring = solver.getValueScoring("Placement");
+        if (!iScoring.isEnabled())
+            iScoring = null;
     }
 
     public PlacementSelection(DataProperties properties) {
@@ -251,14 +271,14 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         TimetableModel model = (TimetableModel) solution.getModel();
         Assignment<Lecture, Placement> assignment = solution.getAssignment();
         if (selectedVariable.getInitialAssignment() != null) {
-            if (iMPPLimit >= 0 && model.perturbVariables(assignment).size() >= iMPPLimit) {
-                if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, selectedVariable.getInitialAssignment()), selectedVariable.getInitialAssignment()))
+            if (iMPPLimit >= 0 && model.nrPerturbVariables(assignment) >= iMPPLimit) {
+                if (!containsItselfSingletonOrCommited(model, assignment, selectedVariable.getInitialAssignment()))
                     return selectedVariable.getInitialAssignment();
             } else if (iMPPPenaltyLimit >= 0.0 && solution.getPerturbationsCounter() != null && solution.getPerturbationsCounter().getPerturbationPenalty(assignment, model) > iMPPPenaltyLimit) {
-                if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, selectedVariable.getInitialAssignment()), selectedVariable.getInitialAssignment()))
+                if (!containsItselfSingletonOrCommited(model, assignment, selectedVariable.getInitialAssignment()))
                     return selectedVariable.getInitialAssignment();
             } else if (selectedVariable.getInitialAssignment() != null && ToolBox.random() <= iInitialSelectionProb) {
-                if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, selectedVariable.getInitialAssignment()), selectedVariable.getInitialAssignment()))
+                if (!containsItselfSingletonOrCommited(model, assignment, selectedVariable.getInitialAssignment()))
                     return selectedVariable.getInitialAssignment();
             }
         }
@@ -267,7 +287,7 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         if (iRW && ToolBox.random() <= iRandomWalkProb) {
             for (int i = 0; i < 5; i++) {
                 Placement ret = ToolBox.random(values);
-                if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, ret), ret))
+                if (!containsItselfSingletonOrCommited(model, assignment, ret))
                     return ret;
             }
         }
@@ -279,7 +299,7 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         }
         if (values.size() == 1) {
             Placement ret = values.get(0);
-            if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, ret), ret))
+            if (!containsItselfSingletonOrCommited(model, assignment, ret))
                 return ret;
         }
 
@@ -287,24 +307,69 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         List<Placement> selectionValues = null;
 
         HeuristicSelector<Placement> selector = (iUseThreshold ? new HeuristicSelector<Placement>(iThresholdKoef) : null);
-        for (Placement value : values) {
-            if (iTabu != null && iTabu.contains(value))
-                continue;
-            if (current != null && current.equals(value))
-                continue;
+        
+        // parallel mode: costs of all the values are computed first (all levels when the threshold is used,
+        // since the first level threshold is not known yet), and then merged in the order of the values
+        List<double[]> scores = null;
+        if (iScoring != null && iScoring.isParallel(values)) {
+            final TimetableModel fModel = model;
+            final Assignment<Lecture, Placement> fAssignment = assignment;
+            final Placement fCurrent = current;
+            AssignmentContextHelper.ensureInitialized(model, assignment, Collections.singleton(selectedVariable));
+            scores = iScoring.score(values, new ParallelValueScoring.Scorer<Placement, double[]>() {
+                @Override
+                public double[] score(Placement value) {
+                    if (iTabu != null && iTabu.contains(value))
+                        return null;
+                    if (fCurrent != null && fCurrent.equals(value))
+                        return null;
+                    ConflictCollector<Placement> conflicts = ConflictCollector.acquire();
+                    try {
+                        fModel.conflictValues(fAssignment, value, conflicts);
+                        if (containsItselfSingletonOrCommited(fModel, conflicts, value))
+                            return null;
+                        double[] costs = new double[iUseThreshold ? NR_LEVELS : 1];
+                        for (int level = 0; level < costs.length; level++)
+                            costs[level] = getCost(fAssignment, level, value, conflicts);
+                        return costs;
+                    } finally {
+                        conflicts.release();
+                    }
+                }
+            });
+        }
+        
+        ConflictCollector<Placement> collector = ConflictCollector.acquire();
+        for (int i = 0; i < values.size(); i++) {
+            Placement value = values.get(i);
+            double[] score = null;
+            Set<Placement> conflicts = null;
+            if (scores != null) {
+                score = scores.get(i);
+                if (score == null) continue;
+            } else {
+                if (iTabu != null && iTabu.contains(value))
+                    continue;
+                if (current != null && current.equals(value))
+                    continue;
 
-            Set<Placement> conflicts = value.variable().getModel().conflictValues(assignment, value);
-            
-            if (containsItselfSingletonOrCommited(model, conflicts, value))
-                continue;
+                collector.clear();
+                conflicts = model.conflictValues(assignment, value, collector);
+                
+                if (containsItselfSingletonOrCommited(model, conflicts, value))
+                    continue;
+            }
 
             if (iUseThreshold) {
                 Double flt = selector.firstLevelThreshold();
-                double[] costs = new double[NR_LEVELS];
-                for (int level = 0; level < NR_LEVELS; level++) {
-                    costs[level] = getCost(assignment, level, value, conflicts);
-                    if (level == 0 && flt != null && costs[0] > flt.doubleValue()) {
-                        break;
+                double[] costs = score;
+                if (costs == null) {
+                    costs = new double[NR_LEVELS];
+                    for (int level = 0; level < NR_LEVELS; level++) {
+                        costs[level] = getCost(assignment, level, value, conflicts);
+                        if (level == 0 && flt != null && costs[0] > flt.doubleValue()) {
+                            break;
+                        }
                     }
                 }
                 if (flt != null && costs[0] > flt.doubleValue())
@@ -314,7 +379,7 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
                 boolean fail = false;
                 boolean best = false;
                 for (int level = 0; !fail && level < 1; level++) {
-                    double val = getCost(assignment, level, value, conflicts);
+                    double val = (score == null ? getCost(assignment, level, value, conflicts) : score[level]);
                     long cost = Math.round(PRECISION * val);
                     if (selectionValues != null && !best) {
                         if (cost > bestCost[level]) {
@@ -335,6 +400,8 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
                     selectionValues.add(value);
             }
         }
+        // when an exception is thrown, the collector is not returned to the pool (a new one gets created instead)
+        collector.release();
         // ToolBox.print("Best "+selectionValues.size()+" locations for variable "+selectedVariable.getId()+" have "+bestConflicts+" conflicts ("+bestRemovals+" weighted) and "+bestStudentConflicts+" ("+bestOriginalStudentConflicts+" * "+bestKoef+" + "+bestPenalty+") preference.");
         Placement selectedValue = null;
         if (iUseThreshold) {
@@ -373,6 +440,23 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         return selectedValue;
     }
 
+    /**
+     * Check the conflicts of the given placement (see {@link PlacementSelection#containsItselfSingletonOrCommited(TimetableModel, Set, Placement)}),
+     * using a reusable conflict collector
+     * @param model problem model
+     * @param assignment current assignment
+     * @param selectedValue a placement to check
+     * @return true if the placement is in conflict with itself, with a committed or a singleton class
+     */
+    protected boolean containsItselfSingletonOrCommited(TimetableModel model, Assignment<Lecture, Placement> assignment, Placement selectedValue) {
+        ConflictCollector<Placement> conflicts = ConflictCollector.acquire();
+        try {
+            return containsItselfSingletonOrCommited(model, model.conflictValues(assignment, selectedValue, conflicts), selectedValue);
+        } finally {
+            conflicts.release();
+        }
+    }
+
     public boolean containsItselfSingletonOrCommited(TimetableModel model, Set<Placement> values,
             Placement selectedValue) {
         if (values.contains(selectedValue))
@@ -1,11 +1,14 @@
 package org.cpsolver.exam.criteria;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.exam.model.Exam;
+import org.cpsolver.exam.model.ExamModel;
+import org.cpsolver.exam.model.ExamPeriod;
 import org.cpsolver.exam.model.ExamPeriodPlacement;
 import org.cpsolver.exam.model.ExamPlacement;
 import org.cpsolver.exam.model.ExamRoomPlacement;
@@ -93,6 +96,43 @@ public abstract class ExamCriterion extends AbstractCriterion<Exam, ExamPlacemen
             info.put(getName(), sDoubleFormat.format(val));
     }
     
+    /**
+     * Record a change in the number of exams of a student (or an instructor) in a period (or a day).
+     * Used by {@link ExamCriterion#getCountDelta(Map, Map, int)}.
+     * @param adjustments changes in the number of exams, grouped by a period (or a day)
+     * @param key a period (or a day)
+     * @param member a student (or an instructor)
+     * @param change change in the number of exams
+     */
+    protected static <K, M> void adjust(Map<K, Map<M, Integer>> adjustments, K key, M member, int change) {
+        Map<M, Integer> members = adjustments.get(key);
+        if (members == null) {
+            members = new HashMap<M, Integer>();
+            adjustments.put(key, members);
+        }
+        Integer count = members.get(member);
+        members.put(member, (count == null ? 0 : count.intValue()) + change);
+    }
+    
+    /**
+     * Change in the number of conflicts of a criterion that penalizes each exam of a student (or an instructor)
+     * above the given limit within a period (or a day), i.e., max(0, number of exams - limit).
+     * @param current current exams of each student (or instructor) of a period (or day), see {@link ExamModel#getStudentsOfPeriod(Assignment, ExamPeriod)}
+     * @param adjustments changes in the number of exams of each student (or instructor) of the same period (or day)
+     * @param limit number of exams that are not penalized
+     * @return change in the number of conflicts
+     */
+    protected static <M> int getCountDelta(Map<M, Set<Exam>> current, Map<M, Integer> adjustments, int limit) {
+        int delta = 0;
+        for (Map.Entry<M, Integer> adjustment: adjustments.entrySet()) {
+            if (adjustment.getValue() == 0) continue;
+            Set<Exam> exams = current.get(adjustment.getKey());
+            int nrExams = (exams == null ? 0 : exams.size());
+            delta += Math.max(0, nrExams + adjustment.getValue() - limit) - Math.max(0, nrExams - limit);
+        }
+        return delta;
+    }
+    
     /**
      * True if this criterion is based on period assignment. Used by {@link ExamPlacement#getTimeCost(Assignment)}.
      * @return true if this criterion is based on period assignment
@@ -66,6 +66,16 @@ public class ExamRotationPenalty extends ExamCriterion {
         return (1 + value.getPeriod().getIndex()) * (1 + value.variable().getAveragePeriod());
     }
     
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     public int nrAssignedExamsWithAvgPeriod(Assignment<Exam, ExamPlacement> assignment) {
         return ((RotationContext)getContext(assignment)).nrAssignedExamsWithAvgPeriod();
     }
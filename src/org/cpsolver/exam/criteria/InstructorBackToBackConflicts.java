@@ -1,5 +1,6 @@
 package org.cpsolver.exam.criteria;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -106,6 +107,16 @@ public class InstructorBackToBackConflicts extends StudentBackToBackConflicts {
         */
         return penalty;
     }
+    
+    @Override
+    protected Collection<?> getMembers(Exam exam) {
+        return exam.getInstructors();
+    }
+    
+    @Override
+    protected Map<?, Set<Exam>> getExamsOfPeriod(Assignment<Exam, ExamPlacement> assignment, ExamPeriod period) {
+        return ((ExamModel)getModel()).getInstructorsOfPeriod(assignment, period);
+    }
 
     @Override
     public String getName() {
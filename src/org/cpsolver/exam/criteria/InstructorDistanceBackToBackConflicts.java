@@ -1,5 +1,6 @@
 package org.cpsolver.exam.criteria;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -123,6 +124,16 @@ public class InstructorDistanceBackToBackConflicts extends StudentDistanceBackTo
         return penalty;
     }
 
+    @Override
+    protected Collection<?> getMembers(Exam exam) {
+        return exam.getInstructors();
+    }
+    
+    @Override
+    protected Map<?, Set<Exam>> getExamsOfPeriod(Assignment<Exam, ExamPlacement> assignment, ExamPeriod period) {
+        return ((ExamModel)getModel()).getInstructorsOfPeriod(assignment, period);
+    }
+    
     @Override
     public String getName() {
         return "Instructor Distance Back-To-Back Conflicts";
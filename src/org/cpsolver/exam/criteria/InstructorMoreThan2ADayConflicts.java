@@ -1,6 +1,7 @@
 package org.cpsolver.exam.criteria;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -84,6 +85,34 @@ public class InstructorMoreThan2ADayConflicts extends StudentMoreThan2ADayConfli
         return penalty;
     }
     
+    /**
+     * Exact change in the number of more than two exams a day conflicts: the number of exams of each affected instructor
+     * in each affected day is adjusted by the given changes.
+     */
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        Map<Integer, Map<ExamInstructor, Integer>> adjustments = new HashMap<Integer, Map<ExamInstructor, Integer>>();
+        for (Map.Entry<Exam, ExamPlacement> change: changes.entrySet()) {
+            ExamPlacement old = assignment.getValue(change.getKey());
+            Integer before = (old == null ? null : old.getPeriod().getDay());
+            Integer after = (change.getValue() == null ? null : change.getValue().getPeriod().getDay());
+            if (before == null ? after == null : before.equals(after)) continue;
+            for (ExamInstructor s : change.getKey().getInstructors()) {
+                if (before != null) adjust(adjustments, before, s, -1);
+                if (after != null) adjust(adjustments, after, s, 1);
+            }
+        }
+        int delta = 0;
+        for (Map.Entry<Integer, Map<ExamInstructor, Integer>> entry: adjustments.entrySet())
+            delta += getCountDelta(((ExamModel)getModel()).getInstructorsOfDay(assignment, entry.getKey()), entry.getValue(), 2);
+        return delta;
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public double getValue(Assignment<Exam, ExamPlacement> assignment, Collection<Exam> variables) {
         int ret = 0;
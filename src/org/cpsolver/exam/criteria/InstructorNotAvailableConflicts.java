@@ -53,6 +53,16 @@ public class InstructorNotAvailableConflicts extends InstructorDirectConflicts {
         return penalty;
     }
     
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public double getValue(Assignment<Exam, ExamPlacement> assignment, Collection<Exam> exams) {
         double ret = 0;
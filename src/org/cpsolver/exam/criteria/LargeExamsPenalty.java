@@ -145,6 +145,16 @@ public class LargeExamsPenalty extends ExamCriterion {
         if (getLargeSize() < 0 || exam.getSize() < getLargeSize()) return 0;
         return (value.getPeriod().getIndex() < getLargePeriodIndex() ? 0 : 1);
     }
+    
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
 
     @Override
     public double[] getBounds(Assignment<Exam, ExamPlacement> assignment, Collection<Exam> variables) {
@@ -58,6 +58,16 @@ public class PeriodIndexPenalty extends ExamCriterion {
         return value.getPeriod().getIndex();
     }
     
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public String getName() {
         return "Average Period";
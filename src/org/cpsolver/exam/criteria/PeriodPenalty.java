@@ -1,6 +1,7 @@
 package org.cpsolver.exam.criteria;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.exam.criteria.additional.PeriodViolation;
@@ -74,6 +75,16 @@ public class PeriodPenalty extends ExamCriterion {
     public double getValue(Assignment<Exam, ExamPlacement> assignment, ExamPlacement value, Set<ExamPlacement> conflicts) {
         return (iSoftPeriods == null || (value.getPeriodPlacement().getExamPenalty() != iSoftPeriods &&  value.getPeriodPlacement().getPeriod().getPenalty() != iSoftPeriods) ? value.getPeriodPlacement().getPenalty() : 0.0);
     }
+    
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
 
     @Override
     public double[] getBounds(Assignment<Exam, ExamPlacement> assignment, Collection<Exam> variables) {
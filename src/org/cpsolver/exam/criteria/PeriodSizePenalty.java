@@ -60,6 +60,16 @@ public class PeriodSizePenalty extends ExamCriterion {
         return value.getPeriodPlacement().getPenalty() * (value.variable().getSize() + 1);
     }
     
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public String getName() {
         return "Period&times;Size Penalty";
@@ -92,6 +92,16 @@ public class PerturbationPenalty extends ExamCriterion {
         if (initial == null) return 0;
         return Math.abs(initial.getPeriod().getIndex() - value.getPeriod().getIndex()) * (1 + exam.getSize());
     }
+    
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
 
     @Override
     public String toString(Assignment<Exam, ExamPlacement> assignment) {
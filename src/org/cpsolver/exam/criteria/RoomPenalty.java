@@ -1,6 +1,7 @@
 package org.cpsolver.exam.criteria;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.exam.criteria.additional.RoomViolation;
@@ -85,6 +86,16 @@ public class RoomPenalty extends ExamCriterion {
         return penalty;
     }
     
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     private int getMinPenalty(ExamRoom r) {
         int min = Integer.MAX_VALUE;
         for (ExamPeriod p : ((ExamModel)getModel()).getPeriods()) {
@@ -1,5 +1,6 @@
 package org.cpsolver.exam.criteria;
 
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.exam.model.Exam;
@@ -71,6 +72,16 @@ public class RoomPerturbationPenalty extends PerturbationPenalty {
             }
         return penalty;
     }
+    
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
 
 
     @Override
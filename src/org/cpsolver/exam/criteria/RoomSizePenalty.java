@@ -108,6 +108,16 @@ public class RoomSizePenalty extends ExamCriterion {
         return (diff < 0 ? 0 : Math.pow(diff, iRoomSizeFactor));
     }
     
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public void getInfo(Assignment<Exam, ExamPlacement> assignment, Map<String, String> info) {
         if (getValue(assignment) != 0.0) {
@@ -74,6 +74,16 @@ public class RoomSplitDistancePenalty  extends ExamCriterion {
         return distance / pairs;
     }
     
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public void getInfo(Assignment<Exam, ExamPlacement> assignment, Map<String, String> info) {
         if (getValue(assignment) != 0.0) {
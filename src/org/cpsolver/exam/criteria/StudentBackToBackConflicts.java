@@ -1,6 +1,7 @@
 package org.cpsolver.exam.criteria;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -156,6 +157,87 @@ public class StudentBackToBackConflicts extends ExamCriterion {
         return penalty;
     }
     
+    /**
+     * Students of the given exam (instructors for {@link InstructorBackToBackConflicts})
+     * @param exam an exam
+     * @return students of the exam
+     */
+    protected Collection<?> getMembers(Exam exam) {
+        return exam.getStudents();
+    }
+    
+    /**
+     * Exams of each student in the given period (instructors for {@link InstructorBackToBackConflicts})
+     * @param assignment current assignment
+     * @param period an examination period
+     * @return exams of each student in the period
+     */
+    protected Map<?, Set<Exam>> getExamsOfPeriod(Assignment<Exam, ExamPlacement> assignment, ExamPeriod period) {
+        return ((ExamModel)getModel()).getStudentsOfPeriod(assignment, period);
+    }
+    
+    /**
+     * Whether the two consecutive periods are back-to-back
+     */
+    private boolean isBackToBack(ExamPeriod period, ExamPeriod next) {
+        return period != null && next != null && (isDayBreakBackToBack() || next.getDay() == period.getDay());
+    }
+    
+    private static int count(Map<?, Set<Exam>> exams, Object member) {
+        Set<Exam> set = exams.get(member);
+        return (set == null ? 0 : set.size());
+    }
+    
+    private static int count(Map<ExamPeriod, Map<Object, Integer>> adjustments, ExamPeriod period, Object member) {
+        Map<Object, Integer> members = adjustments.get(period);
+        Integer count = (members == null ? null : members.get(member));
+        return (count == null ? 0 : count.intValue());
+    }
+    
+    /**
+     * Exact change in the number of back-to-back conflicts: each pair of consecutive periods
+     * that has a change in the number of exams of a student is recomputed.
+     */
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        Map<ExamPeriod, Map<Object, Integer>> adjustments = new HashMap<ExamPeriod, Map<Object, Integer>>();
+        for (Map.Entry<Exam, ExamPlacement> change: changes.entrySet()) {
+            ExamPlacement old = assignment.getValue(change.getKey());
+            ExamPeriod before = (old == null ? null : old.getPeriod());
+            ExamPeriod after = (change.getValue() == null ? null : change.getValue().getPeriod());
+            if (before == null ? after == null : before.equals(after)) continue;
+            for (Object s : getMembers(change.getKey())) {
+                if (before != null) adjust(adjustments, before, s, -1);
+                if (after != null) adjust(adjustments, after, s, 1);
+            }
+        }
+        int delta = 0;
+        for (Map.Entry<ExamPeriod, Map<Object, Integer>> entry: adjustments.entrySet()) {
+            ExamPeriod period = entry.getKey();
+            Map<?, Set<Exam>> exams = getExamsOfPeriod(assignment, period);
+            Map<?, Set<Exam>> prev = (isBackToBack(period.prev(), period) ? getExamsOfPeriod(assignment, period.prev()) : null);
+            Map<?, Set<Exam>> next = (isBackToBack(period, period.next()) ? getExamsOfPeriod(assignment, period.next()) : null);
+            for (Map.Entry<Object, Integer> adjustment: entry.getValue().entrySet()) {
+                int d = adjustment.getValue();
+                if (d == 0) continue;
+                int k = count(exams, adjustment.getKey());
+                if (next != null) {
+                    int kn = count(next, adjustment.getKey()), dn = count(adjustments, period.next(), adjustment.getKey());
+                    delta += (k + d) * (kn + dn) - k * kn;
+                }
+                // pair with the previous period is only counted here when there is no change in the previous period
+                if (prev != null && count(adjustments, period.prev(), adjustment.getKey()) == 0)
+                    delta += d * count(prev, adjustment.getKey());
+            }
+        }
+        return delta;
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public double getValue(Assignment<Exam, ExamPlacement> assignment, Collection<Exam> variables) {
         return super.getValue(assignment, variables) / 2.0;
@@ -1,6 +1,7 @@
 package org.cpsolver.exam.criteria;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -84,6 +85,34 @@ public class StudentDirectConflicts extends ExamCriterion {
         */
         return penalty;
     }
+    
+    /**
+     * Exact change in the number of direct conflicts: the number of exams of each affected student
+     * in each affected period is adjusted by the given changes.
+     */
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        Map<ExamPeriod, Map<ExamStudent, Integer>> adjustments = new HashMap<ExamPeriod, Map<ExamStudent, Integer>>();
+        for (Map.Entry<Exam, ExamPlacement> change: changes.entrySet()) {
+            ExamPlacement old = assignment.getValue(change.getKey());
+            ExamPeriod before = (old == null ? null : old.getPeriod());
+            ExamPeriod after = (change.getValue() == null ? null : change.getValue().getPeriod());
+            if (before == null ? after == null : before.equals(after)) continue;
+            for (ExamStudent s : change.getKey().getStudents()) {
+                if (before != null) adjust(adjustments, before, s, -1);
+                if (after != null) adjust(adjustments, after, s, 1);
+            }
+        }
+        int delta = 0;
+        for (Map.Entry<ExamPeriod, Map<ExamStudent, Integer>> entry: adjustments.entrySet())
+            delta += getCountDelta(((ExamModel)getModel()).getStudentsOfPeriod(assignment, entry.getKey()), entry.getValue(), 1);
+        return delta;
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
 
     @Override
     public String getName() {
@@ -1,5 +1,9 @@
 package org.cpsolver.exam.criteria;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -164,6 +168,84 @@ public class StudentDistanceBackToBackConflicts extends ExamCriterion {
         return penalty;
     }
     
+    /**
+     * Students of the given exam (instructors for {@link InstructorDistanceBackToBackConflicts})
+     * @param exam an exam
+     * @return students of the exam
+     */
+    protected Collection<?> getMembers(Exam exam) {
+        return exam.getStudents();
+    }
+    
+    /**
+     * Exams of each student in the given period (instructors for {@link InstructorDistanceBackToBackConflicts})
+     * @param assignment current assignment
+     * @param period an examination period
+     * @return exams of each student in the period
+     */
+    protected Map<?, Set<Exam>> getExamsOfPeriod(Assignment<Exam, ExamPlacement> assignment, ExamPeriod period) {
+        return ((ExamModel)getModel()).getStudentsOfPeriod(assignment, period);
+    }
+    
+    /**
+     * Exact change in the number of distance back-to-back conflicts: the conflicts involving at least one of the changed
+     * exams are counted before and after the change. The exams of a student in a period are taken from the current
+     * assignment, the changed exams are handled separately (each pair of changed exams is counted once).
+     */
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        if (getBackToBackDistance() < 0 || changes.isEmpty()) return 0.0;
+        return countConflicts(assignment, changes, true) - countConflicts(assignment, changes, false);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
+    /**
+     * Number of distance back-to-back conflicts involving at least one of the changed exams
+     * @param assignment current assignment
+     * @param changes changed exams with their new placements (null when unassigned)
+     * @param after true to count the conflicts after the change, false for the current assignment
+     */
+    private int countConflicts(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes, boolean after) {
+        List<Exam> changed = new ArrayList<Exam>(changes.keySet());
+        int penalty = 0;
+        for (int i = 0; i < changed.size(); i++) {
+            Exam exam = changed.get(i);
+            ExamPlacement placement = (after ? changes.get(exam) : assignment.getValue(exam));
+            if (placement == null) continue;
+            ExamPeriod period = placement.getPeriod();
+            // conflicts with exams that are not changed
+            for (ExamPeriod other: new ExamPeriod[] { period.prev(), period.next() }) {
+                if (other == null || other.getDay() != period.getDay()) continue;
+                Map<?, Set<Exam>> exams = getExamsOfPeriod(assignment, other);
+                for (Object member : getMembers(exam)) {
+                    Set<Exam> set = exams.get(member);
+                    if (set == null) continue;
+                    for (Exam x : set) {
+                        if (changes.containsKey(x)) continue;
+                        if (placement.getDistanceInMeters(assignment.getValue(x)) > getBackToBackDistance())
+                            penalty++;
+                    }
+                }
+            }
+            // conflicts with the other changed exams
+            Set<Object> members = null;
+            for (int j = i + 1; j < changed.size(); j++) {
+                Exam x = changed.get(j);
+                ExamPlacement other = (after ? changes.get(x) : assignment.getValue(x));
+                if (other == null || other.getPeriod().getDay() != period.getDay() || Math.abs(other.getPeriod().getIndex() - period.getIndex()) != 1) continue;
+                if (placement.getDistanceInMeters(other) <= getBackToBackDistance()) continue;
+                if (members == null) members = new HashSet<Object>(getMembers(exam));
+                for (Object member : getMembers(x))
+                    if (members.contains(member)) penalty++;
+            }
+        }
+        return penalty;
+    }
+    
     @Override
     public String getName() {
         return "Distance Back-To-Back Conflicts";
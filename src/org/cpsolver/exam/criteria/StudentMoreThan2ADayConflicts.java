@@ -1,6 +1,7 @@
 package org.cpsolver.exam.criteria;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -80,6 +81,34 @@ public class StudentMoreThan2ADayConflicts extends ExamCriterion {
         return penalty;
     }
     
+    /**
+     * Exact change in the number of more than two exams a day conflicts: the number of exams of each affected student
+     * in each affected day is adjusted by the given changes.
+     */
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        Map<Integer, Map<ExamStudent, Integer>> adjustments = new HashMap<Integer, Map<ExamStudent, Integer>>();
+        for (Map.Entry<Exam, ExamPlacement> change: changes.entrySet()) {
+            ExamPlacement old = assignment.getValue(change.getKey());
+            Integer before = (old == null ? null : old.getPeriod().getDay());
+            Integer after = (change.getValue() == null ? null : change.getValue().getPeriod().getDay());
+            if (before == null ? after == null : before.equals(after)) continue;
+            for (ExamStudent s : change.getKey().getStudents()) {
+                if (before != null) adjust(adjustments, before, s, -1);
+                if (after != null) adjust(adjustments, after, s, 1);
+            }
+        }
+        int delta = 0;
+        for (Map.Entry<Integer, Map<ExamStudent, Integer>> entry: adjustments.entrySet())
+            delta += getCountDelta(((ExamModel)getModel()).getStudentsOfDay(assignment, entry.getKey()), entry.getValue(), 2);
+        return delta;
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public String getName() {
         return "More Than 2 A Day Conflicts";
@@ -51,6 +51,16 @@ public class StudentNotAvailableConflicts extends StudentDirectConflicts {
         }
         return penalty;
     }
+    
+    @Override
+    public double getDelta(Assignment<Exam, ExamPlacement> assignment, Map<Exam, ExamPlacement> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
 
     @Override
     public String getName() {
@@ -0,0 +1,67 @@
+package org.cpsolver.exam.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.solution.SolutionCheckpoint;
+import org.cpsolver.ifs.util.DataProperties;
+
+/**
+ * Binary checkpoint of an examination timetabling solution (see {@link SolutionCheckpoint}). An exam placement
+ * is encoded as the period id followed by the ids of the assigned rooms, so that the (possibly very large) domains
+ * of the exams do not need to be computed.
+ * 
+ * @version ExamTT 1.3 (Examination Timetabling)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class ExamCheckpoint extends SolutionCheckpoint<Exam, ExamPlacement> {
+
+    public ExamCheckpoint() {
+        super();
+    }
+
+    public ExamCheckpoint(DataProperties properties) {
+        super(properties);
+    }
+
+    @Override
+    protected long[] encode(Assignment<Exam, ExamPlacement> assignment, Exam exam, ExamPlacement placement) {
+        long[] code = new long[1 + placement.getRoomPlacements().size()];
+        code[0] = placement.getPeriodPlacement().getId();
+        int idx = 1;
+        for (ExamRoomPlacement room: placement.getRoomPlacements())
+            code[idx++] = room.getId();
+        return code;
+    }
+
+    @Override
+    protected ExamPlacement decode(Assignment<Exam, ExamPlacement> assignment, Exam exam, long[] code) {
+        if (code.length == 0) return null;
+        ExamPeriodPlacement period = exam.getPeriodPlacement(code[0]);
+        if (period == null) return null;
+        Set<ExamRoomPlacement> rooms = new HashSet<ExamRoomPlacement>();
+        for (int i = 1; i < code.length; i++) {
+            ExamRoomPlacement room = exam.getRoomPlacement(code[i]);
+            if (room == null) return null;
+            rooms.add(room);
+        }
+        return new ExamPlacement(exam, period, rooms);
+    }
+}
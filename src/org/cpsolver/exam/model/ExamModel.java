@@ -871,6 +871,7 @@ public class ExamModel extends ModelWithContext<Exam, ExamPlacement, ExamContext
             addConstraint(room);
             getRooms().add(room);
             rooms.put(new Long(room.getId()), room);
+            getDistanceMetric().addLocation(room.getId(), room.getCoordX(), room.getCoordY());
             for (Iterator<?> j = e.elementIterator("period"); j.hasNext();) {
                 Element pe = (Element) j.next();
                 ExamPeriod period = getPeriod(Long.valueOf(pe.attributeValue("id")));
@@ -88,10 +88,13 @@ public class ExamRoom extends ConstraintWithContext<Exam, ExamPlacement, ExamRoo
      * @return distance between this and the given room
      */
     public double getDistanceInMeters(ExamRoom other) {
+        DistanceMetric metric = ((ExamModel)getModel()).getDistanceMetric();
+        if (metric.isInTravelTimeMatrix(getId(), other.getId()))
+            return metric.getDistanceInMeters(getId(), getCoordX(), getCoordY(), other.getId(), other.getCoordX(), other.getCoordY());
         synchronized (iDistanceCache) {
             Double distance = iDistanceCache.get(other.getId());
             if (distance == null) {
-                distance = ((ExamModel)getModel()).getDistanceMetric().getDistanceInMeters(getId(), getCoordX(), getCoordY(), other.getId(), other.getCoordX(), other.getCoordY());
+                distance = metric.getDistanceInMeters(getId(), getCoordX(), getCoordY(), other.getId(), other.getCoordX(), other.getCoordY());
                 iDistanceCache.put(other.getId(), distance);
             }
             return distance;
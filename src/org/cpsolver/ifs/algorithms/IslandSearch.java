@@ -0,0 +1,376 @@
+package org.cpsolver.ifs.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.log4j.Logger;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.context.AssignmentContext;
+import org.cpsolver.ifs.assignment.context.NeighbourSelectionWithContext;
+import org.cpsolver.ifs.heuristics.NeighbourSelection;
+import org.cpsolver.ifs.model.Model;
+import org.cpsolver.ifs.model.Neighbour;
+import org.cpsolver.ifs.model.Value;
+import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solution.RankedSolutionComparator;
+import org.cpsolver.ifs.solution.Solution;
+import org.cpsolver.ifs.solution.SolutionComparator;
+import org.cpsolver.ifs.solution.SolutionListener;
+import org.cpsolver.ifs.solver.ParallelSolver;
+import org.cpsolver.ifs.solver.Solver;
+import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.ifs.util.JProf;
+
+
+/**
+ * Island model search. To be used with the {@link ParallelSolver} working with multiple solutions
+ * (one for each solver thread). Each thread works with its own island, that is
+ * its own neighbour selection (e.g., {@link SimpleSearch} with different {@link SimulatedAnnealing} or
+ * {@link GreatDeluge} parameters). Every IslandSearch.MigrationInterval seconds, each island
+ * publishes its current (possibly partial) assignment into a bounded migration channel and takes the best
+ * migrant from the channel of the previous island (ring topology). If the migrant is better than the current
+ * assignment of the island, it is adopted using a conflict repair similar to {@link Model#restoreBest(Assignment)}.
+ * <br><br>
+ * Island neighbour selection is given by the IslandSearch.Class parameter (defaults to {@link SimpleSearch}).
+ * Any parameter can be overridden for an island by prefixing it with Island<i>i</i>, where <i>i</i> is the island
+ * index (starting with 1), for example:
+ * <pre><code>
+ * Neighbour.Class=org.cpsolver.ifs.algorithms.IslandSearch
+ * IslandSearch.Islands=4
+ * Island1.Search.GreatDeluge=true
+ * Island2.Search.GreatDeluge=false
+ * Island3.Search.GreatDeluge=false
+ * Island3.SimulatedAnnealing.InitialTemperature=5.0
+ * Island4.IslandSearch.Class=org.cpsolver.ifs.algorithms.GreatDeluge
+ * </code></pre>
+ * When there are more solver threads than islands, threads are assigned to islands in a round robin fashion.
+ * In a single solution mode ({@link Solver#hasSingleSolution()}), the islands only share the one solution
+ * and there is no migration.
+ * <br>
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ * @param <V> Variable
+ * @param <T> Value
+ */
+public class IslandSearch<V extends Variable<V, T>, T extends Value<V, T>> extends NeighbourSelectionWithContext<V, T, IslandSearch<V, T>.IslandContext> implements SolutionListener<V, T> {
+    private static Logger sLog = Logger.getLogger(IslandSearch.class);
+    private List<NeighbourSelection<V, T>> iIslands = new ArrayList<NeighbourSelection<V, T>>();
+    private List<List<SolutionListener<V, T>>> iListeners = new ArrayList<List<SolutionListener<V, T>>>();
+    private List<BlockingQueue<Migrant>> iChannels = new ArrayList<BlockingQueue<Migrant>>();
+    private long iMigrationInterval = 30000;
+    private int iChannelSize = 2;
+    private boolean iMigration = true;
+    private SolutionComparator<V, T> iComparator = null;
+
+    /**
+     * Constructor. Following problem properties are considered:
+     * <ul>
+     * <li>IslandSearch.Islands ... number of islands (defaults to Parallel.NrSolvers)
+     * <li>IslandSearch.Class ... island neighbour selection (defaults to {@link SimpleSearch}), can be overridden by Island<i>i</i>.IslandSearch.Class
+     * <li>IslandSearch.MigrationInterval ... migration interval in seconds (default 30)
+     * <li>IslandSearch.ChannelSize ... number of migrants kept in each migration channel, older migrants are dropped (default 2)
+     * </ul>
+     * @param properties problem configuration
+     * @throws Exception thrown when initialization fails (e.g., a given class is not found)
+     */
+    @SuppressWarnings("unchecked")
+    public IslandSearch(DataProperties properties) throws Exception {
+        int nrIslands = properties.getPropertyInt("IslandSearch.Islands", Math.max(1, properties.getPropertyInt("Parallel.NrSolvers", 4)));
+        iMigrationInterval = Math.round(1000.0 * properties.getPropertyDouble("IslandSearch.MigrationInterval", iMigrationInterval / 1000.0));
+        iChannelSize = properties.getPropertyInt("IslandSearch.ChannelSize", iChannelSize);
+        for (int i = 1; i <= nrIslands; i++) {
+            DataProperties config = getIslandProperties(properties, i);
+            String className = config.getProperty("IslandSearch.Class", SimpleSearch.class.getName());
+            Class<NeighbourSelection<V, T>> clazz = (Class<NeighbourSelection<V, T>>)Class.forName(className);
+            iIslands.add(clazz.getConstructor(DataProperties.class).newInstance(config));
+            iListeners.add(new ArrayList<SolutionListener<V, T>>());
+            iChannels.add(new ArrayBlockingQueue<Migrant>(Math.max(1, iChannelSize)));
+        }
+    }
+
+    /**
+     * Island configuration: all properties starting with Island<i>i</i>. are used to override the default ones.
+     * @param properties problem configuration
+     * @param island island index, starting with 1
+     * @return island configuration
+     */
+    protected DataProperties getIslandProperties(DataProperties properties, int island) {
+        DataProperties config = new DataProperties(properties);
+        String prefix = "Island" + island + ".";
+        for (Map.Entry<Object, Object> entry: properties.entrySet()) {
+            String key = (String)entry.getKey();
+            if (key.startsWith(prefix))
+                config.setProperty(key.substring(prefix.length()), (String)entry.getValue());
+        }
+        return config;
+    }
+
+    /**
+     * Initialization. Solution listeners registered by the island neighbour selections are taken out of the
+     * current solution and only called for the solutions of the appropriate island.
+     */
+    @Override
+    public void init(Solver<V, T> solver) {
+        super.init(solver);
+        iMigration = !solver.hasSingleSolution() && iIslands.size() > 1;
+        iComparator = solver.getSolutionComparator();
+        for (int i = 0; i < iIslands.size(); i++) {
+            List<SolutionListener<V, T>> before = new ArrayList<SolutionListener<V, T>>(solver.currentSolution().getSolutionListeners());
+            iIslands.get(i).init(solver);
+            List<SolutionListener<V, T>> listeners = iListeners.get(i);
+            listeners.clear();
+            for (SolutionListener<V, T> listener: new ArrayList<SolutionListener<V, T>>(solver.currentSolution().getSolutionListeners())) {
+                if (!before.contains(listener)) {
+                    listeners.add(listener);
+                    solver.currentSolution().removeSolutionListener(listener);
+                }
+            }
+        }
+        for (BlockingQueue<Migrant> channel: iChannels)
+            channel.clear();
+        solver.currentSolution().addSolutionListener(this);
+    }
+
+    /**
+     * Island index of the given assignment, based on the assignment index (solver threads are numbered from one)
+     * @param assignment current assignment
+     * @return island index, starting with zero
+     */
+    protected int getIsland(Assignment<V, T> assignment) {
+        return (assignment.getIndex() <= 1 ? 0 : (assignment.getIndex() - 1) % iIslands.size());
+    }
+
+    /**
+     * Number of islands
+     * @return number of islands
+     */
+    public int getNrIslands() {
+        return iIslands.size();
+    }
+
+    @Override
+    public Neighbour<V, T> selectNeighbour(Solution<V, T> solution) {
+        int island = getIsland(solution.getAssignment());
+        if (iMigration) {
+            IslandContext context = getContext(solution.getAssignment());
+            if (context.isMigrationTime()) {
+                Neighbour<V, T> n = context.migrate(solution, island);
+                if (n != null) return n;
+            }
+        }
+        return iIslands.get(island).selectNeighbour(solution);
+    }
+
+    @Override
+    public IslandContext createAssignmentContext(Assignment<V, T> assignment) {
+        return new IslandContext();
+    }
+
+    /**
+     * Migrant: a (partial) assignment of an island
+     */
+    protected class Migrant {
+        private int iIsland;
+        private Map<V, T> iAssignment;
+        private int iUnassigned;
+        private double iValue;
+        private double[] iRank;
+
+        Migrant(int island, Solution<V, T> solution) {
+            iIsland = island;
+            Assignment<V, T> assignment = solution.getAssignment();
+            iAssignment = new HashMap<V, T>();
+            for (V variable: solution.getModel().variables()) {
+                T value = assignment.getValue(variable);
+                if (value != null) iAssignment.put(variable, value);
+            }
+            iUnassigned = solution.getModel().variables().size() - iAssignment.size();
+            iValue = solution.getModel().getTotalValue(assignment);
+            if (iComparator != null && iComparator instanceof RankedSolutionComparator)
+                iRank = ((RankedSolutionComparator<V, T>)iComparator).getRank(solution);
+            else
+                iRank = new double[] { iUnassigned, iValue };
+        }
+
+        /** Island that created the migrant */
+        public int getIsland() { return iIsland; }
+        /** Number of unassigned variables */
+        public int getNrUnassigned() { return iUnassigned; }
+        /** Total value of the migrant */
+        public double getValue() { return iValue; }
+        /** Assigned values of the migrant */
+        public Map<V, T> getAssignment() { return iAssignment; }
+        /**
+         * Rank of the migrant, as given by the solver's solution comparator when it is a {@link RankedSolutionComparator}
+         * (number of unassigned variables and the total value otherwise); a smaller rank is better
+         */
+        public double[] getRank() { return iRank; }
+
+        /**
+         * Compare with another migrant, using the ranks computed by the solver's solution comparator
+         * @param m the other migrant
+         * @return true if this migrant is better
+         */
+        public boolean isBetterThan(Migrant m) {
+            if (m == null) return true;
+            for (int i = 0; i < Math.min(iRank.length, m.getRank().length); i++)
+                if (iRank[i] != m.getRank()[i]) return iRank[i] < m.getRank()[i];
+            return false;
+        }
+    }
+
+    /**
+     * Migration neighbour: adopts the migrant's assignment, repairing the conflicts if there are any.
+     * Changed values that are not in a conflict are assigned first, the remaining ones are then assigned
+     * with their conflicts unassigned (similar to {@link Model#restoreBest(Assignment)}).
+     */
+    protected class MigrationNeighbour implements Neighbour<V, T> {
+        private Migrant iMigrant;
+        private double iValue;
+
+        MigrationNeighbour(Migrant migrant, double value) {
+            iMigrant = migrant; iValue = value;
+        }
+
+        @Override
+        public void assign(Assignment<V, T> assignment, long iteration) {
+            List<T> changes = new ArrayList<T>();
+            for (Map.Entry<V, T> entry: iMigrant.getAssignment().entrySet()) {
+                T current = assignment.getValue(entry.getKey());
+                if (!entry.getValue().equals(current)) {
+                    if (current != null) assignment.unassign(iteration, entry.getKey());
+                    changes.add(entry.getValue());
+                }
+            }
+            for (V variable: new ArrayList<V>(assignment.assignedVariables()))
+                if (!iMigrant.getAssignment().containsKey(variable))
+                    assignment.unassign(iteration, variable);
+            List<T> problems = new ArrayList<T>();
+            Model<V, T> model = null;
+            for (T value: changes) {
+                if (model == null) model = value.variable().getModel();
+                if (model.inConflict(assignment, value))
+                    problems.add(value);
+                else
+                    assignment.assign(iteration, value);
+            }
+            for (T value: problems) {
+                if (assignment.getValue(value.variable()) != null) continue;
+                for (T conflict: model.conflictValues(assignment, value))
+                    assignment.unassign(iteration, conflict.variable());
+                assignment.assign(iteration, value);
+            }
+        }
+
+        @Override
+        public double value(Assignment<V, T> assignment) {
+            return iValue;
+        }
+
+        @Override
+        public Map<V, T> assignments() {
+            return iMigrant.getAssignment();
+        }
+
+        @Override
+        public String toString() {
+            return "Migration{island: " + (1 + iMigrant.getIsland()) + ", unassigned: " + iMigrant.getNrUnassigned() + ", value: " + iMigrant.getValue() + "}";
+        }
+    }
+
+    /**
+     * Island context
+     */
+    public class IslandContext implements AssignmentContext {
+        private long iLastMigration = JProf.currentTimeMillis();
+
+        /**
+         * Migration time
+         * @return true if the migration interval has elapsed since the last migration
+         */
+        protected boolean isMigrationTime() {
+            return JProf.currentTimeMillis() - iLastMigration >= iMigrationInterval;
+        }
+
+        /**
+         * Publish the current assignment of the island and take the best migrant from the previous island.
+         * @param solution current solution
+         * @param island island index
+         * @return migration neighbour, if there is a migrant better than the current solution
+         */
+        protected Neighbour<V, T> migrate(Solution<V, T> solution, int island) {
+            iLastMigration = JProf.currentTimeMillis();
+            Migrant mine = new Migrant(island, solution);
+            BlockingQueue<Migrant> channel = iChannels.get(island);
+            while (!channel.offer(mine))
+                channel.poll();
+            Migrant best = null;
+            for (Migrant m; (m = iChannels.get((island + iIslands.size() - 1) % iIslands.size()).poll()) != null; )
+                if (m.isBetterThan(best)) best = m;
+            if (best != null && best.isBetterThan(mine)) {
+                sLog.debug("[" + Thread.currentThread().getName() + "] Island " + (1 + island) + " adopts a migrant from island " + (1 + best.getIsland()) +
+                        " (" + mine.getNrUnassigned() + " -> " + best.getNrUnassigned() + " unassigned, " + mine.getValue() + " -> " + best.getValue() + ")");
+                return new MigrationNeighbour(best, best.getValue() - mine.getValue());
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public void solutionUpdated(Solution<V, T> solution) {
+        for (SolutionListener<V, T> listener: iListeners.get(getIsland(solution.getAssignment())))
+            listener.solutionUpdated(solution);
+    }
+
+    @Override
+    public void getInfo(Solution<V, T> solution, Map<String, String> info) {
+        for (SolutionListener<V, T> listener: iListeners.get(getIsland(solution.getAssignment())))
+            listener.getInfo(solution, info);
+    }
+
+    @Override
+    public void getInfo(Solution<V, T> solution, Map<String, String> info, Collection<V> variables) {
+        for (SolutionListener<V, T> listener: iListeners.get(getIsland(solution.getAssignment())))
+            listener.getInfo(solution, info, variables);
+    }
+
+    @Override
+    public void bestCleared(Solution<V, T> solution) {
+        for (SolutionListener<V, T> listener: iListeners.get(getIsland(solution.getAssignment())))
+            listener.bestCleared(solution);
+    }
+
+    @Override
+    public void bestSaved(Solution<V, T> solution) {
+        for (SolutionListener<V, T> listener: iListeners.get(getIsland(solution.getAssignment())))
+            listener.bestSaved(solution);
+    }
+
+    @Override
+    public void bestRestored(Solution<V, T> solution) {
+        for (SolutionListener<V, T> listener: iListeners.get(getIsland(solution.getAssignment())))
+            listener.bestRestored(solution);
+    }
+}
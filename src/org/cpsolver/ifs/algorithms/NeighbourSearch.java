@@ -3,9 +3,14 @@ package org.cpsolver.ifs.algorithms;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.cpsolver.ifs.algorithms.neighbourhoods.HillClimberSelection;
@@ -14,8 +19,10 @@ import org.cpsolver.ifs.algorithms.neighbourhoods.RandomSwapMove;
 import org.cpsolver.ifs.algorithms.neighbourhoods.SuggestionMove;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.context.AssignmentContext;
+import org.cpsolver.ifs.assignment.context.AssignmentContextHelper;
 import org.cpsolver.ifs.assignment.context.NeighbourSelectionWithContext;
 import org.cpsolver.ifs.heuristics.NeighbourSelection;
+import org.cpsolver.ifs.heuristics.ParallelValueScoring;
 import org.cpsolver.ifs.model.LazyNeighbour;
 import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Neighbour;
@@ -34,6 +41,26 @@ import org.cpsolver.ifs.util.ToolBox;
 /**
  * Base class for the search techniques like hill climber, great deluge, or simulated annealing.
  * It implements the {@link SolutionListener} and the variable neighbourhood selection.
+ * <br><br>
+ * The next neighbour selection is picked randomly (<i>Base</i>.Random=true), using a roulette on the bonuses or the points
+ * of the neighbour selections (see {@link NeighbourSelector}), or by an adaptive policy (see {@link NeighbourSelectorPolicy})
+ * based on the improvement per millisecond that each neighbour selection achieved during its last calls. The neighbour
+ * selections are shared by all the threads of the search, so the credit is collected by all of them.
+ * <ul>
+ * <li><i>Base</i>.Policy ... selection policy: Roulette (default), UCB (see {@link NeighbourSelectorPolicy.UCB}), Softmax
+ * (see {@link NeighbourSelectorPolicy.Softmax}), or a class name implementing {@link NeighbourSelectorPolicy}
+ * <li><i>Base</i>.Window ... number of the last calls of a neighbour selection used to compute its credit (defaults to 1000)
+ * </ul>
+ * In the batch mode, a batch of moves is generated at once, their values are computed in parallel on the current assignment,
+ * and the moves are then passed to the acceptance criterion one by one (each counting as an iteration), until one is accepted.
+ * The remaining moves of the batch are discarded. This allows a single solution search to make use of the idle cores,
+ * but it requires {@link Neighbour#value(Assignment)} of the generated moves to be safe to call from multiple threads
+ * (the assignment contexts that the evaluation may create are created by the search thread first, see
+ * {@link NeighbourSearch#evaluate(Assignment, List)}).
+ * <ul>
+ * <li><i>Base</i>.BatchSize ... number of moves generated and evaluated at once (defaults to 1, batch mode disabled)
+ * <li><i>Base</i>.BatchThreads ... number of threads evaluating the moves, besides the search thread (defaults to the number of available processors minus one)
+ * </ul>
  * 
  * <br>
  * 
@@ -69,6 +96,11 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
     private boolean iRandomSelection = false;
     private boolean iUpdatePoints = false;
     private double iTotalBonus;
+    private NeighbourSelectorPolicy<V, T> iPolicy = null;
+    private int iWindow = 1000;
+    private int iBatchSize = 1;
+    private int iBatchThreads = 0;
+    private ParallelValueScoring iBatchScoring = null;
     private Solver<V, T> iSolver = null;
 
     @SuppressWarnings("unchecked")
@@ -77,6 +109,22 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
         iLog = Logger.getLogger(getClass());
         iRandomSelection = properties.getPropertyBoolean(getParameterBaseName() + ".Random", iRandomSelection);
         iUpdatePoints = properties.getPropertyBoolean(getParameterBaseName() + ".Update", iUpdatePoints);
+        iWindow = properties.getPropertyInt(getParameterBaseName() + ".Window", iWindow);
+        iBatchSize = Math.max(1, properties.getPropertyInt(getParameterBaseName() + ".BatchSize", iBatchSize));
+        iBatchThreads = properties.getPropertyInt(getParameterBaseName() + ".BatchThreads", Runtime.getRuntime().availableProcessors() - 1);
+        String policy = properties.getProperty(getParameterBaseName() + ".Policy", "Roulette");
+        if ("UCB".equalsIgnoreCase(policy)) {
+            iPolicy = new NeighbourSelectorPolicy.UCB<V, T>(properties, getParameterBaseName());
+        } else if ("Softmax".equalsIgnoreCase(policy)) {
+            iPolicy = new NeighbourSelectorPolicy.Softmax<V, T>(properties, getParameterBaseName());
+        } else if (!"Roulette".equalsIgnoreCase(policy) && !policy.isEmpty()) {
+            try {
+                Class<NeighbourSelectorPolicy<V, T>> clazz = (Class<NeighbourSelectorPolicy<V, T>>)Class.forName(policy);
+                iPolicy = clazz.getConstructor(DataProperties.class, String.class).newInstance(properties, getParameterBaseName());
+            } catch (Exception e) {
+                iLog.error("Unable to use " + policy + ": " + e.getMessage());
+            }
+        }
         String neighbours = properties.getProperty(getParameterBaseName() + ".Neighbours",
                 RandomMove.class.getName() + ";" + RandomSwapMove.class.getName() + "@0.01;" + SuggestionMove.class.getName() + "@0.01");
         neighbours += ";" + properties.getProperty(getParameterBaseName() + ".AdditionalNeighbours", "");
@@ -129,7 +177,9 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
      * @param bonus execution bonus (more bonus means more executions of this neighbour selection, see {@link NeighbourSelector})
      */
     protected void addNeighbourSelection(NeighbourSelection<V,T> ns, double bonus) {
-        iNeighbours.add(new NeighbourSelector<V,T>(ns, bonus, iUpdatePoints));
+        NeighbourSelector<V,T> selector = new NeighbourSelector<V,T>(ns, bonus, iUpdatePoints || iPolicy != null);
+        if (iPolicy != null) selector.setWindow(iWindow);
+        iNeighbours.add(selector);
     }
     
     private double totalPoints() {
@@ -173,6 +223,8 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
             s.init(solver);
             iTotalBonus += s.getBonus();
         }
+        // batch evaluation threads are shared by all the solver threads and stopped when the solver is done
+        iBatchScoring = (iBatchSize > 1 && iBatchThreads > 0 ? solver.getValueScoring(getParameterBaseName() + ".Batch", iBatchThreads + 1) : null);
     }
     
     /**
@@ -183,6 +235,8 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
         NeighbourSelector<V,T> ns = null;
         if (iRandomSelection) {
             ns = ToolBox.random(iNeighbours);
+        } else if (iPolicy != null) {
+            ns = iPolicy.select(iNeighbours);
         } else {
             double points = (ToolBox.random() * totalPoints());
             for (Iterator<NeighbourSelector<V,T>> i = iNeighbours.iterator(); i.hasNext(); ) {
@@ -198,7 +252,10 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
      * Log some information about neigbour selections once in a while
      */
     protected void logNeibourStatus() {
-        if (iUpdatePoints)
+        if (iPolicy != null)
+            for (NeighbourSelector<V,T> ns: iNeighbours)
+                iLog.info("  "+ns+" ("+iDF2.format(ns.getCredit())+" per ms over last "+ns.getWindowCalls()+" calls)");
+        else if (iUpdatePoints)
             for (NeighbourSelector<V,T> ns: iNeighbours)
                 iLog.info("  "+ns+" ("+iDF2.format(ns.getPoints())+" pts, "+iDF2.format(100.0*(iUpdatePoints?ns.getPoints():ns.getBonus())/totalPoints())+"%)");
     }
@@ -216,6 +273,7 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
     public Neighbour<V, T> selectNeighbour(Solution<V, T> solution) {
         NeighbourSearchContext context = getContext(solution.getAssignment());
         context.activateIfNeeded(solution);
+        if (iBatchSize > 1) return selectNeighbourInBatches(context, solution);
         while (context.canContinue(solution)) {
             if (iSolver != null && iSolver.isStop()) return null;
             context.incIteration(solution);
@@ -227,6 +285,129 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
         return null;
     }
     
+    /**
+     * Batch mode of {@link NeighbourSearch#selectNeighbour(Solution)}: a batch of moves is generated, the moves are evaluated
+     * in parallel, and then passed to the acceptance criterion in the order in which they were generated.
+     * @param context search context
+     * @param solution current solution
+     * @return the first accepted neighbour, null if the search cannot continue
+     */
+    protected Neighbour<V, T> selectNeighbourInBatches(NeighbourSearchContext context, Solution<V, T> solution) {
+        Assignment<V, T> assignment = solution.getAssignment();
+        List<Neighbour<V, T>> moves = new ArrayList<Neighbour<V, T>>(iBatchSize);
+        while (context.canContinue(solution)) {
+            if (iSolver != null && iSolver.isStop()) return null;
+            moves.clear();
+            for (int i = 0; i < iBatchSize; i++)
+                moves.add(generateMove(solution));
+            double[] values = evaluate(assignment, moves);
+            long restores = context.iNrRestores;
+            int considered = 0;
+            Neighbour<V, T> accepted = null;
+            for (int i = 0; i < moves.size(); i++) {
+                if (i > 0 && (context.iNrRestores != restores || !context.canContinue(solution) || (iSolver != null && iSolver.isStop()))) break;
+                context.incIteration(solution);
+                considered ++;
+                Neighbour<V, T> n = moves.get(i);
+                if (n == null) continue;
+                if (n instanceof LazyNeighbour) {
+                    ((LazyNeighbour<V, T>)n).setAcceptanceCriterion(this);
+                    accepted = n; break;
+                }
+                if (context.iNrRestores == restores && context.accept(assignment, solution.getModel(), n, values[i], false)) {
+                    accepted = n; break;
+                }
+            }
+            context.batchDone(moves.size(), considered, accepted != null);
+            if (accepted != null) return accepted;
+        }
+        context.deactivateIfNeeded(solution);
+        return null;
+    }
+    
+    /**
+     * Compute values of the given moves, using the batch evaluation threads (if available) and the current thread.
+     * Lazy and null moves are not evaluated. The method returns when all the moves have been evaluated.<br>
+     * Since the assignment contexts are created lazily, which is not thread-safe, the contexts of the variables changed by the
+     * moves (and of their constraints, the criteria, and the global constraints) are created first (see
+     * {@link AssignmentContextHelper#ensureInitialized(Model, Assignment, Collection)}). Moves that cannot enumerate their
+     * assignments (see {@link Neighbour#assignments()}) are evaluated by the current thread before the other threads are started.
+     * @param assignment current assignment
+     * @param moves generated moves
+     * @return values of the given moves (see {@link Neighbour#value(Assignment)})
+     */
+    protected double[] evaluate(final Assignment<V, T> assignment, List<Neighbour<V, T>> moves) {
+        double[] values = new double[moves.size()];
+        // 0 .. not evaluated, 1 .. evaluated by the current thread before the other threads are started,
+        // 2 .. evaluated by the current thread, 3 .. evaluated by a batch evaluation thread
+        int[] mode = new int[moves.size()];
+        Model<V, T> model = null;
+        Set<V> variables = new HashSet<V>();
+        boolean local = true;
+        for (int i = 0; i < moves.size(); i++) {
+            Neighbour<V, T> n = moves.get(i);
+            if (n == null || n instanceof LazyNeighbour) continue;
+            if (iBatchScoring == null) { mode[i] = 2; continue; }
+            Map<V, T> assignments = null;
+            try {
+                assignments = n.assignments();
+            } catch (Exception e) {}
+            if (assignments == null || assignments.isEmpty()) { mode[i] = 1; continue; }
+            for (V variable: assignments.keySet()) {
+                variables.add(variable);
+                if (model == null) model = variable.getModel();
+            }
+            mode[i] = (local ? 2 : 3);
+            local = false;
+        }
+        if (model != null)
+            AssignmentContextHelper.ensureInitialized(model, assignment, variables);
+        RuntimeException exception = null;
+        for (int i = 0; i < moves.size(); i++) {
+            if (mode[i] != 1) continue;
+            try {
+                values[i] = moves.get(i).value(assignment);
+            } catch (RuntimeException e) {
+                if (exception == null) exception = e;
+            }
+        }
+        List<Future<Double>> futures = new ArrayList<Future<Double>>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            final Neighbour<V, T> n = moves.get(i);
+            if (mode[i] != 3) {
+                futures.add(null);
+            } else {
+                futures.add(iBatchScoring.submit(new Callable<Double>() {
+                    @Override
+                    public Double call() {
+                        return n.value(assignment);
+                    }
+                }));
+            }
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            if (mode[i] != 2) continue;
+            try {
+                values[i] = moves.get(i).value(assignment);
+            } catch (RuntimeException e) {
+                if (exception == null) exception = e;
+            }
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            Future<Double> future = futures.get(i);
+            if (future == null) continue;
+            try {
+                values[i] = future.get();
+            } catch (ExecutionException e) {
+                if (exception == null) exception = (e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : new RuntimeException(e.getCause()));
+            } catch (InterruptedException e) {
+                if (exception == null) exception = new RuntimeException(e);
+            }
+        }
+        if (exception != null) throw exception;
+        return values;
+    }
+    
     /**
      * True if the generated move is to be accepted.
      * @param context search context
@@ -266,7 +447,12 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
 
     @Override
     public void getInfo(Solution<V, T> solution, Map<String, String> info) {
-        getContext(solution.getAssignment()).getInfo(solution, info);
+        NeighbourSearchContext context = getContext(solution.getAssignment());
+        context.getInfo(solution, info);
+        if (iBatchSize > 1 && context.iNrBatches > 0)
+            info.put(iPhase + " batches", context.iNrBatches + " (" + iDF2.format(100.0 * context.iNrBatchesAccepted / context.iNrBatches) + "% accepted, " +
+                    iDF2.format(100.0 * context.iNrBatchesAccepted / Math.max(1, context.iNrBatchMovesConsidered)) + "% of moves accepted, " +
+                    iDF2.format(100.0 * (context.iNrBatchMoves - context.iNrBatchMovesConsidered) / context.iNrBatchMoves) + "% of moves discarded)");
     }
 
     @Override
@@ -281,7 +467,9 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
 
     @Override
     public void bestRestored(Solution<V, T> solution) {
-        getContext(solution.getAssignment()).bestRestored(solution);
+        NeighbourSearchContext context = getContext(solution.getAssignment());
+        context.iNrRestores ++;
+        context.bestRestored(solution);
     }
     
     /**
@@ -299,6 +487,8 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
     public abstract class NeighbourSearchContext implements AssignmentContext, SolutionListener<V, T> {
         protected long iT0 = -1;
         protected int iIter = 0;
+        private long iNrRestores = 0;
+        private long iNrBatches = 0, iNrBatchesAccepted = 0, iNrBatchMoves = 0, iNrBatchMovesConsidered = 0;
 
         /** Called just before the neighbourhood search is called for the first time. 
          * @param solution current solution
@@ -332,6 +522,19 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
             iIter++;
         }
 
+        /**
+         * Update batch statistics (see {@link NeighbourSearch#selectNeighbourInBatches(NeighbourSearchContext, Solution)})
+         * @param generated number of generated moves
+         * @param considered number of moves passed to the acceptance criterion (the rest has been discarded)
+         * @param accepted true if one of the moves has been accepted
+         */
+        protected void batchDone(int generated, int considered, boolean accepted) {
+            iNrBatches ++;
+            iNrBatchMoves += generated;
+            iNrBatchMovesConsidered += considered;
+            if (accepted) iNrBatchesAccepted ++;
+        }
+
         /**
          * Running time in milliseconds (since the last call of activate)
          * @return running time
@@ -13,7 +13,14 @@ import org.cpsolver.ifs.solver.Solver;
 
 /**
  * A wrapper for {@link NeighbourSelection} that keeps some stats about the 
- * given neighbour selector.
+ * given neighbour selector.<br>
+ * <br>
+ * Besides the overall counts, the selector keeps a sliding window of the last outcomes (see {@link NeighbourSelector#setWindow(int)}):
+ * the improvement of the generated move (zero when the move is not improving or when no move was generated) and the time
+ * spent generating it. The credit of the selector ({@link NeighbourSelector#getCredit()}) is the improvement per
+ * millisecond over the window, which is used by the adaptive selection policies (see {@link NeighbourSelectorPolicy}).
+ * The statistics are updated in a synchronized way, so that a selector can be shared by multiple solver threads
+ * (e.g., of the {@link org.cpsolver.ifs.solver.ParallelSolver}), which then all contribute to the same credit.
  *
  * @version IFS 1.3 (Iterative Forward Search)<br>
  *          Copyright (C) 2014 Tomas Muller<br>
@@ -47,6 +54,11 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
     private double iBonus = 1.0;
     private double iPoints = 0;
     private long iTime = 0;
+    private double[] iWindowImprovement = null;
+    private long[] iWindowTime = null;
+    private int iWindowSize = 0, iWindowPos = 0;
+    private double iWindowImprovementSum = 0.0;
+    private long iWindowTimeSum = 0;
     
     /**
      * Constructor 
@@ -74,10 +86,10 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
     @Override
     public Neighbour<V,T> selectNeighbour(Solution<V,T> solution) {
         if (iUpdate) {
-            long t0 = System.currentTimeMillis();
+            long t0 = System.nanoTime();
             Neighbour<V,T> n = iSelection.selectNeighbour(solution);
-            long t1 = System.currentTimeMillis();
-            update(solution.getAssignment(), n, t1-t0);
+            long t1 = System.nanoTime();
+            updateNanos(solution.getAssignment(), n, t1-t0);
             return n;
         } else
             return iSelection.selectNeighbour(solution);
@@ -90,24 +102,77 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
      * @param time time needed to generate the move (in milliseconds)
      */
     public void update(Assignment<V, T> a, Neighbour<V,T> n, long time) {
-        iNrCalls ++;
-        iTime += time;
-        if (n!=null) {
-            iNrNotNull++;
-            double val = n.value(a); 
-            if (val==0) {
-                iNrSideMoves++;
-                iPoints += 0.1;
-            } else if (val<0) {
-                iNrImprovingMoves++;
-                iPoints -= n.value(a);
+        updateNanos(a, n, 1000000l * time);
+    }
+
+    /**
+     * Update statistics
+     * @param a current assignment
+     * @param n generated move
+     * @param nanos time needed to generate the move (in nanoseconds)
+     */
+    public void updateNanos(Assignment<V, T> a, Neighbour<V,T> n, long nanos) {
+        double val = (n == null ? 0.0 : n.value(a));
+        synchronized (this) {
+            iNrCalls ++;
+            iTime += nanos;
+            if (n!=null) {
+                iNrNotNull++;
+                if (val==0) {
+                    iNrSideMoves++;
+                    iPoints += 0.1;
+                } else if (val<0) {
+                    iNrImprovingMoves++;
+                    iPoints -= val;
+                } else {
+                    iPoints *= 0.9999;
+                }
             } else {
-                iPoints *= 0.9999;
+                iPoints *= 0.999;
+            }
+            if (iWindowImprovement != null) {
+                if (iWindowSize == iWindowImprovement.length) {
+                    iWindowImprovementSum -= iWindowImprovement[iWindowPos];
+                    iWindowTimeSum -= iWindowTime[iWindowPos];
+                } else {
+                    iWindowSize ++;
+                }
+                iWindowImprovement[iWindowPos] = (val < 0 ? -val : 0.0);
+                iWindowTime[iWindowPos] = nanos;
+                iWindowImprovementSum += iWindowImprovement[iWindowPos];
+                iWindowTimeSum += nanos;
+                iWindowPos = (iWindowPos + 1) % iWindowImprovement.length;
             }
-        } else {
-            iPoints *= 0.999;
         }
     }
+
+    /**
+     * Set the size of the sliding window of the last outcomes, used to compute the credit of the selector (see {@link NeighbourSelector#getCredit()})
+     * @param size number of the last calls to consider, zero to disable the window
+     */
+    public synchronized void setWindow(int size) {
+        iWindowImprovement = (size <= 0 ? null : new double[size]);
+        iWindowTime = (size <= 0 ? null : new long[size]);
+        iWindowSize = 0; iWindowPos = 0;
+        iWindowImprovementSum = 0.0; iWindowTimeSum = 0;
+    }
+
+    /**
+     * Credit of the selector: total improvement per millisecond, over the last calls (see {@link NeighbourSelector#setWindow(int)})
+     * @return improvement per millisecond, zero when there are no calls in the window
+     */
+    public synchronized double getCredit() {
+        if (iWindowTimeSum <= 0) return 0.0;
+        return 1000000.0 * iWindowImprovementSum / iWindowTimeSum;
+    }
+
+    /**
+     * Number of calls in the sliding window of the last outcomes
+     * @return number of calls in the window
+     */
+    public synchronized int getWindowCalls() {
+        return iWindowSize;
+    }
     
     /** Weight of the selector in the roulette wheel selection of neighbour selectors 
      * @return weight of this selector
@@ -140,11 +205,11 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
     /** Total time spend in {@link NeighbourSelection#selectNeighbour(Solution)} (in milliseconds)
      * @return total time spend in theis selector 
      **/
-    public long time() { return iTime; }
+    public long time() { return iTime / 1000000l; }
     /** Average number of iterations per second (calls of {@link NeighbourSelection#selectNeighbour(Solution)})
      * @return number of calls per second
      **/
-    public double speed() { return 1000.0*nrCalls()/time(); }
+    public double speed() { return 1000000000.0*nrCalls()/iTime; }
     /** String representation */
     @Override
     public String toString() {
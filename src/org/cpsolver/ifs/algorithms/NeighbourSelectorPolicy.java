@@ -0,0 +1,161 @@
+package org.cpsolver.ifs.algorithms;
+
+import java.util.List;
+
+import org.cpsolver.ifs.model.Value;
+import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.ifs.util.ToolBox;
+
+/**
+ * Adaptive selection of the next neighbour selection of a {@link NeighbourSearch}. The policy is given
+ * the list of neighbour selectors, with their credits (improvement per millisecond over a sliding window of the
+ * last calls, see {@link NeighbourSelector#getCredit()}), and picks the one to be used next. Since the neighbour
+ * selectors are shared by all the threads of a search, the policies must be thread-safe.<br>
+ * <br>
+ * A policy is set by the <i>Base</i>.Policy parameter of the search (see {@link NeighbourSearch}), two policies are
+ * provided: {@link UCB} and {@link Softmax}. A custom policy needs to implement this interface and to have a constructor
+ * with two parameters: {@link DataProperties} and the parameter base name of the search.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ * @param <V> Variable
+ * @param <T> Value
+ */
+public interface NeighbourSelectorPolicy<V extends Variable<V, T>, T extends Value<V, T>> {
+
+    /**
+     * Select the neighbour selection to be used next
+     * @param selectors available neighbour selectors (the list does not change during the search)
+     * @return selected neighbour selector
+     */
+    public NeighbourSelector<V, T> select(List<NeighbourSelector<V, T>> selectors);
+
+    /**
+     * Sliding window upper confidence bound. Each neighbour selector is scored by its credit (relative to the best
+     * credit) plus an exploration term that depends on how many times the selector has been picked during the last
+     * <i>Base</i>.Window selections, the selector with the highest score is used. A selector that has not been picked
+     * during the window is always tried first.
+     * <ul>
+     * <li><i>Base</i>.Window ... number of the last selections to consider (defaults to 1000)
+     * <li><i>Base</i>.Exploration ... weight of the exploration term (defaults to 0.5)
+     * </ul>
+     * @param <V> Variable
+     * @param <T> Value
+     */
+    public static class UCB<V extends Variable<V, T>, T extends Value<V, T>> implements NeighbourSelectorPolicy<V, T> {
+        private double iExploration = 0.5;
+        private int[] iHistory;
+        private int iHistorySize = 0, iHistoryPos = 0;
+        private int[] iCounts = null;
+
+        /**
+         * Constructor
+         * @param properties problem configuration
+         * @param base parameter base name of the search
+         */
+        public UCB(DataProperties properties, String base) {
+            iExploration = properties.getPropertyDouble(base + ".Exploration", iExploration);
+            iHistory = new int[Math.max(1, properties.getPropertyInt(base + ".Window", 1000))];
+        }
+
+        @Override
+        public synchronized NeighbourSelector<V, T> select(List<NeighbourSelector<V, T>> selectors) {
+            if (iCounts == null || iCounts.length != selectors.size()) {
+                iCounts = new int[selectors.size()];
+                iHistorySize = 0; iHistoryPos = 0;
+            }
+            double maxCredit = 0.0;
+            double[] credit = new double[selectors.size()];
+            for (int i = 0; i < selectors.size(); i++) {
+                credit[i] = selectors.get(i).getCredit();
+                if (credit[i] > maxCredit) maxCredit = credit[i];
+            }
+            int best = -1; double bestScore = 0.0; int nrBest = 0;
+            for (int i = 0; i < selectors.size(); i++) {
+                double score;
+                if (iCounts[i] == 0)
+                    score = Double.MAX_VALUE;
+                else
+                    score = (maxCredit > 0.0 ? credit[i] / maxCredit : 0.0) + iExploration * Math.sqrt(2.0 * Math.log(iHistorySize) / iCounts[i]);
+                if (best < 0 || score > bestScore) {
+                    best = i; bestScore = score; nrBest = 1;
+                } else if (score == bestScore && ToolBox.random(++nrBest) == 0) {
+                    best = i;
+                }
+            }
+            if (iHistorySize == iHistory.length) {
+                iCounts[iHistory[iHistoryPos]] --;
+            } else {
+                iHistorySize ++;
+            }
+            iHistory[iHistoryPos] = best;
+            iCounts[best] ++;
+            iHistoryPos = (iHistoryPos + 1) % iHistory.length;
+            return selectors.get(best);
+        }
+    }
+
+    /**
+     * Softmax (Boltzmann) selection. Each neighbour selector is picked with a probability proportional to
+     * its bonus times exp(credit / (best credit * temperature)). A selector that has no calls in its window yet
+     * gets the best credit, so that it is likely to be tried.
+     * <ul>
+     * <li><i>Base</i>.Temperature ... the temperature, a higher temperature makes the selection more uniform (defaults to 0.2)
+     * </ul>
+     * @param <V> Variable
+     * @param <T> Value
+     */
+    public static class Softmax<V extends Variable<V, T>, T extends Value<V, T>> implements NeighbourSelectorPolicy<V, T> {
+        private double iTemperature = 0.2;
+
+        /**
+         * Constructor
+         * @param properties problem configuration
+         * @param base parameter base name of the search
+         */
+        public Softmax(DataProperties properties, String base) {
+            iTemperature = properties.getPropertyDouble(base + ".Temperature", iTemperature);
+        }
+
+        @Override
+        public NeighbourSelector<V, T> select(List<NeighbourSelector<V, T>> selectors) {
+            double maxCredit = 0.0;
+            double[] credit = new double[selectors.size()];
+            for (int i = 0; i < selectors.size(); i++) {
+                NeighbourSelector<V, T> selector = selectors.get(i);
+                credit[i] = (selector.getWindowCalls() == 0 ? -1.0 : selector.getCredit());
+                if (credit[i] > maxCredit) maxCredit = credit[i];
+            }
+            double total = 0.0;
+            double[] weight = new double[selectors.size()];
+            for (int i = 0; i < selectors.size(); i++) {
+                double relative = (credit[i] < 0.0 ? 1.0 : maxCredit > 0.0 ? credit[i] / maxCredit : 0.0);
+                weight[i] = selectors.get(i).getBonus() * Math.exp((relative - 1.0) / iTemperature);
+                total += weight[i];
+            }
+            double points = ToolBox.random() * total;
+            for (int i = 0; i < selectors.size(); i++) {
+                points -= weight[i];
+                if (points <= 0.0) return selectors.get(i);
+            }
+            return selectors.get(selectors.size() - 1);
+        }
+    }
+}
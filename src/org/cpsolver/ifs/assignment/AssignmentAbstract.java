@@ -13,8 +13,10 @@ import org.cpsolver.ifs.criteria.Criterion;
 import org.cpsolver.ifs.model.Constraint;
 import org.cpsolver.ifs.model.GlobalConstraint;
 import org.cpsolver.ifs.model.Model;
+import org.cpsolver.ifs.model.UnassignedVariables;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solver.SolverMetrics;
 
 
 /**
@@ -48,6 +50,7 @@ import org.cpsolver.ifs.model.Variable;
 public abstract class AssignmentAbstract<V extends Variable<V, T>, T extends Value<V, T>> implements Assignment<V, T> {
     protected AssignmentContextHolder<V, T> iContexts;
     protected boolean iHasInitialzedContext = false;
+    private volatile long iNrChanges = 0;
     
     /**
      * Constructor
@@ -104,10 +107,17 @@ public abstract class AssignmentAbstract<V extends Variable<V, T>, T extends Val
         ensureInitializedContext(variable);
         
         // unassign old value, if assigned
+        SolverMetrics.Counters metrics = SolverMetrics.current();
         T old = getValueInternal(variable);
+        if (old == null && value == null) return null;
+        iNrChanges++;
         if (old != null) {
-            if (model != null)
+            long t0 = (metrics == null ? 0 : System.nanoTime());
+            if (model != null) {
+                long t1 = (metrics == null ? 0 : System.nanoTime());
                 model.beforeUnassigned(this, iteration, old);
+                if (metrics != null) metrics.record(SolverMetrics.Metric.Criteria, t1);
+            }
             setValueInternal(iteration, variable, null);
             for (Constraint<V, T> constraint : variable.constraints())
                 constraint.unassigned(this, iteration, old);
@@ -115,14 +125,22 @@ public abstract class AssignmentAbstract<V extends Variable<V, T>, T extends Val
                 for (GlobalConstraint<V, T> constraint : model.globalConstraints())
                     constraint.unassigned(this, iteration, old);
             variable.variableUnassigned(this, iteration, old);
-            if (model != null)
+            if (model != null) {
+                long t1 = (metrics == null ? 0 : System.nanoTime());
                 model.afterUnassigned(this, iteration, old);
+                if (metrics != null) metrics.record(SolverMetrics.Metric.Criteria, t1);
+            }
+            if (metrics != null) metrics.record(SolverMetrics.Metric.Unassign, t0);
         }
         
         // assign new value, if provided
         if (value != null) {
-            if (model != null)
+            long t0 = (metrics == null ? 0 : System.nanoTime());
+            if (model != null) {
+                long t1 = (metrics == null ? 0 : System.nanoTime());
                 model.beforeAssigned(this, iteration, value);
+                if (metrics != null) metrics.record(SolverMetrics.Metric.Criteria, t1);
+            }
             setValueInternal(iteration, variable, value);
             for (Constraint<V, T> constraint : variable.constraints())
                 constraint.assigned(this, iteration, value);
@@ -130,14 +148,30 @@ public abstract class AssignmentAbstract<V extends Variable<V, T>, T extends Val
                 for (GlobalConstraint<V, T> constraint : model.globalConstraints())
                     constraint.assigned(this, iteration, value);
             variable.variableAssigned(this, iteration, value);
-            if (model != null)
+            if (model != null) {
+                long t1 = (metrics == null ? 0 : System.nanoTime());
                 model.afterAssigned(this, iteration, value);
+                if (metrics != null) metrics.record(SolverMetrics.Metric.Criteria, t1);
+            }
+            if (metrics != null) metrics.record(SolverMetrics.Metric.Assign, t0);
         }
+        iNrChanges++;
         
         // return old value
         return old;
     }
     
+    /**
+     * Number of changes of this assignment. The counter is incremented twice for each assignment or unassignment
+     * of a variable, once before and once after the change, so that it is odd while a change is in progress.
+     * It can be used to tell whether the assignment has changed since some information was computed
+     * (see {@link org.cpsolver.ifs.solution.Solution#getInfo()}).
+     * @return number of changes (twice the number of assignments and unassignments)
+     */
+    public long getNrChanges() {
+        return iNrChanges;
+    }
+    
     @Override
     public T assign(long iteration, T value) {
         return assign(iteration, value.variable(), value);
@@ -161,18 +195,30 @@ public abstract class AssignmentAbstract<V extends Variable<V, T>, T extends Val
         return values;
     }
 
+    /**
+     * Unassigned variables, taken from the index of unassigned variables of the model (see {@link UnassignedVariables}),
+     * which is updated by the model when a variable is assigned or unassigned.
+     */
     @Override
     public Collection<V> unassignedVariables(Model<V, T> model) {
-        List<V> unassigned = new ArrayList<V>();
-        for (V variable: model.variables())
-            if (getValue(variable) == null)
-                unassigned.add(variable);
-        return unassigned;
+        return model.getUnassignedVariables().unassignedVariables(this);
     }
 
+    /**
+     * Number of unassigned variables, taken from the index of unassigned variables of the model (see {@link UnassignedVariables}).
+     */
     @Override
     public int nrUnassignedVariables(Model<V, T> model) {
-        return model.variables().size() - nrAssignedVariables();
+        return model.getUnassignedVariables().nrUnassignedVariables(this);
+    }
+
+    /**
+     * A randomly selected unassigned variable, taken from the index of unassigned variables of the model (see {@link UnassignedVariables}).
+     * @param model problem model
+     * @return a random unassigned variable, null if all variables are assigned
+     */
+    public V randomUnassignedVariable(Model<V, T> model) {
+        return model.getUnassignedVariables().randomUnassignedVariable(this);
     }
 
     @Override
@@ -1,21 +1,31 @@
 package org.cpsolver.ifs.assignment;
 
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.cpsolver.ifs.assignment.context.InheritedAssignmentContextHolder;
+import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
 import org.cpsolver.ifs.solution.Solution;
+import org.cpsolver.ifs.util.ToolBox;
 
 
 /**
  * Optimistic inherited assignment. This assignment does not expect the parent assignment to change
  * much and it only remembers local changes made in this assignment. Use with caution. 
+ * <br><br>
+ * The local changes are kept in a journal of parallel arrays (variable, value, iteration), one entry for each
+ * variable that has been changed in this assignment, with a small open addressing table (keyed by
+ * {@link Variable#getIndex()}) pointing into the journal. A journal entry either holds the local value, or marks
+ * the variable as unassigned locally (while it is assigned in the parent assignment), or it is inactive (the value
+ * is taken from the parent). The assigned variables and values are lazy views merging the parent assignment
+ * with the journal, no collections are copied.
  * 
  * @see InheritedAssignment
  * 
@@ -40,10 +50,13 @@ import org.cpsolver.ifs.solution.Solution;
  * @param <T> Value
  **/
 public class OptimisticInheritedAssignment<V extends Variable<V, T>, T extends Value<V, T>> extends AssignmentAbstract<V, T> implements InheritedAssignment<V, T> {
+    private static final Object sUnassigned = new Object();
     private Assignment<V, T> iParent;
-    private Map<V, T> iAssignments = new LinkedHashMap<V, T>();
-    private Set<V> iDirty = new HashSet<V>();
-    private Map<V, Long> iIteration = new HashMap<V, Long>();
+    private Object[] iVariables = null;
+    private Object[] iValues = null;
+    private long[] iIterations = null;
+    private int[] iTable = null;
+    private int iSize = 0;
     private long iVersion = -1;
 
     public OptimisticInheritedAssignment(Solution<V, T> parent, int index) {
@@ -53,57 +66,239 @@ public class OptimisticInheritedAssignment<V extends Variable<V, T>, T extends V
         iVersion = parent.getIteration();
     }
     
+    private static int hash(int index, int mask) {
+        int h = index * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+    
+    /** Position of the variable in the journal, -1 if not present */
+    private int position(V variable) {
+        if (iSize == 0) return -1;
+        int mask = iTable.length - 1;
+        for (int slot = hash(variable.getIndex(), mask); ; slot = (slot + 1) & mask) {
+            int pos = iTable[slot] - 1;
+            if (pos < 0) return -1;
+            if (iVariables[pos] == variable) return pos;
+        }
+    }
+    
+    /** Position of the variable in the journal, a new entry is created if not present */
+    private int journal(V variable) {
+        int pos = position(variable);
+        if (pos >= 0) return pos;
+        if (iVariables == null) {
+            iVariables = new Object[8]; iValues = new Object[8]; iIterations = new long[8]; iTable = new int[16];
+        } else if (iSize == iVariables.length) {
+            iVariables = Arrays.copyOf(iVariables, 2 * iSize);
+            iValues = Arrays.copyOf(iValues, 2 * iSize);
+            iIterations = Arrays.copyOf(iIterations, 2 * iSize);
+            iTable = new int[4 * iSize];
+            for (int i = 0; i < iSize; i++)
+                index(i);
+        }
+        pos = iSize++;
+        iVariables[pos] = variable;
+        index(pos);
+        return pos;
+    }
+    
+    private void index(int pos) {
+        int mask = iTable.length - 1;
+        int slot = hash(((Variable<?, ?>)iVariables[pos]).getIndex(), mask);
+        while (iTable[slot] != 0) slot = (slot + 1) & mask;
+        iTable[slot] = pos + 1;
+    }
+    
+    /** True if the variable has been assigned or unassigned in this assignment (i.e., its value is not taken from the parent) */
+    private boolean isLocal(V variable) {
+        int pos = position(variable);
+        return pos >= 0 && iValues[pos] != null;
+    }
+    
     @Override
     public long getIteration(V variable) {
-        Long it = iIteration.get(variable);
-        return (it != null ? it : iDirty.contains(variable) ? 0 : iParent.getIteration(variable));
+        int pos = position(variable);
+        if (pos < 0) return iParent.getIteration(variable);
+        if (iValues[pos] == sUnassigned) return 0;
+        return (iIterations[pos] > 0 ? iIterations[pos] : iParent.getIteration(variable));
     }
 
     @Override
     public Collection<V> assignedVariables() {
-        Set<V> variables = new HashSet<V>(iParent.assignedVariables());
-        variables.removeAll(iDirty);
-        variables.addAll(iAssignments.keySet());
-        return variables;
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new MergedIterator<V>(iParent.assignedVariables().iterator()) {
+                    @Override
+                    V parent(V variable) {
+                        return (isLocal(variable) ? null : variable);
+                    }
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V journal(int pos) {
+                        return (iValues[pos] == null || iValues[pos] == sUnassigned ? null : (V)iVariables[pos]);
+                    }
+                };
+            }
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean contains(Object o) {
+                return o instanceof Variable && getValue((V)o) != null;
+            }
+            @Override
+            public int size() {
+                return nrAssignedVariables();
+            }
+        };
     }
     
     @Override
     public Collection<T> assignedValues() {
-        Set<T> values = new HashSet<T>();
-        for (T val: iParent.assignedValues()) {
-            if (val != null && !iDirty.contains(val.variable()))
-                values.add(val);
-        }
-        values.addAll(iAssignments.values());
-        return values;
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new MergedIterator<T>(iParent.assignedValues().iterator()) {
+                    @Override
+                    T parent(T value) {
+                        return (value == null || isLocal(value.variable()) ? null : value);
+                    }
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    T journal(int pos) {
+                        return (iValues[pos] == null || iValues[pos] == sUnassigned ? null : (T)iValues[pos]);
+                    }
+                };
+            }
+            @Override
+            public int size() {
+                return nrAssignedVariables();
+            }
+        };
     }
 
+    /**
+     * Number of assigned variables. The parent assignment may change without this assignment being notified,
+     * the journal entries are therefore checked against the current values of the parent assignment.
+     */
     @Override
     public int nrAssignedVariables() {
-        return iAssignments.size() + iParent.nrAssignedVariables() - iDirty.size();
+        int ret = iParent.nrAssignedVariables();
+        for (int i = 0; i < iSize; i++) {
+            if (iValues[i] == null) continue;
+            boolean parent = (iParent.getValue(variable(i)) != null);
+            if (iValues[i] == sUnassigned) {
+                if (parent) ret --;
+            } else {
+                if (!parent) ret ++;
+            }
+        }
+        return ret;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private V variable(int pos) {
+        return (V)iVariables[pos];
     }
     
     @Override
+    @SuppressWarnings("unchecked")
     protected T getValueInternal(V variable) {
-        T value = (iAssignments.isEmpty() ? null : iAssignments.get(variable));
-        return (value != null ? value : iDirty.contains(variable) ? null : iParent.getValue(variable));
+        int pos = position(variable);
+        if (pos < 0 || iValues[pos] == null) return iParent.getValue(variable);
+        return (iValues[pos] == sUnassigned ? null : (T)iValues[pos]);
    }
 
     @Override
     protected void setValueInternal(long iteration, V variable, T value) {
         if (value == null) {
-            iAssignments.remove(variable);
-            iIteration.remove(variable);
-            if (iParent.getValue(variable) != null)
-                iDirty.add(variable);
+            if (iParent.getValue(variable) != null) {
+                int pos = journal(variable);
+                iValues[pos] = sUnassigned; iIterations[pos] = 0;
+            } else {
+                int pos = position(variable);
+                if (pos >= 0) { iValues[pos] = null; iIterations[pos] = 0; }
+            }
         } else {
-            iAssignments.put(variable, value);
-            if (iteration > 0)
-                iIteration.put(variable, iteration);
-            iDirty.remove(variable);
+            int pos = journal(variable);
+            iValues[pos] = value;
+            iIterations[pos] = (iteration > 0 ? iteration : 0);
         }
     }    
     
+    /**
+     * Iterator over the parent collection (skipping the variables that are changed locally), followed by the journal
+     * entries with a local value.
+     */
+    private abstract class MergedIterator<E> implements Iterator<E> {
+        private Iterator<E> iParentIterator;
+        private int iPosition = 0;
+        private E iNext = null;
+        
+        MergedIterator(Iterator<E> parent) {
+            iParentIterator = parent;
+            iNext = advance();
+        }
+        
+        /** Parent entry, null if it is to be skipped */
+        abstract E parent(E entry);
+        
+        /** Journal entry, null if it is to be skipped */
+        abstract E journal(int pos);
+        
+        private E advance() {
+            while (iParentIterator.hasNext()) {
+                E e = parent(iParentIterator.next());
+                if (e != null) return e;
+            }
+            while (iPosition < iSize) {
+                E e = journal(iPosition++);
+                if (e != null) return e;
+            }
+            return null;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return iNext != null;
+        }
+        
+        @Override
+        public E next() {
+            if (iNext == null) throw new NoSuchElementException();
+            E ret = iNext;
+            iNext = advance();
+            return ret;
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    /**
+     * The parent assignment may change without this assignment being notified, the unassigned variables are
+     * therefore computed from the current values instead of being taken from the index of unassigned variables.
+     */
+    @Override
+    public Collection<V> unassignedVariables(Model<V, T> model) {
+        List<V> unassigned = new ArrayList<V>();
+        for (V variable: model.variables())
+            if (getValue(variable) == null)
+                unassigned.add(variable);
+        return unassigned;
+    }
+
+    @Override
+    public int nrUnassignedVariables(Model<V, T> model) {
+        return model.variables().size() - nrAssignedVariables();
+    }
+
+    @Override
+    public V randomUnassignedVariable(Model<V, T> model) {
+        return ToolBox.random(unassignedVariables(model));
+    }
+
     @Override
     public Assignment<V, T> getParentAssignment() {
         return iParent;
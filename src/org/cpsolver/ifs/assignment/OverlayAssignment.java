@@ -0,0 +1,194 @@
+package org.cpsolver.ifs.assignment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cpsolver.ifs.assignment.context.AssignmentContext;
+import org.cpsolver.ifs.assignment.context.AssignmentContextReference;
+import org.cpsolver.ifs.criteria.Criterion;
+import org.cpsolver.ifs.model.Model;
+import org.cpsolver.ifs.model.Value;
+import org.cpsolver.ifs.model.Variable;
+
+
+/**
+ * A lightweight, read-only view of an assignment with a few changes laid on top of it.
+ * Values of the changed variables are taken from the overlay, all the other variables
+ * are delegated to the underlying (parent) assignment. Changes made through {@link OverlayAssignment#assign(long, Value)} and
+ * {@link OverlayAssignment#unassign(long, Variable)} are only recorded in the overlay: neither the model, nor the
+ * constraints or criteria are notified and the parent assignment is never modified.
+ * <br><br>
+ * Assignment contexts are also delegated to the parent assignment, that is, they reflect
+ * the parent assignment and not the changes in the overlay.
+ * This class is used by {@link Criterion#getDelta(Assignment, Map)} to evaluate a change
+ * without the need to actually make it.
+ *
+ * @see Assignment
+ * @see Criterion#getDelta(Assignment, Map)
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ * @param <V> Variable
+ * @param <T> Value
+ **/
+public class OverlayAssignment<V extends Variable<V, T>, T extends Value<V, T>> implements Assignment<V, T> {
+    private Assignment<V, T> iParent;
+    private Map<V, T> iChanges = new HashMap<V, T>();
+    private int iNrAssignedChange = 0;
+
+    /**
+     * Constructor
+     * @param parent underlying assignment
+     */
+    public OverlayAssignment(Assignment<V, T> parent) {
+        iParent = parent;
+    }
+
+    /**
+     * Constructor
+     * @param parent underlying assignment
+     * @param changes changes to be laid on top of the parent assignment (variable, new value or null if unassigned)
+     */
+    public OverlayAssignment(Assignment<V, T> parent, Map<V, T> changes) {
+        this(parent);
+        for (Map.Entry<V, T> change: changes.entrySet())
+            change(change.getKey(), change.getValue());
+    }
+
+    /**
+     * Underlying assignment
+     * @return parent assignment
+     */
+    public Assignment<V, T> getParent() { return iParent; }
+
+    /**
+     * Changes recorded in the overlay (variable, new value or null if unassigned)
+     * @return overlay changes
+     */
+    public Map<V, T> getChanges() { return iChanges; }
+
+    /**
+     * Index of the parent assignment (so that the assignment contexts are shared with the parent)
+     */
+    @Override
+    public int getIndex() {
+        return iParent.getIndex();
+    }
+
+    @Override
+    public T getValue(V variable) {
+        if (iChanges.containsKey(variable))
+            return iChanges.get(variable);
+        return iParent.getValue(variable);
+    }
+
+    @Override
+    public long getIteration(V variable) {
+        return iParent.getIteration(variable);
+    }
+
+    /**
+     * Record a change in the overlay
+     * @param variable a variable
+     * @param value new value, null if unassigned
+     * @return previous value of the variable
+     */
+    protected T change(V variable, T value) {
+        T old = getValue(variable);
+        if (old == null && value != null) iNrAssignedChange ++;
+        if (old != null && value == null) iNrAssignedChange --;
+        if (value == null ? iParent.getValue(variable) == null : value.equals(iParent.getValue(variable)))
+            iChanges.remove(variable);
+        else
+            iChanges.put(variable, value);
+        return old;
+    }
+
+    /**
+     * Assign the given value in the overlay (no listeners are notified)
+     */
+    @Override
+    public T assign(long iteration, T value) {
+        return change(value.variable(), value);
+    }
+
+    /**
+     * Unassign the given variable in the overlay (no listeners are notified)
+     */
+    @Override
+    public T unassign(long iteration, V variable) {
+        return change(variable, null);
+    }
+
+    @Override
+    public int nrAssignedVariables() {
+        return iParent.nrAssignedVariables() + iNrAssignedChange;
+    }
+
+    @Override
+    public Collection<V> assignedVariables() {
+        List<V> variables = new ArrayList<V>(nrAssignedVariables());
+        for (V variable: iParent.assignedVariables())
+            if (!iChanges.containsKey(variable))
+                variables.add(variable);
+        for (Map.Entry<V, T> entry: iChanges.entrySet())
+            if (entry.getValue() != null)
+                variables.add(entry.getKey());
+        return variables;
+    }
+
+    @Override
+    public Collection<T> assignedValues() {
+        List<T> values = new ArrayList<T>(nrAssignedVariables());
+        for (V variable: assignedVariables())
+            values.add(getValue(variable));
+        return values;
+    }
+
+    @Override
+    public int nrUnassignedVariables(Model<V, T> model) {
+        return model.variables().size() - nrAssignedVariables();
+    }
+
+    @Override
+    public Collection<V> unassignedVariables(Model<V, T> model) {
+        List<V> unassigned = new ArrayList<V>();
+        for (V variable: model.variables())
+            if (getValue(variable) == null)
+                unassigned.add(variable);
+        return unassigned;
+    }
+
+    /**
+     * Assignment contexts are taken from the parent assignment
+     */
+    @Override
+    public <C extends AssignmentContext> C getAssignmentContext(AssignmentContextReference<V, T, C> reference) {
+        return iParent.getAssignmentContext(reference);
+    }
+
+    /**
+     * Does nothing, the overlay is not allowed to modify the assignment contexts of the parent assignment
+     */
+    @Override
+    public <C extends AssignmentContext> void clearContext(AssignmentContextReference<V, T, C> reference) {
+    }
+}
@@ -0,0 +1,183 @@
+package org.cpsolver.ifs.assignment;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import org.cpsolver.ifs.assignment.context.AssignmentContextHolder;
+import org.cpsolver.ifs.assignment.context.ParallelAssignmentContextHolderArray;
+import org.cpsolver.ifs.model.Model;
+import org.cpsolver.ifs.model.Value;
+import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solution.Solution;
+import org.cpsolver.ifs.solver.ParallelSolver;
+
+
+/**
+ * An assignment using primitive arrays indexed by {@link Variable#getIndex()} to store values
+ * and assignment iterations of all the variables of the model. Besides of that, assigned variables
+ * are kept in a dense array (with the position of each assigned variable remembered), so that 
+ * a variable can be added or removed in a constant time and {@link Assignment#nrAssignedVariables()} does not
+ * need to iterate. Assignment contexts are kept in {@link ParallelAssignmentContextHolderArray}.
+ * It can be used instead of {@link DefaultParallelAssignment} by the {@link ParallelSolver}
+ * (when Parallel.ArrayAssignment is set to true), where there is one assignment for each thread. 
+ * 
+ * @see Assignment
+ * @see ParallelSolver
+ * 
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ * @param <V> Variable
+ * @param <T> Value
+ **/
+public class ParallelAssignmentArray<V extends Variable<V, T>, T extends Value<V, T>> extends AssignmentAbstract<V, T> {
+    private Object[] iValues = new Object[1000];
+    private long[] iIterations = new long[1000];
+    private int[] iPositions = new int[1000];
+    private Object[] iAssigned = new Object[1000];
+    private int iNrAssigned = 0;
+    private int iIndex;
+
+    public ParallelAssignmentArray(int threadIndex) {
+        super(new ParallelAssignmentContextHolderArray<V, T>(threadIndex));
+        iIndex = threadIndex;
+    }
+    
+    public ParallelAssignmentArray() {
+        this(0);
+    }
+    
+    public ParallelAssignmentArray(int threadIndex, Model<V, T> model, Assignment<V, T> assignment) {
+        this(threadIndex);
+        ensureCapacity(model.variables().size());
+        for (V variable: model.variables())
+            setValueInternal(0, variable, assignment != null ? assignment.getValue(variable) : null);
+    }
+    
+    public ParallelAssignmentArray(AssignmentContextHolder<V, T> contexts, int threadIndex, Solution<V, T> solution) {
+        super(contexts);
+        iIndex = threadIndex;
+        Lock lock = solution.getLock().readLock();
+        lock.lock();
+        try {
+            ensureCapacity(solution.getModel().variables().size());
+            for (V variable: solution.getModel().variables())
+                setValueInternal(0, variable, solution.getAssignment().getValue(variable));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Make sure that the arrays can hold a variable with the given index
+     * @param index variable index
+     */
+    protected void ensureCapacity(int index) {
+        if (iValues.length <= index) {
+            int size = Math.max(index + 1, 2 * iValues.length);
+            iValues = Arrays.copyOf(iValues, size);
+            iIterations = Arrays.copyOf(iIterations, size);
+            iPositions = Arrays.copyOf(iPositions, size);
+            iAssigned = Arrays.copyOf(iAssigned, size);
+        }
+    }
+
+    @Override
+    public long getIteration(V variable) {
+        int index = variable.getIndex();
+        return (index < iIterations.length ? iIterations[index] : 0);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected T getValueInternal(V variable) {
+        int index = variable.getIndex();
+        return (index < iValues.length ? (T) iValues[index] : null);
+    }
+    
+    @Override
+    protected void setValueInternal(long iteration, V variable, T value) {
+        int index = variable.getIndex();
+        ensureCapacity(index);
+        if (value == null) {
+            if (iValues[index] != null) {
+                // swap-remove the variable from the dense array of assigned variables
+                int position = iPositions[index];
+                Object last = iAssigned[--iNrAssigned];
+                iAssigned[position] = last;
+                iPositions[((Variable<?, ?>)last).getIndex()] = position;
+                iAssigned[iNrAssigned] = null;
+            }
+            iValues[index] = null;
+            iIterations[index] = 0;
+        } else {
+            if (iValues[index] == null) {
+                iPositions[index] = iNrAssigned;
+                iAssigned[iNrAssigned++] = variable;
+            }
+            iValues[index] = value;
+            iIterations[index] = iteration;
+        }
+    }
+    
+    @Override
+    public int nrAssignedVariables() {
+        return iNrAssigned;
+    }
+
+    @Override
+    public Collection<V> assignedVariables() {
+        return new AbstractList<V>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public V get(int index) {
+                if (index >= iNrAssigned) throw new IndexOutOfBoundsException(index + " >= " + iNrAssigned);
+                return (V) iAssigned[index];
+            }
+
+            @Override
+            public int size() {
+                return iNrAssigned;
+            }
+            
+            @Override
+            public boolean contains(Object o) {
+                if (o == null || !(o instanceof Variable)) return false;
+                int index = ((Variable<?, ?>)o).getIndex();
+                return index >= 0 && index < iValues.length && iValues[index] != null && iAssigned[iPositions[index]] == o;
+            }
+        };
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<T> assignedValues() {
+        List<T> values = new ArrayList<T>(iNrAssigned);
+        for (int i = 0; i < iNrAssigned; i++)
+            values.add((T) iValues[((V) iAssigned[i]).getIndex()]);
+        return values;
+    }
+
+    @Override
+    public int getIndex() {
+        return iIndex;
+    }
+}
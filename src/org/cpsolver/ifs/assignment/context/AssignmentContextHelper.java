@@ -1,9 +1,16 @@
 package org.cpsolver.ifs.assignment.context;
 
+import java.util.Collection;
+
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.InheritedAssignment;
+import org.cpsolver.ifs.criteria.Criterion;
+import org.cpsolver.ifs.model.Constraint;
+import org.cpsolver.ifs.model.GlobalConstraint;
+import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solver.SolverMetrics;
 
 public class AssignmentContextHelper {
 
@@ -29,6 +36,7 @@ public class AssignmentContextHelper {
                 }
                 
                 if (!context.isCurrent(version)) {
+                    SolverMetrics.inc(SolverMetrics.Metric.ContextCreation);
                     if (source instanceof CanInheritContext && contexts[0] != null)
                         context.setContent(((CanInheritContext<V, T, C>)source).inheritAssignmentContext(assignment, (C)contexts[0]), version);
                     else
@@ -39,6 +47,7 @@ public class AssignmentContextHelper {
             } else {
                 AssignmentContext context = contexts[assignment.getIndex()];
                 if (context == null) {
+                    SolverMetrics.inc(SolverMetrics.Metric.ContextCreation);
                     context = source.createAssignmentContext(assignment);
                     contexts[assignment.getIndex()] = context;
                 }
@@ -47,4 +56,43 @@ public class AssignmentContextHelper {
         }
         return assignment.getAssignmentContext(source.getAssignmentContextReference());
     }
+
+    /**
+     * Make sure that the assignment contexts of the model, its criteria and global constraints, and of the given variables
+     * and their constraints exist in the given assignment. The assignment contexts are created lazily, which is not thread-safe,
+     * so this method is to be called by the calling thread before the assignment is read by multiple threads
+     * (see {@link org.cpsolver.ifs.heuristics.ParallelValueScoring}).
+     * @param model problem model
+     * @param assignment current assignment
+     * @param variables variables that will be read, null for all the variables and constraints of the model
+     */
+    public static <V extends Variable<V, T>, T extends Value<V, T>> void ensureInitialized(Model<V, T> model, Assignment<V, T> assignment, Collection<V> variables) {
+        initialize(assignment, model);
+        for (Criterion<V, T> criterion: model.getCriteria())
+            initialize(assignment, criterion);
+        for (GlobalConstraint<V, T> constraint: model.globalConstraints())
+            initialize(assignment, constraint);
+        if (variables == null) {
+            for (Constraint<V, T> constraint: model.constraints())
+                initialize(assignment, constraint);
+            for (V variable: model.variables())
+                initialize(assignment, variable);
+        } else {
+            for (V variable: variables) {
+                initialize(assignment, variable);
+                for (Constraint<V, T> constraint: variable.constraints())
+                    initialize(assignment, constraint);
+            }
+        }
+    }
+    
+    /** Create the assignment context of the given object, if it has one and it does not exist yet */
+    @SuppressWarnings("unchecked")
+    private static <V extends Variable<V, T>, T extends Value<V, T>> void initialize(Assignment<V, T> assignment, Object source) {
+        if (source instanceof HasAssignmentContext) {
+            AssignmentContextReference<V, T, ?> reference = ((HasAssignmentContext<V, T, ?>)source).getAssignmentContextReference();
+            if (reference != null)
+                assignment.getAssignmentContext(reference);
+        }
+    }
 }
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solver.SolverMetrics;
 
 
 /**
@@ -48,6 +49,7 @@ public class AssignmentContextHolderArray<V extends Variable<V, T>, T extends Va
             if (context != null) return (U) context;
         } catch (ArrayIndexOutOfBoundsException e) {}
 
+        SolverMetrics.inc(SolverMetrics.Metric.ContextCreation);
         U context = reference.getParent().createAssignmentContext(assignment);
         if (iContexts.length <= reference.getIndex())
             iContexts = Arrays.copyOf(iContexts, reference.getIndex() + 1000);
@@ -6,6 +6,7 @@ import java.util.Map;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solver.SolverMetrics;
 
 
 /**
@@ -47,6 +48,7 @@ public class AssignmentContextHolderMap<V extends Variable<V, T>, T extends Valu
         U context = (U) iContexts.get(reference.getIndex());
         if (context != null) return context;
         
+        SolverMetrics.inc(SolverMetrics.Metric.ContextCreation);
         context = reference.getParent().createAssignmentContext(assignment);
         iContexts.put(reference.getIndex(), context);
         return context;
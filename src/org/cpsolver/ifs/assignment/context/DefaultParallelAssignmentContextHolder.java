@@ -4,6 +4,7 @@ import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.DefaultParallelAssignment;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solver.SolverMetrics;
 
 
 /**
@@ -50,6 +51,7 @@ public class DefaultParallelAssignmentContextHolder<V extends Variable<V, T>, T
             U context = (U)contexts[iIndex];
             
             if (context == null) {
+                SolverMetrics.inc(SolverMetrics.Metric.ContextCreation);
                 context = reference.getParent().createAssignmentContext(assignment);
                 contexts[iIndex] = context;
             }
@@ -4,6 +4,7 @@ import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solver.SolverMetrics;
 
 /**
  * A simple assignment context holder implementation used by the {@link DefaultSingleAssignment} class.
@@ -44,8 +45,10 @@ public class DefaultSingleAssignmentContextHolder<V extends Variable<V, T>, T ex
     public <U extends AssignmentContext> U getAssignmentContext(Assignment<V, T> assignment, AssignmentContextReference<V, T, U> reference) {
         if (reference.getParent() instanceof CanHoldContext) {
             AssignmentContext[] contexts = ((CanHoldContext)reference.getParent()).getContext();
-            if (contexts[0] == null)
+            if (contexts[0] == null) {
+                SolverMetrics.inc(SolverMetrics.Metric.ContextCreation);
                 contexts[0] = reference.getParent().createAssignmentContext(assignment);
+            }
             return (U)contexts[0];
         } else {
             return super.getAssignmentContext(assignment, reference);
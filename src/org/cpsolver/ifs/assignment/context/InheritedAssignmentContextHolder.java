@@ -4,6 +4,7 @@ import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.InheritedAssignment;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solver.SolverMetrics;
 
 /**
  * A variant of the {@link AssignmentContextHolderMap} that is used by the {@link InheritedAssignment}
@@ -61,6 +62,7 @@ public class InheritedAssignmentContextHolder<V extends Variable<V, T>, T extend
             VersionedContext<U> context = (VersionedContext<U>)contexts[iIndex];
             if (context == null) {
                 context = new VersionedContext<U>();
+                SolverMetrics.inc(SolverMetrics.Metric.ContextCreation);
                 if (reference.getParent() instanceof CanInheritContext)
                     context.setContent(((CanInheritContext<V, T, U>)reference.getParent()).inheritAssignmentContext(assignment,
                             ((InheritedAssignment<V, T>)assignment).getParentAssignment().getAssignmentContext(reference)), iVersion);
@@ -68,6 +70,7 @@ public class InheritedAssignmentContextHolder<V extends Variable<V, T>, T extend
                     context.setContent(reference.getParent().createAssignmentContext(assignment), iVersion);
                 contexts[iIndex] = context;
             } else if (!context.isCurrent(iVersion)) {
+                SolverMetrics.inc(SolverMetrics.Metric.ContextCreation);
                 if (reference.getParent() instanceof CanInheritContext)
                     context.setContent(((CanInheritContext<V, T, U>)reference.getParent()).inheritAssignmentContext(assignment,
                             ((InheritedAssignment<V, T>)assignment).getParentAssignment().getAssignmentContext(reference)), iVersion);
@@ -80,6 +83,7 @@ public class InheritedAssignmentContextHolder<V extends Variable<V, T>, T extend
             U context = (U) iContexts.get(reference.getIndex());
             if (context != null) return context;
             
+            SolverMetrics.inc(SolverMetrics.Metric.ContextCreation);
             if (reference.getParent() instanceof CanInheritContext)
                 context = ((CanInheritContext<V, T, U>)reference.getParent()).inheritAssignmentContext(assignment,
                         ((InheritedAssignment<V, T>)assignment).getParentAssignment().getAssignmentContext(reference));
@@ -116,6 +116,11 @@ public class ConstantModel<V extends Variable<V, T>, T extends Value<V, T>> exte
     public void afterAssigned(Assignment<V, T> assignment, long iteration, T value) {
         if (!isConstant(value.variable()))
             super.afterAssigned(assignment, iteration, value);
+        else {
+            updatePerturbedVariables(assignment, value, true);
+            updateBestAssignmentJournal(assignment, value);
+            updateUnassignedVariables(assignment, value, true);
+        }
     }
 
     /**
@@ -126,5 +131,10 @@ public class ConstantModel<V extends Variable<V, T>, T extends Value<V, T>> exte
     public void afterUnassigned(Assignment<V, T> assignment, long iteration, T value) {
         if (!isConstant(value.variable()))
             super.afterUnassigned(assignment, iteration, value);
+        else {
+            updatePerturbedVariables(assignment, value, false);
+            updateBestAssignmentJournal(assignment, value);
+            updateUnassignedVariables(assignment, value, false);
+        }
     }
 }
@@ -8,6 +8,7 @@ import java.util.Set;
 
 import org.cpsolver.coursett.criteria.TimetablingCriterion;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.OverlayAssignment;
 import org.cpsolver.ifs.assignment.context.AssignmentConstraintContext;
 import org.cpsolver.ifs.assignment.context.AssignmentContext;
 import org.cpsolver.ifs.assignment.context.AssignmentContextHelper;
@@ -200,6 +201,86 @@ public abstract class AbstractCriterion<V extends Variable<V, T>, T extends Valu
     public double getWeightedValue(Assignment<V, T> assignment, Collection<V> variables) {
         return (getWeight() == 0.0 ? 0.0 : getWeight() * getValue(assignment, variables));
     }
+    
+    /**
+     * Change in the criterion value when the given changes are made. By default, the changes are replayed one by one
+     * on top of the given assignment using {@link OverlayAssignment} and the value of each unassigned and assigned value
+     * (see {@link AbstractCriterion#getValue(Assignment, Value, Set)}) is counted the same way as the
+     * {@link ValueContext} would do it (i.e., following the {@link ValueUpdateType} of the criterion).
+     * This is exact for all criteria whose value is computed from the given assignment only, and
+     * for a change of a single variable. Criteria that depend on other assignment contexts (e.g., of a constraint)
+     * should override this method (and {@link AbstractCriterion#isExactDelta()}) if an exact value is needed for larger changes.
+     */
+    @Override
+    public double getDelta(Assignment<V, T> assignment, Map<V, T> changes) {
+        if (changes.isEmpty()) return 0.0;
+        double delta = 0.0;
+        OverlayAssignment<V, T> overlay = new OverlayAssignment<V, T>(assignment);
+        ValueUpdateType type = getValueUpdateType();
+        for (Map.Entry<V, T> change: changes.entrySet()) {
+            T old = overlay.getValue(change.getKey());
+            if (old == null || old.equals(change.getValue())) continue;
+            switch (type) {
+                case AfterUnassignedAfterAssigned:
+                case AfterUnassignedBeforeAssigned:
+                    overlay.unassign(0, change.getKey());
+                    delta -= getValue(overlay, old, null);
+                    break;
+                default:
+                    delta -= getValue(overlay, old, null);
+                    overlay.unassign(0, change.getKey());
+            }
+        }
+        for (T value: changes.values()) {
+            if (value == null || value.equals(overlay.getValue(value.variable()))) continue;
+            switch (type) {
+                case AfterUnassignedAfterAssigned:
+                case BeforeUnassignedAfterAssigned:
+                    overlay.assign(0, value);
+                    delta += getValue(overlay, value, null);
+                    break;
+                default:
+                    delta += getValue(overlay, value, null);
+                    overlay.assign(0, value);
+            }
+        }
+        return delta;
+    }
+    
+    /**
+     * Change in the criterion value when the given changes are made, for criteria where the value of a placement
+     * does not depend on the assignment of other variables (e.g., time or room preferences). It is computed
+     * as the sum of the values of the new placements minus the sum of the values of the current placements of the
+     * changed variables, without replaying the changes.
+     * @param assignment current assignment
+     * @param changes proposed changes (variable, new value or null if the variable is to be unassigned)
+     * @return change in this criterion value when the changes are made
+     */
+    protected double getUnaryDelta(Assignment<V, T> assignment, Map<V, T> changes) {
+        double delta = 0.0;
+        for (Map.Entry<V, T> change: changes.entrySet()) {
+            T old = assignment.getValue(change.getKey());
+            if (old != null && old.equals(change.getValue())) continue;
+            if (old != null) delta -= getValue(assignment, old, null);
+            if (change.getValue() != null) delta += getValue(assignment, change.getValue(), null);
+        }
+        return delta;
+    }
+    
+    @Override
+    public double getWeightedDelta(Assignment<V, T> assignment, Map<V, T> changes) {
+        return (getWeight() == 0.0 ? 0.0 : getWeight() * getDelta(assignment, changes));
+    }
+
+    /**
+     * The default implementation of {@link AbstractCriterion#getDelta(Assignment, Map)} is not exact when the value
+     * of the criterion depends on assignment contexts, which are not updated by the {@link OverlayAssignment}.
+     * Criteria that override the delta computation with an exact one should return true.
+     */
+    @Override
+    public boolean isExactDelta() {
+        return false;
+    }
 
     /** Compute bounds (bounds are being cached by default). 
      * @param assignment current assignment
@@ -1,6 +1,7 @@
 package org.cpsolver.ifs.criteria;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
@@ -132,6 +133,28 @@ public interface Criterion<V extends Variable<V, T>, T extends Value<V, T>> exte
      **/
     public double getValue(Assignment<V, T> assignment, T value, Set<T> conflicts);
     
+    /** Change in the value of the criterion if the given changes were made to the current assignment.
+     * The assignment is not modified.
+     * @param assignment current assignment
+     * @param changes proposed changes (variable, new value or null if the variable is to be unassigned)
+     * @return change in this criterion value when the changes are made
+     **/
+    public double getDelta(Assignment<V, T> assignment, Map<V, T> changes);
+
+    /** Weighted change in the value of the criterion if the given changes were made to the current assignment.
+     * The assignment is not modified.
+     * @param assignment current assignment
+     * @param changes proposed changes (variable, new value or null if the variable is to be unassigned)
+     * @return weighted change in this criterion value when the changes are made
+     **/
+    public double getWeightedDelta(Assignment<V, T> assignment, Map<V, T> changes);
+
+    /** True if {@link Criterion#getDelta(Assignment, Map)} is exact for any changes, i.e., it is always equal to the
+     * change in {@link Criterion#getValue(Assignment)} when the changes are made.
+     * @return true if the change computed by this criterion is exact
+     **/
+    public boolean isExactDelta();
+    
     /**
      * Weighted value of a part of the problem (given by the collection of variables)
      * Use {@link Criterion#getWeightedValue(Assignment, Collection)} instead.
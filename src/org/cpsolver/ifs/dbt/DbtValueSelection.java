@@ -194,7 +194,7 @@ public class DbtValueSelection<V extends Variable<V, T>, T extends Value<V, T>>
                 sLogger.debug("MPP Limit decreased to " + iMPPLimit);
             }
 
-            int nrPerts = solution.getModel().perturbVariables(assignment).size();
+            int nrPerts = solution.getModel().nrPerturbVariables(assignment);
 
             if (iMPPLimit >= 0 && iMPPLimit < nrPerts) {
                 return null;
@@ -248,7 +248,7 @@ public class DbtValueSelection<V extends Variable<V, T>, T extends Value<V, T>>
                         && !selectedVariable.getInitialAssignment().equals(value)) {
                     deltaInitialAssignments++;
                 }
-                if (iMPPLimit >= 0 && (solution.getModel().perturbVariables(assignment).size() + deltaInitialAssignments) > iMPPLimit) {
+                if (iMPPLimit >= 0 && (solution.getModel().nrPerturbVariables(assignment) + deltaInitialAssignments) > iMPPLimit) {
                     continue;
                 }
             }
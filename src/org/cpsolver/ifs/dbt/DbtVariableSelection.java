@@ -7,7 +7,6 @@ import org.cpsolver.ifs.model.Variable;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.solver.Solver;
 import org.cpsolver.ifs.util.DataProperties;
-import org.cpsolver.ifs.util.ToolBox;
 
 /**
  * Selection of a variable for dynamic backtracking. <br>
@@ -80,7 +79,7 @@ public class DbtVariableSelection<V extends Variable<V, T>, T extends Value<V, T
                 }
             }
         }
-        return ToolBox.random(solution.getAssignment().unassignedVariables(solution.getModel()));
+        return solution.getModel().randomUnassignedVariable(solution.getAssignment());
     }
 
 }
@@ -0,0 +1,494 @@
+package org.cpsolver.ifs.extension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.model.Constraint;
+import org.cpsolver.ifs.model.Value;
+import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solver.Solver;
+import org.cpsolver.ifs.util.DataProperties;
+
+/**
+ * Conflict-based statistics with a compact memory representation and bounded
+ * memory. <br>
+ * <br>
+ * This is the same as {@link ConflictStatistics}, however, the memorized
+ * conflicts are not kept in lists of {@link AssignedValue} objects. Each value
+ * that is a part of a memorized conflict gets an integer index, and the
+ * conflicts are kept in two open-addressing hash tables of primitive arrays:
+ * one indexed by the pair (unassigned variable, assigned value), which is used
+ * by {@link ConflictStatistics#countRemovals(long, Value, Value)}, and one
+ * indexed by the pair (unassigned value, assigned value), which is used by
+ * {@link ConflictStatistics#countPotentialConflicts(Assignment, long, Value, int)}.
+ * So, a conflict is found in a constant time (instead of a scan through a list)
+ * and no objects are created when a conflict is memorized or looked up. Each
+ * conflict has a counter and the iteration of its last revision, the aged
+ * weight is computed when needed (the counter is multiplied by the ageing
+ * factor powered by the number of iterations since the last revision). <br>
+ * <br>
+ * When the number of memorized conflicts in a table exceeds the given limit,
+ * the conflicts with the lowest aged weights are forgotten (only three quarters
+ * of the limit are kept), and the indexes of values that are no longer used are
+ * released. The no-goods (see ConflictStatistics.Print) are not memorized. <br>
+ * <br>
+ * Parameters (in addition to the parameters of {@link ConflictStatistics}): <br>
+ * <table border='1' summary='Related Solver Parameters'>
+ * <tr>
+ * <th>Parameter</th>
+ * <th>Type</th>
+ * <th>Comment</th>
+ * </tr>
+ * <tr>
+ * <td>ConflictStatistics.MaxEntries</td>
+ * <td>{@link Integer}</td>
+ * <td>Maximal number of memorized conflicts in each of the two tables
+ * (default is 1000000, zero or a negative number means no limit)</td>
+ * </tr>
+ * </table>
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ * @param <V> Variable
+ * @param <T> Value
+ */
+public class CompactConflictStatistics<V extends Variable<V, T>, T extends Value<V, T>> extends ConflictStatistics<V, T> {
+    private static final String PARAM_MAX_ENTRIES = "ConflictStatistics.MaxEntries";
+
+    private int iMaxEntries = 1000000;
+
+    private Map<V, Integer> iVariableIndex = new HashMap<V, Integer>();
+    private List<V> iVariables = new ArrayList<V>();
+
+    private Map<T, Integer> iValueIndex = new HashMap<T, Integer>();
+    private List<T> iValues = new ArrayList<T>();
+    private int[] iValueRefs = new int[64];
+    private int[] iFreeValues = new int[16];
+    private int iNrFreeValues = 0;
+
+    private PairTable iRemovals = new PairTable(false);
+    private PairTable iAssignments = new PairTable(true);
+
+    private final ReentrantReadWriteLock iLock = new ReentrantReadWriteLock();
+
+    public CompactConflictStatistics(Solver<V, T> solver, DataProperties properties) {
+        super(solver, properties);
+        iMaxEntries = properties.getPropertyInt(PARAM_MAX_ENTRIES, iMaxEntries);
+    }
+
+    private int variableIndex(V variable, boolean create) {
+        Integer index = iVariableIndex.get(variable);
+        if (index != null)
+            return index;
+        if (!create)
+            return -1;
+        index = iVariables.size();
+        iVariables.add(variable);
+        iVariableIndex.put(variable, index);
+        return index;
+    }
+
+    private int valueIndex(T value, boolean create) {
+        Integer index = iValueIndex.get(value);
+        if (index != null)
+            return index;
+        if (!create)
+            return -1;
+        int idx;
+        if (iNrFreeValues > 0) {
+            idx = iFreeValues[--iNrFreeValues];
+            iValues.set(idx, value);
+        } else {
+            idx = iValues.size();
+            iValues.add(value);
+            if (idx >= iValueRefs.length)
+                iValueRefs = Arrays.copyOf(iValueRefs, 2 * iValueRefs.length);
+        }
+        iValueRefs[idx] = 0;
+        iValueIndex.put(value, idx);
+        return idx;
+    }
+
+    private void retainValue(int idx) {
+        iValueRefs[idx]++;
+    }
+
+    private void releaseValue(int idx) {
+        if (--iValueRefs[idx] > 0)
+            return;
+        iValueIndex.remove(iValues.get(idx));
+        iValues.set(idx, null);
+        if (iNrFreeValues == iFreeValues.length)
+            iFreeValues = Arrays.copyOf(iFreeValues, 2 * iFreeValues.length);
+        iFreeValues[iNrFreeValues++] = idx;
+    }
+
+    @Override
+    public void reset() {
+        iLock.writeLock().lock();
+        try {
+            iRemovals.clear();
+            iAssignments.clear();
+            iValueIndex.clear();
+            iValues.clear();
+            iNrFreeValues = 0;
+        } finally {
+            iLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void variableUnassigned(long iteration, T unassignedValue, T assignedValue) {
+        if (iteration <= 0) return;
+        iLock.writeLock().lock();
+        try {
+            int ass = valueIndex(assignedValue, true);
+            int unass = valueIndex(unassignedValue, true);
+            int var = variableIndex(unassignedValue.variable(), true);
+            // keep the value indexes while the tables are updated (an eviction may release them)
+            retainValue(ass); retainValue(unass);
+            int entry = iAssignments.find(unass, ass);
+            if (entry >= 0)
+                iAssignments.inc(entry, iteration);
+            else
+                iAssignments.add(unass, ass, iteration);
+            entry = iRemovals.find(var, ass);
+            if (entry >= 0)
+                iRemovals.inc(entry, iteration);
+            else
+                iRemovals.add(var, ass, iteration);
+            releaseValue(ass); releaseValue(unass);
+        } finally {
+            iLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public double countRemovals(long iteration, T conflictValue, T value) {
+        iLock.readLock().lock();
+        try {
+            int var = variableIndex(conflictValue.variable(), false);
+            if (var < 0)
+                return 0;
+            int ass = valueIndex(value, false);
+            if (ass < 0)
+                return 0;
+            int entry = iRemovals.find(var, ass);
+            if (entry < 0)
+                return 0;
+            return iRemovals.getCounter(entry, iteration);
+        } finally {
+            iLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long countPotentialConflicts(Assignment<V, T> assignment, long iteration, T value, int limit) {
+        iLock.readLock().lock();
+        try {
+            int unass = valueIndex(value, false);
+            if (unass < 0)
+                return 0;
+            long count = 0;
+            for (int entry = iAssignments.first(unass); entry >= 0; entry = iAssignments.next(entry)) {
+                T ass = iValues.get(iAssignments.getKey2(entry));
+                if (ass.variable().getAssignment(assignment) == null) {
+                    if (limit >= 0) {
+                        count += iAssignments.getCounter(entry, iteration) * Math.max(0, 1 + limit - value.variable().getModel().conflictValues(assignment, ass).size());
+                    } else {
+                        count += iAssignments.getCounter(entry, iteration);
+                    }
+                }
+            }
+            return count;
+        } finally {
+            iLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of memorized conflicts
+     * @return number of memorized pairs (unassigned variable, assigned value)
+     */
+    public int size() {
+        iLock.readLock().lock();
+        try {
+            return iRemovals.size();
+        } finally {
+            iLock.readLock().unlock();
+        }
+    }
+
+    /** Increments appropriate counters when there is a value unassigned (no-goods are not memorized) */
+    @Override
+    public void constraintAfterAssigned(Assignment<V, T> assignment, long iteration, Constraint<V, T> constraint, T assigned, Set<T> unassigned) {
+        if (iteration <= 0)
+            return;
+        if (unassigned == null || unassigned.isEmpty())
+            return;
+        for (T unassignedValue : unassigned)
+            variableUnassigned(iteration, unassignedValue, assigned);
+    }
+
+    @Override
+    public String toString() {
+        iLock.readLock().lock();
+        try {
+            StringBuffer sb = new StringBuffer("Statistics{");
+            final double[] total = new double[iVariables.size()];
+            List<Integer> variables = new ArrayList<Integer>();
+            for (int var = 0; var < iVariables.size(); var++) {
+                for (int entry = iRemovals.first(var); entry >= 0; entry = iRemovals.next(entry))
+                    total[var] += iRemovals.getCounter(entry, 0);
+                if (iRemovals.first(var) >= 0)
+                    variables.add(var);
+            }
+            Collections.sort(variables, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer v1, Integer v2) {
+                    int cmp = Double.compare(total[v2], total[v1]);
+                    if (cmp != 0)
+                        return cmp;
+                    return iVariables.get(v1).compareTo(iVariables.get(v2));
+                }
+            });
+            int printedVariables = 0;
+            for (Integer var : variables) {
+                sb.append("\n      ").append(Math.round(total[var]) + "x ").append(iVariables.get(var).getName()).append(" <= {");
+                List<Integer> entries = new ArrayList<Integer>();
+                for (int entry = iRemovals.first(var); entry >= 0; entry = iRemovals.next(entry))
+                    entries.add(entry);
+                Collections.sort(entries, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer e1, Integer e2) {
+                        int cmp = Double.compare(iRemovals.getCounter(e2, 0), iRemovals.getCounter(e1, 0));
+                        if (cmp != 0)
+                            return cmp;
+                        T x1 = iValues.get(iRemovals.getKey2(e1)), x2 = iValues.get(iRemovals.getKey2(e2));
+                        cmp = x1.variable().getName().compareTo(x2.variable().getName());
+                        if (cmp != 0)
+                            return cmp;
+                        return x1.getName().compareTo(x2.getName());
+                    }
+                });
+                int printedAssignments = 0;
+                for (Integer entry : entries) {
+                    T ass = iValues.get(iRemovals.getKey2(entry));
+                    sb.append("\n        ").append(iRemovals.getCounter(entry, 0) + "x " + ass.variable().getName() + " := " + ass.getName());
+                    if (++printedAssignments == 20) {
+                        sb.append("\n        ...");
+                        break;
+                    }
+                }
+                sb.append("\n      }");
+                if (++printedVariables == 100) {
+                    sb.append("\n      ...");
+                    break;
+                }
+            }
+            sb.append("\n    }");
+            return sb.toString();
+        } finally {
+            iLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Open-addressing hash table of memorized conflicts, indexed by a pair of integers. The entries
+     * are kept in primitive arrays, the entries with the same first key are linked together. The
+     * second key is always a value index, the first key is a value index or a variable index.
+     */
+    private class PairTable {
+        private boolean iKey1IsValue;
+        private int[] iKey1, iKey2, iNext, iPrev;
+        private double[] iCounter;
+        private long[] iRevision;
+        private int[] iHead;
+        private int[] iSlots;
+        private int iNrEntries, iTop, iFree;
+
+        private PairTable(boolean key1IsValue) {
+            iKey1IsValue = key1IsValue;
+            clear();
+        }
+
+        private void clear() {
+            iKey1 = new int[16]; iKey2 = new int[16]; iNext = new int[16]; iPrev = new int[16];
+            iCounter = new double[16]; iRevision = new long[16];
+            iHead = new int[16];
+            Arrays.fill(iHead, -1);
+            iSlots = new int[32];
+            iNrEntries = 0; iTop = 0; iFree = -1;
+        }
+
+        private int size() {
+            return iNrEntries;
+        }
+
+        private int hash(int k1, int k2) {
+            int h = k1 * 0x9E3779B9 + k2;
+            h ^= (h >>> 16);
+            h *= 0x85EBCA6B;
+            h ^= (h >>> 13);
+            return h;
+        }
+
+        private int find(int k1, int k2) {
+            int mask = iSlots.length - 1;
+            for (int slot = hash(k1, k2) & mask; ; slot = (slot + 1) & mask) {
+                int entry = iSlots[slot] - 1;
+                if (entry < 0)
+                    return -1;
+                if (iKey1[entry] == k1 && iKey2[entry] == k2)
+                    return entry;
+            }
+        }
+
+        private void insert(int entry) {
+            int mask = iSlots.length - 1;
+            int slot = hash(iKey1[entry], iKey2[entry]) & mask;
+            while (iSlots[slot] != 0)
+                slot = (slot + 1) & mask;
+            iSlots[slot] = entry + 1;
+        }
+
+        private void rehash(int nrSlots) {
+            iSlots = new int[nrSlots];
+            for (int entry = 0; entry < iTop; entry++)
+                if (iKey1[entry] >= 0)
+                    insert(entry);
+        }
+
+        private int add(int k1, int k2, long iteration) {
+            int entry;
+            if (iFree >= 0) {
+                entry = iFree;
+                iFree = iNext[entry];
+            } else {
+                entry = iTop++;
+                if (entry >= iKey1.length) {
+                    int length = 2 * iKey1.length;
+                    iKey1 = Arrays.copyOf(iKey1, length); iKey2 = Arrays.copyOf(iKey2, length);
+                    iNext = Arrays.copyOf(iNext, length); iPrev = Arrays.copyOf(iPrev, length);
+                    iCounter = Arrays.copyOf(iCounter, length); iRevision = Arrays.copyOf(iRevision, length);
+                }
+            }
+            iKey1[entry] = k1; iKey2[entry] = k2;
+            iCounter[entry] = 1.0; iRevision[entry] = iteration;
+            if (k1 >= iHead.length) {
+                int length = iHead.length;
+                iHead = Arrays.copyOf(iHead, Math.max(2 * length, k1 + 1));
+                Arrays.fill(iHead, length, iHead.length, -1);
+            }
+            iPrev[entry] = -1;
+            iNext[entry] = iHead[k1];
+            if (iHead[k1] >= 0)
+                iPrev[iHead[k1]] = entry;
+            iHead[k1] = entry;
+            if (iKey1IsValue)
+                retainValue(k1);
+            retainValue(k2);
+            iNrEntries++;
+            if (2 * iNrEntries > iSlots.length)
+                rehash(2 * iSlots.length);
+            else
+                insert(entry);
+            if (iMaxEntries > 0 && iNrEntries > iMaxEntries)
+                evict(iteration, Math.max(1, 3 * iMaxEntries / 4));
+            return entry;
+        }
+
+        private void remove(int entry) {
+            if (iPrev[entry] >= 0)
+                iNext[iPrev[entry]] = iNext[entry];
+            else
+                iHead[iKey1[entry]] = iNext[entry];
+            if (iNext[entry] >= 0)
+                iPrev[iNext[entry]] = iPrev[entry];
+            if (iKey1IsValue)
+                releaseValue(iKey1[entry]);
+            releaseValue(iKey2[entry]);
+            iKey1[entry] = -1; iKey2[entry] = -1;
+            iNext[entry] = iFree;
+            iFree = entry;
+            iNrEntries--;
+        }
+
+        /** Forget the conflicts with the lowest weights, keeping the given number of conflicts */
+        private void evict(long iteration, int keep) {
+            if (iNrEntries <= keep)
+                return;
+            double[] weights = new double[iNrEntries];
+            int n = 0;
+            for (int entry = 0; entry < iTop; entry++)
+                if (iKey1[entry] >= 0)
+                    weights[n++] = getCounter(entry, iteration);
+            Arrays.sort(weights);
+            double threshold = weights[n - keep];
+            int toRemove = iNrEntries - keep;
+            for (int entry = 0; entry < iTop && toRemove > 0; entry++)
+                if (iKey1[entry] >= 0 && getCounter(entry, iteration) < threshold) {
+                    remove(entry);
+                    toRemove--;
+                }
+            for (int entry = 0; entry < iTop && toRemove > 0; entry++)
+                if (iKey1[entry] >= 0 && getCounter(entry, iteration) <= threshold) {
+                    remove(entry);
+                    toRemove--;
+                }
+            rehash(iSlots.length);
+        }
+
+        private void inc(int entry, long iteration) {
+            double ageing = getAgeing();
+            if (ageing != 1.0) {
+                iCounter[entry] *= Math.pow(ageing, iteration - iRevision[entry]);
+                iRevision[entry] = iteration;
+            }
+            iCounter[entry] += 1.0;
+        }
+
+        private double getCounter(int entry, long iteration) {
+            double ageing = getAgeing();
+            if (iteration == 0l || ageing == 1.0)
+                return iCounter[entry];
+            return iCounter[entry] * Math.pow(ageing, iteration - iRevision[entry]);
+        }
+
+        private int first(int k1) {
+            return (k1 < iHead.length ? iHead[k1] : -1);
+        }
+
+        private int next(int entry) {
+            return iNext[entry];
+        }
+
+        private int getKey2(int entry) {
+            return iKey2[entry];
+        }
+    }
+}
@@ -130,6 +130,9 @@ import org.cpsolver.ifs.util.DataProperties;
  * conflict to 1/2 (default is 0 -- no ageing)</td>
  * </tr>
  * </table>
+ * <br>
+ * See {@link CompactConflictStatistics} for a variant with a compact memory
+ * representation and a limit on the number of memorized conflicts.
  * 
  * @see Solver
  * @see Model
@@ -180,6 +183,14 @@ public class ConflictStatistics<V extends Variable<V, T>, T extends Value<V, T>>
         iPrint = properties.getPropertyBoolean(PARAM_PRINT, iPrint);
     }
 
+    /**
+     * Ageing factor of the memorized conflicts (see ConflictStatistics.Ageing)
+     * @return ageing factor, 1.0 means no ageing
+     */
+    public double getAgeing() {
+        return iAgeing;
+    }
+
     @Override
     public void register(Model<V, T> model) {
         super.register(model);
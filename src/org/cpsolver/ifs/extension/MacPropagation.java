@@ -1,13 +1,15 @@
 package org.cpsolver.ifs.extension;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 
@@ -67,6 +69,12 @@ import org.cpsolver.ifs.util.Progress;
  * variables' domains followed by arc consistency maintenance over their
  * variables. <br>
  * <br>
+ * For each variable, the values are indexed by their position in the
+ * variable's domain. Good values are kept in a bitset and explanations in a
+ * list indexed by the position, so that the arc-consistency revisions (finding
+ * values with no support among the good values of another variable) are done
+ * over bitsets, without creating any intermediate collections. <br>
+ * <br>
  * Parameters:
  * <table border='1' summary='Related Solver Parameters'>
  * <tr>
@@ -221,25 +229,6 @@ public class MacPropagation<V extends Variable<V, T>, T extends Value<V, T>> ext
         return getContext(assignment).goodValues(variable);
     }
 
-    /** notification that a nogood value becomes good or vice versa */
-    private void goodnessChanged(Assignment<V, T> assignment, T value) {
-        if (isGood(assignment, value)) {
-            goodValues(assignment, value.variable()).add(value);
-        } else {
-            goodValues(assignment, value.variable()).remove(value);
-        }
-    }
-
-    /** removes support of a variable */
-    private void removeSupport(Assignment<V, T> assignment, V variable, T value) {
-        getContext(assignment).supportValues(variable).remove(value);
-    }
-
-    /** adds support of a variable */
-    private void addSupport(Assignment<V, T> assignment, V variable, T value) {
-        getContext(assignment).supportValues(variable).add(value);
-    }
-
     /** variables explanation 
      * @param assignment current assignment 
      * @param value given value
@@ -263,12 +252,7 @@ public class MacPropagation<V extends Variable<V, T>, T extends Value<V, T>> ext
      * @param value given value
      **/
     protected void setGood(Assignment<V, T> assignment, T value) {
-        Set<T> noGood = getContext(assignment).getNoGood(value);
-        if (noGood != null)
-            for (T v : noGood)
-                removeSupport(assignment, v.variable(), value);
         getContext(assignment).setNoGood(value, null);
-        goodnessChanged(assignment, value);
     }
 
     /** sets value's explanation 
@@ -277,29 +261,7 @@ public class MacPropagation<V extends Variable<V, T>, T extends Value<V, T>> ext
      * @param reason no-good set for the value
      **/
     public void setNoGood(Assignment<V, T> assignment, T value, Set<T> reason) {
-        Set<T> noGood = noGood(assignment, value);
-        if (noGood != null)
-            for (T v : noGood)
-                removeSupport(assignment, v.variable(), value);
         getContext(assignment).setNoGood(value, reason);
-        for (T aValue : reason)
-            addSupport(assignment, aValue.variable(), value);
-        goodnessChanged(assignment, value);
-    }
-
-    private Set<T> reason(Assignment<V, T> assignment, Constraint<V, T> constraint, V aVariable, T aValue) {
-        Set<T> ret = new HashSet<T>();
-
-        for (Iterator<T> i = aVariable.values(assignment).iterator(); i.hasNext();) {
-            T value = i.next();
-            if (constraint.isConsistent(aValue, value)) {
-                if (noGood(assignment, value) == null)
-                    sLogger.error("Something went wrong: value " + value + " cannot participate in a reason.");
-                else
-                    ret.addAll(noGood(assignment, value));
-            }
-        }
-        return ret;
     }
     
     @Override
@@ -328,36 +290,135 @@ public class MacPropagation<V extends Variable<V, T>, T extends Value<V, T>> ext
         getContext(assignment).undoPropagate(assignment, variable);
     }
 
+    /**
+     * Domain of a variable. Values are indexed by their position in the domain (in the order in which
+     * they were first seen), good values are kept in a bitset, explanations in a list indexed by the position.
+     */
+    private class VariableDomain {
+        private List<T> iValues = new ArrayList<T>();
+        private Map<T, Integer> iIndex = new HashMap<T, Integer>();
+        private List<Set<T>> iNoGoods = new ArrayList<Set<T>>();
+        private BitSet iGood = new BitSet();
+        private int iNrGood = 0;
+        private Set<T> iSupport = new HashSet<T>();
+        private Set<T> iGoodValues = new AbstractSet<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new Iterator<T>() {
+                    private int iNext = iGood.nextSetBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return iNext >= 0;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (iNext < 0)
+                            throw new NoSuchElementException();
+                        T value = iValues.get(iNext);
+                        iNext = iGood.nextSetBit(iNext + 1);
+                        return value;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return iNrGood;
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return iNrGood == 0;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public boolean contains(Object o) {
+                Integer index = iIndex.get((T) o);
+                return index != null && iGood.get(index);
+            }
+        };
+
+        /** position of the value in the domain, -1 if not present and not to be created */
+        private int index(T value, boolean create) {
+            Integer index = iIndex.get(value);
+            if (index != null)
+                return index;
+            if (!create)
+                return -1;
+            index = iValues.size();
+            iValues.add(value);
+            iNoGoods.add(null);
+            iIndex.put(value, index);
+            return index;
+        }
+
+        private int size() {
+            return iValues.size();
+        }
+
+        private T getValue(int index) {
+            return iValues.get(index);
+        }
+
+        private Set<T> getNoGood(int index) {
+            return iNoGoods.get(index);
+        }
+
+        private void setNoGood(int index, Set<T> noGood) {
+            iNoGoods.set(index, noGood);
+            if (noGood == null && !iGood.get(index)) {
+                iGood.set(index);
+                iNrGood++;
+            } else if (noGood != null && iGood.get(index)) {
+                iGood.clear(index);
+                iNrGood--;
+            }
+        }
+
+        /** positions of good values (must not be modified) */
+        private BitSet getGood() {
+            return iGood;
+        }
+
+        /** good values (a read-only view) */
+        private Set<T> getGoodValues() {
+            return iGoodValues;
+        }
+
+        /** values that contain a value of this variable in their explanations */
+        private Set<T> getSupport() {
+            return iSupport;
+        }
+    }
+
     /**
      * Assignment context
      */
     public class NoGood implements AssignmentContext {
-        private Map<V, Set<T>[]> iNoGood = new HashMap<V, Set<T>[]>();
-        private Map<V, Map<T, Set<T>>> iNoGoodVal = new HashMap<V, Map<T, Set<T>>>();
+        private Map<V, VariableDomain> iDomains = new HashMap<V, VariableDomain>();
         
         /**
          * Initialization. Enforce arc-consistency over the current (initial)
          * solution. AC3 algorithm is used.
+         * @param assignment current assignment
          */
         public NoGood(Assignment<V, T> assignment) {
             iProgress = Progress.getInstance(getModel());
             iProgress.save();
             iProgress.setPhase("Initializing propagation:", 3 * getModel().variables().size());
-            for (Iterator<V> i = getModel().variables().iterator(); i.hasNext();) {
-                V aVariable = i.next();
-                supportValues(aVariable).clear();
-                goodValues(aVariable).clear();
-            }
             for (Iterator<V> i = getModel().variables().iterator(); i.hasNext();) {
                 V aVariable = i.next();
                 for (Iterator<T> j = aVariable.values(assignment).iterator(); j.hasNext();) {
                     T aValue = j.next();
-                    Set<T> noGood = aValue.conflicts(assignment);
-                    setNoGood(aValue, noGood);
-                    if (noGood == null) {
-                        goodValues(aVariable).add(aValue);
-                    } else {
-                    }
+                    setNoGood(aValue, aValue.conflicts(assignment));
                 }
                 iProgress.incProgress();
             }
@@ -390,111 +451,153 @@ public class MacPropagation<V extends Variable<V, T>, T extends Value<V, T>> ext
             iProgress.restore();
         }
         
-        public Set<T>[] getNoGood(V variable) {
-            return iNoGood.get(variable);
-        }
-        
-        public void setNoGood(V variable, Set<T>[] noGood) {
-            if (noGood == null)
-                iNoGood.remove(variable);
-            else
-                iNoGood.put(variable, noGood);
+        /** domain of a variable */
+        private VariableDomain domain(V variable) {
+            VariableDomain domain = iDomains.get(variable);
+            if (domain == null) {
+                domain = new VariableDomain();
+                iDomains.put(variable, domain);
+            }
+            return domain;
         }
         
+        /**
+         * Explanation of a value
+         * @param value given value
+         * @return no-good set of the value, null if the value is good
+         */
         public Set<T> getNoGood(T value) {
-            Map<T, Set<T>> ng = iNoGoodVal.get(value.variable());
-            if (ng == null) return null;
-            return ng.get(value);
+            VariableDomain domain = iDomains.get(value.variable());
+            if (domain == null) return null;
+            int index = domain.index(value, false);
+            return (index < 0 ? null : domain.getNoGood(index));
         }
         
+        /**
+         * Set explanation of a value, updating the good values of its variable and the support values
+         * of the variables in the old and the new explanation
+         * @param value given value
+         * @param noGood no-good set of the value, null if the value is good
+         */
         public void setNoGood(T value, Set<T> noGood) {
-            Map<T, Set<T>> ng = iNoGoodVal.get(value.variable());
-            if (ng == null) {
-                ng = new HashMap<T, Set<T>>();
-                iNoGoodVal.put(value.variable(), ng);
-            }
-            if (noGood == null)
-                ng.remove(value);
-            else
-                ng.put(value, noGood);
+            VariableDomain domain = domain(value.variable());
+            int index = domain.index(value, true);
+            Set<T> oldNoGood = domain.getNoGood(index);
+            if (oldNoGood != null)
+                for (T v : oldNoGood)
+                    supportValues(v.variable()).remove(value);
+            domain.setNoGood(index, noGood);
+            if (noGood != null)
+                for (T v : noGood)
+                    supportValues(v.variable()).add(value);
         }
         
         /** support values of a variable */
-        @SuppressWarnings("unchecked")
         private Set<T> supportValues(V variable) {
-            Set<T>[] ret = getNoGood(variable);
-            if (ret == null) {
-                ret = new Set[] { new HashSet<T>(1000), new HashSet<T>() };
-                setNoGood(variable, ret);
-            }
-            return ret[0];
+            return domain(variable).getSupport();
         }
         
         /** good values of a variable (values not removed from variables domain) 
          * @param variable given variable
          * @return set of good values 
          **/
-        @SuppressWarnings("unchecked")
         private Set<T> goodValues(V variable) {
-            Set<T>[] ret = getNoGood(variable);
-            if (ret == null) {
-                ret = new Set[] { new HashSet<T>(1000), new HashSet<T>() };
-                setNoGood(variable, ret);
+            return domain(variable).getGoodValues();
+        }
+        
+        /** union of explanations of values of the given variable that support the given value in the constraint */
+        private Set<T> reason(Constraint<V, T> constraint, V aVariable, T aValue) {
+            Set<T> ret = new HashSet<T>();
+            VariableDomain domain = domain(aVariable);
+            for (int i = 0; i < domain.size(); i++) {
+                T value = domain.getValue(i);
+                if (constraint.isConsistent(aValue, value)) {
+                    if (domain.getNoGood(i) == null)
+                        sLogger.error("Something went wrong: value " + value + " cannot participate in a reason.");
+                    else
+                        ret.addAll(domain.getNoGood(i));
+                }
             }
-            return ret[1];
+            return ret;
+        }
+        
+        /**
+         * Revise the given candidates (positions in the domain of the other variable) against the good values of the given
+         * variable: candidates that are consistent with a good value are removed, the remaining candidates have no support
+         * @return positions of values of the other variable that have no support
+         */
+        private BitSet unsupported(Constraint<V, T> constraint, VariableDomain domain, VariableDomain other, BitSet candidates) {
+            BitSet conflicts = (BitSet) candidates.clone();
+            BitSet good = domain.getGood();
+            for (int i = good.nextSetBit(0); i >= 0 && !conflicts.isEmpty(); i = good.nextSetBit(i + 1)) {
+                T aValue = domain.getValue(i);
+                for (int j = conflicts.nextSetBit(0); j >= 0; j = conflicts.nextSetBit(j + 1))
+                    if (constraint.isConsistent(aValue, other.getValue(j)))
+                        conflicts.clear(j);
+            }
+            return conflicts;
         }
         
         /** propagation over a constraint */
         private void propagate(Assignment<V, T> assignment, Constraint<V, T> constraint, V aVariable, Queue<V> queue) {
-            if (goodValues(aVariable).isEmpty())
+            VariableDomain domain = domain(aVariable);
+            if (domain.getGood().isEmpty())
                 return;
-            List<T> conflicts = conflictValues(assignment, constraint, aVariable);
-
-            if (conflicts != null && !conflicts.isEmpty()) {
-                for (T conflictValue : conflicts) {
-                    if (!queue.contains(conflictValue.variable()))
-                        queue.add(conflictValue.variable());
-                    Set<T> reason = reason(assignment, constraint, aVariable, conflictValue);
+            for (V variable : constraint.variables()) {
+                if (variable.equals(aVariable) || assignment.getValue(variable) != null)
+                    continue;
+                VariableDomain other = domain(variable);
+                BitSet conflicts = unsupported(constraint, domain, other, other.getGood());
+                for (int j = conflicts.nextSetBit(0); j >= 0; j = conflicts.nextSetBit(j + 1)) {
+                    T conflictValue = other.getValue(j);
+                    if (!queue.contains(variable))
+                        queue.add(variable);
+                    Set<T> reason = reason(constraint, aVariable, conflictValue);
                     // sLogger.debug("  "+conflictValue+" become nogood (c:"+constraint.getName()+", r:"+reason+")");
                     setNoGood(conflictValue, reason);
                     if (reason.isEmpty())
-                        (conflictValue.variable()).removeValue(iIteration, conflictValue);
+                        variable.removeValue(iIteration, conflictValue);
                 }
             }
         }
         
-        protected boolean propagate(Assignment<V, T> assignment, V aVariable, V anotherVariable, List<T> adepts) {
-            if (goodValues(aVariable).isEmpty())
+        /**
+         * Propagation from a variable to the given values (positions in the domain) of another variable
+         * @param assignment current assignment
+         * @param aVariable variable which good values are to support the adepts
+         * @param anotherVariable variable of the adepts
+         * @param adepts positions of the values to revise, values that become no-good are removed
+         * @return true if a value of the other variable has become no-good
+         */
+        protected boolean propagate(Assignment<V, T> assignment, V aVariable, V anotherVariable, BitSet adepts) {
+            VariableDomain domain = domain(aVariable);
+            if (domain.getGood().isEmpty())
                 return false;
+            VariableDomain other = domain(anotherVariable);
             boolean ret = false;
-            List<T> conflicts = null;
             for (Constraint<V, T> constraint : anotherVariable.constraintVariables().get(aVariable)) {
-                for (T aValue : goodValues(aVariable)) {
-                    if (conflicts == null)
-                        conflicts = conflictValues(constraint, aValue, adepts);
-                    else
-                        conflicts = conflictValues(constraint, aValue, conflicts);
-                    if (conflicts == null || conflicts.isEmpty())
-                        break;
+                if (adepts.isEmpty())
+                    break;
+                BitSet conflicts = unsupported(constraint, domain, other, adepts);
+                for (int j = conflicts.nextSetBit(0); j >= 0; j = conflicts.nextSetBit(j + 1)) {
+                    T conflictValue = other.getValue(j);
+                    Set<T> reason = reason(constraint, aVariable, conflictValue);
+                    // sLogger.debug("  "+conflictValue+" become nogood (c:"+constraint.getName()+", r:"+reason+")");
+                    setNoGood(conflictValue, reason);
+                    adepts.clear(j);
+                    if (reason.isEmpty())
+                        anotherVariable.removeValue(iIteration, conflictValue);
+                    ret = true;
                 }
-                if (conflicts != null && !conflicts.isEmpty())
-                    for (T conflictValue : conflicts) {
-                        Set<T> reason = reason(assignment, constraint, aVariable, conflictValue);
-                        // sLogger.debug("  "+conflictValue+" become nogood (c:"+constraint.getName()+", r:"+reason+")");
-                        setNoGood(conflictValue, reason);
-                        adepts.remove(conflictValue);
-                        if (reason.isEmpty())
-                            (conflictValue.variable()).removeValue(iIteration, conflictValue);
-                        ret = true;
-                    }
             }
             return ret;
         }
 
         protected boolean propagate(Assignment<V, T> assignment, V aVariable, V anotherVariable) {
-            if (goodValues(anotherVariable).isEmpty())
+            VariableDomain other = domain(anotherVariable);
+            if (other.getGood().isEmpty())
                 return false;
-            return propagate(assignment, aVariable, anotherVariable, new ArrayList<T>(goodValues(anotherVariable)));
+            return propagate(assignment, aVariable, anotherVariable, (BitSet) other.getGood().clone());
         }
 
         /** Propagation over the given variable. 
@@ -536,14 +639,23 @@ public class MacPropagation<V extends Variable<V, T>, T extends Value<V, T>> ext
         private void propagate(Assignment<V, T> assignment, Constraint<V, T> constraint, T anAssignedValue, Queue<V> queue) {
             Set<T> reason = new HashSet<T>(1);
             reason.add(anAssignedValue);
-            Collection<T> conflicts = conflictValues(assignment, constraint, anAssignedValue);
-            if (conflicts != null && !conflicts.isEmpty())
-                for (T conflictValue : conflicts) {
-                    // sLogger.debug("  "+conflictValue+" become nogood (c:"+constraint.getName()+", r:"+reason+")");
-                    setNoGood(conflictValue, reason);
-                    if (!queue.contains(conflictValue.variable()))
-                        queue.add(conflictValue.variable());
+            for (V variable : constraint.variables()) {
+                if (variable.equals(anAssignedValue.variable()) || assignment.getValue(variable) != null)
+                    continue;
+                VariableDomain other = domain(variable);
+                BitSet good = other.getGood();
+                boolean conflict = false;
+                for (int j = good.nextSetBit(0); j >= 0; j = good.nextSetBit(j + 1)) {
+                    T conflictValue = other.getValue(j);
+                    if (!constraint.isConsistent(anAssignedValue, conflictValue)) {
+                        // sLogger.debug("  "+conflictValue+" become nogood (c:"+constraint.getName()+", r:"+reason+")");
+                        setNoGood(conflictValue, reason);
+                        conflict = true;
+                    }
                 }
+                if (conflict && !queue.contains(variable))
+                    queue.add(variable);
+            }
         }
         
         /**
@@ -556,19 +668,19 @@ public class MacPropagation<V extends Variable<V, T>, T extends Value<V, T>> ext
          * @param variable given variable
          */
         public void undoPropagate(Assignment<V, T> assignment, V variable) {
-            Map<V, List<T>> undoVars = new HashMap<V, List<T>>();
-            NoGood context = getContext(assignment);
-            while (!context.supportValues(variable).isEmpty()) {
-                T value = context.supportValues(variable).iterator().next();
+            Map<V, BitSet> undoVars = new HashMap<V, BitSet>();
+            Set<T> support = supportValues(variable);
+            while (!support.isEmpty()) {
+                T value = support.iterator().next();
                 Set<T> noGood = value.conflicts(assignment);
                 if (noGood == null) {
-                    setGood(assignment, value);
-                    List<T> values = undoVars.get(value.variable());
+                    setNoGood(value, null);
+                    BitSet values = undoVars.get(value.variable());
                     if (values == null) {
-                        values = new ArrayList<T>();
+                        values = new BitSet();
                         undoVars.put(value.variable(), values);
                     }
-                    values.add(value);
+                    values.set(domain(value.variable()).index(value, true));
                 } else {
                     setNoGood(value, noGood);
                     if (noGood.isEmpty())
@@ -577,8 +689,9 @@ public class MacPropagation<V extends Variable<V, T>, T extends Value<V, T>> ext
             }
 
             Queue<V> queue = new LinkedList<V>();
-            for (V aVariable : undoVars.keySet()) {
-                List<T> values = undoVars.get(aVariable);
+            for (Map.Entry<V, BitSet> entry : undoVars.entrySet()) {
+                V aVariable = entry.getKey();
+                BitSet values = entry.getValue();
                 boolean add = false;
                 for (V x : aVariable.constraintVariables().keySet()) {
                     if (propagate(assignment, x, aVariable, values))
@@ -594,43 +707,6 @@ public class MacPropagation<V extends Variable<V, T>, T extends Value<V, T>> ext
             if (!iJustForwardCheck)
                 propagate(assignment, queue);
         }
-        
-        private List<T> conflictValues(Assignment<V, T> assignment, Constraint<V, T> constraint, T aValue) {
-            List<T> ret = new ArrayList<T>();
-
-            for (V variable : constraint.variables()) {
-                if (variable.equals(aValue.variable()))
-                    continue;
-                if (assignment.getValue(variable) != null)
-                    continue;
-
-                for (T value : goodValues(variable))
-                    if (!constraint.isConsistent(aValue, value))
-                        ret.add(value);
-            }
-            return ret;
-        }
-
-        private List<T> conflictValues(Constraint<V, T> constraint, T aValue, List<T> values) {
-            List<T> ret = new ArrayList<T>(values.size());
-            for (T value : values)
-                if (!constraint.isConsistent(aValue, value))
-                    ret.add(value);
-            return ret;
-        }
-
-        private List<T> conflictValues(Assignment<V, T> assignment, Constraint<V, T> constraint, V aVariable) {
-            List<T> conflicts = null;
-            for (T aValue : goodValues(aVariable)) {
-                if (conflicts == null)
-                    conflicts = conflictValues(assignment, constraint, aValue);
-                else
-                    conflicts = conflictValues(constraint, aValue, conflicts);
-                if (conflicts == null || conflicts.isEmpty())
-                    return null;
-            }
-            return conflicts;
-        }        
     }
 
 }
@@ -16,6 +16,7 @@ import org.cpsolver.ifs.assignment.context.AssignmentContext;
 import org.cpsolver.ifs.constant.ConstantVariable;
 import org.cpsolver.ifs.extension.ConflictStatistics;
 import org.cpsolver.ifs.extension.Extension;
+import org.cpsolver.ifs.model.ConflictCollector;
 import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Neighbour;
 import org.cpsolver.ifs.model.Value;
@@ -254,6 +255,7 @@ public class BacktrackNeighbourSelection<V extends Variable<V, T>, T extends Val
         V variable = variables2resolve.get(idx);
         if (sLog.isDebugEnabled())
             sLog.debug("    -- variable " + variable);
+        ConflictCollector<T> conflicts = ConflictCollector.acquire();
         for (Iterator<T> e = values(context, variable); canContinueEvaluation(context) && e.hasNext();) {
             T value = e.next();
             T current = context.getAssignment().getValue(variable);
@@ -261,7 +263,8 @@ public class BacktrackNeighbourSelection<V extends Variable<V, T>, T extends Val
                 continue;
             if (sLog.isDebugEnabled())
                 sLog.debug("      -- value " + value);
-            Set<T> conflicts = context.getModel().conflictValues(context.getAssignment(), value);
+            conflicts.clear();
+            context.getModel().conflictValues(context.getAssignment(), value, conflicts);
             if (sLog.isDebugEnabled())
                 sLog.debug("      -- conflicts " + conflicts);
             if (!checkBound(variables2resolve, idx, depth, value, conflicts))
@@ -286,6 +289,7 @@ public class BacktrackNeighbourSelection<V extends Variable<V, T>, T extends Val
                 context.getAssignment().assign(0, conflict); 
             }
         }
+        conflicts.release();
     }
 
     /** Backtracking neighbour */
@@ -2,15 +2,18 @@ package org.cpsolver.ifs.heuristics;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.context.AssignmentContextHelper;
 import org.cpsolver.ifs.extension.ConflictStatistics;
 import org.cpsolver.ifs.extension.Extension;
 import org.cpsolver.ifs.extension.MacPropagation;
 import org.cpsolver.ifs.extension.ViolatedInitials;
+import org.cpsolver.ifs.model.ConflictCollector;
 import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
@@ -66,6 +69,17 @@ import org.cpsolver.ifs.util.ToolBox;
  * always), the selection is made only among good values (not removed from the
  * domain).</td>
  * </tr>
+ * <tr>
+ * <td>Value.ScoringThreads</td>
+ * <td>{@link Integer}</td>
+ * <td>Number of threads scoring the values in parallel (see {@link ParallelValueScoring},
+ * 1 means no parallel scoring)</td>
+ * </tr>
+ * <tr>
+ * <td>Value.ScoringMinValues</td>
+ * <td>{@link Integer}</td>
+ * <td>Minimal number of values for the parallel scoring to be used</td>
+ * </tr>
  * </table>
  * <br>
  * Following weights are used in the weighted sum (computed for all values). The
@@ -154,6 +168,7 @@ public class GeneralValueSelection<V extends Variable<V, T>, T extends Value<V,
     private ConflictStatistics<V, T> iStat = null;
     private MacPropagation<V, T> iProp = null;
     private ViolatedInitials<V, T> iViolatedInitials = null;
+    private ParallelValueScoring iScoring = null;
 
     public GeneralValueSelection() {
     }
@@ -194,6 +209,9 @@ public class GeneralValueSelection<V extends Variable<V, T>, T extends Value<V,
             if (ViolatedInitials.class.isInstance(extension))
                 iViolatedInitials = (ViolatedInitials<V, T>) extension;
         }
+        iScoring = solver.getValueScoring("Value");
+        if (!iScoring.isEnabled())
+            iScoring = null;
     }
 
     /** Value selection */
@@ -202,10 +220,10 @@ public class GeneralValueSelection<V extends Variable<V, T>, T extends Value<V,
         if (iMPP) {
             if (selectedVariable.getInitialAssignment() != null) {
                 if (solution.getModel().variables().size() == solution.getAssignment().nrAssignedVariables()) {
-                    if (solution.getModel().perturbVariables(solution.getAssignment()).size() <= iMPPLimit)
-                        iMPPLimit = solution.getModel().perturbVariables(solution.getAssignment()).size() - 1;
+                    if (solution.getModel().nrPerturbVariables(solution.getAssignment()) <= iMPPLimit)
+                        iMPPLimit = solution.getModel().nrPerturbVariables(solution.getAssignment()) - 1;
                 }
-                if (iMPPLimit >= 0 && solution.getModel().perturbVariables(solution.getAssignment()).size() > iMPPLimit)
+                if (iMPPLimit >= 0 && solution.getModel().nrPerturbVariables(solution.getAssignment()) > iMPPLimit)
                     return selectedVariable.getInitialAssignment();
                 if (selectedVariable.getInitialAssignment() != null && ToolBox.random() <= iInitialSelectionProb)
                     return selectedVariable.getInitialAssignment();
@@ -227,47 +245,25 @@ public class GeneralValueSelection<V extends Variable<V, T>, T extends Value<V,
         List<T> bestValues = null;
         double bestWeightedSum = 0;
 
-        for (T value : values) {
-            if (iTabu != null && iTabu.contains(value))
-                continue;
-            if (oldValue != null && oldValue.equals(value))
-                continue;
-
-            Collection<T> conf = solution.getModel().conflictValues(solution.getAssignment(), value);
-            if (conf.contains(value))
-                continue;
-
-            double weightedConflicts = (iStat == null || iWeightWeightedCoflicts == 0.0 ? 0.0 : iStat.countRemovals(solution.getIteration(), conf, value));
-            double potentialConflicts = (iStat == null || iWeightPotentialConflicts == 0.0 ? 0.0 : iStat.countPotentialConflicts(solution.getAssignment(), solution.getIteration(), value, 3));
-
-            long deltaInitialAssignments = 0;
-            if (iMPP && iWeightDeltaInitialAssignment != 0.0) {
-                if (iViolatedInitials != null) {
-                    Set<T> violations = iViolatedInitials.getViolatedInitials(value);
-                    if (violations != null) {
-                        for (T aValue : violations) {
-                            T aOld = solution.getAssignment().getValue(aValue.variable());
-                            if (aOld == null || aOld.equals(aValue))
-                                deltaInitialAssignments += 2;
-                        }
-                    }
-                }
-                for (Iterator<T> it1 = conf.iterator(); it1.hasNext();) {
-                    T aValue = it1.next();
-                    if (aValue.variable().getInitialAssignment() != null)
-                        deltaInitialAssignments--;
-                }
-                if (selectedVariable.getInitialAssignment() != null
-                        && !selectedVariable.getInitialAssignment().equals(value)) {
-                    deltaInitialAssignments++;
+        List<Double> scores = null;
+        if (iScoring != null && iScoring.isParallel(values)) {
+            final Solution<V, T> fSolution = solution;
+            final V fVariable = selectedVariable;
+            final T fOldValue = oldValue;
+            AssignmentContextHelper.ensureInitialized(solution.getModel(), solution.getAssignment(), Collections.singleton(selectedVariable));
+            scores = iScoring.score(values, new ParallelValueScoring.Scorer<T, Double>() {
+                @Override
+                public Double score(T value) {
+                    return getWeightedSum(fSolution, fVariable, fOldValue, value);
                 }
-                if (iMPPLimit >= 0 && (solution.getModel().perturbVariables(solution.getAssignment()).size() + deltaInitialAssignments) > iMPPLimit)
-                    continue;
-            }
+            });
+        }
 
-            double weightedSum = (iWeightDeltaInitialAssignment * deltaInitialAssignments)
-                    + (iWeightPotentialConflicts * potentialConflicts) + (iWeightWeightedCoflicts * weightedConflicts)
-                    + (iWeightCoflicts * conf.size()) + (iWeightValue * value.toDouble(solution.getAssignment()));
+        for (int i = 0; i < values.size(); i++) {
+            T value = values.get(i);
+            Double weightedSum = (scores == null ? getWeightedSum(solution, selectedVariable, oldValue, value) : scores.get(i));
+            if (weightedSum == null)
+                continue;
 
             if (bestValues == null || bestWeightedSum > weightedSum) {
                 bestWeightedSum = weightedSum;
@@ -295,4 +291,71 @@ public class GeneralValueSelection<V extends Variable<V, T>, T extends Value<V,
         return (bestValues == null ? null : selectedValue);
     }
 
+    /**
+     * Weighted sum of the given value (the lower, the better)
+     * @param solution current solution
+     * @param selectedVariable selected variable
+     * @param oldValue current value of the selected variable
+     * @param value a value to score
+     * @return weighted sum of the value, null if the value cannot be selected
+     */
+    protected Double getWeightedSum(Solution<V, T> solution, V selectedVariable, T oldValue, T value) {
+        if (iTabu != null && iTabu.contains(value))
+            return null;
+        if (oldValue != null && oldValue.equals(value))
+            return null;
+
+        ConflictCollector<T> conf = ConflictCollector.acquire();
+        try {
+            return getWeightedSum(solution, selectedVariable, value, solution.getModel().conflictValues(solution.getAssignment(), value, conf));
+        } finally {
+            conf.release();
+        }
+    }
+
+    /**
+     * Weighted sum of the given value with the given conflicts (the lower, the better)
+     * @param solution current solution
+     * @param selectedVariable selected variable
+     * @param value a value to score
+     * @param conf conflicting values of the given value
+     * @return weighted sum of the value, null if the value cannot be selected
+     */
+    protected Double getWeightedSum(Solution<V, T> solution, V selectedVariable, T value, Collection<T> conf) {
+        if (conf.contains(value))
+            return null;
+
+        double weightedConflicts = (iStat == null || iWeightWeightedCoflicts == 0.0 ? 0.0 : iStat.countRemovals(solution.getIteration(), conf, value));
+        double potentialConflicts = (iStat == null || iWeightPotentialConflicts == 0.0 ? 0.0 : iStat.countPotentialConflicts(solution.getAssignment(), solution.getIteration(), value, 3));
+
+        long deltaInitialAssignments = 0;
+        if (iMPP && iWeightDeltaInitialAssignment != 0.0) {
+            if (iViolatedInitials != null) {
+                Set<T> violations = iViolatedInitials.getViolatedInitials(value);
+                if (violations != null) {
+                    for (T aValue : violations) {
+                        T aOld = solution.getAssignment().getValue(aValue.variable());
+                        if (aOld == null || aOld.equals(aValue))
+                            deltaInitialAssignments += 2;
+                    }
+                }
+            }
+            for (Iterator<T> it1 = conf.iterator(); it1.hasNext();) {
+                T aValue = it1.next();
+                if (aValue.variable().getInitialAssignment() != null)
+                    deltaInitialAssignments--;
+            }
+            if (selectedVariable.getInitialAssignment() != null
+                    && !selectedVariable.getInitialAssignment().equals(value)) {
+                deltaInitialAssignments++;
+            }
+            if (iMPPLimit >= 0 && (solution.getModel().nrPerturbVariables(solution.getAssignment()) + deltaInitialAssignments) > iMPPLimit)
+                return null;
+        }
+
+        return (iWeightDeltaInitialAssignment * deltaInitialAssignments)
+                + (iWeightPotentialConflicts * potentialConflicts) + (iWeightWeightedCoflicts * weightedConflicts)
+                + (iWeightCoflicts * conf.size()) + (iWeightValue * value.toDouble(solution.getAssignment()));
+    }
+
 }
@@ -1,6 +1,7 @@
 package org.cpsolver.ifs.heuristics;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -153,24 +154,26 @@ public class GeneralVariableSelection<V extends Variable<V, T>, T extends Value<
                     }
                 }
             }
-            if (iRandomSelection)
-                return ToolBox.random(solution.getAssignment().unassignedVariables(solution.getModel()));
-            List<Integer> points = new ArrayList<Integer>();
+            // without initial values, all unassigned variables have the same weight
+            if (iRandomSelection || solution.getModel().variablesWithInitialValue().isEmpty())
+                return solution.getModel().randomUnassignedVariable(solution.getAssignment());
+            Collection<V> unassigned = solution.getAssignment().unassignedVariables(solution.getModel());
+            List<Integer> points = new ArrayList<Integer>(unassigned.size());
             int totalPoints = 0;
-            for (V variable : solution.getAssignment().unassignedVariables(solution.getModel())) {
+            for (V variable : unassigned) {
                 int pointsThisVariable = (variable.getInitialAssignment() != null ? 3 * (1 + solution.getModel().conflictValues(solution.getAssignment(), variable.getInitialAssignment()).size()) : 1);
                 totalPoints += pointsThisVariable;
                 points.add(totalPoints);
             }
             int rndPoints = ToolBox.random(totalPoints);
-            Iterator<V> x = solution.getAssignment().unassignedVariables(solution.getModel()).iterator();
+            Iterator<V> x = unassigned.iterator();
             for (int i = 0; x.hasNext() && i < points.size(); i++) {
                 V variable = x.next();
                 int tp = points.get(i);
                 if (tp > rndPoints)
                     return variable;
             }
-            return ToolBox.random(solution.getAssignment().unassignedVariables(solution.getModel()));
+            return ToolBox.random(unassigned);
         }
     }
 
@@ -0,0 +1,207 @@
+package org.cpsolver.ifs.heuristics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.cpsolver.ifs.util.DataProperties;
+
+/**
+ * Parallel scoring of value candidates. The given values are split into chunks that are
+ * scored by a pool of threads (the calling thread scores the first chunk), the scores are returned
+ * in the order of the given values. The caller then merges the scores sequentially, in the
+ * same order as when the values are scored one after another, so that the selection is deterministic
+ * (ties are broken the same way as in the sequential mode).<br>
+ * <br>
+ * The scoring is done against the current assignment, which must not be changed while the values
+ * are being scored. The scorer (e.g., {@link org.cpsolver.ifs.model.Model#conflictValues(org.cpsolver.ifs.assignment.Assignment, org.cpsolver.ifs.model.Value)}
+ * and the criteria) must be safe for concurrent reads. Since the assignment contexts are created lazily and their creation
+ * is not thread-safe, the caller must make sure that all the contexts the scoring may touch exist before the values are
+ * scored, typically by calling {@link org.cpsolver.ifs.assignment.context.AssignmentContextHelper#ensureInitialized(org.cpsolver.ifs.model.Model, org.cpsolver.ifs.assignment.Assignment, java.util.Collection)}
+ * with the variable whose values are scored (a constraint may skip its context for values that it is not concerned
+ * with, so scoring one value first is not enough).<br>
+ * <br>
+ * Parameters (the prefix is given by the value selection, e.g., Value or Placement):
+ * <ul>
+ * <li><i>prefix</i>.ScoringThreads ... number of scoring threads (defaults to 1, which disables the parallel scoring;
+ * zero or a negative number means the number of available processors)
+ * <li><i>prefix</i>.ScoringMinValues ... minimal number of values for the parallel scoring to be used (defaults to 100)
+ * </ul>
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class ParallelValueScoring {
+    private int iNrThreads = 1;
+    private int iMinValues = 100;
+    private ExecutorService iExecutor = null;
+
+    /**
+     * Scoring of a single value
+     * @param <T> value
+     * @param <S> score
+     */
+    public static interface Scorer<T, S> {
+        /**
+         * Compute score of a value
+         * @param value a value
+         * @return score of the value, null if the value is to be ignored
+         */
+        public S score(T value);
+    }
+
+    /**
+     * Constructor
+     * @param properties configuration
+     * @param prefix parameter prefix
+     */
+    public ParallelValueScoring(DataProperties properties, String prefix) {
+        iNrThreads = properties.getPropertyInt(prefix + ".ScoringThreads", 1);
+        if (iNrThreads <= 0)
+            iNrThreads = Runtime.getRuntime().availableProcessors();
+        iMinValues = properties.getPropertyInt(prefix + ".ScoringMinValues", iMinValues);
+    }
+
+    /**
+     * Constructor
+     * @param nrThreads number of scoring threads (1 disables the parallel scoring, zero or a negative number means the number of available processors)
+     * @param minValues minimal number of values for the parallel scoring to be used
+     */
+    public ParallelValueScoring(int nrThreads, int minValues) {
+        iNrThreads = (nrThreads <= 0 ? Runtime.getRuntime().availableProcessors() : nrThreads);
+        iMinValues = minValues;
+    }
+
+    /**
+     * True if the parallel scoring is enabled
+     * @return true if there is more than one scoring thread
+     */
+    public boolean isEnabled() {
+        return iNrThreads > 1;
+    }
+
+    /**
+     * True if the given values should be scored in parallel
+     * @param values values to score
+     * @return true if the parallel scoring is enabled and there are enough values
+     */
+    public boolean isParallel(List<?> values) {
+        return iNrThreads > 1 && values.size() >= Math.max(2, iMinValues);
+    }
+
+    /**
+     * Number of scoring threads
+     * @return number of threads
+     */
+    public int getNrThreads() {
+        return iNrThreads;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (iExecutor == null) {
+            iExecutor = Executors.newFixedThreadPool(iNrThreads - 1, new ThreadFactory() {
+                private int iThreadId = 0;
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ValueScoring-" + (++iThreadId));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return iExecutor;
+    }
+
+    /**
+     * Score the given values. When {@link ParallelValueScoring#isParallel(List)} is false, the values are
+     * scored by the calling thread.
+     * @param values values to score
+     * @param scorer value scoring
+     * @param <T> value
+     * @param <S> score
+     * @return scores, in the same order as the given values (a score is null when the value is to be ignored)
+     */
+    public <T, S> List<S> score(final List<T> values, final Scorer<T, S> scorer) {
+        List<S> scores = new ArrayList<S>(values.size());
+        if (!isParallel(values)) {
+            for (T value: values)
+                scores.add(scorer.score(value));
+            return scores;
+        }
+        scores.add(scorer.score(values.get(0)));
+        int nrChunks = Math.min(values.size() - 1, 4 * iNrThreads);
+        int chunkSize = (values.size() - 1 + nrChunks - 1) / nrChunks;
+        List<Future<List<S>>> futures = new ArrayList<Future<List<S>>>(nrChunks);
+        for (int start = 1 + chunkSize; start < values.size(); start += chunkSize) {
+            final List<T> chunk = values.subList(start, Math.min(values.size(), start + chunkSize));
+            futures.add(getExecutor().submit(new Callable<List<S>>() {
+                @Override
+                public List<S> call() {
+                    List<S> ret = new ArrayList<S>(chunk.size());
+                    for (T value: chunk)
+                        ret.add(scorer.score(value));
+                    return ret;
+                }
+            }));
+        }
+        for (T value: values.subList(1, Math.min(values.size(), 1 + chunkSize)))
+            scores.add(scorer.score(value));
+        try {
+            for (Future<List<S>> future: futures)
+                scores.addAll(future.get());
+        } catch (InterruptedException e) {
+            for (Future<List<S>> future: futures)
+                future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Value scoring was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+        return scores;
+    }
+
+    /**
+     * Execute the given task by one of the scoring threads (e.g., when the work cannot be split into values scored
+     * by {@link ParallelValueScoring#score(List, Scorer)}). There are {@link ParallelValueScoring#getNrThreads()} - 1
+     * scoring threads, the calling thread is expected to do its share of the work.
+     * @param task a task to execute
+     * @param <S> result
+     * @return future result of the task
+     */
+    public <S> Future<S> submit(Callable<S> task) {
+        return getExecutor().submit(task);
+    }
+
+    /**
+     * Stop the scoring threads
+     */
+    public synchronized void dispose() {
+        if (iExecutor != null) {
+            iExecutor.shutdown();
+            iExecutor = null;
+        }
+    }
+}
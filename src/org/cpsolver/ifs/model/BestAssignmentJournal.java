@@ -0,0 +1,156 @@
+package org.cpsolver.ifs.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.context.AbstractClassWithContext;
+import org.cpsolver.ifs.assignment.context.AssignmentContext;
+
+/**
+ * Journal of the variables that have changed since the best solution was saved (see {@link Model#saveBest(Assignment)}).
+ * For each assignment, the context keeps the set of variables that have been assigned or unassigned since the
+ * assignment was last synchronized with the best solution, i.e., since the best solution was saved from
+ * or restored into the assignment. Each change of the best solution increments the best generation of the model
+ * (see {@link Model#getBestGeneration()}), the journal of an assignment is only valid when the assignment
+ * has been synchronized with the current generation. This way, {@link Model#saveBest(Assignment)} and
+ * {@link Model#restoreBest(Assignment)} only need to go through the changed variables instead of all the variables
+ * of the model. When the journal is not valid (e.g., the best solution was saved from a different assignment,
+ * cleared, or some best assignments were changed directly by {@link Variable#setBestAssignment(Value, long)}),
+ * all the variables are to be checked.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ *
+ * @param <V> Variable
+ * @param <T> Value
+ */
+public class BestAssignmentJournal<V extends Variable<V, T>, T extends Value<V, T>> extends AbstractClassWithContext<V, T, BestAssignmentJournal<V, T>.BestAssignmentJournalContext> {
+    private Model<V, T> iModel;
+
+    /**
+     * Constructor
+     * @param model problem model
+     */
+    public BestAssignmentJournal(Model<V, T> model) {
+        iModel = model;
+    }
+
+    @Override
+    public Model<V, T> getModel() {
+        return iModel;
+    }
+
+    @Override
+    public BestAssignmentJournalContext createAssignmentContext(Assignment<V, T> assignment) {
+        return new BestAssignmentJournalContext(assignment);
+    }
+
+    /**
+     * Called by the model when a value is assigned or unassigned
+     * @param assignment current assignment
+     * @param variable variable that has changed
+     */
+    public void changed(Assignment<V, T> assignment, V variable) {
+        getContext(assignment).changed(variable);
+    }
+
+    /**
+     * Variables that have changed since the assignment was synchronized with the best solution
+     * @param assignment current assignment
+     * @return changed variables, null if the journal is not valid (all the variables are to be checked)
+     */
+    public Set<V> getChangedVariables(Assignment<V, T> assignment) {
+        return getContext(assignment).getChangedVariables();
+    }
+
+    /**
+     * Mark the assignment as synchronized with the current best solution, clearing the journal
+     * @param assignment current assignment
+     */
+    public void synchronize(Assignment<V, T> assignment) {
+        getContext(assignment).synchronize();
+    }
+
+    /**
+     * Keep only the variables whose value differs from the best one
+     * @param assignment current assignment
+     */
+    public void retainDifferent(Assignment<V, T> assignment) {
+        getContext(assignment).retainDifferent(assignment);
+    }
+
+    /**
+     * Changes of an assignment since its last synchronization with the best solution
+     */
+    public class BestAssignmentJournalContext implements AssignmentContext {
+        private Set<V> iChanged = new HashSet<V>();
+        private long iGeneration = -1;
+
+        /**
+         * Constructor
+         * @param assignment current assignment
+         */
+        public BestAssignmentJournalContext(Assignment<V, T> assignment) {
+        }
+
+        /**
+         * Record a change of a variable (only when the journal is valid)
+         * @param variable variable that has changed
+         */
+        public void changed(V variable) {
+            if (iGeneration == iModel.getBestGeneration())
+                iChanged.add(variable);
+        }
+
+        /**
+         * Changed variables
+         * @return changed variables, null if the journal is not valid
+         */
+        public Set<V> getChangedVariables() {
+            if (iGeneration != iModel.getBestGeneration()) return null;
+            return iChanged;
+        }
+
+        /**
+         * Clear the journal and mark it valid for the current best generation
+         */
+        public void synchronize() {
+            iChanged.clear();
+            iGeneration = iModel.getBestGeneration();
+        }
+
+        /**
+         * Keep only the variables whose value differs from the best one (e.g., after the best solution has been restored)
+         * @param assignment current assignment
+         */
+        public void retainDifferent(Assignment<V, T> assignment) {
+            if (iGeneration != iModel.getBestGeneration()) return;
+            List<V> same = new ArrayList<V>();
+            for (V variable: iChanged) {
+                T value = assignment.getValue(variable);
+                if (value == null ? variable.getBestAssignment() == null : value.equals(variable.getBestAssignment()))
+                    same.add(variable);
+            }
+            iChanged.removeAll(same);
+        }
+    }
+}
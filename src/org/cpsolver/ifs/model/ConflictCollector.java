@@ -0,0 +1,215 @@
+package org.cpsolver.ifs.model;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reusable set of conflicting values (see {@link Model#conflictValues(org.cpsolver.ifs.assignment.Assignment, Value, java.util.Set)}).
+ * The values are kept in an array, with an open addressing table pointing into the array. Unlike {@link java.util.HashSet},
+ * the values are compared by their identity (not using {@link Object#equals(Object)}), which is fine for the conflicts
+ * as these are the values of the current assignment, and a cleared collector keeps its arrays, so that no objects are
+ * allocated when the collector is used again.<br>
+ * <br>
+ * Collectors are taken from a pool of the current thread by {@link ConflictCollector#acquire()} and they must be
+ * returned by {@link ConflictCollector#release()} when no longer needed (the collector must not be used afterwards),
+ * typically as follows:
+ * <pre><code>
+ * ConflictCollector&lt;T&gt; conflicts = ConflictCollector.acquire();
+ * try {
+ *     model.conflictValues(assignment, value, conflicts);
+ *     ...
+ * } finally {
+ *     conflicts.release();
+ * }
+ * </code></pre>
+ * Nested calls get different collectors, so the pattern can be also used in recursive searches. A collector that is
+ * not released (e.g., because of an exception) is simply not reused, so a loop can also acquire a collector before it starts
+ * and release it after it ends, without the try-finally block.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ *
+ * @param <T> Value
+ */
+public class ConflictCollector<T> extends AbstractSet<T> {
+    private static int sMaxPoolSize = 32;
+    private static ThreadLocal<List<ConflictCollector<?>>> sPool = new ThreadLocal<List<ConflictCollector<?>>>() {
+        @Override
+        protected List<ConflictCollector<?>> initialValue() {
+            return new ArrayList<ConflictCollector<?>>();
+        }
+    };
+    private Object[] iElements = new Object[16];
+    private int[] iTable = new int[32];
+    private int iSize = 0;
+    private boolean iAcquired = false;
+
+    /**
+     * Take a collector from the pool of the current thread (a new collector is created when the pool is empty)
+     * @param <T> Value
+     * @return an empty collector
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ConflictCollector<T> acquire() {
+        List<ConflictCollector<?>> pool = sPool.get();
+        ConflictCollector<T> collector = (pool.isEmpty() ? new ConflictCollector<T>() : (ConflictCollector<T>)pool.remove(pool.size() - 1));
+        collector.iAcquired = true;
+        return collector;
+    }
+
+    /**
+     * Clear the collector and return it to the pool of the current thread
+     */
+    public void release() {
+        if (!iAcquired) return;
+        iAcquired = false;
+        clear();
+        List<ConflictCollector<?>> pool = sPool.get();
+        if (pool.size() < sMaxPoolSize)
+            pool.add(this);
+    }
+
+    private static int hash(Object o, int mask) {
+        int h = System.identityHashCode(o);
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /** Slot of the table containing the given object, -1 if not present */
+    private int slot(Object o) {
+        int mask = iTable.length - 1;
+        for (int slot = hash(o, mask); ; slot = (slot + 1) & mask) {
+            int pos = iTable[slot] - 1;
+            if (pos < 0) return -1;
+            if (iElements[pos] == o) return slot;
+        }
+    }
+
+    private void index(int pos) {
+        int mask = iTable.length - 1;
+        int slot = hash(iElements[pos], mask);
+        while (iTable[slot] != 0) slot = (slot + 1) & mask;
+        iTable[slot] = pos + 1;
+    }
+
+    @Override
+    public boolean add(T value) {
+        if (value == null) throw new NullPointerException("Conflicting value cannot be null.");
+        if (iSize > 0 && slot(value) >= 0) return false;
+        if (iSize == iElements.length) {
+            iElements = Arrays.copyOf(iElements, 2 * iSize);
+            iTable = new int[4 * iSize];
+            for (int i = 0; i < iSize; i++)
+                index(i);
+        }
+        iElements[iSize] = value;
+        index(iSize++);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && iSize > 0 && slot(o) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null || iSize == 0) return false;
+        int slot = slot(o);
+        if (slot < 0) return false;
+        removeAt(slot);
+        return true;
+    }
+
+    /** Remove the element referenced by the given slot, the last element is moved to its place */
+    private void removeAt(int slot) {
+        int pos = iTable[slot] - 1;
+        delete(slot);
+        int last = --iSize;
+        if (pos != last) {
+            int lastSlot = slot(iElements[last]);
+            iElements[pos] = iElements[last];
+            iTable[lastSlot] = pos + 1;
+        }
+        iElements[last] = null;
+    }
+
+    /** Delete a slot of the table, shifting back the following entries of the same cluster */
+    private void delete(int slot) {
+        int mask = iTable.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; iTable[next] != 0; next = (next + 1) & mask) {
+            int home = hash(iElements[iTable[next] - 1], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                iTable[hole] = iTable[next];
+                hole = next;
+            }
+        }
+        iTable[hole] = 0;
+    }
+
+    @Override
+    public void clear() {
+        if (iSize == 0) return;
+        Arrays.fill(iElements, 0, iSize, null);
+        Arrays.fill(iTable, 0);
+        iSize = 0;
+    }
+
+    @Override
+    public int size() {
+        return iSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return iSize == 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int iNext = 0;
+            private boolean iCanRemove = false;
+
+            @Override
+            public boolean hasNext() {
+                return iNext < iSize;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (iNext >= iSize) throw new NoSuchElementException();
+                iCanRemove = true;
+                return (T)iElements[iNext++];
+            }
+
+            @Override
+            public void remove() {
+                if (!iCanRemove) throw new IllegalStateException();
+                iCanRemove = false;
+                removeAt(slot(iElements[--iNext]));
+            }
+        };
+    }
+}
@@ -0,0 +1,240 @@
+package org.cpsolver.ifs.model;
+
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.cpsolver.ifs.assignment.Assignment;
+
+/**
+ * Adaptive ordering of the constraints checked by {@link Model#inConflict(Assignment, Value)}. For each variable, a
+ * lightweight profile of its hard constraints and of the global constraints of the model is kept: how many times
+ * each constraint has been checked, how many times it has rejected a value, and (on a sample of the checks) how long
+ * the check took. Every {@link ConstraintOrdering#getReorderInterval()} checks of a variable, its constraints are
+ * re-ordered by their rejection rate divided by their average cost, so that the most selective and the cheapest
+ * constraints are checked first. Since the check stops at the first conflicting constraint, the order has no impact
+ * on the result (constraint checks are expected to have no side effects).<br>
+ * <br>
+ * The profiles are updated without any synchronization, so the counts may be slightly off when a variable is checked
+ * by multiple threads at the same time, which has no impact on the correctness (the order is always replaced at once).
+ * The profile of a variable is rebuilt when a constraint is added or removed from the model, or when the number of
+ * hard constraints of the variable changes. The per-constraint counts, aggregated by constraint class, are
+ * included in the extended info of the model (see {@link ConstraintOrdering#getInfo(Map)}).
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ *
+ * @param <V> Variable
+ * @param <T> Value
+ */
+public class ConstraintOrdering<V extends Variable<V, T>, T extends Value<V, T>> {
+    private static DecimalFormat sDF = new DecimalFormat("0.00");
+    private Model<V, T> iModel;
+    private volatile Object[] iProfiles = new Object[0];
+    private volatile long iGeneration = 0;
+    private int iReorderInterval = 1024;
+    private int iSampleMask = 15;
+
+    /**
+     * Constructor
+     * @param model problem model
+     */
+    public ConstraintOrdering(Model<V, T> model) {
+        iModel = model;
+    }
+
+    /**
+     * Number of checks of a variable between two re-orderings of its constraints
+     * @return re-order interval
+     */
+    public int getReorderInterval() { return iReorderInterval; }
+
+    /**
+     * Number of checks of a variable between two re-orderings of its constraints
+     * @param interval re-order interval
+     */
+    public void setReorderInterval(int interval) { iReorderInterval = Math.max(1, interval); }
+
+    /**
+     * Time only one in 2^bits constraint checks (all checks are counted)
+     * @param bits sampling bits, 0 to time all the checks
+     */
+    public void setSampling(int bits) { iSampleMask = (1 << Math.max(0, bits)) - 1; }
+
+    /**
+     * Drop all the profiles, called by the model when a constraint is added or removed
+     */
+    public void invalidate() {
+        iGeneration ++;
+    }
+
+    /**
+     * Return true if the given value is in conflict with a hard constraint (see {@link Model#inConflict(Assignment, Value)})
+     * @param assignment current assignment
+     * @param value a value in question
+     * @return true if there is a conflict
+     */
+    public boolean inConflict(Assignment<V, T> assignment, T value) {
+        Profile profile = getProfile(value.variable());
+        if (profile != null)
+            return profile.inConflict(assignment, value);
+        for (Constraint<V, T> constraint : value.variable().hardConstraints())
+            if (constraint.inConflict(assignment, value))
+                return true;
+        for (GlobalConstraint<V, T> constraint : iModel.globalConstraints())
+            if (constraint.inConflict(assignment, value))
+                return true;
+        return false;
+    }
+
+    /** Profile of the given variable, null if the variable is not indexed */
+    @SuppressWarnings("unchecked")
+    private Profile getProfile(V variable) {
+        int index = variable.getIndex();
+        if (index < 0) return null;
+        Object[] profiles = iProfiles;
+        Profile profile = (index < profiles.length ? (Profile)profiles[index] : null);
+        if (profile != null && profile.isValid(variable)) return profile;
+        profile = new Profile(variable);
+        synchronized (this) {
+            profiles = iProfiles;
+            if (index >= profiles.length)
+                profiles = Arrays.copyOf(profiles, Math.max(index + 1, Math.max(16, 2 * profiles.length)));
+            profiles[index] = profile;
+            iProfiles = profiles;
+        }
+        return profile;
+    }
+
+    /**
+     * Per-constraint statistics, aggregated by constraint class
+     * @param info info table to be updated
+     */
+    @SuppressWarnings("unchecked")
+    public void getInfo(Map<String, String> info) {
+        Map<String, long[]> stats = new TreeMap<String, long[]>();
+        Object[] profiles = iProfiles;
+        for (Object o: profiles) {
+            Profile profile = (Profile)o;
+            if (profile == null || profile.iGeneration != iGeneration) continue;
+            for (int i = 0; i < profile.iConstraints.length; i++) {
+                String name = profile.iConstraints[i].getClass().getSimpleName();
+                long[] s = stats.get(name);
+                if (s == null) { s = new long[4]; stats.put(name, s); }
+                s[0] += profile.iChecks[i]; s[1] += profile.iRejections[i]; s[2] += profile.iTime[i]; s[3] += profile.iTimed[i];
+            }
+        }
+        for (Map.Entry<String, long[]> e: stats.entrySet()) {
+            long[] s = e.getValue();
+            if (s[0] == 0) continue;
+            info.put("Constraint " + e.getKey(), s[0] + " checks, " + sDF.format(100.0 * s[1] / s[0]) + "% rejected" +
+                    (s[3] == 0 ? "" : ", " + sDF.format(((double)s[2]) / s[3]) + " ns per check"));
+        }
+    }
+
+    /** Create an array of constraints */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Constraint<V, T>[] newConstraintArray(int size) {
+        return new Constraint[size];
+    }
+
+    /**
+     * Constraint profile of a variable
+     */
+    private class Profile {
+        private final long iGeneration;
+        private final Constraint<V, T>[] iConstraints;
+        private final long[] iChecks, iRejections, iTime, iTimed;
+        private volatile int[] iOrder;
+        private int iCalls = 0;
+
+        Profile(V variable) {
+            iGeneration = ConstraintOrdering.this.iGeneration;
+            List<Constraint<V, T>> hard = variable.hardConstraints();
+            List<GlobalConstraint<V, T>> global = iModel.globalConstraints();
+            Constraint<V, T>[] constraints = newConstraintArray(hard.size() + global.size());
+            int idx = 0;
+            for (Constraint<V, T> constraint: hard)
+                constraints[idx++] = constraint;
+            for (Constraint<V, T> constraint: global)
+                constraints[idx++] = constraint;
+            iConstraints = constraints;
+            int[] order = new int[iConstraints.length];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            iOrder = order;
+            iChecks = new long[iConstraints.length];
+            iRejections = new long[iConstraints.length];
+            iTime = new long[iConstraints.length];
+            iTimed = new long[iConstraints.length];
+        }
+
+        boolean isValid(V variable) {
+            return iGeneration == ConstraintOrdering.this.iGeneration &&
+                    iConstraints.length == variable.hardConstraints().size() + iModel.globalConstraints().size();
+        }
+
+        boolean inConflict(Assignment<V, T> assignment, T value) {
+            int[] order = iOrder;
+            int calls = ++iCalls;
+            boolean sample = ((calls & iSampleMask) == 0);
+            boolean conflict = false;
+            for (int i: order) {
+                long t0 = (sample ? System.nanoTime() : 0);
+                conflict = iConstraints[i].inConflict(assignment, value);
+                if (sample) {
+                    iTime[i] += System.nanoTime() - t0; iTimed[i] ++;
+                }
+                iChecks[i] ++;
+                if (conflict) {
+                    iRejections[i] ++;
+                    break;
+                }
+            }
+            if (calls % iReorderInterval == 0 && order.length > 1)
+                reorder();
+            return conflict;
+        }
+
+        private void reorder() {
+            final double[] score = new double[iConstraints.length];
+            Integer[] order = new Integer[iConstraints.length];
+            for (int i = 0; i < iConstraints.length; i++) {
+                order[i] = i;
+                double rate = (iRejections[i] + 1.0) / (iChecks[i] + 2.0);
+                double cost = (iTimed[i] == 0 ? 1.0 : Math.max(1.0, ((double)iTime[i]) / iTimed[i]));
+                score[i] = rate / cost;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i1, Integer i2) {
+                    int cmp = Double.compare(score[i2], score[i1]);
+                    return (cmp != 0 ? cmp : i1.compareTo(i2));
+                }
+            });
+            int[] newOrder = new int[order.length];
+            for (int i = 0; i < order.length; i++)
+                newOrder[i] = order[i];
+            iOrder = newOrder;
+        }
+    }
+}
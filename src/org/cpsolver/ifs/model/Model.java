@@ -15,16 +15,20 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.cpsolver.coursett.criteria.TimetablingCriterion;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.AssignmentAbstract;
 import org.cpsolver.ifs.assignment.DefaultInheritedAssignment;
 import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
 import org.cpsolver.ifs.assignment.EmptyAssignment;
 import org.cpsolver.ifs.assignment.InheritedAssignment;
 import org.cpsolver.ifs.assignment.context.AssignmentContext;
+import org.cpsolver.ifs.assignment.context.AssignmentContextHelper;
 import org.cpsolver.ifs.assignment.context.AssignmentContextReference;
 import org.cpsolver.ifs.assignment.context.HasAssignmentContext;
 import org.cpsolver.ifs.criteria.Criterion;
+import org.cpsolver.ifs.heuristics.ParallelValueScoring;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.solver.Solver;
+import org.cpsolver.ifs.solver.SolverMetrics;
 import org.cpsolver.ifs.util.ToolBox;
 
 
@@ -94,6 +98,12 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     private List<GlobalConstraint<V, T>> iGlobalConstraints = new ArrayList<GlobalConstraint<V, T>>();
     private Collection<V> iVariablesWithInitialValueCache = null;
     private final ReentrantReadWriteLock iVariablesWithInitialValueLock = new ReentrantReadWriteLock();
+    private volatile PerturbedVariables<V, T> iPerturbedVariables = null;
+    private volatile BestAssignmentJournal<V, T> iBestAssignmentJournal = null;
+    private volatile UnassignedVariables<V, T> iUnassignedVariables = null;
+    private volatile long iBestGeneration = 0;
+    private volatile ConstraintOrdering<V, T> iConstraintOrdering = null;
+    private volatile ParallelValueScoring iInfoScoring = null;
 
     private List<ModelListener<V, T>> iModelListeners = new ArrayList<ModelListener<V, T>>();
     private List<InfoProvider<V, T>> iInfoProviders = new ArrayList<InfoProvider<V, T>>();
@@ -140,6 +150,8 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         for (ModelListener<V, T> listener : iModelListeners)
             listener.variableAdded(variable);
         invalidateVariablesWithInitialValueCache();
+        invalidateBestGeneration();
+        invalidateUnassignedVariables();
     }
 
     /** Removes a variable from the model
@@ -154,6 +166,8 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         for (ModelListener<V, T> listener : iModelListeners)
             listener.variableRemoved(variable);
         invalidateVariablesWithInitialValueCache();
+        invalidateBestGeneration();
+        invalidateUnassignedVariables();
         if (variable instanceof HasAssignmentContext)
             removeReference((HasAssignmentContext<V, T, ?>)variable);
     }
@@ -179,6 +193,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     public void addConstraint(Constraint<V, T> constraint) {
         constraint.setModel(this);
         iConstraints.add(constraint);
+        invalidateConstraintOrdering();
         if (constraint instanceof InfoProvider<?, ?>)
             iInfoProviders.add((InfoProvider<V, T>) constraint);
         for (ModelListener<V, T> listener : iModelListeners)
@@ -192,6 +207,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     public void removeConstraint(Constraint<V, T> constraint) {
         constraint.setModel(null);
         iConstraints.remove(constraint);
+        invalidateConstraintOrdering();
         if (constraint instanceof InfoProvider<?, ?>)
             iInfoProviders.remove(constraint);
         for (ModelListener<V, T> listener : iModelListeners)
@@ -221,6 +237,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     public void addGlobalConstraint(GlobalConstraint<V, T> constraint) {
         constraint.setModel(this);
         iGlobalConstraints.add(constraint);
+        invalidateConstraintOrdering();
         if (constraint instanceof InfoProvider<?, ?>)
             iInfoProviders.add((InfoProvider<V, T>) constraint);
         for (ModelListener<V, T> listener : iModelListeners)
@@ -234,6 +251,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     public void removeGlobalConstraint(GlobalConstraint<V, T> constraint) {
         constraint.setModel(null);
         iGlobalConstraints.remove(constraint);
+        invalidateConstraintOrdering();
         if (constraint instanceof InfoProvider<?, ?>)
             iInfoProviders.remove(constraint);
         for (ModelListener<V, T> listener : iModelListeners)
@@ -278,6 +296,45 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         return assignment.nrUnassignedVariables(this);
     }
 
+    /** A randomly selected unassigned variable. For assignments that notify the model about their changes
+     * (see {@link AssignmentAbstract#randomUnassignedVariable(Model)}), the selection is done in a constant time
+     * using the {@link UnassignedVariables} index.
+     * @param assignment current assignment
+     * @return a random unassigned variable, null if all variables are assigned
+     **/
+    public V randomUnassignedVariable(Assignment<V, T> assignment) {
+        if (assignment instanceof AssignmentAbstract)
+            return ((AssignmentAbstract<V, T>)assignment).randomUnassignedVariable(this);
+        return ToolBox.random(assignment.unassignedVariables(this));
+    }
+
+    /**
+     * Index of unassigned variables, for each assignment (created when needed)
+     * @return unassigned variables index
+     */
+    public UnassignedVariables<V, T> getUnassignedVariables() {
+        UnassignedVariables<V, T> unassignedVariables = iUnassignedVariables;
+        if (unassignedVariables == null) {
+            synchronized (this) {
+                unassignedVariables = iUnassignedVariables;
+                if (unassignedVariables == null) {
+                    unassignedVariables = new UnassignedVariables<V, T>(this);
+                    iUnassignedVariables = unassignedVariables;
+                }
+            }
+        }
+        return unassignedVariables;
+    }
+
+    /** Invalidates the index of unassigned variables (e.g., when a variable is added or removed) */
+    protected void invalidateUnassignedVariables() {
+        UnassignedVariables<V, T> unassignedVariables = iUnassignedVariables;
+        if (unassignedVariables != null) {
+            iUnassignedVariables = null;
+            removeReference(unassignedVariables);
+        }
+    }
+
     /**
      * The list of assigned variables in the model.
      * Use {@link Model#assignedVariables(Assignment)} or {@link Assignment#assignedVariables()} instead.
@@ -332,7 +389,36 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      * @return list of perturbation variables in the model
      */
     public Collection<V> perturbVariables(Assignment<V, T> assignment) {
-        return perturbVariables(assignment, variablesWithInitialValue());
+        return getPerturbedVariables().perturbVariables(assignment);
+    }
+    
+    /**
+     * Number of perturbation variables in the model, i.e., the variables
+     * which has an initial value but which are not assigned with this value.
+     * This is the same as the size of {@link Model#perturbVariables(Assignment)}, but the list is not created.
+     * @param assignment current assignment
+     * @return number of perturbation variables in the model
+     */
+    public int nrPerturbVariables(Assignment<V, T> assignment) {
+        return getPerturbedVariables().nrPerturbVariables(assignment);
+    }
+    
+    /**
+     * Incrementally maintained perturbations of the model (created when needed)
+     * @return perturbed variables tracker
+     */
+    protected PerturbedVariables<V, T> getPerturbedVariables() {
+        PerturbedVariables<V, T> perturbedVariables = iPerturbedVariables;
+        if (perturbedVariables == null) {
+            synchronized (this) {
+                perturbedVariables = iPerturbedVariables;
+                if (perturbedVariables == null) {
+                    perturbedVariables = new PerturbedVariables<V, T>(this);
+                    iPerturbedVariables = perturbedVariables;
+                }
+            }
+        }
+        return perturbedVariables;
     }
     
     /**
@@ -407,12 +493,26 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      * @return a set of conflicting values, i.e., values that would have to be unassigned if the given value is assigned to its variable
      */
     public Set<T> conflictValues(Assignment<V, T> assignment, T value) {
-        Set<T> conflictValues = new HashSet<T>();
+        return conflictValues(assignment, value, new HashSet<T>());
+    }
+
+    /**
+     * Computes the set of conflicting values with this value, if it is assigned to its variable, into the given set.
+     * This is to be used with a reusable set (see {@link ConflictCollector}) to avoid creating a new set on each call.
+     * @param assignment current assignment
+     * @param value a value to be assigned
+     * @param conflicts a set into which the conflicting values are added (the set is not cleared first)
+     * @return the given set of conflicting values
+     */
+    public Set<T> conflictValues(Assignment<V, T> assignment, T value, Set<T> conflicts) {
+        SolverMetrics.Counters metrics = SolverMetrics.current();
+        long t0 = (metrics == null ? 0 : System.nanoTime());
         for (Constraint<V, T> constraint : value.variable().hardConstraints())
-            constraint.computeConflicts(assignment, value, conflictValues);
+            constraint.computeConflicts(assignment, value, conflicts);
         for (GlobalConstraint<V, T> constraint : globalConstraints())
-            constraint.computeConflicts(assignment, value, conflictValues);
-        return conflictValues;
+            constraint.computeConflicts(assignment, value, conflicts);
+        if (metrics != null) metrics.record(SolverMetrics.Metric.ConflictValues, t0);
+        return conflicts;
     }
 
     /**
@@ -432,6 +532,19 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      * @return true if there is a conflict, i.e., there is at least one value that would have to be unassigned if the given value is assigned to its variable
      **/
     public boolean inConflict(Assignment<V, T> assignment, T value) {
+        SolverMetrics.Counters metrics = SolverMetrics.current();
+        boolean conflict = inConflictNoMetrics(assignment, value);
+        if (metrics != null) {
+            metrics.inc(SolverMetrics.Metric.InConflict);
+            if (conflict) metrics.inc(SolverMetrics.Metric.InConflictRejected);
+        }
+        return conflict;
+    }
+    
+    private boolean inConflictNoMetrics(Assignment<V, T> assignment, T value) {
+        ConstraintOrdering<V, T> ordering = iConstraintOrdering;
+        if (ordering != null)
+            return ordering.inConflict(assignment, value);
         for (Constraint<V, T> constraint : value.variable().hardConstraints())
             if (constraint.inConflict(assignment, value))
                 return true;
@@ -440,6 +553,35 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
                 return true;
         return false;
     }
+    
+    /**
+     * Enable or disable the adaptive ordering of the constraints checked by {@link Model#inConflict(Assignment, Value)}
+     * (see {@link ConstraintOrdering}). When enabled, the per-constraint check and rejection counts are included in
+     * the extended info of the model.
+     * @param enabled true to enable the ordering, false to check the constraints in the order in which they were added
+     */
+    public void setConstraintOrdering(boolean enabled) {
+        if (enabled) {
+            if (iConstraintOrdering == null)
+                iConstraintOrdering = new ConstraintOrdering<V, T>(this);
+        } else {
+            iConstraintOrdering = null;
+        }
+    }
+    
+    /**
+     * Adaptive ordering of the constraints checked by {@link Model#inConflict(Assignment, Value)}
+     * @return constraint ordering, null if disabled
+     */
+    public ConstraintOrdering<V, T> getConstraintOrdering() {
+        return iConstraintOrdering;
+    }
+    
+    /** Drop the constraint profiles of the adaptive ordering, called when a constraint is added or removed */
+    protected void invalidateConstraintOrdering() {
+        ConstraintOrdering<V, T> ordering = iConstraintOrdering;
+        if (ordering != null) ordering.invalidate();
+    }
 
     /** The list of variables with an initial value (i.e., variables with {@link Variable#getInitialAssignment()} not null)
      * @return list of variables with an initial value 
@@ -472,6 +614,12 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         iVariablesWithInitialValueLock.writeLock().lock();
         iVariablesWithInitialValueCache = null;
         iVariablesWithInitialValueLock.writeLock().unlock();
+        // perturbations are to be recomputed (using a new assignment context reference)
+        PerturbedVariables<V, T> perturbedVariables = iPerturbedVariables;
+        if (perturbedVariables != null) {
+            iPerturbedVariables = null;
+            removeReference(perturbedVariables);
+        }
     }
     
     /** Called before a value is assigned to its variable
@@ -489,8 +637,12 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      **/
     public void beforeAssigned(Assignment<V, T> assignment, long iteration, T value) {
         beforeAssigned(iteration, value);
-        for (ModelListener<V, T> listener : iModelListeners)
+        SolverMetrics.Counters metrics = SolverMetrics.current();
+        for (ModelListener<V, T> listener : iModelListeners) {
+            long t0 = (metrics == null ? 0 : System.nanoTime());
             listener.beforeAssigned(assignment, iteration, value);
+            if (metrics != null) metrics.record(listener, t0);
+        }
     }
 
     /** Called before a value is unassigned from its variable 
@@ -508,8 +660,12 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      **/
     public void beforeUnassigned(Assignment<V, T> assignment, long iteration, T value) {
         beforeUnassigned(iteration, value);
-        for (ModelListener<V, T> listener : iModelListeners)
+        SolverMetrics.Counters metrics = SolverMetrics.current();
+        for (ModelListener<V, T> listener : iModelListeners) {
+            long t0 = (metrics == null ? 0 : System.nanoTime());
             listener.beforeUnassigned(assignment, iteration, value);
+            if (metrics != null) metrics.record(listener, t0);
+        }
     }
 
     /** Called after a value is assigned to its variable
@@ -527,8 +683,15 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      **/
     public void afterAssigned(Assignment<V, T> assignment,  long iteration, T value) {
         afterAssigned(iteration, value);
-        for (ModelListener<V, T> listener : iModelListeners)
+        updatePerturbedVariables(assignment, value, true);
+        updateBestAssignmentJournal(assignment, value);
+        updateUnassignedVariables(assignment, value, true);
+        SolverMetrics.Counters metrics = SolverMetrics.current();
+        for (ModelListener<V, T> listener : iModelListeners) {
+            long t0 = (metrics == null ? 0 : System.nanoTime());
             listener.afterAssigned(assignment, iteration, value);
+            if (metrics != null) metrics.record(listener, t0);
+        }
     }
     
     /** Called after a value is unassigned from its variable
@@ -546,8 +709,97 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      **/
     public void afterUnassigned(Assignment<V, T> assignment, long iteration, T value) {
         afterUnassigned(iteration, value);
-        for (ModelListener<V, T> listener : iModelListeners)
+        updatePerturbedVariables(assignment, value, false);
+        updateBestAssignmentJournal(assignment, value);
+        updateUnassignedVariables(assignment, value, false);
+        SolverMetrics.Counters metrics = SolverMetrics.current();
+        for (ModelListener<V, T> listener : iModelListeners) {
+            long t0 = (metrics == null ? 0 : System.nanoTime());
             listener.afterUnassigned(assignment, iteration, value);
+            if (metrics != null) metrics.record(listener, t0);
+        }
+    }
+
+    /**
+     * Update the perturbations (see {@link Model#perturbVariables(Assignment)}) after a value is assigned or unassigned.
+     * Called by {@link Model#afterAssigned(Assignment, long, Value)} and {@link Model#afterUnassigned(Assignment, long, Value)}.
+     * @param assignment current assignment
+     * @param value a value that was assigned or unassigned
+     * @param assigned true if the value was assigned, false if unassigned
+     */
+    protected void updatePerturbedVariables(Assignment<V, T> assignment, T value, boolean assigned) {
+        if (value.variable().getInitialAssignment() == null) return;
+        PerturbedVariables<V, T> perturbedVariables = iPerturbedVariables;
+        if (perturbedVariables == null) return;
+        if (assigned)
+            perturbedVariables.assigned(assignment, value);
+        else
+            perturbedVariables.unassigned(assignment, value);
+    }
+
+    /**
+     * Record the change of a variable in the best assignment journal (see {@link BestAssignmentJournal}).
+     * Called by {@link Model#afterAssigned(Assignment, long, Value)} and {@link Model#afterUnassigned(Assignment, long, Value)}.
+     * @param assignment current assignment
+     * @param value a value that was assigned or unassigned
+     */
+    protected void updateBestAssignmentJournal(Assignment<V, T> assignment, T value) {
+        BestAssignmentJournal<V, T> journal = iBestAssignmentJournal;
+        if (journal != null)
+            journal.changed(assignment, value.variable());
+    }
+
+    /**
+     * Update the index of unassigned variables (see {@link UnassignedVariables}) after a value is assigned or unassigned.
+     * Called by {@link Model#afterAssigned(Assignment, long, Value)} and {@link Model#afterUnassigned(Assignment, long, Value)}.
+     * @param assignment current assignment
+     * @param value a value that was assigned or unassigned
+     * @param assigned true if the value was assigned, false if unassigned
+     */
+    protected void updateUnassignedVariables(Assignment<V, T> assignment, T value, boolean assigned) {
+        UnassignedVariables<V, T> unassignedVariables = iUnassignedVariables;
+        if (unassignedVariables == null) return;
+        if (assigned)
+            unassignedVariables.assigned(assignment, value.variable());
+        else
+            unassignedVariables.unassigned(assignment, value.variable());
+    }
+
+    /**
+     * Journal of the variables changed since the best solution was saved (created when needed)
+     * @return best assignment journal
+     */
+    protected BestAssignmentJournal<V, T> getBestAssignmentJournal() {
+        BestAssignmentJournal<V, T> journal = iBestAssignmentJournal;
+        if (journal == null) {
+            synchronized (this) {
+                journal = iBestAssignmentJournal;
+                if (journal == null) {
+                    journal = new BestAssignmentJournal<V, T>(this);
+                    iBestAssignmentJournal = journal;
+                }
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Generation of the best solution. It is incremented each time the best solution is changed (saved, cleared,
+     * or when a best assignment of a variable is changed directly), so that the best assignment journal of an assignment
+     * can tell whether it is still valid.
+     * @return current generation of the best solution
+     */
+    public long getBestGeneration() {
+        return iBestGeneration;
+    }
+
+    /**
+     * Increment the generation of the best solution, invalidating all the best assignment journals
+     * (see {@link BestAssignmentJournal}). Called when a best assignment of a variable is changed, or when
+     * a variable is added or removed.
+     */
+    protected synchronized void invalidateBestGeneration() {
+        iBestGeneration++;
     }
 
     @Override
@@ -617,8 +869,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
             ret.put("Perturbation variables", getPercRev(pv.size(), 0, nrVarsWithInitialValue) + "% (" + pv.size() + " + " + (variables().size() - nrVarsWithInitialValue) + ")");
         }
         ret.put("Overall solution value", sDoubleFormat.format(getTotalValue(assignment)));
-        for (InfoProvider<V, T> provider : iInfoProviders)
-            provider.getInfo(assignment, ret);
+        collectInfo(assignment, ret, false, null);
         return ret;
     }
     
@@ -643,9 +894,10 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      */
     public Map<String, String> getExtendedInfo(Assignment<V, T> assignment) {
         Map<String, String> ret = getInfo(assignment);
-        for (InfoProvider<V, T> provider : iInfoProviders)
-            if (provider instanceof ExtendedInfoProvider)
-                ((ExtendedInfoProvider<V, T>)provider).getExtendedInfo(assignment, ret);
+        collectInfo(assignment, ret, true, null);
+        ConstraintOrdering<V, T> ordering = iConstraintOrdering;
+        if (ordering != null)
+            ordering.getInfo(ret);
         return ret;
     }
     
@@ -707,10 +959,92 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
             ret.put("Perturbation variables", getPercRev(perturb, 0, nrVarsWithInitialValue) + "% (" + perturb + " + " + (variables.size() - nrVarsWithInitialValue) + ")");
         }
         ret.put("Overall solution value", sDoubleFormat.format(getTotalValue(assignment, variables)));
-        for (InfoProvider<V, T> provider : iInfoProviders)
-            provider.getInfo(assignment, ret, variables);
+        collectInfo(assignment, ret, false, variables);
         return ret;
     }
+    
+    /**
+     * Collect information from the info providers (criteria, constraints, and other model listeners) into the given table.
+     * When there are multiple info threads (see {@link Model#setInfoThreads(int)}), each provider fills in its own table
+     * and the providers are called in parallel; the tables are then merged in the order of the providers, so the result is the
+     * same as when the providers are called one after another. The providers must be safe for concurrent reads of the assignment;
+     * the assignment contexts are created by the calling thread before the providers are called.
+     * @param assignment current assignment
+     * @param info info table to be updated
+     * @param extended true to collect the extended info of the {@link ExtendedInfoProvider}s
+     * @param variables sub-problem, null for the whole problem
+     */
+    @SuppressWarnings("unchecked")
+    protected void collectInfo(final Assignment<V, T> assignment, Map<String, String> info, final boolean extended, final Collection<V> variables) {
+        ParallelValueScoring scoring = iInfoScoring;
+        if (scoring == null) {
+            for (InfoProvider<V, T> provider : iInfoProviders) {
+                if (extended) {
+                    if (provider instanceof ExtendedInfoProvider)
+                        ((ExtendedInfoProvider<V, T>)provider).getExtendedInfo(assignment, info);
+                } else if (variables != null) {
+                    provider.getInfo(assignment, info, variables);
+                } else {
+                    provider.getInfo(assignment, info);
+                }
+            }
+            return;
+        }
+        List<InfoProvider<V, T>> providers = new ArrayList<InfoProvider<V, T>>(iInfoProviders.size());
+        for (InfoProvider<V, T> provider : iInfoProviders)
+            if (!extended || provider instanceof ExtendedInfoProvider)
+                providers.add(provider);
+        AssignmentContextHelper.ensureInitialized(this, assignment, variables);
+        List<Map<String, String>> infos = scoring.score(providers, new ParallelValueScoring.Scorer<InfoProvider<V, T>, Map<String, String>>() {
+            @Override
+            public Map<String, String> score(InfoProvider<V, T> provider) {
+                Map<String, String> ret = new HashMap<String, String>();
+                if (extended)
+                    ((ExtendedInfoProvider<V, T>)provider).getExtendedInfo(assignment, ret);
+                else if (variables != null)
+                    provider.getInfo(assignment, ret, variables);
+                else
+                    provider.getInfo(assignment, ret);
+                return ret;
+            }
+        });
+        for (Map<String, String> ret : infos)
+            info.putAll(ret);
+    }
+    
+    /**
+     * Set the number of threads computing the solution info (see {@link Model#collectInfo(Assignment, Map, boolean, Collection)}).
+     * Set by the General.InfoThreads parameter of the solver.
+     * @param nrThreads number of threads, 1 to call the info providers one after another, zero or a negative number for the number of available processors
+     */
+    public void setInfoThreads(int nrThreads) {
+        ParallelValueScoring scoring = iInfoScoring;
+        if (scoring != null && scoring.getNrThreads() == nrThreads) return;
+        ParallelValueScoring newScoring = (nrThreads == 1 ? null : new ParallelValueScoring(nrThreads, 2));
+        if (newScoring != null && !newScoring.isEnabled()) newScoring = null;
+        iInfoScoring = newScoring;
+        if (scoring != null)
+            scoring.dispose();
+    }
+    
+    /**
+     * Stop the threads computing the solution info (see {@link Model#setInfoThreads(int)}). The number of threads is kept,
+     * the threads are started again when the info is computed next time. Called when the solver is finished, stopped, or fails.
+     */
+    public void disposeInfoThreads() {
+        ParallelValueScoring scoring = iInfoScoring;
+        if (scoring != null)
+            scoring.dispose();
+    }
+    
+    /**
+     * Number of threads computing the solution info (see {@link Model#setInfoThreads(int)})
+     * @return number of threads, 1 if the info providers are called one after another
+     */
+    public int getInfoThreads() {
+        ParallelValueScoring scoring = iInfoScoring;
+        return (scoring == null ? 1 : scoring.getNrThreads());
+    }
 
     /**
      * Returns the number of unassigned variables in the best ever found
@@ -760,11 +1094,22 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      **/
     public void saveBest(Assignment<V, T> assignment) {
         iBestUnassignedVariables = iVariables.size() - assignment.nrAssignedVariables();
-        iBestPerturbations = perturbVariables(assignment).size();
+        iBestPerturbations = nrPerturbVariables(assignment);
         iBestValue = getTotalValue(assignment);
-        for (V variable : iVariables) {
-            variable.setBestAssignment(assignment.getValue(variable), assignment.getIteration(variable));
+        BestAssignmentJournal<V, T> journal = getBestAssignmentJournal();
+        Set<V> changed = journal.getChangedVariables(assignment);
+        if (changed == null) {
+            for (V variable : iVariables) {
+                variable.setBestAssignment(assignment.getValue(variable), assignment.getIteration(variable));
+            }
+        } else {
+            // only the variables that have changed since the last save (or restore) need to be updated
+            for (V variable : changed) {
+                variable.setBestAssignment(assignment.getValue(variable), assignment.getIteration(variable));
+            }
         }
+        invalidateBestGeneration();
+        journal.synchronize(assignment);
         for (Criterion<V, T> criterion: getCriteria()) {
             criterion.bestSaved(assignment);
         }
@@ -778,6 +1123,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         for (V variable : iVariables) {
             variable.setBestAssignment(null, 0);
         }
+        invalidateBestGeneration();
     }
 
     /**
@@ -796,11 +1142,18 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     @SuppressWarnings("unchecked")
     protected void restoreBest(Assignment<V, T> assignment, Comparator<V> assignmentOrder) {
         TreeSet<V> sortedVariables = new TreeSet<V>(assignmentOrder);
-        for (V variable : iVariables) {
+        BestAssignmentJournal<V, T> journal = getBestAssignmentJournal();
+        Set<V> changed = journal.getChangedVariables(assignment);
+        // when the journal is valid, only the changed variables can differ from the best solution
+        Collection<V> variables = (changed == null ? iVariables : new ArrayList<V>(changed));
+        journal.synchronize(assignment);
+        for (V variable : variables) {
             T value = assignment.getValue(variable);
             if (value == null) {
-                if (variable.getBestAssignment() != null)
+                if (variable.getBestAssignment() != null) {
                     sortedVariables.add(variable);
+                    journal.changed(assignment, variable);
+                }
             } else if (!value.equals(variable.getBestAssignment())) {
                 assignment.unassign(0, variable);
                 if (variable.getBestAssignment() != null)
@@ -809,8 +1162,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         }
         Set<T> problems = new HashSet<T>();
         for (V variable : sortedVariables) {
-            Set<T> confs = conflictValues(assignment, variable.getBestAssignment());
-            if (!confs.isEmpty()) {
+            if (hasConflicts(assignment, variable.getBestAssignment())) {
                 sLogger.error("restore best problem: assignment " + variable.getName() + " = " + variable.getBestAssignment().getName());
                 boolean weakened = false;
                 for (Constraint<V, T> c : variable.hardConstraints()) {
@@ -873,11 +1225,28 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
             }
             assignment.assign(0, value);
         }
+        journal.retainDifferent(assignment);
         for (Criterion<V, T> criterion: getCriteria()) {
             criterion.bestRestored(assignment);
         }
     }
     
+    /**
+     * Check whether the given value is in a conflict, the conflicts are computed into a reusable conflict collector
+     * (see {@link ConflictCollector})
+     * @param assignment current assignment
+     * @param value a value to be assigned
+     * @return true if there is at least one conflicting value
+     */
+    private boolean hasConflicts(Assignment<V, T> assignment, T value) {
+        ConflictCollector<T> conflicts = ConflictCollector.acquire();
+        try {
+            return !conflictValues(assignment, value, conflicts).isEmpty();
+        } finally {
+            conflicts.release();
+        }
+    }
+    
     /** Restore the best ever found assignment into the current assignment
      * @param assignment current assignment
      **/
@@ -950,6 +1319,40 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         return ret;
     }
 
+    /**
+     * Change in the value of the current solution if the given changes were made (without making them).
+     * It is the sum of {@link Criterion#getWeightedDelta(Assignment, Map)} of all the criteria, or the change in the
+     * sum of the assigned values (i.e., {@link Value#toDouble(Assignment)}) when there are no criteria.
+     * @param assignment current assignment
+     * @param changes proposed changes (variable, new value or null if the variable is to be unassigned)
+     * @return change in the solution value, i.e., {@link Model#getTotalValue(Assignment)} after the change minus the one before the change
+     */
+    public double getWeightedDelta(Assignment<V, T> assignment, Map<V, T> changes) {
+        double ret = 0.0;
+        if (getCriteria().isEmpty())
+            for (Map.Entry<V, T> change: changes.entrySet()) {
+                T old = assignment.getValue(change.getKey());
+                if (old != null) ret -= old.toDouble(assignment);
+                if (change.getValue() != null) ret += change.getValue().toDouble(assignment);
+            }
+        else
+            for (Criterion<V, T> c: getCriteria())
+                ret += c.getWeightedDelta(assignment, changes);
+        return ret;
+    }
+
+    /**
+     * True if {@link Model#getWeightedDelta(Assignment, Map)} is exact, that is when there are no criteria
+     * (the change is computed from the values of the changed variables) or all the criteria have an exact delta
+     * (see {@link Criterion#isExactDelta()}).
+     * @return true if the change in the solution value can be computed exactly without making the changes
+     */
+    public boolean isExactDelta() {
+        for (Criterion<V, T> c: getCriteria())
+            if (c.getWeight() != 0.0 && !c.isExactDelta()) return false;
+        return true;
+    }
+
     /**
      * Value of the current solution. It is the sum of all assigned values,
      * i.e., {@link Value#toDouble(Assignment)}. Only variables from the given set are
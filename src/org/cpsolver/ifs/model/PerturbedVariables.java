@@ -0,0 +1,181 @@
+package org.cpsolver.ifs.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.context.AbstractClassWithContext;
+import org.cpsolver.ifs.assignment.context.AssignmentContext;
+
+/**
+ * Incrementally maintained perturbations of a model (see {@link Model#perturbVariables(Assignment)}).
+ * For each assignment, the context keeps the set of variables that are assigned to a value
+ * different from the initial one and the set of variables with an initial value that are not assigned.
+ * The contexts are updated by the model, when a variable with an initial value is assigned or unassigned.
+ * Since an unassigned variable is only a perturbation when its initial value is in conflict with the
+ * current assignment (which may change with an assignment of any other variable), the unassigned
+ * variables are checked only when the perturbations are requested. This means that the perturbations are
+ * computed in the number of unassigned variables with an initial value, instead of the number of all the
+ * variables with an initial value, with no conflict checking for the assigned ones.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ *
+ * @param <V> Variable
+ * @param <T> Value
+ */
+public class PerturbedVariables<V extends Variable<V, T>, T extends Value<V, T>> extends AbstractClassWithContext<V, T, PerturbedVariables<V, T>.PerturbedVariablesContext> {
+    private Model<V, T> iModel;
+
+    /**
+     * Constructor
+     * @param model problem model
+     */
+    public PerturbedVariables(Model<V, T> model) {
+        iModel = model;
+    }
+
+    @Override
+    public Model<V, T> getModel() {
+        return iModel;
+    }
+
+    @Override
+    public PerturbedVariablesContext createAssignmentContext(Assignment<V, T> assignment) {
+        return new PerturbedVariablesContext(assignment);
+    }
+
+    /**
+     * Called by the model when a variable with an initial value is assigned
+     * @param assignment current assignment
+     * @param value assigned value
+     */
+    public void assigned(Assignment<V, T> assignment, T value) {
+        getContext(assignment).assigned(value);
+    }
+
+    /**
+     * Called by the model when a variable with an initial value is unassigned
+     * @param assignment current assignment
+     * @param value unassigned value
+     */
+    public void unassigned(Assignment<V, T> assignment, T value) {
+        getContext(assignment).unassigned(value);
+    }
+
+    /**
+     * The list of perturbation variables, i.e., the variables which have an initial value but which are not
+     * assigned with this value (see {@link Model#perturbVariables(Assignment)}).
+     * @param assignment current assignment
+     * @return perturbation variables, in the order of the variables in the model
+     */
+    public List<V> perturbVariables(Assignment<V, T> assignment) {
+        return getContext(assignment).perturbVariables(assignment);
+    }
+
+    /**
+     * Number of perturbation variables (see {@link Model#nrPerturbVariables(Assignment)})
+     * @param assignment current assignment
+     * @return number of perturbation variables
+     */
+    public int nrPerturbVariables(Assignment<V, T> assignment) {
+        return getContext(assignment).nrPerturbVariables(assignment);
+    }
+
+    /**
+     * Perturbations of an assignment
+     */
+    public class PerturbedVariablesContext implements AssignmentContext {
+        private Set<V> iAssigned = new HashSet<V>();
+        private Set<V> iUnassigned = new HashSet<V>();
+
+        /**
+         * Constructor
+         * @param assignment current assignment
+         */
+        public PerturbedVariablesContext(Assignment<V, T> assignment) {
+            for (V variable: iModel.variablesWithInitialValue()) {
+                T value = assignment.getValue(variable);
+                if (value == null)
+                    iUnassigned.add(variable);
+                else if (!value.equals(variable.getInitialAssignment()))
+                    iAssigned.add(variable);
+            }
+        }
+
+        /**
+         * Update the context after an assignment
+         * @param value assigned value
+         */
+        public void assigned(T value) {
+            V variable = value.variable();
+            iUnassigned.remove(variable);
+            if (value.equals(variable.getInitialAssignment()))
+                iAssigned.remove(variable);
+            else
+                iAssigned.add(variable);
+        }
+
+        /**
+         * Update the context after an unassignment
+         * @param value unassigned value
+         */
+        public void unassigned(T value) {
+            V variable = value.variable();
+            iAssigned.remove(variable);
+            iUnassigned.add(variable);
+        }
+
+        /**
+         * The list of perturbation variables
+         * @param assignment current assignment
+         * @return perturbation variables, in the order of the variables in the model
+         */
+        public List<V> perturbVariables(Assignment<V, T> assignment) {
+            List<V> perturbances = new ArrayList<V>(iAssigned);
+            for (V variable: iUnassigned)
+                if (iModel.inConflict(assignment, variable.getInitialAssignment()))
+                    perturbances.add(variable);
+            Collections.sort(perturbances, new Comparator<V>() {
+                @Override
+                public int compare(V v1, V v2) {
+                    return (v1.getIndex() < v2.getIndex() ? -1 : v1.getIndex() == v2.getIndex() ? 0 : 1);
+                }
+            });
+            return perturbances;
+        }
+
+        /**
+         * Number of perturbation variables
+         * @param assignment current assignment
+         * @return number of perturbation variables
+         */
+        public int nrPerturbVariables(Assignment<V, T> assignment) {
+            int ret = iAssigned.size();
+            for (V variable: iUnassigned)
+                if (iModel.inConflict(assignment, variable.getInitialAssignment()))
+                    ret ++;
+            return ret;
+        }
+    }
+}
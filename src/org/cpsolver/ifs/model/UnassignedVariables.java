@@ -0,0 +1,207 @@
+package org.cpsolver.ifs.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.context.AbstractClassWithContext;
+import org.cpsolver.ifs.assignment.context.AssignmentContext;
+import org.cpsolver.ifs.util.ToolBox;
+
+/**
+ * Incrementally maintained unassigned variables of a model (see {@link Model#unassignedVariables(Assignment)}).
+ * For each assignment, the context keeps the unassigned variables in a dense array, together with the position
+ * of each variable in the array (indexed by {@link Variable#getIndex()}). A variable is added at the end of the array
+ * when unassigned and removed by moving the last variable into its place when assigned, so that both operations,
+ * the number of unassigned variables and a random selection of an unassigned variable take a constant time.
+ * The contexts are updated by the model, when a variable is assigned or unassigned. This means that only assignments
+ * that notify the model about the changes and that have their own assignment contexts (i.e., not
+ * {@link org.cpsolver.ifs.assignment.OverlayAssignment}) can be tracked.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ *
+ * @param <V> Variable
+ * @param <T> Value
+ */
+public class UnassignedVariables<V extends Variable<V, T>, T extends Value<V, T>> extends AbstractClassWithContext<V, T, UnassignedVariables<V, T>.UnassignedVariablesContext> {
+    private Model<V, T> iModel;
+
+    /**
+     * Constructor
+     * @param model problem model
+     */
+    public UnassignedVariables(Model<V, T> model) {
+        iModel = model;
+    }
+
+    @Override
+    public Model<V, T> getModel() {
+        return iModel;
+    }
+
+    @Override
+    public UnassignedVariablesContext createAssignmentContext(Assignment<V, T> assignment) {
+        return new UnassignedVariablesContext(assignment);
+    }
+
+    /**
+     * Called by the model when a variable is assigned
+     * @param assignment current assignment
+     * @param variable assigned variable
+     */
+    public void assigned(Assignment<V, T> assignment, V variable) {
+        getContext(assignment).remove(variable);
+    }
+
+    /**
+     * Called by the model when a variable is unassigned
+     * @param assignment current assignment
+     * @param variable unassigned variable
+     */
+    public void unassigned(Assignment<V, T> assignment, V variable) {
+        getContext(assignment).add(variable);
+    }
+
+    /**
+     * The list of unassigned variables
+     * @param assignment current assignment
+     * @return unassigned variables, in the order of the variables in the model
+     */
+    public List<V> unassignedVariables(Assignment<V, T> assignment) {
+        return getContext(assignment).unassignedVariables();
+    }
+
+    /**
+     * Number of unassigned variables
+     * @param assignment current assignment
+     * @return number of unassigned variables
+     */
+    public int nrUnassignedVariables(Assignment<V, T> assignment) {
+        return getContext(assignment).size();
+    }
+
+    /**
+     * A randomly selected unassigned variable
+     * @param assignment current assignment
+     * @return random unassigned variable, null if all variables are assigned
+     */
+    public V randomUnassignedVariable(Assignment<V, T> assignment) {
+        return getContext(assignment).random();
+    }
+
+    /**
+     * Unassigned variables of an assignment
+     */
+    public class UnassignedVariablesContext implements AssignmentContext {
+        private Object[] iVariables;
+        private int[] iPosition;
+        private int iSize = 0;
+
+        /**
+         * Constructor
+         * @param assignment current assignment
+         */
+        public UnassignedVariablesContext(Assignment<V, T> assignment) {
+            int maxIndex = 0;
+            for (V variable: iModel.variables())
+                maxIndex = Math.max(maxIndex, variable.getIndex() + 1);
+            iVariables = new Object[Math.max(16, iModel.variables().size())];
+            iPosition = new int[Math.max(16, maxIndex)];
+            Arrays.fill(iPosition, -1);
+            for (V variable: iModel.variables())
+                if (assignment.getValue(variable) == null)
+                    add(variable);
+        }
+
+        /**
+         * Add a variable (when unassigned)
+         * @param variable a variable
+         */
+        public void add(V variable) {
+            int index = variable.getIndex();
+            if (index >= iPosition.length) {
+                int length = iPosition.length;
+                iPosition = Arrays.copyOf(iPosition, Math.max(2 * length, index + 1));
+                Arrays.fill(iPosition, length, iPosition.length, -1);
+            }
+            if (iPosition[index] >= 0) return;
+            if (iSize == iVariables.length)
+                iVariables = Arrays.copyOf(iVariables, 2 * iVariables.length);
+            iPosition[index] = iSize;
+            iVariables[iSize++] = variable;
+        }
+
+        /**
+         * Remove a variable (when assigned)
+         * @param variable a variable
+         */
+        @SuppressWarnings("unchecked")
+        public void remove(V variable) {
+            int index = variable.getIndex();
+            if (index >= iPosition.length) return;
+            int position = iPosition[index];
+            if (position < 0) return;
+            V last = (V)iVariables[--iSize];
+            iVariables[position] = last;
+            iPosition[last.getIndex()] = position;
+            iVariables[iSize] = null;
+            iPosition[index] = -1;
+        }
+
+        /**
+         * Number of unassigned variables
+         * @return number of unassigned variables
+         */
+        public int size() {
+            return iSize;
+        }
+
+        /**
+         * A randomly selected unassigned variable
+         * @return random unassigned variable, null if there is none
+         */
+        @SuppressWarnings("unchecked")
+        public V random() {
+            if (iSize == 0) return null;
+            return (V)iVariables[ToolBox.random(iSize)];
+        }
+
+        /**
+         * The list of unassigned variables
+         * @return unassigned variables, in the order of the variables in the model
+         */
+        @SuppressWarnings("unchecked")
+        public List<V> unassignedVariables() {
+            List<V> variables = new ArrayList<V>(iSize);
+            for (int i = 0; i < iSize; i++)
+                variables.add((V)iVariables[i]);
+            Collections.sort(variables, new Comparator<V>() {
+                @Override
+                public int compare(V v1, V v2) {
+                    return (v1.getIndex() < v2.getIndex() ? -1 : v1.getIndex() == v2.getIndex() ? 0 : 1);
+                }
+            });
+            return variables;
+        }
+    }
+}
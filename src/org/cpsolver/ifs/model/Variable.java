@@ -389,6 +389,8 @@ public class Variable<V extends Variable<V, T>, T extends Value<V, T>> implement
      * @param iteration value's assignment iteration
      */
     public void setBestAssignment(T value, long iteration) {
+        if (iModel != null && (value == null ? iBestValue != null : !value.equals(iBestValue)))
+            iModel.invalidateBestGeneration();
         iBestValue = value;
         iBestAssignmentIteration = iteration;
     }
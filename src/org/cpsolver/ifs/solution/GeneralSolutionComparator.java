@@ -39,7 +39,7 @@ import org.cpsolver.ifs.util.DataProperties;
  * @param <V> Variable 
  * @param <T> Value
  */
-public class GeneralSolutionComparator<V extends Variable<V, T>, T extends Value<V, T>> implements SolutionComparator<V, T> {
+public class GeneralSolutionComparator<V extends Variable<V, T>, T extends Value<V, T>> implements RankedSolutionComparator<V, T> {
 
     public GeneralSolutionComparator() {
     }
@@ -60,4 +60,11 @@ public class GeneralSolutionComparator<V extends Variable<V, T>, T extends Value
         return currentSolution.getModel().getTotalValue(currentSolution.getAssignment()) < currentSolution.getModel().getBestValue();
     }
 
+    @Override
+    public double[] getRank(Solution<V, T> currentSolution) {
+        return new double[] {
+                currentSolution.getAssignment().nrUnassignedVariables(currentSolution.getModel()),
+                currentSolution.getModel().getTotalValue(currentSolution.getAssignment()) };
+    }
+
 }
@@ -43,7 +43,7 @@ import org.cpsolver.ifs.util.DataProperties;
  * @param <V> Variable 
  * @param <T> Value
  */
-public class MPPSolutionComparator<V extends Variable<V, T>, T extends Value<V, T>> implements SolutionComparator<V, T> {
+public class MPPSolutionComparator<V extends Variable<V, T>, T extends Value<V, T>> implements RankedSolutionComparator<V, T> {
 
     public MPPSolutionComparator() {
     }
@@ -61,10 +61,18 @@ public class MPPSolutionComparator<V extends Variable<V, T>, T extends Value<V,
         int unassigned = currentSolution.getAssignment().nrUnassignedVariables(currentSolution.getModel());
         if (currentSolution.getModel().getBestUnassignedVariables() != unassigned)
             return currentSolution.getModel().getBestUnassignedVariables() > unassigned;
-        int pert = currentSolution.getModel().perturbVariables(currentSolution.getAssignment()).size();
+        int pert = currentSolution.getModel().nrPerturbVariables(currentSolution.getAssignment());
         if (currentSolution.getModel().getBestPerturbations() != pert)
             return currentSolution.getModel().getBestPerturbations() > pert;
         return currentSolution.getModel().getTotalValue(currentSolution.getAssignment()) < currentSolution.getModel().getBestValue();
     }
 
+    @Override
+    public double[] getRank(Solution<V, T> currentSolution) {
+        return new double[] {
+                currentSolution.getAssignment().nrUnassignedVariables(currentSolution.getModel()),
+                currentSolution.getModel().nrPerturbVariables(currentSolution.getAssignment()),
+                currentSolution.getModel().getTotalValue(currentSolution.getAssignment()) };
+    }
+
 }
@@ -0,0 +1,52 @@
+package org.cpsolver.ifs.solution;
+
+import org.cpsolver.ifs.model.Value;
+import org.cpsolver.ifs.model.Variable;
+
+/**
+ * Solution comparator that is also able to rank two arbitrary solutions. <br>
+ * <br>
+ * A {@link SolutionComparator} only compares the current solution with the best
+ * ever found solution. A ranked solution comparator also returns a rank of the
+ * current solution, so that two solutions (e.g., solutions of two different
+ * islands of the {@link org.cpsolver.ifs.algorithms.IslandSearch}) can be
+ * compared the same way as {@link SolutionComparator#isBetterThanBestSolution(Solution)}
+ * compares a solution with the best one.
+ * 
+ * @see Solution
+ * @see org.cpsolver.ifs.solver.Solver
+ * 
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ * 
+ * @param <V> Variable
+ * @param <T> Value
+ */
+public interface RankedSolutionComparator<V extends Variable<V, T>, T extends Value<V, T>> extends SolutionComparator<V, T> {
+    /**
+     * Rank of the given solution. Ranks are compared lexicographically, a
+     * smaller rank is better. The ordering must be consistent with
+     * {@link SolutionComparator#isBetterThanBestSolution(Solution)}.
+     * 
+     * @param currentSolution
+     *            given solution
+     * @return rank of the given solution
+     */
+    public double[] getRank(Solution<V, T> currentSolution);
+}
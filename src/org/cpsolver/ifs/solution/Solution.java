@@ -2,6 +2,7 @@ package org.cpsolver.ifs.solution;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -10,6 +11,9 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.cpsolver.coursett.criteria.TimetablingCriterion;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.AssignmentAbstract;
+import org.cpsolver.ifs.assignment.InheritedAssignment;
+import org.cpsolver.ifs.model.ConstraintOrdering;
 import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
@@ -67,6 +71,8 @@ public class Solution<V extends Variable<V, T>, T extends Value<V, T>> {
     private List<SolutionListener<V, T>> iSolutionListeners = new ArrayList<SolutionListener<V, T>>();
     private PerturbationsCounter<V, T> iPerturbationsCounter = null;
     private final ReadWriteLock iLock = new ReentrantReadWriteLock(false);
+    private boolean iInfoCache = false;
+    private volatile CachedInfo iCachedInfo = null, iCachedExtendedInfo = null;
 
     /** Constructor 
      * @param model problem model
@@ -202,6 +208,7 @@ public class Solution<V extends Variable<V, T>, T extends Value<V, T>> {
         if (iModel != null)
             iModel.init(solver);
         iPerturbationsCounter = solver.getPerturbationsCounter();
+        iInfoCache = solver.getProperties().getPropertyBoolean("General.InfoCache", false);
     }
 
     /**
@@ -220,9 +227,7 @@ public class Solution<V extends Variable<V, T>, T extends Value<V, T>> {
      * @return info table
      */
     public Map<String, String> getInfo() {
-        Map<String, String> ret = getModel().getInfo(iAssignment);
-        if (getPerturbationsCounter() != null)
-            getPerturbationsCounter().getInfo(getAssignment(), getModel(), ret);
+        Map<String, String> ret = getModelInfo(false);
         ret.put("Time", sTimeFormat.format(getTime() / 60.0) + " min");
         ret.put("Iteration", getIteration() + (getFailedIterations() > 0 ? " (" + sTimeFormat.format(100.0 * getFailedIterations() / getIteration())+ "% failed)" : ""));
         if (getTime() > 0)
@@ -240,9 +245,7 @@ public class Solution<V extends Variable<V, T>, T extends Value<V, T>> {
      * @return extended info table
      */
     public Map<String, String> getExtendedInfo() {
-        Map<String, String> ret = getModel().getExtendedInfo(iAssignment);
-        if (getPerturbationsCounter() != null)
-            getPerturbationsCounter().getInfo(getAssignment(), getModel(), ret);
+        Map<String, String> ret = getModelInfo(true);
         ret.put("Time", sTimeFormat.format(getTime() / 60.0) + " min");
         ret.put("Iteration", getIteration() + (getFailedIterations() > 0 ? " (" + sTimeFormat.format(100.0 * getFailedIterations() / getIteration())+ "% failed)" : ""));
         if (getTime() > 0)
@@ -256,6 +259,97 @@ public class Solution<V extends Variable<V, T>, T extends Value<V, T>> {
         return ret;
     }
 
+    /**
+     * Model and perturbations part of the solution information (see {@link Solution#getInfo()} and {@link Solution#getExtendedInfo()}).
+     * When the info cache is enabled (see {@link Solution#setInfoCache(boolean)}), the computed table is kept and reused
+     * for as long as the assignment and the best solution of the model do not change. The constraint ordering statistics
+     * (see {@link ConstraintOrdering#getInfo(Map)}) change with every conflict check, so they are not cached but added
+     * to the extended info on every call.
+     * @param extended true for the extended info
+     * @return info table (a new table that can be modified by the caller)
+     */
+    protected Map<String, String> getModelInfo(boolean extended) {
+        long changes = (iInfoCache ? getNrChanges() : -1);
+        ConstraintOrdering<V, T> ordering = (extended ? getModel().getConstraintOrdering() : null);
+        if (changes >= 0) {
+            CachedInfo cached = (extended ? iCachedExtendedInfo : iCachedInfo);
+            if (cached != null && cached.isValid(changes, getModel().getBestGeneration())) {
+                Map<String, String> ret = new HashMap<String, String>(cached.getInfo());
+                if (ordering != null)
+                    ordering.getInfo(ret);
+                return ret;
+            }
+        }
+        long generation = getModel().getBestGeneration();
+        Map<String, String> ret = (extended ? getModel().getExtendedInfo(iAssignment) : getModel().getInfo(iAssignment));
+        if (getPerturbationsCounter() != null)
+            getPerturbationsCounter().getInfo(getAssignment(), getModel(), ret);
+        if (changes >= 0 && changes % 2 == 0 && changes == getNrChanges()) {
+            Map<String, String> info = new HashMap<String, String>(ret);
+            if (ordering != null) {
+                Map<String, String> stats = new HashMap<String, String>();
+                ordering.getInfo(stats);
+                info.keySet().removeAll(stats.keySet());
+            }
+            CachedInfo cached = new CachedInfo(changes, generation, info);
+            if (extended)
+                iCachedExtendedInfo = cached;
+            else
+                iCachedInfo = cached;
+        }
+        return ret;
+    }
+    
+    /**
+     * Number of changes of the current assignment (see {@link AssignmentAbstract#getNrChanges()})
+     * @return number of changes, -1 if the assignment does not count its changes
+     */
+    private long getNrChanges() {
+        if (iAssignment instanceof AssignmentAbstract && !(iAssignment instanceof InheritedAssignment))
+            return ((AssignmentAbstract<V, T>)iAssignment).getNrChanges();
+        return -1;
+    }
+    
+    /**
+     * Enable or disable the caching of the model info (see {@link Solution#getModelInfo(boolean)}). The cache assumes that the
+     * info of the model only depends on the current assignment and on the best solution. Enabled by the General.InfoCache parameter.
+     * @param enabled true to enable the info cache
+     */
+    public void setInfoCache(boolean enabled) {
+        iInfoCache = enabled;
+        if (!enabled) {
+            iCachedInfo = null; iCachedExtendedInfo = null;
+        }
+    }
+    
+    /**
+     * True if the model info is cached (see {@link Solution#getModelInfo(boolean)})
+     * @return true if the info cache is enabled
+     */
+    public boolean isInfoCache() {
+        return iInfoCache;
+    }
+    
+    /**
+     * Cached model info, with the number of changes of the assignment and the best generation for which it was computed
+     */
+    private static class CachedInfo {
+        private final long iChanges, iBestGeneration;
+        private final Map<String, String> iInfo;
+        
+        private CachedInfo(long changes, long bestGeneration, Map<String, String> info) {
+            iChanges = changes; iBestGeneration = bestGeneration; iInfo = info;
+        }
+        
+        private boolean isValid(long changes, long bestGeneration) {
+            return iChanges == changes && iBestGeneration == bestGeneration;
+        }
+        
+        private Map<String, String> getInfo() {
+            return iInfo;
+        }
+    }
+
     /**
      * Solution information. It consists from info from the model which is
      * associated with the solution, time, iteration, speed and infos from all
@@ -473,6 +567,36 @@ public class Solution<V extends Variable<V, T>, T extends Value<V, T>> {
         }
     }
 
+    /**
+     * Restore the state of the solution, e.g., when it is resumed from a {@link SolutionCheckpoint}. The best
+     * assignment itself is to be saved by {@link Model#saveBest(Assignment)} beforehand.
+     * @param iteration current iteration
+     * @param failedIterations number of failed iterations
+     * @param time solution time in seconds
+     * @param bestInfo best solution info, null if there is no best solution
+     * @param bestIteration iteration of the best solution
+     * @param bestFailedIterations number of failed iterations of the best solution
+     * @param bestTime time of the best solution in seconds
+     * @param bestPerturbationsPenalty perturbations penalty of the best solution
+     * @param bestIndex index of the best assignment
+     */
+    public void restoreState(long iteration, long failedIterations, double time, Map<String, String> bestInfo, long bestIteration, long bestFailedIterations, double bestTime, double bestPerturbationsPenalty, int bestIndex) {
+        iLock.writeLock().lock();
+        try {
+            iIteration = iteration;
+            iFailedIterations = failedIterations;
+            iTime = time;
+            iBestInfo = bestInfo;
+            iBestIteration = bestIteration;
+            iBestFailedIterations = bestFailedIterations;
+            iBestTime = bestTime;
+            iBestPerturbationsPenaly = bestPerturbationsPenalty;
+            iBestIndex = bestIndex;
+        } finally {
+            iLock.writeLock().unlock();
+        }
+    }
+
     /** Adds solution listener 
      * @param listener a solution listener
      **/
@@ -0,0 +1,340 @@
+package org.cpsolver.ifs.solution;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.criteria.Criterion;
+import org.cpsolver.ifs.model.Model;
+import org.cpsolver.ifs.model.Value;
+import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.util.DataProperties;
+
+/**
+ * Binary checkpoint of a solution. A checkpoint contains the current and the best assignment (including the
+ * iterations in which the values were assigned), the solution iteration counters and time, the best solution
+ * info, and the best values of all the criteria. It does not contain the problem itself: the model is to be
+ * loaded the usual way (e.g., from the input XML file) before a checkpoint is restored, and the checkpoint only
+ * contains a fingerprint of the model (number of variables and constraints and a hash of variable ids) to
+ * make sure it is restored into the same problem.<br>
+ * <br>
+ * The checkpoint is written through a {@link FileChannel} into a temporary file, which replaces the given file
+ * once it is completely written, so that a crash during the save does not corrupt the last checkpoint. The file is
+ * replaced by a rename, which is atomic on POSIX systems; where the rename cannot replace an existing file, the old
+ * checkpoint is deleted first (and the temporary file is kept when the rename fails). It is read using a memory
+ * mapped buffer.<br>
+ * <br>
+ * Values are encoded by {@link SolutionCheckpoint#encode(Assignment, Variable, Value)}, by default as an index
+ * into the domain of the variable. Problems whose values are not enumerated (e.g., student sectioning) or whose
+ * domains are expensive to compute (e.g., examination timetabling) override the encoding.
+ *
+ * @see org.cpsolver.ifs.solver.Solver
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ *
+ * @param <V> Variable
+ * @param <T> Value
+ **/
+public class SolutionCheckpoint<V extends Variable<V, T>, T extends Value<V, T>> {
+    private static org.apache.log4j.Logger sLogger = org.apache.log4j.Logger.getLogger(SolutionCheckpoint.class);
+    private static final Charset sUTF8 = Charset.forName("UTF-8");
+    /** File header */
+    public static final int MAGIC = 0x49465343;
+    /** Format version */
+    public static final int VERSION = 1;
+
+    public SolutionCheckpoint() {}
+
+    public SolutionCheckpoint(DataProperties properties) {}
+
+    /**
+     * Encode a value
+     * @param assignment current assignment
+     * @param variable variable of the value
+     * @param value value to encode
+     * @return encoded value, null if the value cannot be encoded
+     */
+    protected long[] encode(Assignment<V, T> assignment, V variable, T value) {
+        int index = variable.values(assignment).indexOf(value);
+        return (index < 0 ? null : new long[] { index });
+    }
+
+    /**
+     * Decode a value
+     * @param assignment current assignment
+     * @param variable variable of the value
+     * @param code encoded value, as returned by {@link SolutionCheckpoint#encode(Assignment, Variable, Value)}
+     * @return decoded value, null if the value cannot be decoded
+     */
+    protected T decode(Assignment<V, T> assignment, V variable, long[] code) {
+        List<T> values = variable.values(assignment);
+        if (code.length != 1 || code[0] < 0 || code[0] >= values.size()) return null;
+        return values.get((int) code[0]);
+    }
+
+    /**
+     * Hash of the variable ids, part of the model fingerprint
+     * @param model problem model
+     * @return hash of the variable ids (in the order of {@link Model#variables()})
+     */
+    protected long getVariablesHash(Model<V, T> model) {
+        long hash = 17;
+        for (V variable: model.variables())
+            hash = 31 * hash + variable.getId();
+        return hash;
+    }
+
+    /**
+     * Save the given solution into a checkpoint file
+     * @param solution solution to save
+     * @param file checkpoint file
+     * @throws IOException when the checkpoint cannot be written
+     */
+    public void save(Solution<V, T> solution, File file) throws IOException {
+        long t0 = System.currentTimeMillis();
+        if (file.getParentFile() != null)
+            file.getParentFile().mkdirs();
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        Lock lock = solution.getLock().readLock();
+        lock.lock();
+        try {
+            Writer w = new Writer(out.getChannel());
+            Model<V, T> model = solution.getModel();
+            Assignment<V, T> assignment = solution.getAssignment();
+            w.putInt(MAGIC); w.putInt(VERSION);
+            w.putInt(model.variables().size()); w.putInt(model.constraints().size()); w.putLong(getVariablesHash(model));
+            w.putLong(solution.getIteration()); w.putLong(solution.getFailedIterations()); w.putDouble(solution.getTime());
+            Map<String, String> bestInfo = solution.getBestInfo();
+            if (bestInfo == null) {
+                w.putInt(-1);
+            } else {
+                w.putInt(bestInfo.size());
+                for (Map.Entry<String, String> e: bestInfo.entrySet()) {
+                    w.putString(e.getKey()); w.putString(e.getValue());
+                }
+                w.putLong(solution.getBestIteration()); w.putLong(solution.getBestFailedIterations()); w.putDouble(solution.getBestTime());
+                w.putDouble(solution.getBestPerturbationsPenalty()); w.putInt(solution.getBestIndex()); w.putDouble(model.getBestValue());
+            }
+            w.putInt(model.getCriteria().size());
+            for (Criterion<V, T> criterion: model.getCriteria()) {
+                w.putString(criterion.getClass().getName()); w.putDouble(criterion.getBest());
+            }
+            int failed = 0;
+            for (V variable: model.variables()) {
+                T value = assignment.getValue(variable);
+                long[] code = (value == null ? null : encode(assignment, variable, value));
+                if (value != null && code == null) failed++;
+                w.putLong(value == null ? 0 : assignment.getIteration(variable));
+                w.putCode(code);
+                T best = variable.getBestAssignment();
+                code = (best == null ? null : encode(assignment, variable, best));
+                if (best != null && code == null) failed++;
+                w.putLong(best == null ? 0 : variable.getBestAssignmentIteration());
+                w.putCode(code);
+            }
+            w.flush();
+            out.getChannel().force(true);
+            if (failed > 0)
+                sLogger.warn(failed + " values could not be encoded, the checkpoint is not complete.");
+        } finally {
+            lock.unlock();
+            out.close();
+        }
+        // rename replaces the old checkpoint atomically on POSIX systems, delete it first only when that fails (e.g., on Windows)
+        if (!temp.renameTo(file)) {
+            if (file.exists() && !file.delete())
+                throw new IOException("Failed to replace checkpoint " + file);
+            if (!temp.renameTo(file))
+                throw new IOException("Failed to rename " + temp + " to " + file);
+        }
+        sLogger.debug("Checkpoint saved into " + file + " in " + (System.currentTimeMillis() - t0) + " ms.");
+    }
+
+    /**
+     * Restore the given solution from a checkpoint file. The current assignment is replaced with the one from the
+     * checkpoint, the best assignment and the best values of the criteria are restored as well (using
+     * {@link Model#saveBest(Assignment)}).
+     * @param solution solution to restore (the model must be the same as the one of the saved solution)
+     * @param file checkpoint file
+     * @throws IOException when the checkpoint cannot be read or it does not match the model
+     */
+    public void load(Solution<V, T> solution, File file) throws IOException {
+        long t0 = System.currentTimeMillis();
+        FileInputStream in = new FileInputStream(file);
+        Lock lock = solution.getLock().writeLock();
+        lock.lock();
+        try {
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Model<V, T> model = solution.getModel();
+            Assignment<V, T> assignment = solution.getAssignment();
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("File " + file + " is not a solution checkpoint.");
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported checkpoint version " + version + ".");
+            int nrVariables = buffer.getInt(), nrConstraints = buffer.getInt();
+            long hash = buffer.getLong();
+            if (nrVariables != model.variables().size() || nrConstraints != model.constraints().size() || hash != getVariablesHash(model))
+                throw new IOException("Checkpoint " + file + " does not match the problem (" + nrVariables + " variables and " + nrConstraints + " constraints expected).");
+            long iteration = buffer.getLong(), failedIterations = buffer.getLong();
+            double time = buffer.getDouble();
+            Map<String, String> bestInfo = null;
+            long bestIteration = -1, bestFailedIterations = -1;
+            double bestTime = -1.0, bestPerturbationsPenalty = -1.0, bestValue = 0.0;
+            int bestIndex = -1;
+            int nrInfo = buffer.getInt();
+            if (nrInfo >= 0) {
+                bestInfo = new HashMap<String, String>();
+                for (int i = 0; i < nrInfo; i++)
+                    bestInfo.put(getString(buffer), getString(buffer));
+                bestIteration = buffer.getLong(); bestFailedIterations = buffer.getLong(); bestTime = buffer.getDouble();
+                bestPerturbationsPenalty = buffer.getDouble(); bestIndex = buffer.getInt(); bestValue = buffer.getDouble();
+            }
+            Map<String, Double> criteria = new HashMap<String, Double>();
+            int nrCriteria = buffer.getInt();
+            for (int i = 0; i < nrCriteria; i++)
+                criteria.put(getString(buffer), buffer.getDouble());
+
+            Map<V, T> current = new HashMap<V, T>(), best = new HashMap<V, T>();
+            Map<V, Long> currentIteration = new HashMap<V, Long>(), bestIterations = new HashMap<V, Long>();
+            int failed = 0;
+            for (V variable: model.variables()) {
+                long it = buffer.getLong();
+                long[] code = getCode(buffer);
+                if (code != null) {
+                    T value = decode(assignment, variable, code);
+                    if (value == null) failed++;
+                    else { current.put(variable, value); currentIteration.put(variable, it); }
+                }
+                it = buffer.getLong();
+                code = getCode(buffer);
+                if (code != null) {
+                    T value = decode(assignment, variable, code);
+                    if (value == null) failed++;
+                    else { best.put(variable, value); bestIterations.put(variable, it); }
+                }
+            }
+            if (failed > 0)
+                sLogger.warn(failed + " values could not be decoded, the checkpoint is not restored completely.");
+
+            for (V variable: model.variables())
+                if (assignment.getValue(variable) != null)
+                    assignment.unassign(0, variable);
+            if (bestInfo != null) {
+                // assign the best solution to compute the best values of the criteria
+                for (Map.Entry<V, T> e: best.entrySet())
+                    assignment.assign(bestIterations.get(e.getKey()), e.getValue());
+                model.saveBest(assignment);
+                for (V variable: model.variables())
+                    if (assignment.getValue(variable) != null)
+                        assignment.unassign(0, variable);
+                if (Math.abs(model.getBestValue() - bestValue) > 1e-6)
+                    sLogger.warn("Restored best value " + model.getBestValue() + " does not match the saved value " + bestValue + ".");
+                for (Criterion<V, T> criterion: model.getCriteria()) {
+                    Double saved = criteria.get(criterion.getClass().getName());
+                    if (saved != null && Math.abs(saved - criterion.getBest()) > 1e-6)
+                        sLogger.warn("Restored best value of " + criterion.getName() + " " + criterion.getBest() + " does not match the saved value " + saved + ".");
+                }
+            } else {
+                model.clearBest();
+            }
+            for (Map.Entry<V, T> e: current.entrySet())
+                assignment.assign(currentIteration.get(e.getKey()), e.getValue());
+            solution.restoreState(iteration, failedIterations, time, bestInfo, bestIteration, bestFailedIterations, bestTime, bestPerturbationsPenalty, bestIndex);
+        } finally {
+            lock.unlock();
+            in.close();
+        }
+        sLogger.debug("Checkpoint restored from " + file + " in " + (System.currentTimeMillis() - t0) + " ms.");
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, sUTF8);
+    }
+
+    private static long[] getCode(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        long[] code = new long[length];
+        for (int i = 0; i < length; i++)
+            code[i] = buffer.getLong();
+        return code;
+    }
+
+    /**
+     * Buffered writer into a file channel
+     */
+    private static class Writer {
+        private FileChannel iChannel;
+        private ByteBuffer iBuffer = ByteBuffer.allocateDirect(1 << 16);
+
+        private Writer(FileChannel channel) { iChannel = channel; }
+
+        private void ensure(int bytes) throws IOException {
+            if (iBuffer.remaining() < bytes) {
+                flush();
+                if (iBuffer.capacity() < bytes)
+                    iBuffer = ByteBuffer.allocate(bytes);
+            }
+        }
+
+        private void flush() throws IOException {
+            iBuffer.flip();
+            while (iBuffer.hasRemaining())
+                iChannel.write(iBuffer);
+            iBuffer.clear();
+        }
+
+        private void putInt(int value) throws IOException { ensure(4); iBuffer.putInt(value); }
+
+        private void putLong(long value) throws IOException { ensure(8); iBuffer.putLong(value); }
+
+        private void putDouble(double value) throws IOException { ensure(8); iBuffer.putDouble(value); }
+
+        private void putString(String value) throws IOException {
+            byte[] bytes = (value == null ? "" : value).getBytes(sUTF8);
+            ensure(4 + bytes.length); iBuffer.putInt(bytes.length); iBuffer.put(bytes);
+        }
+
+        /** Write encoded value (null is written as -1) */
+        private void putCode(long[] code) throws IOException {
+            if (code == null) {
+                putInt(-1);
+                return;
+            }
+            ensure(4 + 8 * code.length);
+            iBuffer.putInt(code.length);
+            for (long c: code) iBuffer.putLong(c);
+        }
+    }
+}
@@ -8,12 +8,16 @@ import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.DefaultParallelAssignment;
 import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.assignment.InheritedAssignment;
+import org.cpsolver.ifs.assignment.ParallelAssignmentArray;
 import org.cpsolver.ifs.assignment.context.CanHoldContext;
+import org.cpsolver.ifs.model.ConflictCollector;
 import org.cpsolver.ifs.model.LazyNeighbour;
 import org.cpsolver.ifs.model.LazyNeighbour.LazyNeighbourAcceptanceCriterion;
 import org.cpsolver.ifs.model.Model;
@@ -32,11 +36,23 @@ import org.cpsolver.ifs.util.ToolBox;
  * Multi-threaded solver. Instead of one, a given number of solver threads are created
  * (as defined by Parallel.NrSolvers property) and started in parallel. Each thread
  * works with its own assignment {@link DefaultParallelAssignment}, but the best solution
- * is shared among all of them.<br>
+ * is shared among all of them. When Parallel.ArrayAssignment is set to true, {@link ParallelAssignmentArray}
+ * is used instead.<br>
  * <br>
  * When {@link DefaultSingleAssignment} is given to the solver, only one solution is used.
  * A neighbour is assigned to this (shared) solution when it does not create any conflicts
- * outside of {@link Neighbour#assignments()}.
+ * outside of {@link Neighbour#assignments()}.<br>
+ * <br>
+ * When ParallelSolver.SingleSolutionOptimistic is set to true (and a single solution is used),
+ * a selected neighbour is first validated without any lock: none of its variables may have
+ * been changed since the thread's inherited assignment was created (per-variable stamps, see
+ * {@link Assignment#getIteration(Variable)}) and its values may not conflict with anything outside of the neighbour.
+ * A valid neighbour is then written directly into the shared solution, provided that the commit stamp has not moved
+ * since the validation (compare-and-set). Neighbours failing the conflict check are rejected, stale neighbours and
+ * neighbours that lost the race for the commit stamp fall back to the commit under the write lock. The number of
+ * optimistic commits, collisions, and rejections is reported in the solution info. In this mode, a thread holding
+ * the read lock of the solution may see a commit in progress; all changes made by the solver threads are serialized by the
+ * commit stamp instead.
  * 
  * @see Solver
  * 
@@ -62,8 +78,15 @@ import org.cpsolver.ifs.util.ToolBox;
  * @param <T> Value
  **/
 public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> extends Solver<V, T> {
+    private static java.text.DecimalFormat sPercentFormat = new java.text.DecimalFormat("0.00", new java.text.DecimalFormatSymbols(java.util.Locale.US));
     private SynchronizationThread iSynchronizationThread = null;
     private int iNrFinished = 0;
+    private Object iSignal = new Object();
+    private AtomicLong iCommitStamp = new AtomicLong(0);
+    private AtomicLong iNrCommits = new AtomicLong(0);
+    private AtomicLong iOptimisticCommits = new AtomicLong(0);
+    private AtomicLong iOptimisticCollisions = new AtomicLong(0);
+    private AtomicLong iOptimisticRejections = new AtomicLong(0);
     
     public ParallelSolver(DataProperties properties) {
         super(properties);
@@ -82,6 +105,34 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
         }
     }
     
+    /**
+     * The parallel solver can only be executed by a {@link SolverPool} when it is using a single solver thread
+     * (i.e., Parallel.NrSolvers is set to 1).
+     */
+    @Override
+    public boolean isPoolable() {
+        return Math.min(Math.abs(getProperties().getPropertyInt("Parallel.NrSolvers", 4)), CanHoldContext.sMaxSize - 1) == 1;
+    }
+    
+    /** Stop running solver, the synchronization thread is woken up immediately */
+    @Override
+    public void stopSolver(boolean join) {
+        if (iSynchronizationThread != null) {
+            iStop = true;
+            signal();
+        }
+        super.stopSolver(join);
+    }
+    
+    /**
+     * Wake up the synchronization thread (when a solver thread finishes or when the solver is to be stopped)
+     */
+    protected void signal() {
+        synchronized (iSignal) {
+            iSignal.notifyAll();
+        }
+    }
+    
     /** Returns solver's thread */
     @Override
     public Thread getSolverThread() {
@@ -93,7 +144,8 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
     public void setInitalSolution(Model<V, T> model) {
         int nrSolvers = Math.min(Math.abs(getProperties().getPropertyInt("Parallel.NrSolvers", 4)), CanHoldContext.sMaxSize - 1);
         boolean updateMasterSolution = getProperties().getPropertyBoolean("Parallel.UpdateMasterSolution", true);
-        setInitalSolution(new Solution<V, T>(model, nrSolvers > 1 ? new DefaultParallelAssignment<V, T>(updateMasterSolution ? 1 : 0) : new DefaultSingleAssignment<V, T>(), 0, 0));
+        boolean arrayAssignment = getProperties().getPropertyBoolean("Parallel.ArrayAssignment", false);
+        setInitalSolution(new Solution<V, T>(model, nrSolvers > 1 ? arrayAssignment ? new ParallelAssignmentArray<V, T>(updateMasterSolution ? 1 : 0) : new DefaultParallelAssignment<V, T>(updateMasterSolution ? 1 : 0) : new DefaultSingleAssignment<V, T>(), 0, 0));
     }
     
     /**
@@ -126,6 +178,11 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
         public void run() {
             iStop = false;
             iNrFinished = 0;
+            iCommitStamp.set(0);
+            iNrCommits.set(0);
+            iOptimisticCommits.set(0);
+            iOptimisticCollisions.set(0);
+            iOptimisticRejections.set(0);
             setName("SolverSync");
             
             // Initialization
@@ -173,11 +230,18 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
                 iAssignmentThread.start();
             }
             
+            if (queue == null && hasSingleSolution() && getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionOptimistic", false))
+                currentSolution().addSolutionListener(new OptimisticCommitInfo());
+            
             int timeout = getProperties().getPropertyInt("Termination.TimeOut", 1800);
             double start = JProf.currentTimeSec();
             while (!iStop && iNrFinished < iNrSolvers) {
                 try {
-                    Thread.sleep(1000);
+                    // wait for a second, or until a solver thread finishes or the solver is stopped
+                    synchronized (iSignal) {
+                        if (!iStop && iNrFinished < iNrSolvers)
+                            iSignal.wait(1000);
+                    }
                     double time = JProf.currentTimeSec() - start;
                     
                     // Increment progress bar
@@ -209,6 +273,12 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
             
             // Finalization
             iLastSolution = iCurrentSolution;
+            disposeValueScoring();
+            
+            if (iMetrics != null) {
+                sLogger.info("Solver metrics: " + iMetrics.getTotal());
+                saveMetrics();
+            }
 
             iProgress.setPhase("Done", 1);
             iProgress.incProgress();
@@ -233,7 +303,11 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
      */
     protected Solution<V, T> createParallelSolution(int index) {
         Model<V, T> model = iCurrentSolution.getModel();
-        Assignment<V, T> assignment = new DefaultParallelAssignment<V, T>(index, model, iCurrentSolution.getAssignment());
+        Assignment<V, T> assignment = null;
+        if (iCurrentSolution.getAssignment() instanceof ParallelAssignmentArray || getProperties().getPropertyBoolean("Parallel.ArrayAssignment", false))
+            assignment = new ParallelAssignmentArray<V, T>(index, model, iCurrentSolution.getAssignment());
+        else
+            assignment = new DefaultParallelAssignment<V, T>(index, model, iCurrentSolution.getAssignment());
         model.createAssignmentContexts(assignment, true);
         Solution<V, T> solution = new Solution<V, T>(model, assignment);
         for (SolutionListener<V, T> listener: iCurrentSolution.getSolutionListeners())
@@ -274,9 +348,12 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
         @Override
         public void run() {
             iStartTime = JProf.currentTimeSec();
+            SolverMetrics.Counters metrics = (iMetrics == null ? null : iMetrics.register(getName()));
+            ToolBox.setThreadRandom(createRandom(iIndex));
             try {
                 boolean neighbourCheck = getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionNeighbourCheck", false);
                 boolean tryLazyFirst = getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionTryLazyFirst", false);
+                final boolean optimistic = iSingle && iQueue == null && getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionOptimistic", false);
                 
                 while (!iStop) {
                     // Break if cannot continue
@@ -309,18 +386,31 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
 
                             @Override
                             public void bestRestored(Solution<V, T> solution) {
-                                iSolution.restoreBest();
+                                if (optimistic) {
+                                    // restoring the best solution is a change of the shared solution as well
+                                    long stamp = beginCommit();
+                                    try {
+                                        iSolution.restoreBest();
+                                    } finally {
+                                        iCommitStamp.set(stamp + 2);
+                                    }
+                                } else {
+                                    iSolution.restoreBest();
+                                }
                             }
                         });
                     }
 
                     // Neighbour selection
+                    if (metrics != null) metrics.inc(SolverMetrics.Metric.Iteration);
+                    long t0 = (metrics == null ? 0 : System.nanoTime());
                     Neighbour<V, T> neighbour = null;
                     try {
                         neighbour = getNeighbourSelection().selectNeighbour(current);
                     } catch (Exception e) {
                         sLogger.debug("Failed to select a neighbour: " + (e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()), e);
                     }
+                    if (metrics != null) metrics.record(SolverMetrics.Metric.SelectNeighbour, t0);
                     for (SolverListener<V, T> listener : iSolverListeners) {
                         if (!listener.neighbourSelected(iAssignment, iSolution.getIteration(), neighbour)) {
                             neighbour = null;
@@ -359,74 +449,86 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
                         
                         if (tryLazyFirst && neighbour instanceof LazyNeighbour) {
                             LazyNeighbour<V, T> lazy = (LazyNeighbour<V, T>)neighbour;
-                            double before = current.getModel().getTotalValue(current.getAssignment());
-                            neighbour.assign(current.getAssignment(), current.getIteration());
-                            double after = current.getModel().getTotalValue(current.getAssignment());
-                            if (!lazy.getAcceptanceCriterion().accept(current.getAssignment(), lazy, after - before))
+                            double value;
+                            if (current.getModel().isExactDelta()) {
+                                // all criteria are able to compute the change exactly, include the conflicts that would get unassigned
+                                Map<V, T> changes = new HashMap<V, T>(assignments);
+                                for (T change: assignments.values()) {
+                                    if (change == null) continue;
+                                    for (T conflict: current.getModel().conflictValues(current.getAssignment(), change))
+                                        if (!assignments.containsKey(conflict.variable()))
+                                            changes.put(conflict.variable(), null);
+                                }
+                                value = current.getModel().getWeightedDelta(current.getAssignment(), changes);
+                                neighbour.assign(current.getAssignment(), current.getIteration());
+                            } else {
+                                double before = current.getModel().getTotalValue(current.getAssignment());
+                                neighbour.assign(current.getAssignment(), current.getIteration());
+                                value = current.getModel().getTotalValue(current.getAssignment()) - before;
+                            }
+                            if (!lazy.getAcceptanceCriterion().accept(current.getAssignment(), lazy, value))
                                 continue;
                         }
                         
-                        // Assign selected value to the selected variable
-                        Lock lock = iSolution.getLock().writeLock();
-                        lock.lock();
-                        try {
-                            LazyNeighbourAcceptanceCriterion<V,T> lazy = null;
-                            double before = 0, value = 0;
-                            if (neighbour instanceof LazyNeighbour) {
-                                before = iSolution.getModel().getTotalValue(iSolution.getAssignment());
-                                lazy = ((LazyNeighbour<V, T>)neighbour).getAcceptanceCriterion();
-                            } else if (neighbourCheck) {
-                                before = iSolution.getModel().getTotalValue(iSolution.getAssignment());
+                        // Optimistic commit: the neighbour is validated without any lock and written directly into the shared solution,
+                        // provided that no other change has been made in the meantime (compare-and-set of the commit stamp)
+                        Double value = null;
+                        if (optimistic) {
+                            if (neighbourCheck && !(neighbour instanceof LazyNeighbour))
                                 value = neighbour.value(current.getAssignment());
+                            long stamp = awaitCommitStamp();
+                            ValidationResult result = null;
+                            try {
+                                result = validate(((InheritedAssignment<V, T>)current.getAssignment()).getVersion(), assignments);
+                            } catch (RuntimeException e) {
+                                // the shared solution has been changed during the validation
+                                result = ValidationResult.Stale;
                             }
-                            Map<V, T> undo = new HashMap<V, T>();
-                            for (V var: assignments.keySet())
-                                undo.put(var, iSolution.getAssignment().unassign(iSolution.getIteration(), var));
-                            boolean fail = false;
-                            for (T val: assignments.values()) {
-                                if (val == null) continue;
-                                if (iModel.inConflict(iSolution.getAssignment(), val)) {
-                                    fail = true; break;
-                                }
-                                iSolution.getAssignment().assign(iSolution.getIteration(), val);
-                            }
-                            if (!fail) {
-                                if (lazy != null) {
-                                    double after = iSolution.getModel().getTotalValue(iSolution.getAssignment());
-                                    if (!lazy.accept(iSolution.getAssignment(), (LazyNeighbour<V, T>) neighbour, after - before))
-                                        fail = true;
-                                } else if (neighbourCheck) {
-                                    double after = iSolution.getModel().getTotalValue(iSolution.getAssignment());
-                                    if (before + value < after && before < after && !getSolutionComparator().isBetterThanBestSolution(iSolution))
-                                        fail = true;
-                                }
-                            }
-                            if (fail) {
-                                for (V var: undo.keySet())
-                                    iSolution.getAssignment().unassign(iSolution.getIteration(), var);
-                                for (T val: undo.values())
-                                    if (val != null)
-                                        iSolution.getAssignment().assign(iSolution.getIteration(), val);
-                            }
-                            iSolution.update(time, !fail);
-                            if (fail) {
+                            if (result == ValidationResult.Conflicting && iCommitStamp.get() != stamp)
+                                result = ValidationResult.Stale;
+                            if (result == ValidationResult.Conflicting) {
+                                iOptimisticRejections.incrementAndGet();
+                                iSolution.update(time, false);
                                 for (SolverListener<V, T> listener : iSolverListeners)
                                     listener.neighbourFailed(current.getAssignment(), iSolution.getIteration(), neighbour);
                                 continue;
                             }
-                            
-                            onAssigned(iStartTime, iSolution);
-
-                            if ((iSaveBestUnassigned < 0 || iSaveBestUnassigned >= iSolution.getAssignment().nrUnassignedVariables(iModel)) && getSolutionComparator().isBetterThanBestSolution(iSolution)) {
-                                iSolution.saveBest();
+                            if (result == ValidationResult.Valid && iCommitStamp.compareAndSet(stamp, stamp + 1)) {
+                                boolean committed = false;
+                                try {
+                                    committed = commit(current, neighbour, assignments, value, neighbourCheck, time);
+                                } finally {
+                                    iCommitStamp.set(stamp + 2);
+                                }
+                                if (committed)
+                                    iOptimisticCommits.incrementAndGet();
+                                continue;
+                            }
+                            iOptimisticCollisions.incrementAndGet();
+                        }
+                        
+                        // Assign selected value to the selected variable
+                        // (the commit stamp is always claimed before the write lock, solution updates take the write lock as well)
+                        Lock lock = iSolution.getLock().writeLock();
+                        long t1 = (metrics == null ? 0 : System.nanoTime());
+                        long stamp = (optimistic ? beginCommit() : -1);
+                        try {
+                            lock.lock();
+                            if (metrics != null) metrics.record(SolverMetrics.Metric.LockWait, t1);
+                            try {
+                                commit(current, neighbour, assignments, value, neighbourCheck, time);
+                            } finally {
+                                lock.unlock();
                             }
                         } finally {
-                            lock.unlock();
+                            if (stamp >= 0) iCommitStamp.set(stamp + 2);
                         }
                     } else {
                         // Assign selected value to the selected variable
                         Lock lock = iSolution.getLock().writeLock();
+                        long t1 = (metrics == null ? 0 : System.nanoTime());
                         lock.lock();
+                        if (metrics != null) metrics.record(SolverMetrics.Metric.LockWait, t1);
                         try {
                             neighbour.assign(iAssignment, iSolution.getIteration());
                             iSolution.update(time, currentSolution());
@@ -449,6 +551,9 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
                     onFailure();
                 }
             }
+            ToolBox.setThreadRandom(null);
+            if (metrics != null)
+                iMetrics.unregister(metrics);
             Lock lock = currentSolution().getLock().writeLock();
             lock.lock();
             try {
@@ -456,8 +561,214 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
             } finally {
                 lock.unlock();
             }
+            signal();
         }
         
+        /**
+         * Commit the given neighbour into the shared (single) solution. The caller must have an exclusive access to the shared
+         * solution, i.e., hold its write lock or have claimed the commit stamp (see {@link ParallelSolver#beginCommit()}).
+         * When the neighbour cannot be assigned or it is not accepted, the shared solution is left unchanged.
+         * @param current the thread's solution (an inherited assignment) in which the neighbour was computed
+         * @param neighbour selected neighbour
+         * @param assignments neighbour assignments
+         * @param value neighbour value, computed when needed if null
+         * @param neighbourCheck check the neighbour value against the change in the total value of the shared solution
+         * @param time solution time
+         * @return true if the neighbour has been committed
+         */
+        protected boolean commit(Solution<V, T> current, Neighbour<V, T> neighbour, Map<V, T> assignments, Double value, boolean neighbourCheck, double time) {
+            LazyNeighbourAcceptanceCriterion<V,T> lazy = null;
+            double before = 0;
+            if (neighbour instanceof LazyNeighbour) {
+                before = iSolution.getModel().getTotalValue(iSolution.getAssignment());
+                lazy = ((LazyNeighbour<V, T>)neighbour).getAcceptanceCriterion();
+            } else if (neighbourCheck) {
+                before = iSolution.getModel().getTotalValue(iSolution.getAssignment());
+                if (value == null)
+                    value = neighbour.value(current.getAssignment());
+            }
+            Map<V, T> undo = new HashMap<V, T>();
+            for (V var: assignments.keySet())
+                undo.put(var, iSolution.getAssignment().unassign(iSolution.getIteration(), var));
+            boolean fail = false;
+            for (T val: assignments.values()) {
+                if (val == null) continue;
+                if (iModel.inConflict(iSolution.getAssignment(), val)) {
+                    fail = true; break;
+                }
+                iSolution.getAssignment().assign(iSolution.getIteration(), val);
+            }
+            if (!fail) {
+                if (lazy != null) {
+                    double after = iSolution.getModel().getTotalValue(iSolution.getAssignment());
+                    if (!lazy.accept(iSolution.getAssignment(), (LazyNeighbour<V, T>) neighbour, after - before))
+                        fail = true;
+                } else if (neighbourCheck) {
+                    double after = iSolution.getModel().getTotalValue(iSolution.getAssignment());
+                    if (before + value < after && before < after && !getSolutionComparator().isBetterThanBestSolution(iSolution))
+                        fail = true;
+                }
+            }
+            if (fail) {
+                for (V var: undo.keySet())
+                    iSolution.getAssignment().unassign(iSolution.getIteration(), var);
+                for (T val: undo.values())
+                    if (val != null)
+                        iSolution.getAssignment().assign(iSolution.getIteration(), val);
+            }
+            iSolution.update(time, !fail);
+            if (fail) {
+                for (SolverListener<V, T> listener : iSolverListeners)
+                    listener.neighbourFailed(current.getAssignment(), iSolution.getIteration(), neighbour);
+                return false;
+            }
+            iNrCommits.incrementAndGet();
+            
+            onAssigned(iStartTime, iSolution);
+
+            if ((iSaveBestUnassigned < 0 || iSaveBestUnassigned >= iSolution.getAssignment().nrUnassignedVariables(iModel)) && getSolutionComparator().isBetterThanBestSolution(iSolution)) {
+                iSolution.saveBest();
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Result of the optimistic validation of a neighbour, see {@link ParallelSolver#validate(long, Map)}
+     */
+    protected static enum ValidationResult {
+        /** Neighbour can be committed */
+        Valid,
+        /** Some of the variables of the neighbour have been changed in the meantime */
+        Stale,
+        /** Neighbour is conflicting with the current solution */
+        Conflicting,
+    }
+    
+    /**
+     * Claim the commit stamp, waiting for a commit in progress to finish. The stamp is even when no commit is in progress,
+     * it is odd while a commit is being made. Every change of the shared solution made by the solver threads in the optimistic mode
+     * must be done between a claim and a release of the stamp (by setting it to the returned value plus two).
+     * @return the claimed (even) commit stamp
+     */
+    protected long beginCommit() {
+        while (true) {
+            long stamp = iCommitStamp.get();
+            if ((stamp & 1) == 0 && iCommitStamp.compareAndSet(stamp, stamp + 1)) return stamp;
+            Thread.yield();
+        }
+    }
+    
+    /**
+     * Current commit stamp, waiting for a commit in progress to finish (see {@link ParallelSolver#beginCommit()})
+     * @return current (even) commit stamp
+     */
+    protected long awaitCommitStamp() {
+        while (true) {
+            long stamp = iCommitStamp.get();
+            if ((stamp & 1) == 0) return stamp;
+            Thread.yield();
+        }
+    }
+    
+    /**
+     * Optimistic validation of a neighbour against the shared (single) solution. The validation is done without any lock,
+     * the result is only to be trusted when the commit stamp has not changed in the meantime (see {@link ParallelSolver#awaitCommitStamp()}).
+     * The read-set of the neighbour are its variables, that must not be changed since the
+     * inherited assignment (in which the neighbour was computed) has been created. Version stamps of the variables
+     * are given by {@link Assignment#getIteration(Variable)} of the shared solution.
+     * @param version version of the inherited assignment (see {@link InheritedAssignment#getVersion()})
+     * @param assignments neighbour assignments
+     * @return {@link ValidationResult#Stale} if some of the variables has been changed in the meantime,
+     * {@link ValidationResult#Conflicting} if a new value conflicts with a variable outside of the neighbour,
+     * {@link ValidationResult#Valid} otherwise
+     */
+    protected ValidationResult validate(long version, Map<V, T> assignments) {
+        Assignment<V, T> assignment = iCurrentSolution.getAssignment();
+        for (V variable: assignments.keySet())
+            if (assignment.getIteration(variable) >= version && assignment.getIteration(variable) > 0)
+                return ValidationResult.Stale;
+        Model<V, T> model = iCurrentSolution.getModel();
+        ConflictCollector<T> conflicts = ConflictCollector.acquire();
+        try {
+            for (T value: assignments.values()) {
+                if (value == null) continue;
+                conflicts.clear();
+                for (T conflict: model.conflictValues(assignment, value, conflicts))
+                    if (!assignments.containsKey(conflict.variable()))
+                        return ValidationResult.Conflicting;
+            }
+        } finally {
+            conflicts.release();
+        }
+        return ValidationResult.Valid;
+    }
+    
+    /**
+     * Number of neighbours committed into the shared solution (optimistic and locked commits)
+     * @return number of commits
+     */
+    public long getNrCommits() {
+        return iNrCommits.get();
+    }
+    
+    /**
+     * Number of neighbours committed using the optimistic validation (no change in the solution between
+     * the validation and the commit, no write lock taken)
+     * @return number of optimistic commits
+     */
+    public long getNrOptimisticCommits() {
+        return iOptimisticCommits.get();
+    }
+    
+    /**
+     * Number of optimistic commit collisions (neighbour variables changed since its computation, or
+     * the solution changed between the validation and the commit)
+     * @return number of collisions
+     */
+    public long getNrOptimisticCollisions() {
+        return iOptimisticCollisions.get();
+    }
+    
+    /**
+     * Number of neighbours rejected by the optimistic validation (without taking the write lock)
+     * @return number of rejections
+     */
+    public long getNrOptimisticRejections() {
+        return iOptimisticRejections.get();
+    }
+    
+    /**
+     * Solution listener adding optimistic commit statistics into the solution info
+     */
+    protected class OptimisticCommitInfo implements SolutionListener<V, T> {
+        @Override
+        public void solutionUpdated(Solution<V, T> solution) {
+        }
+
+        @Override
+        public void getInfo(Solution<V, T> solution, Map<String, String> info) {
+            long commits = iNrCommits.get();
+            if (commits > 0)
+                info.put("Commit collisions", sPercentFormat.format(100.0 * iOptimisticCollisions.get() / commits) + "% (" +
+                        iOptimisticCommits.get() + " optimistic, " + iOptimisticCollisions.get() + " collisions, " + iOptimisticRejections.get() + " rejected)");
+        }
+
+        @Override
+        public void getInfo(Solution<V, T> solution, Map<String, String> info, Collection<V> variables) {
+        }
+
+        @Override
+        public void bestCleared(Solution<V, T> solution) {
+        }
+
+        @Override
+        public void bestSaved(Solution<V, T> solution) {
+        }
+
+        @Override
+        public void bestRestored(Solution<V, T> solution) {
+        }
     }
     
     /**
@@ -478,6 +789,7 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
         @Override
         public void run() {
             iStartTime = JProf.currentTimeSec();
+            SolverMetrics.Counters metrics = (iMetrics == null ? null : iMetrics.register(getName()));
             try {
                 boolean neighbourCheck = getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionNeighbourCheck", false);
                 
@@ -506,8 +818,11 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
                     }
                     
                     // Assign selected value to the selected variable
+                    if (metrics != null) metrics.inc(SolverMetrics.Metric.Iteration);
                     Lock lock = iSolution.getLock().writeLock();
+                    long t1 = (metrics == null ? 0 : System.nanoTime());
                     lock.lock();
+                    if (metrics != null) metrics.record(SolverMetrics.Metric.LockWait, t1);
                     try {
                         LazyNeighbourAcceptanceCriterion<V,T> lazy = null;
                         double before = 0, value = 0;
@@ -568,6 +883,8 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
                 sLogger.error(ex.getMessage(), ex);
                 iProgress.fatal(getName() + " failed, reason:" + ex.getMessage(), ex);
             }
+            if (metrics != null)
+                iMetrics.unregister(metrics);
             Lock lock = currentSolution().getLock().writeLock();
             lock.lock();
             try {
@@ -575,6 +892,7 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
             } finally {
                 lock.unlock();
             }
+            signal();
         }
         
     }
@@ -5,7 +5,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.StringTokenizer;
 import java.util.concurrent.locks.Lock;
 
@@ -14,9 +17,11 @@ import org.cpsolver.ifs.extension.ConflictStatistics;
 import org.cpsolver.ifs.extension.Extension;
 import org.cpsolver.ifs.extension.MacPropagation;
 import org.cpsolver.ifs.heuristics.NeighbourSelection;
+import org.cpsolver.ifs.heuristics.ParallelValueScoring;
 import org.cpsolver.ifs.heuristics.StandardNeighbourSelection;
 import org.cpsolver.ifs.heuristics.ValueSelection;
 import org.cpsolver.ifs.heuristics.VariableSelection;
+import org.cpsolver.ifs.model.ConstraintOrdering;
 import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Neighbour;
 import org.cpsolver.ifs.model.Value;
@@ -25,12 +30,14 @@ import org.cpsolver.ifs.perturbations.DefaultPerturbationsCounter;
 import org.cpsolver.ifs.perturbations.PerturbationsCounter;
 import org.cpsolver.ifs.solution.GeneralSolutionComparator;
 import org.cpsolver.ifs.solution.Solution;
+import org.cpsolver.ifs.solution.SolutionCheckpoint;
 import org.cpsolver.ifs.solution.SolutionComparator;
 import org.cpsolver.ifs.termination.GeneralTerminationCondition;
 import org.cpsolver.ifs.termination.TerminationCondition;
 import org.cpsolver.ifs.util.DataProperties;
 import org.cpsolver.ifs.util.JProf;
 import org.cpsolver.ifs.util.Progress;
+import org.cpsolver.ifs.util.SplitRandom;
 import org.cpsolver.ifs.util.ToolBox;
 
 
@@ -125,6 +132,33 @@ import org.cpsolver.ifs.util.ToolBox;
  * <td>If set, random number generator is initialized with this seed</td>
  * </tr>
  * <tr>
+ * <td>General.ThreadRandom</td>
+ * <td>{@link Boolean}</td>
+ * <td>If true (default), each solver thread uses its own random number generator, derived from the seed
+ * and the index of the thread (see {@link SplitRandom}), so that the threads do not contend on a shared
+ * generator and a multi-threaded run can be replayed with the same seed</td>
+ * </tr>
+ * <tr>
+ * <td>General.ConstraintOrdering</td>
+ * <td>{@link Boolean}</td>
+ * <td>If true, the hard constraints of each variable (and the global constraints) are checked in an adaptive order
+ * by {@link Model#inConflict(org.cpsolver.ifs.assignment.Assignment, Value)}, the most selective and the cheapest
+ * constraints first (see {@link ConstraintOrdering}); defaults to false. The constraints of a variable are re-ordered
+ * every General.ConstraintOrdering.Interval checks of the variable (defaults to 1024).</td>
+ * </tr>
+ * <tr>
+ * <td>General.InfoThreads</td>
+ * <td>{@link Integer}</td>
+ * <td>Number of threads computing the solution info (the info providers of the model, e.g., the criteria, are called in parallel,
+ * see {@link Model#setInfoThreads(int)}); defaults to 1, zero or a negative number means the number of available processors</td>
+ * </tr>
+ * <tr>
+ * <td>General.InfoCache</td>
+ * <td>{@link Boolean}</td>
+ * <td>If true, the solution info of the model is cached and reused until the assignment or the best solution changes
+ * (see {@link Solution#setInfoCache(boolean)}); defaults to false</td>
+ * </tr>
+ * <tr>
  * <td>General.SaveConfiguration</td>
  * <td>{@link Boolean}</td>
  * <td>If true, given configuration is stored into the output folder (during
@@ -168,6 +202,41 @@ import org.cpsolver.ifs.util.ToolBox;
  * extensions (see {@link Extension}, e.g. {@link ConflictStatistics} or
  * {@link MacPropagation})</td>
  * </tr>
+ * <tr>
+ * <td>Solver.Metrics</td>
+ * <td>{@link Boolean}</td>
+ * <td>If true, hot-path metrics are collected for each solver thread (see
+ * {@link SolverMetrics} and {@link Solver#getMetrics()})</td>
+ * </tr>
+ * <tr>
+ * <td>Solver.MetricsFile</td>
+ * <td>{@link String}</td>
+ * <td>If set (and the metrics are enabled), the metrics are saved into the given
+ * CSV file when the solver is finished</td>
+ * </tr>
+ * <tr>
+ * <td>Checkpoint.File</td>
+ * <td>{@link String}</td>
+ * <td>If set, a binary checkpoint of the solution is periodically saved into the
+ * given file (see {@link SolutionCheckpoint})</td>
+ * </tr>
+ * <tr>
+ * <td>Checkpoint.Interval</td>
+ * <td>{@link Double}</td>
+ * <td>Time between two checkpoints in seconds (defaults to 300)</td>
+ * </tr>
+ * <tr>
+ * <td>Checkpoint.Resume</td>
+ * <td>{@link Boolean}</td>
+ * <td>If true and the checkpoint file exists, the solver is resumed from the
+ * checkpoint when started (defaults to true)</td>
+ * </tr>
+ * <tr>
+ * <td>Checkpoint.Class</td>
+ * <td>{@link String}</td>
+ * <td>Fully qualified class name of the checkpoint encoder (e.g.,
+ * org.cpsolver.exam.model.ExamCheckpoint, defaults to {@link SolutionCheckpoint})</td>
+ * </tr>
  * </table>
  * 
  * @see SolverListener
@@ -215,6 +284,8 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
 
     /** solver thread */
     protected SolverThread iSolverThread = null;
+    /** solver run, when executed by a solver pool (see {@link SolverPool}) */
+    protected SolverRun iSolverRun = null;
     /** configuration */
     private DataProperties iProperties = null;
 
@@ -225,6 +296,15 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
     private List<Extension<V, T>> iExtensions = new ArrayList<Extension<V, T>>();
     protected List<SolverListener<V, T>> iSolverListeners = new ArrayList<SolverListener<V, T>>();
     protected int iSaveBestUnassigned = 0;
+    private long iSeed = 0;
+    private boolean iThreadRandom = true;
+    /** hot-path metrics, null when disabled */
+    protected SolverMetrics iMetrics = null;
+    /** solution checkpoint, null when disabled */
+    protected SolutionCheckpoint<V, T> iCheckpoint = null;
+    protected File iCheckpointFile = null;
+    protected double iCheckpointInterval = 300.0;
+    private Map<String, ParallelValueScoring> iValueScoring = new HashMap<String, ParallelValueScoring>();
 
     private boolean iUpdateProgress = true;
 
@@ -242,6 +322,7 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
 
     /** Dispose solver */
     public void dispose() {
+        disposeValueScoring();
         iExtensions.clear();
         iSolverListeners.clear();
         iTerminationCondition = null;
@@ -489,8 +570,22 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
     public void initSolver() {
         long seed = getProperties().getPropertyLong("General.Seed", System.currentTimeMillis());
         ToolBox.setSeed(seed);
+        iSeed = seed;
+        iThreadRandom = getProperties().getPropertyBoolean("General.ThreadRandom", true);
 
         iSaveBestUnassigned = getProperties().getPropertyInt("General.SaveBestUnassigned", 0);
+        
+        iMetrics = (getProperties().getPropertyBoolean("Solver.Metrics", false) ? new SolverMetrics() : null);
+        
+        if (iCurrentSolution != null) {
+            iCurrentSolution.getModel().setConstraintOrdering(getProperties().getPropertyBoolean("General.ConstraintOrdering", false));
+            ConstraintOrdering<V, T> ordering = iCurrentSolution.getModel().getConstraintOrdering();
+            if (ordering != null)
+                ordering.setReorderInterval(getProperties().getPropertyInt("General.ConstraintOrdering.Interval", ordering.getReorderInterval()));
+            iCurrentSolution.getModel().setInfoThreads(getProperties().getPropertyInt("General.InfoThreads", 1));
+        }
+        
+        initCheckpoint();
 
         clearBest();
         if (iProperties.getPropertyBoolean("Solver.AutoConfigure", true)) {
@@ -535,6 +630,140 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
         }
     }
 
+    /**
+     * Hot-path metrics of the solver threads (enabled by the Solver.Metrics parameter)
+     * @return solver metrics, null if disabled
+     */
+    public SolverMetrics getMetrics() {
+        return iMetrics;
+    }
+    
+    /**
+     * Save the metrics into the file given by the Solver.MetricsFile parameter (if set and the metrics are enabled)
+     */
+    protected void saveMetrics() {
+        String file = getProperties().getProperty("Solver.MetricsFile");
+        if (iMetrics == null || file == null || file.isEmpty()) return;
+        try {
+            iMetrics.save(new File(file));
+        } catch (IOException e) {
+            sLogger.error("Unable to save solver metrics: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parallel value scoring of the given parameter prefix (see {@link ParallelValueScoring}). There is only one
+     * instance for each prefix, shared by all the heuristics (and all the solver threads) of the solver, so that
+     * no scoring threads are left behind when a heuristic is initialized again. The scoring threads are stopped
+     * when the solver is finished, stopped, or fails (see {@link Solver#disposeValueScoring()}); they are started
+     * again when needed.
+     * @param prefix parameter prefix (e.g., Value for Value.ScoringThreads)
+     * @return parallel value scoring
+     */
+    public ParallelValueScoring getValueScoring(String prefix) {
+        synchronized (iValueScoring) {
+            ParallelValueScoring scoring = iValueScoring.get(prefix);
+            if (scoring == null) {
+                scoring = new ParallelValueScoring(getProperties(), prefix);
+                iValueScoring.put(prefix, scoring);
+            }
+            return scoring;
+        }
+    }
+    
+    /**
+     * Parallel value scoring of the given name with the given number of threads, shared and stopped in the same way
+     * as the scorings returned by {@link Solver#getValueScoring(String)}. When there already is a scoring of the given
+     * name, it is returned regardless of its number of threads.
+     * @param name scoring name (e.g., the parameter prefix of the heuristic using it)
+     * @param nrThreads number of threads, including the calling thread (see {@link ParallelValueScoring#ParallelValueScoring(int, int)})
+     * @return parallel value scoring
+     */
+    public ParallelValueScoring getValueScoring(String name, int nrThreads) {
+        synchronized (iValueScoring) {
+            ParallelValueScoring scoring = iValueScoring.get(name);
+            if (scoring == null) {
+                scoring = new ParallelValueScoring(nrThreads, 2);
+                iValueScoring.put(name, scoring);
+            }
+            return scoring;
+        }
+    }
+    
+    /**
+     * Stop the threads of all the parallel value scorings of the solver (see {@link Solver#getValueScoring(String)})
+     * and the threads computing the solution info (see {@link Model#disposeInfoThreads()}).
+     * Called when the solver is finished, stopped, or fails.
+     */
+    protected void disposeValueScoring() {
+        synchronized (iValueScoring) {
+            for (ParallelValueScoring scoring: iValueScoring.values())
+                scoring.dispose();
+        }
+        Solution<V, T> solution = iCurrentSolution;
+        if (solution != null && solution.getModel() != null)
+            solution.getModel().disposeInfoThreads();
+    }
+
+    /**
+     * Create the solution checkpoint when the Checkpoint.File parameter is set
+     */
+    @SuppressWarnings("unchecked")
+    protected void initCheckpoint() {
+        iCheckpoint = null; iCheckpointFile = null;
+        String file = getProperties().getProperty("Checkpoint.File");
+        if (file == null || file.isEmpty()) return;
+        iCheckpointInterval = getProperties().getPropertyDouble("Checkpoint.Interval", 300.0);
+        try {
+            String checkpointClassName = getProperties().getProperty("Checkpoint.Class", SolutionCheckpoint.class.getName());
+            sLogger.info("Using " + checkpointClassName);
+            Class<?> checkpointClass = Class.forName(checkpointClassName);
+            Constructor<?> checkpointConstructor = checkpointClass.getConstructor(new Class<?>[] { DataProperties.class });
+            iCheckpoint = (SolutionCheckpoint<V, T>) checkpointConstructor.newInstance(new Object[] { getProperties() });
+            iCheckpointFile = new File(file);
+        } catch (Exception e) {
+            sLogger.error("Unable to create solution checkpoint: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Solution checkpoint (enabled by the Checkpoint.File parameter)
+     * @return solution checkpoint, null if disabled
+     */
+    public SolutionCheckpoint<V, T> getCheckpoint() {
+        return iCheckpoint;
+    }
+    
+    /**
+     * Save the current solution into the checkpoint file (if the checkpoints are enabled)
+     */
+    public void saveCheckpoint() {
+        if (iCheckpoint == null || iCurrentSolution == null) return;
+        try {
+            iCheckpoint.save(iCurrentSolution, iCheckpointFile);
+        } catch (IOException e) {
+            sLogger.error("Unable to save checkpoint: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Restore the current solution from the checkpoint file (if the checkpoints are enabled, Checkpoint.Resume
+     * is true, and the checkpoint file exists)
+     * @return true if the solution was restored
+     */
+    protected boolean resumeFromCheckpoint() {
+        if (iCheckpoint == null || !iCheckpointFile.exists() || !getProperties().getPropertyBoolean("Checkpoint.Resume", true))
+            return false;
+        try {
+            iCheckpoint.load(iCurrentSolution, iCheckpointFile);
+            sLogger.info("Solution restored from " + iCheckpointFile + " (iteration " + iCurrentSolution.getIteration() + ", time " + iCurrentSolution.getTime() + " s).");
+            return true;
+        } catch (IOException e) {
+            sLogger.error("Unable to restore checkpoint: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
     /** Stop running solver */
     public void stopSolver() {
         stopSolver(true);
@@ -552,14 +781,46 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
                 } catch (InterruptedException ex) {
                 }
             }
+        } else {
+            SolverRun run = iSolverRun;
+            if (run != null) {
+                iStop = true;
+                if (join) {
+                    try {
+                        run.join();
+                    } catch (InterruptedException ex) {
+                    }
+                }
+            }
         }
     }
 
-    /** True, if the solver is running 
+    /** True, if the solver is running (in its own thread or in a solver pool)
      * @return true if the solver is running
      **/
     public boolean isRunning() {
-        return (getSolverThread() != null);
+        return (getSolverThread() != null || iSolverRun != null);
+    }
+
+    /**
+     * Create a run of the solver that is to be executed in time slices by a {@link SolverPool}, instead of
+     * the solver being started in its own thread (see {@link Solver#start()}).
+     * @param name name of the run
+     * @return a new solver run
+     */
+    protected SolverRun createRun(String name) {
+        iStop = false;
+        iSolverRun = new SolverRun(name);
+        return iSolverRun;
+    }
+
+    /**
+     * True if the solver can be executed in time slices by a {@link SolverPool}, that is when it does not need
+     * any threads of its own.
+     * @return true
+     */
+    public boolean isPoolable() {
+        return true;
     }
 
     /** Called when the solver is stopped */
@@ -593,121 +854,269 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
         return currentSolution().getAssignment() instanceof DefaultSingleAssignment;
     }
 
+    /**
+     * Random number generator of a solver thread (see {@link ToolBox#setThreadRandom(Random)}), derived from the
+     * seed (General.Seed) and the given thread index
+     * @param index thread index
+     * @return random number generator, null if the shared random number generator is to be used
+     */
+    protected Random createRandom(int index) {
+        return (iThreadRandom ? new SplitRandom(iSeed, index) : null);
+    }
+
     /** Solver thread */
     protected class SolverThread extends Thread {
 
         /** Solving rutine */
         @Override
         public void run() {
+            // Sets thread name
+            setName("Solver");
+            SolverRun run = new SolverRun(getName());
+            iStop = false;
             try {
-                iStop = false;
-                // Sets thread name
-                setName("Solver");
-
-                // Initialization
-                iProgress = Progress.getInstance(iCurrentSolution.getModel());
-                iProgress.setStatus("Solving problem ...");
-                iProgress.setPhase("Initializing solver");
-                initSolver();
-                onStart();
-
-                double startTime = JProf.currentTimeSec();
-                int timeout = getProperties().getPropertyInt("Termination.TimeOut", 1800);
-                if (isUpdateProgress()) {
-                    if (iCurrentSolution.getBestInfo() == null) {
-                        iProgress.setPhase("Searching for initial solution ...", iCurrentSolution.getModel()
-                                .variables().size());
-                    } else {
-                        iProgress.setPhase("Improving found solution ...");
-                    }
+                run.begin();
+                run.iterate(Long.MAX_VALUE);
+                run.end();
+            } catch (Exception ex) {
+                run.failed(ex);
+            } finally {
+                run.release();
+            }
+        }
+    }
+
+    /**
+     * A run of the solver. It is split into the initialization ({@link SolverRun#begin()}), the iterations
+     * ({@link SolverRun#iterate(long)}), and the finalization ({@link SolverRun#end()}), so that it can be either
+     * executed at once by the {@link SolverThread}, or in time slices by a {@link SolverPool}. Between two slices,
+     * the run is suspended ({@link SolverRun#suspend()}) and the solution time is not counting.
+     */
+    protected class SolverRun {
+        private String iName;
+        private SolverMetrics.Counters iCounters = null;
+        private double iStartTime = 0.0;
+        private double iElapsedTime = 0.0;
+        private double iNextCheckpoint = 0.0;
+        private int iTimeout = 1800;
+        private boolean iDone = false;
+        private Random iRandom = null;
+
+        /**
+         * Constructor
+         * @param name name of the run (used for the solver metrics)
+         */
+        protected SolverRun(String name) {
+            iName = name;
+        }
+
+        /**
+         * Initialization of the solver, called first
+         * @throws Exception when the initialization fails
+         */
+        protected void begin() throws Exception {
+            // Initialization
+            iProgress = Progress.getInstance(iCurrentSolution.getModel());
+            iProgress.setStatus("Solving problem ...");
+            iProgress.setPhase("Initializing solver");
+            initSolver();
+            iRandom = createRandom(0);
+            ToolBox.setThreadRandom(iRandom);
+            onStart();
+            if (iMetrics != null)
+                iCounters = iMetrics.register(iName);
+
+            iStartTime = JProf.currentTimeSec();
+            if (resumeFromCheckpoint())
+                iStartTime -= iCurrentSolution.getTime();
+            iNextCheckpoint = iCurrentSolution.getTime() + iCheckpointInterval;
+            iTimeout = getProperties().getPropertyInt("Termination.TimeOut", 1800);
+            if (isUpdateProgress()) {
+                if (iCurrentSolution.getBestInfo() == null) {
+                    iProgress.setPhase("Searching for initial solution ...", iCurrentSolution.getModel()
+                            .variables().size());
+                } else {
+                    iProgress.setPhase("Improving found solution ...");
                 }
-                sLogger.info("Initial solution:" + ToolBox.dict2string(iCurrentSolution.getExtendedInfo(), 1));
-                if ((iSaveBestUnassigned < 0 || iSaveBestUnassigned >= iCurrentSolution.getAssignment().nrUnassignedVariables(iCurrentSolution.getModel()))
-                        && (iCurrentSolution.getBestInfo() == null || getSolutionComparator().isBetterThanBestSolution(iCurrentSolution))) {
-                    if (iCurrentSolution.getModel().variables().size() == iCurrentSolution.getAssignment().nrAssignedVariables())
-                        sLogger.info("Complete solution " + ToolBox.dict2string(iCurrentSolution.getExtendedInfo(), 1) + " was found.");
-                    iCurrentSolution.saveBest();
+            }
+            sLogger.info("Initial solution:" + ToolBox.dict2string(iCurrentSolution.getExtendedInfo(), 1));
+            if ((iSaveBestUnassigned < 0 || iSaveBestUnassigned >= iCurrentSolution.getAssignment().nrUnassignedVariables(iCurrentSolution.getModel()))
+                    && (iCurrentSolution.getBestInfo() == null || getSolutionComparator().isBetterThanBestSolution(iCurrentSolution))) {
+                if (iCurrentSolution.getModel().variables().size() == iCurrentSolution.getAssignment().nrAssignedVariables())
+                    sLogger.info("Complete solution " + ToolBox.dict2string(iCurrentSolution.getExtendedInfo(), 1) + " was found.");
+                iCurrentSolution.saveBest();
+            }
+
+            if (iCurrentSolution.getModel().variables().isEmpty()) {
+                iProgress.error("Nothing to solve.");
+                iStop = true;
+            }
+        }
+
+        /**
+         * Iterations: until solver can continue, or until the given time has passed
+         * @param maxTime maximal time to iterate in nanoseconds ({@link Long#MAX_VALUE} to iterate until the solver is done)
+         * @return true if the solver can continue (the time has passed), false when it is done
+         * @throws Exception when an iteration fails
+         */
+        protected boolean iterate(long maxTime) throws Exception {
+            long t = System.nanoTime();
+            while (!iStop && getTerminationCondition().canContinue(iCurrentSolution)) {
+                iteration();
+                if (System.nanoTime() - t >= maxTime) return true;
+            }
+            return false;
+        }
+
+        /**
+         * A single iteration of the solver
+         */
+        protected void iteration() {
+            SolverMetrics.Counters metrics = iCounters;
+            // Neighbour selection
+            if (metrics != null) metrics.inc(SolverMetrics.Metric.Iteration);
+            long t0 = (metrics == null ? 0 : System.nanoTime());
+            Neighbour<V, T> neighbour = getNeighbourSelection().selectNeighbour(iCurrentSolution);
+            if (metrics != null) metrics.record(SolverMetrics.Metric.SelectNeighbour, t0);
+            for (SolverListener<V, T> listener : iSolverListeners) {
+                if (!listener.neighbourSelected(iCurrentSolution.getAssignment(), iCurrentSolution.getIteration(), neighbour)) {
+                    neighbour = null;
+                    continue;
                 }
+            }
+            if (neighbour == null) {
+                sLogger.debug("No neighbour selected.");
+                // still update the solution (increase iteration etc.)
+                iCurrentSolution.update(JProf.currentTimeSec() - iStartTime, false);
+                return;
+            }
+
+            // Assign selected value to the selected variable
+            Lock lock = iCurrentSolution.getLock().writeLock();
+            long t1 = (metrics == null ? 0 : System.nanoTime());
+            lock.lock();
+            if (metrics != null) metrics.record(SolverMetrics.Metric.LockWait, t1);
+            try {
+                neighbour.assign(iCurrentSolution.getAssignment(), iCurrentSolution.getIteration());
+            } finally {
+                lock.unlock();
+            }
+            double time = JProf.currentTimeSec() - iStartTime;
+            iCurrentSolution.update(time);
+
+            onAssigned(iStartTime, iCurrentSolution);
 
-                if (iCurrentSolution.getModel().variables().isEmpty()) {
-                    iProgress.error("Nothing to solve.");
-                    iStop = true;
+            // Check if the solution is the best ever found one
+            if ((iSaveBestUnassigned < 0 || iSaveBestUnassigned >= iCurrentSolution.getAssignment().nrUnassignedVariables(iCurrentSolution.getModel())) && (iCurrentSolution.getBestInfo() == null || getSolutionComparator().isBetterThanBestSolution(iCurrentSolution))) {
+                if (iCurrentSolution.getModel().variables().size() == iCurrentSolution.getAssignment().nrAssignedVariables()) {
+                    iProgress.debug("Complete solution of value " + iCurrentSolution.getModel().getTotalValue(iCurrentSolution.getAssignment()) + " was found.");
                 }
+                iCurrentSolution.saveBest();
+            }
 
-                // Iterations: until solver can continue
-                while (!iStop && getTerminationCondition().canContinue(iCurrentSolution)) {
-                    // Neighbour selection
-                    Neighbour<V, T> neighbour = getNeighbourSelection().selectNeighbour(iCurrentSolution);
-                    for (SolverListener<V, T> listener : iSolverListeners) {
-                        if (!listener.neighbourSelected(iCurrentSolution.getAssignment(), iCurrentSolution.getIteration(), neighbour)) {
-                            neighbour = null;
-                            continue;
-                        }
-                    }
-                    if (neighbour == null) {
-                        sLogger.debug("No neighbour selected.");
-                        // still update the solution (increase iteration etc.)
-                        iCurrentSolution.update(JProf.currentTimeSec() - startTime, false);
-                        continue;
-                    }
+            // Save checkpoint
+            if (iCheckpoint != null && time >= iNextCheckpoint) {
+                saveCheckpoint();
+                iNextCheckpoint = time + iCheckpointInterval;
+            }
 
-                    // Assign selected value to the selected variable
-                    Lock lock = iCurrentSolution.getLock().writeLock();
-                    lock.lock();
-                    try {
-                        neighbour.assign(iCurrentSolution.getAssignment(), iCurrentSolution.getIteration());
-                    } finally {
-                        lock.unlock();
-                    }
-                    double time = JProf.currentTimeSec() - startTime;
-                    iCurrentSolution.update(time);
+            // Increment progress bar
+            if (isUpdateProgress()) {
+                if (iCurrentSolution.getBestInfo() != null && iCurrentSolution.getModel().getBestUnassignedVariables() == 0) {
+                    if (!"Improving found solution ...".equals(iProgress.getPhase()))
+                        iProgress.setPhase("Improving found solution ...");
+                    iProgress.setProgress(Math.min(100, (int)Math.round(100 * time / iTimeout)));
+                } else if ((iCurrentSolution.getBestInfo() == null || iCurrentSolution.getModel().getBestUnassignedVariables() > 0) && (iCurrentSolution.getAssignment().nrAssignedVariables() > iProgress.getProgress())) {
+                    iProgress.setProgress(iCurrentSolution.getAssignment().nrAssignedVariables());
+                }
+            }
+        }
 
-                    onAssigned(startTime, iCurrentSolution);
+        /**
+         * Suspend the run (between two time slices), the solution time and the metrics of the run are stopped
+         */
+        protected void suspend() {
+            iElapsedTime = JProf.currentTimeSec() - iStartTime;
+            SolverMetrics.suspend(iCounters);
+            ToolBox.setThreadRandom(null);
+        }
 
-                    // Check if the solution is the best ever found one
-                    if ((iSaveBestUnassigned < 0 || iSaveBestUnassigned >= iCurrentSolution.getAssignment().nrUnassignedVariables(iCurrentSolution.getModel())) && (iCurrentSolution.getBestInfo() == null || getSolutionComparator().isBetterThanBestSolution(iCurrentSolution))) {
-                        if (iCurrentSolution.getModel().variables().size() == iCurrentSolution.getAssignment().nrAssignedVariables()) {
-                            iProgress.debug("Complete solution of value " + iCurrentSolution.getModel().getTotalValue(iCurrentSolution.getAssignment()) + " was found.");
-                        }
-                        iCurrentSolution.saveBest();
-                    }
+        /**
+         * Resume the run (possibly in a different thread than the one that suspended it)
+         */
+        protected void resume() {
+            iStartTime = JProf.currentTimeSec() - iElapsedTime;
+            SolverMetrics.resume(iCounters);
+            ToolBox.setThreadRandom(iRandom);
+        }
 
-                    // Increment progress bar
-                    if (isUpdateProgress()) {
-                        if (iCurrentSolution.getBestInfo() != null && iCurrentSolution.getModel().getBestUnassignedVariables() == 0) {
-                            if (!"Improving found solution ...".equals(iProgress.getPhase()))
-                                iProgress.setPhase("Improving found solution ...");
-                            iProgress.setProgress(Math.min(100, (int)Math.round(100 * time / timeout)));
-                        } else if ((iCurrentSolution.getBestInfo() == null || iCurrentSolution.getModel().getBestUnassignedVariables() > 0) && (iCurrentSolution.getAssignment().nrAssignedVariables() > iProgress.getProgress())) {
-                            iProgress.setProgress(iCurrentSolution.getAssignment().nrAssignedVariables());
-                        }
-                    }
+        /**
+         * Finalization of the solver, called when the iterations are done
+         */
+        protected void end() {
+            iLastSolution = iCurrentSolution;
+            saveCheckpoint();
 
-                }
+            iProgress.setPhase("Done", 1);
+            iProgress.incProgress();
 
-                // Finalization
-                iLastSolution = iCurrentSolution;
+            if (iMetrics != null) {
+                iMetrics.unregister(iCounters); iCounters = null;
+                sLogger.info("Solver metrics: " + iMetrics.getTotal());
+                saveMetrics();
+            }
 
-                iProgress.setPhase("Done", 1);
-                iProgress.incProgress();
+            iSolverThread = null;
+            if (iSolverRun == this) iSolverRun = null;
+            if (iStop) {
+                sLogger.debug("Solver stopped.");
+                iProgress.setStatus("Solver stopped.");
+                onStop();
+            } else {
+                sLogger.debug("Solver done.");
+                iProgress.setStatus("Solver done.");
+                onFinish();
+            }
+        }
 
+        /**
+         * Called when the solver fails
+         * @param ex failure (an exception or an error thrown by the solver)
+         */
+        protected void failed(Throwable ex) {
+            sLogger.error(ex.getMessage(), ex);
+            iProgress.fatal("Solver failed, reason:" + ex.getMessage(), ex);
+            iProgress.setStatus("Solver failed.");
+            onFailure();
+        }
+
+        /**
+         * Release the run, called at the very end (after {@link SolverRun#end()} or {@link SolverRun#failed(Throwable)})
+         */
+        protected void release() {
+            try {
+                ToolBox.setThreadRandom(null);
+                disposeValueScoring();
+                if (iCounters != null)
+                    iMetrics.unregister(iCounters);
+                iCounters = null;
                 iSolverThread = null;
-                if (iStop) {
-                    sLogger.debug("Solver stopped.");
-                    iProgress.setStatus("Solver stopped.");
-                    onStop();
-                } else {
-                    sLogger.debug("Solver done.");
-                    iProgress.setStatus("Solver done.");
-                    onFinish();
+                if (iSolverRun == this) iSolverRun = null;
+            } finally {
+                synchronized (this) {
+                    iDone = true;
+                    notifyAll();
                 }
-            } catch (Exception ex) {
-                sLogger.error(ex.getMessage(), ex);
-                iProgress.fatal("Solver failed, reason:" + ex.getMessage(), ex);
-                iProgress.setStatus("Solver failed.");
-                onFailure();
             }
-            iSolverThread = null;
+        }
+
+        /**
+         * Wait for the run to be released
+         * @throws InterruptedException when interrupted
+         */
+        protected synchronized void join() throws InterruptedException {
+            while (!iDone)
+                wait();
         }
     }
     
@@ -0,0 +1,430 @@
+package org.cpsolver.ifs.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.cpsolver.ifs.criteria.Criterion;
+import org.cpsolver.ifs.model.ModelListener;
+import org.cpsolver.ifs.util.CSVFile;
+import org.cpsolver.ifs.util.CSVFile.CSVField;
+
+/**
+ * Hot-path metrics of a solver. Each solver thread registers its own {@link Counters}
+ * (see {@link SolverMetrics#register(String)}), which are bound to the thread and updated
+ * only by the thread itself, so that there is no contention between the solver threads.
+ * The instrumented code (e.g., {@link org.cpsolver.ifs.model.Model#conflictValues(org.cpsolver.ifs.assignment.Assignment, org.cpsolver.ifs.model.Value)}
+ * or {@link org.cpsolver.ifs.assignment.AssignmentAbstract}) looks up the counters of the current thread using
+ * {@link SolverMetrics#current()}, which returns null (after a single volatile read) when there are no counters
+ * registered.<br>
+ * <br>
+ * The following is tracked for each thread: number of iterations (and iterations per second), number of calls and
+ * time spent in the neighbour selection, conflict computation, assignment, unassignment, and criteria updates
+ * (model listeners, that are notified during each assignment and unassignment), number of created assignment
+ * contexts, and the time spent waiting for the solution lock. The times are inclusive (e.g., the time spent in
+ * the neighbour selection includes all the conflict computations made by the selection). The criteria updates
+ * are also broken down by the individual model listeners (e.g., criteria), see {@link Counters#getListeners()}.<br>
+ * <br>
+ * The metrics are enabled by the Solver.Metrics parameter (defaults to false). They can be exported as a snapshot
+ * (see {@link SolverMetrics#getSnapshot()}) or in the CSV format (see {@link SolverMetrics#toCSV()}). When the
+ * Solver.MetricsFile parameter is set, the metrics are saved into the given CSV file when the solver is finished.
+ * Since the counters are not synchronized, a snapshot that is taken while the solver is running is only
+ * approximate.
+ *
+ * @see Solver#getMetrics()
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ **/
+public class SolverMetrics {
+    private static java.text.DecimalFormat sDoubleFormat = new java.text.DecimalFormat("0.###", new java.text.DecimalFormatSymbols(java.util.Locale.US));
+    private static final ThreadLocal<Counters> sCounters = new ThreadLocal<Counters>();
+    private static volatile int sNrBound = 0;
+    private List<Counters> iCounters = new ArrayList<Counters>();
+
+    /**
+     * Tracked metrics
+     */
+    public static enum Metric {
+        /** Solver iterations */
+        Iteration("Iterations", false),
+        /** Neighbour selection, {@link org.cpsolver.ifs.heuristics.NeighbourSelection#selectNeighbour(org.cpsolver.ifs.solution.Solution)} */
+        SelectNeighbour("Select Neighbour", true),
+        /** Conflict computation, {@link org.cpsolver.ifs.model.Model#conflictValues(org.cpsolver.ifs.assignment.Assignment, org.cpsolver.ifs.model.Value)} */
+        ConflictValues("Conflict Values", true),
+        /** Hard constraint checks, {@link org.cpsolver.ifs.model.Model#inConflict(org.cpsolver.ifs.assignment.Assignment, org.cpsolver.ifs.model.Value)} */
+        InConflict("In Conflict", false),
+        /** Hard constraint checks that found a conflict */
+        InConflictRejected("In Conflict Rejected", false),
+        /** Assignment of a value, including all the notifications */
+        Assign("Assign", true),
+        /** Unassignment of a value, including all the notifications */
+        Unassign("Unassign", true),
+        /** Model listener (criteria) notifications during an assignment or an unassignment */
+        Criteria("Criteria Updates", true),
+        /** Creation (or inheritance) of an assignment context */
+        ContextCreation("Contexts Created", false),
+        /** Waiting for the solution lock */
+        LockWait("Lock Wait", true),
+        ;
+        private String iName;
+        private boolean iTimed;
+        Metric(String name, boolean timed) { iName = name; iTimed = timed; }
+
+        /** Metric name, as used in the CSV export
+         * @return metric name
+         **/
+        public String getName() { return iName; }
+
+        /** True if the time spent is tracked, false if only the count is kept
+         * @return true if timed
+         **/
+        public boolean isTimed() { return iTimed; }
+    }
+
+    /**
+     * Counters of the current thread, null if the current thread is not bound to any counters
+     * (e.g., the metrics are disabled).
+     * @return counters of the current thread
+     */
+    public static Counters current() {
+        return sNrBound == 0 ? null : sCounters.get();
+    }
+
+    /**
+     * Increment the count of the given metric of the current thread (if the current thread is bound to any counters)
+     * @param metric a metric
+     */
+    public static void inc(Metric metric) {
+        Counters counters = current();
+        if (counters != null) counters.inc(metric);
+    }
+
+    private static synchronized void bind(Counters counters) {
+        if (sCounters.get() == null) sNrBound ++;
+        sCounters.set(counters);
+    }
+
+    private static synchronized void unbind() {
+        if (sCounters.get() != null) sNrBound --;
+        sCounters.remove();
+    }
+
+    /**
+     * Create counters for the current thread and bind them to it. The counters should be released by
+     * {@link SolverMetrics#unregister(Counters)} when the thread is done.
+     * @param name thread name
+     * @return counters of the current thread
+     */
+    public Counters register(String name) {
+        Counters counters = new Counters(name);
+        synchronized (iCounters) {
+            iCounters.add(counters);
+        }
+        bind(counters);
+        return counters;
+    }
+
+    /**
+     * Unbind counters from the current thread. The counters are kept in the registry (they are stopped).
+     * @param counters counters of the current thread
+     */
+    public void unregister(Counters counters) {
+        if (counters == null) return;
+        counters.stop();
+        if (sCounters.get() == counters) unbind();
+    }
+
+    /**
+     * Unbind the given counters from the current thread, without stopping them (e.g., when a solver run executed by
+     * a {@link SolverPool} is suspended between two time slices).
+     * @param counters counters of the current thread, may be null
+     */
+    public static void suspend(Counters counters) {
+        if (counters != null && sCounters.get() == counters) unbind();
+    }
+
+    /**
+     * Bind the given counters to the current thread (e.g., when a solver run executed by a {@link SolverPool} is resumed,
+     * possibly by a different thread).
+     * @param counters counters to bind, may be null
+     */
+    public static void resume(Counters counters) {
+        if (counters != null) bind(counters);
+    }
+
+    /**
+     * Registered counters
+     * @return list of counters, one for each registered thread
+     */
+    public List<Counters> getCounters() {
+        synchronized (iCounters) {
+            return new ArrayList<Counters>(iCounters);
+        }
+    }
+
+    /**
+     * Counters of all the threads combined
+     * @return total counters (elapsed time is the longest elapsed time of all the threads)
+     */
+    public Counters getTotal() {
+        Counters total = new Counters("Total");
+        for (Counters counters: getCounters())
+            total.add(counters);
+        return total;
+    }
+
+    /**
+     * Snapshot of the metrics. The keys are in the form <i>thread</i>.<i>metric</i>.<i>count</i>,
+     * <i>thread</i>.<i>metric</i>.<i>time</i> (in milliseconds), and <i>thread</i>.Speed (iterations
+     * per second). Model listener updates are included as <i>thread</i>.Criteria.<i>listener</i>.<i>count</i>
+     * and <i>thread</i>.Criteria.<i>listener</i>.<i>time</i>. Counters of all the threads combined are
+     * included under the Total thread name.
+     * @return metric name: value
+     */
+    public Map<String, Double> getSnapshot() {
+        Map<String, Double> snapshot = new TreeMap<String, Double>();
+        List<Counters> counters = getCounters();
+        if (counters.size() > 1)
+            counters.add(getTotal());
+        for (Counters c: counters) {
+            snapshot.put(c.getName() + ".Speed", c.getIterationsPerSecond());
+            for (Metric m: Metric.values()) {
+                snapshot.put(c.getName() + "." + m.name() + ".count", Double.valueOf(c.getCount(m)));
+                if (m.isTimed())
+                    snapshot.put(c.getName() + "." + m.name() + ".time", c.getTime(m) / 1000000.0);
+            }
+            for (Map.Entry<String, long[]> e: c.getListeners().entrySet()) {
+                snapshot.put(c.getName() + "." + Metric.Criteria.name() + "." + e.getKey() + ".count", Double.valueOf(e.getValue()[0]));
+                snapshot.put(c.getName() + "." + Metric.Criteria.name() + "." + e.getKey() + ".time", e.getValue()[1] / 1000000.0);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Export the metrics in the CSV format, one line for each thread (and a total line when there are more
+     * threads). Times are in milliseconds. The model listener updates are listed after the metrics.
+     * @return CSV file with the metrics
+     */
+    public CSVFile toCSV() {
+        CSVFile csv = new CSVFile();
+        List<CSVField> header = new ArrayList<CSVField>();
+        header.add(new CSVField("Thread"));
+        header.add(new CSVField("Time [s]"));
+        header.add(new CSVField("Speed [it/s]"));
+        for (Metric m: Metric.values()) {
+            header.add(new CSVField(m.getName()));
+            if (m.isTimed())
+                header.add(new CSVField(m.getName() + " [ms]"));
+        }
+        List<Counters> counters = getCounters();
+        if (counters.size() > 1)
+            counters.add(getTotal());
+        Set<String> listeners = new TreeSet<String>();
+        for (Counters c: counters)
+            listeners.addAll(c.getListeners().keySet());
+        for (String listener: listeners) {
+            header.add(new CSVField(listener));
+            header.add(new CSVField(listener + " [ms]"));
+        }
+        csv.setHeader(header);
+        for (Counters c: counters) {
+            List<CSVField> line = new ArrayList<CSVField>();
+            line.add(new CSVField(c.getName()));
+            line.add(new CSVField(sDoubleFormat.format(c.getElapsedTime())));
+            line.add(new CSVField(sDoubleFormat.format(c.getIterationsPerSecond())));
+            for (Metric m: Metric.values()) {
+                line.add(new CSVField(c.getCount(m)));
+                if (m.isTimed())
+                    line.add(new CSVField(sDoubleFormat.format(c.getTime(m) / 1000000.0)));
+            }
+            Map<String, long[]> times = c.getListeners();
+            for (String listener: listeners) {
+                long[] t = times.get(listener);
+                line.add(new CSVField(t == null ? 0 : t[0]));
+                line.add(new CSVField(sDoubleFormat.format(t == null ? 0.0 : t[1] / 1000000.0)));
+            }
+            csv.addLine(line);
+        }
+        return csv;
+    }
+
+    /**
+     * Save the metrics in the CSV format, see {@link SolverMetrics#toCSV()}
+     * @param file output file
+     * @throws IOException thrown when the file cannot be written
+     */
+    public void save(File file) throws IOException {
+        toCSV().save(file);
+    }
+
+    @Override
+    public String toString() {
+        return getSnapshot().toString();
+    }
+
+    /**
+     * Metrics of a single thread. The counters are only to be updated by the thread they belong to.
+     */
+    public static class Counters {
+        private String iName;
+        private long iStartTime, iEndTime = -1;
+        private long[] iCount = new long[Metric.values().length];
+        private long[] iTime = new long[Metric.values().length];
+        private Map<Object, long[]> iListeners = new IdentityHashMap<Object, long[]>();
+
+        private Counters(String name) {
+            iName = name;
+            iStartTime = System.nanoTime();
+        }
+
+        /** Thread name
+         * @return name of the thread
+         **/
+        public String getName() { return iName; }
+
+        /** Increment the count of the given metric
+         * @param metric a metric
+         **/
+        public void inc(Metric metric) {
+            iCount[metric.ordinal()] ++;
+        }
+
+        /** Increment the count of the given metric and add the time elapsed since the given start
+         * @param metric a metric
+         * @param start start time, as returned by {@link System#nanoTime()}
+         **/
+        public void record(Metric metric, long start) {
+            iCount[metric.ordinal()] ++;
+            iTime[metric.ordinal()] += System.nanoTime() - start;
+        }
+
+        /** Increment the count of the given model listener (e.g., a criterion) and add the time elapsed since the given start
+         * @param listener a model listener that was notified
+         * @param start start time, as returned by {@link System#nanoTime()}
+         **/
+        public void record(ModelListener<?, ?> listener, long start) {
+            long[] counter = iListeners.get(listener);
+            if (counter == null) {
+                counter = new long[2];
+                synchronized (iListeners) {
+                    iListeners.put(listener, counter);
+                }
+            }
+            counter[0] ++;
+            counter[1] += System.nanoTime() - start;
+        }
+
+        /** Number of notifications and the time spent (in nanoseconds) of each model listener, listeners of the same name are combined.
+         * Criteria are named by {@link Criterion#getName()}, other listeners by their class name.
+         * @return listener name: [count, time]
+         **/
+        public Map<String, long[]> getListeners() {
+            Map<String, long[]> ret = new TreeMap<String, long[]>();
+            synchronized (iListeners) {
+                for (Map.Entry<Object, long[]> e: iListeners.entrySet())
+                    add(ret, e.getKey() instanceof Criterion ? ((Criterion<?, ?>)e.getKey()).getName() : e.getKey().getClass().getSimpleName(), e.getValue());
+            }
+            return ret;
+        }
+
+        private static void add(Map<String, long[]> counters, String name, long[] counter) {
+            long[] total = counters.get(name);
+            if (total == null) {
+                total = new long[2];
+                counters.put(name, total);
+            }
+            total[0] += counter[0];
+            total[1] += counter[1];
+        }
+
+        /** Number of events of the given metric
+         * @param metric a metric
+         * @return count
+         **/
+        public long getCount(Metric metric) { return iCount[metric.ordinal()]; }
+
+        /** Time spent in the given metric
+         * @param metric a metric
+         * @return time in nanoseconds
+         **/
+        public long getTime(Metric metric) { return iTime[metric.ordinal()]; }
+
+        /** Time since the counters were created (until they were unregistered)
+         * @return elapsed time in seconds
+         **/
+        public double getElapsedTime() {
+            return ((iEndTime < 0 ? System.nanoTime() : iEndTime) - iStartTime) / 1000000000.0;
+        }
+
+        /** Number of iterations per second
+         * @return iterations per second
+         **/
+        public double getIterationsPerSecond() {
+            double time = getElapsedTime();
+            return time <= 0.0 ? 0.0 : getCount(Metric.Iteration) / time;
+        }
+
+        private void stop() {
+            iEndTime = System.nanoTime();
+        }
+
+        private void add(Counters counters) {
+            for (int i = 0; i < iCount.length; i++) {
+                iCount[i] += counters.iCount[i];
+                iTime[i] += counters.iTime[i];
+            }
+            synchronized (counters.iListeners) {
+                for (Map.Entry<Object, long[]> e: counters.iListeners.entrySet()) {
+                    long[] counter = iListeners.get(e.getKey());
+                    if (counter == null) {
+                        counter = new long[2];
+                        iListeners.put(e.getKey(), counter);
+                    }
+                    counter[0] += e.getValue()[0];
+                    counter[1] += e.getValue()[1];
+                }
+            }
+            long end = (counters.iEndTime < 0 ? System.nanoTime() : counters.iEndTime);
+            if (iEndTime < 0 || end - counters.iStartTime > iEndTime - iStartTime) {
+                iStartTime = counters.iStartTime;
+                iEndTime = end;
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuffer s = new StringBuffer(iName + "{speed=" + sDoubleFormat.format(getIterationsPerSecond()) + " it/s");
+            for (Metric m: Metric.values()) {
+                s.append(", " + m.getName() + "=" + getCount(m));
+                if (m.isTimed())
+                    s.append(" (" + sDoubleFormat.format(getTime(m) / 1000000.0) + " ms)");
+            }
+            for (Map.Entry<String, long[]> e: getListeners().entrySet())
+                s.append(", " + e.getKey() + "=" + e.getValue()[0] + " (" + sDoubleFormat.format(e.getValue()[1] / 1000000.0) + " ms)");
+            return s.append("}").toString();
+        }
+    }
+}
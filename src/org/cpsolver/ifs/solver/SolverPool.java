@@ -0,0 +1,408 @@
+package org.cpsolver.ifs.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.ifs.util.Progress;
+
+/**
+ * Solver pool. Executes many solvers on a bounded number of shared threads, instead of each solver
+ * having a thread of its own (see {@link Solver#start()}). A solver that is submitted to the pool
+ * (see {@link SolverPool#submit(Solver)}) is executed in time slices: a pool thread takes the waiting
+ * solver that has been given the least time so far (relative to its weight), runs its iterations for
+ * the duration of one time slice, and puts it back among the waiting solvers. The solver time (e.g.,
+ * as used by the termination condition) is only counting while the solver is running, so a solver
+ * is given the same amount of time as when it has a thread of its own, regardless of how long it
+ * has been waiting. The number of solvers admitted to the pool is bounded as well, a solver that does
+ * not fit in is rejected.<br>
+ * <br>
+ * The solvers in the pool (together with their progress, see {@link Progress}) are available
+ * through {@link SolverPool#getTasks()}. A pooled solver can be stopped as usual, by
+ * {@link Solver#stopSolver()}, or it can be waited for by {@link Task#join()}. Only solvers that do not
+ * need any threads of their own can be pooled (see {@link Solver#isPoolable()}), e.g., a
+ * {@link ParallelSolver} only when it is using a single solver thread.<br>
+ * <br>
+ * Parameters of the pool:
+ * <table border='1' summary='Related Solver Parameters'>
+ * <tr>
+ * <th>Parameter</th>
+ * <th>Type</th>
+ * <th>Comment</th>
+ * </tr>
+ * <tr>
+ * <td>SolverPool.NrThreads</td>
+ * <td>{@link Integer}</td>
+ * <td>Number of pool threads (defaults to the number of available processors)</td>
+ * </tr>
+ * <tr>
+ * <td>SolverPool.MaxSolvers</td>
+ * <td>{@link Integer}</td>
+ * <td>Maximal number of solvers in the pool (running or waiting), defaults to 100</td>
+ * </tr>
+ * <tr>
+ * <td>SolverPool.TimeSlice</td>
+ * <td>{@link Integer}</td>
+ * <td>Length of a time slice in milliseconds (defaults to 100)</td>
+ * </tr>
+ * </table>
+ * Parameters of a solver (taken from the solver's configuration):
+ * <table border='1' summary='Related Solver Parameters'>
+ * <tr>
+ * <th>Parameter</th>
+ * <th>Type</th>
+ * <th>Comment</th>
+ * </tr>
+ * <tr>
+ * <td>SolverPool.Weight</td>
+ * <td>{@link Double}</td>
+ * <td>Weight of the solver, the time is shared among the waiting solvers in proportion to their weights (defaults to 1.0)</td>
+ * </tr>
+ * </table>
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class SolverPool {
+    private static org.apache.log4j.Logger sLogger = org.apache.log4j.Logger.getLogger(SolverPool.class);
+    private static java.text.DecimalFormat sTimeFormat = new java.text.DecimalFormat("0.00", new java.text.DecimalFormatSymbols(java.util.Locale.US));
+    private int iNrThreads;
+    private int iMaxSolvers = 100;
+    private long iTimeSlice = 100000000l;
+    private ExecutorService iExecutor;
+    private PriorityBlockingQueue<Task> iQueue = new PriorityBlockingQueue<Task>();
+    private List<Task> iTasks = new ArrayList<Task>();
+    private long iSequence = 0;
+    private volatile double iVirtualTime = 0.0;
+    private boolean iShutdown = false;
+
+    /**
+     * State of a solver in the pool
+     */
+    public static enum State {
+        /** Waiting for a pool thread */
+        Waiting,
+        /** Running in a pool thread */
+        Running,
+        /** Finished (done, stopped, or failed) */
+        Done,
+    }
+
+    /**
+     * Constructor, the pool threads are started
+     * @param properties pool configuration
+     */
+    public SolverPool(DataProperties properties) {
+        iNrThreads = properties.getPropertyInt("SolverPool.NrThreads", Runtime.getRuntime().availableProcessors());
+        if (iNrThreads <= 0)
+            iNrThreads = Runtime.getRuntime().availableProcessors();
+        iMaxSolvers = properties.getPropertyInt("SolverPool.MaxSolvers", iMaxSolvers);
+        iTimeSlice = 1000000l * Math.max(1, properties.getPropertyInt("SolverPool.TimeSlice", 100));
+        iExecutor = Executors.newFixedThreadPool(iNrThreads, new ThreadFactory() {
+            private int iThreadId = 0;
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "SolverPool-" + (++iThreadId));
+                thread.setDaemon(true);
+                thread.setPriority(Solver.THREAD_PRIORITY);
+                return thread;
+            }
+        });
+        for (int i = 0; i < iNrThreads; i++)
+            iExecutor.execute(new PoolThread());
+    }
+
+    /**
+     * Number of pool threads
+     * @return number of threads
+     */
+    public int getNrThreads() {
+        return iNrThreads;
+    }
+
+    /**
+     * Maximal number of solvers in the pool
+     * @return maximal number of running or waiting solvers
+     */
+    public int getMaxSolvers() {
+        return iMaxSolvers;
+    }
+
+    /**
+     * Submit a solver to the pool. The initial solution must be already set (see {@link Solver#setInitalSolution(org.cpsolver.ifs.solution.Solution)}).
+     * @param solver a solver
+     * @return solver task, that can be used to monitor or to wait for the solver
+     * @throws RejectedExecutionException when the pool is full or shut down
+     * @throws IllegalArgumentException when the solver cannot be pooled (see {@link Solver#isPoolable()})
+     * @throws IllegalStateException when the solver is already running
+     */
+    public synchronized Task submit(Solver<?, ?> solver) {
+        if (iShutdown)
+            throw new RejectedExecutionException("Solver pool is shut down.");
+        if (!solver.isPoolable())
+            throw new IllegalArgumentException("Solver " + solver.getClass().getSimpleName() + " cannot be executed in a solver pool.");
+        if (solver.isRunning())
+            throw new IllegalStateException("Solver is already running.");
+        if (iTasks.size() >= iMaxSolvers)
+            throw new RejectedExecutionException("Solver pool is full (" + iTasks.size() + " solvers).");
+        Task task = new Task(solver, iSequence++);
+        iTasks.add(task);
+        iQueue.put(task);
+        return task;
+    }
+
+    /**
+     * Solvers in the pool (running or waiting)
+     * @return list of solver tasks, in the order in which they were submitted
+     */
+    public synchronized List<Task> getTasks() {
+        return new ArrayList<Task>(iTasks);
+    }
+
+    /**
+     * Number of solvers in the pool (running or waiting)
+     * @return number of solver tasks
+     */
+    public synchronized int size() {
+        return iTasks.size();
+    }
+
+    /**
+     * Shut down the pool. No more solvers are accepted and the solvers in the pool are stopped (see {@link Solver#stopSolver(boolean)}).
+     * The pool threads are released when all the solvers are finished.
+     */
+    public synchronized void shutdown() {
+        if (iShutdown) return;
+        iShutdown = true;
+        for (Task task: iTasks)
+            task.getSolver().stopSolver(false);
+        if (iTasks.isEmpty())
+            release();
+        iExecutor.shutdown();
+    }
+
+    /**
+     * Wait for the pool threads to be released after the pool was shut down
+     * @param timeout maximal time to wait
+     * @param unit time unit of the timeout
+     * @return true if the pool threads are released, false if the timeout has elapsed
+     * @throws InterruptedException when interrupted
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return iExecutor.awaitTermination(timeout, unit);
+    }
+
+    /** A solver has finished, remove it from the pool */
+    private synchronized void finished(Task task) {
+        iTasks.remove(task);
+        if (iShutdown && iTasks.isEmpty())
+            release();
+    }
+
+    /** Release the pool threads */
+    private void release() {
+        for (int i = 0; i < iNrThreads; i++)
+            iQueue.put(new Task(null, Long.MAX_VALUE));
+    }
+
+    /**
+     * A solver in the pool
+     */
+    public class Task implements Comparable<Task> {
+        private Solver<?, ?> iSolver;
+        private Solver<?, ?>.SolverRun iRun;
+        private long iId;
+        private double iWeight = 1.0;
+        private double iVirtualTime;
+        private volatile long iTime = 0;
+        private volatile int iNrSlices = 0;
+        private volatile State iState = State.Waiting;
+
+        private Task(Solver<?, ?> solver, long id) {
+            iSolver = solver;
+            iId = id;
+            if (solver != null) {
+                iRun = solver.createRun("Solver-" + id);
+                iWeight = Math.max(0.001, solver.getProperties().getPropertyDouble("SolverPool.Weight", 1.0));
+                // a new solver starts at the level of the waiting solvers, not to take over the pool until it catches up
+                iVirtualTime = SolverPool.this.iVirtualTime;
+            } else {
+                iVirtualTime = Double.MAX_VALUE;
+            }
+        }
+
+        /**
+         * Run one time slice of the solver
+         * @return true if the solver can continue, false if it is finished
+         */
+        private boolean slice() {
+            iState = State.Running;
+            SolverPool.this.iVirtualTime = iVirtualTime;
+            long t0 = System.nanoTime();
+            boolean more = false;
+            try {
+                try {
+                    if (iNrSlices++ == 0)
+                        iRun.begin();
+                    else
+                        iRun.resume();
+                    more = iRun.iterate(iTimeSlice);
+                    if (more)
+                        iRun.suspend();
+                    else
+                        iRun.end();
+                } catch (Throwable t) {
+                    // errors are reported to the solver as well, the pool thread must survive a failing solver
+                    more = false;
+                    try {
+                        iRun.failed(t);
+                    } catch (Throwable f) {
+                        sLogger.error("Failed to report solver failure: " + f.getMessage(), f);
+                    }
+                }
+                long time = System.nanoTime() - t0;
+                iTime += time;
+                iVirtualTime += time / iWeight;
+            } finally {
+                // the run is always released when it is done, so that nobody waiting for it can hang
+                if (more) {
+                    iState = State.Waiting;
+                } else {
+                    try {
+                        iRun.release();
+                    } finally {
+                        iState = State.Done;
+                    }
+                }
+            }
+            return more;
+        }
+
+        /**
+         * Pooled solver
+         * @return the solver
+         */
+        public Solver<?, ?> getSolver() {
+            return iSolver;
+        }
+
+        /**
+         * Progress of the solver
+         * @return progress of the solver's model
+         */
+        public Progress getProgress() {
+            return Progress.getInstance(iSolver.currentSolution().getModel());
+        }
+
+        /**
+         * State of the solver
+         * @return waiting, running, or done
+         */
+        public State getState() {
+            return iState;
+        }
+
+        /**
+         * True if the solver is finished
+         * @return true if the state is {@link State#Done}
+         */
+        public boolean isDone() {
+            return iState == State.Done;
+        }
+
+        /**
+         * Time the solver has been running so far
+         * @return time in seconds
+         */
+        public double getTime() {
+            return iTime / 1e9;
+        }
+
+        /**
+         * Number of time slices the solver has been given so far
+         * @return number of time slices
+         */
+        public int getNrSlices() {
+            return iNrSlices;
+        }
+
+        /**
+         * Weight of the solver (parameter SolverPool.Weight)
+         * @return solver weight
+         */
+        public double getWeight() {
+            return iWeight;
+        }
+
+        /**
+         * Wait for the solver to finish
+         * @throws InterruptedException when interrupted
+         */
+        public void join() throws InterruptedException {
+            iRun.join();
+        }
+
+        @Override
+        public int compareTo(Task task) {
+            int cmp = Double.compare(iVirtualTime, task.iVirtualTime);
+            if (cmp != 0) return cmp;
+            return (iId < task.iId ? -1 : iId == task.iId ? 0 : 1);
+        }
+
+        @Override
+        public String toString() {
+            return iSolver == null ? "Release" : "Solver-" + iId + " (" + iState + ", " + sTimeFormat.format(getTime()) + " s, " + iNrSlices + " slices)";
+        }
+    }
+
+    /**
+     * Pool thread, running time slices of the waiting solvers. A failure of a solver (including an error) is
+     * reported to the solver (see {@link Task#slice()}) and the thread continues with the next waiting solver.
+     */
+    private class PoolThread implements Runnable {
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Task task = iQueue.take();
+                    if (task.iSolver == null) break;
+                    boolean more = false;
+                    try {
+                        more = task.slice();
+                    } catch (Throwable t) {
+                        sLogger.error("Solver pool thread failed to run " + task + ": " + t.getMessage(), t);
+                        task.iState = State.Done;
+                    }
+                    if (more)
+                        iQueue.put(task);
+                    else
+                        finished(task);
+                }
+            } catch (InterruptedException e) {
+                sLogger.debug("Solver pool thread interrupted.");
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.cpsolver.ifs.util;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -16,6 +17,12 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * For instructors, the preference is computed using the distance in meters and the three constants 
  * Instructor.NoPreferenceLimit (distance &lt;= limit &rarr; no preference), Instructor.DiscouragedLimit (distance &lt;= limit &rarr; discouraged),
  * Instructor.ProhibitedLimit (distance &lt;= limit &rarr; strongly discouraged), the back-to-back placement is prohibited when the distance is over the last limit.
+ * <br><br>
+ * Rooms registered by {@link DistanceMetric#addLocation(Long, Double, Double)} (the problem loaders register all the rooms they load) are
+ * indexed and the distances between all pairs of them (in minutes and in meters) are precomputed into a dense matrix when the first distance
+ * between two rooms is requested. The matrix is immutable and it is shared among all the solver threads without any locking. Distances between
+ * rooms that are not registered are computed from their coordinates (and cached). The matrix can be disabled by setting Distances.TravelTimeMatrix
+ * to false, it is not built when there are more than Distances.TravelTimeMatrixMaxRooms (defaults to 2000) registered rooms.
  * 
  * @version IFS 1.3 (Iterative Forward Search)<br>
  *          Copyright (C) 2006 - 2014 Tomas Muller<br>
@@ -114,7 +121,17 @@ public class DistanceMetric {
     /** Travel times overriding the distances computed from coordintaes */
     private Map<Long, Map<Long, Integer>> iTravelTimes = new HashMap<Long, Map<Long,Integer>>();
     /** Distance cache  */
-    private Map<String, Double> iDistanceCache = new HashMap<String, Double>();
+    private Map<Segment, Double> iDistanceCache = new HashMap<Segment, Double>();
+    /** known locations: room id &rarr; coordinates */
+    private Map<Long, Double[]> iLocations = new LinkedHashMap<Long, Double[]>();
+    /** precomputed distances between all known locations, null if not computed yet */
+    private volatile TravelTimeMatrix iMatrix = null;
+    /** true if the matrix cannot be computed (e.g., there are too many locations) */
+    private volatile boolean iNoMatrix = false;
+    /** incremented each time a location or a travel time is changed */
+    private long iVersion = 0;
+    private boolean iUseMatrix = true;
+    private int iMatrixMaxRooms = 2000;
     /** True if distances should be considered between classes that are NOT back-to-back */
     private boolean iComputeDistanceConflictsBetweenNonBTBClasses = false;
     /** Reference of the accommodation of students that need short distances */
@@ -175,6 +192,8 @@ public class DistanceMetric {
         iShortDistanceAccommodationReference = properties.getProperty(
                 "Distances.ShortDistanceAccommodationReference", iShortDistanceAccommodationReference);
         iInstructorLongTravelInMinutes = properties.getPropertyDouble("Instructor.InstructorLongTravelInMinutes", 30.0);
+        iUseMatrix = properties.getPropertyBoolean("Distances.TravelTimeMatrix", iUseMatrix);
+        iMatrixMaxRooms = properties.getPropertyInt("Distances.TravelTimeMatrixMaxRooms", iMatrixMaxRooms);
     }
 
     /** Degrees to radians 
@@ -195,6 +214,10 @@ public class DistanceMetric {
      */
     @Deprecated
     public double getDistanceInMeters(Double lat1, Double lon1, Double lat2, Double lon2) {
+        return getDistanceInMeters(lat1, lon1, lat2, lon2, true);
+    }
+    
+    private double getDistanceInMeters(Double lat1, Double lon1, Double lat2, Double lon2, boolean useCache) {
         if (lat1 == null || lat2 == null || lon1 == null || lon2 == null)
             return iNullDistance;
         
@@ -208,20 +231,9 @@ public class DistanceMetric {
             return Math.sqrt(dx * dx + dy * dy);
         }
         
-        String id = null;
-        if (lat1 < lat2 || (lat1 == lat2 && lon1 <= lon2)) {
-            id =
-                Long.toHexString(Double.doubleToRawLongBits(lat1)) +
-                Long.toHexString(Double.doubleToRawLongBits(lon1)) +
-                Long.toHexString(Double.doubleToRawLongBits(lat2)) +
-                Long.toHexString(Double.doubleToRawLongBits(lon2));
-        } else {
-            id =
-                Long.toHexString(Double.doubleToRawLongBits(lat1)) +
-                Long.toHexString(Double.doubleToRawLongBits(lon1)) +
-                Long.toHexString(Double.doubleToRawLongBits(lat2)) +
-                Long.toHexString(Double.doubleToRawLongBits(lon2));
-        }
+        if (!useCache) return computeDistanceInMeters(lat1, lon1, lat2, lon2);
+        
+        Segment id = (lat1 < lat2 || (lat1.equals(lat2) && lon1 <= lon2) ? new Segment(lat1, lon1, lat2, lon2) : new Segment(lat2, lon2, lat1, lon1));
         
         iLock.readLock().lock();
         try {
@@ -231,57 +243,66 @@ public class DistanceMetric {
             iLock.readLock().unlock();
         }
         
+        double distance = computeDistanceInMeters(id.iLat1, id.iLon1, id.iLat2, id.iLon2);
         iLock.writeLock().lock();
         try {
-            Double distance = iDistanceCache.get(id);
-            if (distance != null) return distance;
-
-            double a = iModel.a(), b = iModel.b(),  f = iModel.f();  // ellipsoid params
-            double L = deg2rad(lon2-lon1);
-            double U1 = Math.atan((1-f) * Math.tan(deg2rad(lat1)));
-            double U2 = Math.atan((1-f) * Math.tan(deg2rad(lat2)));
-            double sinU1 = Math.sin(U1), cosU1 = Math.cos(U1);
-            double sinU2 = Math.sin(U2), cosU2 = Math.cos(U2);
-            
-            double lambda = L, lambdaP, iterLimit = 100;
-            double cosSqAlpha, cos2SigmaM, sinSigma, cosSigma, sigma, sinLambda, cosLambda;
-            do {
-              sinLambda = Math.sin(lambda);
-              cosLambda = Math.cos(lambda);
-              sinSigma = Math.sqrt((cosU2*sinLambda) * (cosU2*sinLambda) + 
-                (cosU1*sinU2-sinU1*cosU2*cosLambda) * (cosU1*sinU2-sinU1*cosU2*cosLambda));
-              if (sinSigma==0) return 0;  // co-incident points
-              cosSigma = sinU1*sinU2 + cosU1*cosU2*cosLambda;
-              sigma = Math.atan2(sinSigma, cosSigma);
-              double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
-              cosSqAlpha = 1 - sinAlpha*sinAlpha;
-              cos2SigmaM = cosSigma - 2*sinU1*sinU2/cosSqAlpha;
-              if (Double.isNaN(cos2SigmaM)) cos2SigmaM = 0;  // equatorial line: cosSqAlpha=0 (�6)
-              double C = f/16*cosSqAlpha*(4+f*(4-3*cosSqAlpha));
-              lambdaP = lambda;
-              lambda = L + (1-C) * f * sinAlpha *
-                (sigma + C*sinSigma*(cos2SigmaM+C*cosSigma*(-1+2*cos2SigmaM*cos2SigmaM)));
-            } while (Math.abs(lambda-lambdaP) > 1e-12 && --iterLimit>0);
-            if (iterLimit==0) return Double.NaN; // formula failed to converge
-           
-            double uSq = cosSqAlpha * (a*a - b*b) / (b*b);
-            double A = 1 + uSq/16384*(4096+uSq*(-768+uSq*(320-175*uSq)));
-            double B = uSq/1024 * (256+uSq*(-128+uSq*(74-47*uSq)));
-            double deltaSigma = B*sinSigma*(cos2SigmaM+B/4*(cosSigma*(-1+2*cos2SigmaM*cos2SigmaM)-
-              B/6*cos2SigmaM*(-3+4*sinSigma*sinSigma)*(-3+4*cos2SigmaM*cos2SigmaM)));
-            
-            // initial & final bearings
-            // double fwdAz = Math.atan2(cosU2*sinLambda, cosU1*sinU2-sinU1*cosU2*cosLambda);
-            // double revAz = Math.atan2(cosU1*sinLambda, -sinU1*cosU2+cosU1*sinU2*cosLambda);
-            
-            // s = s.toFixed(3); // round to 1mm precision
-
-            distance = b*A*(sigma-deltaSigma);
             iDistanceCache.put(id, distance);
-            return distance;
         } finally {
             iLock.writeLock().unlock();
         }
+        return distance;
+    }
+    
+    /**
+     * Compute distance between the two given coordinates using the Vincenty formula (no caching, no travel times)
+     * @param lat1 first coordinate's latitude
+     * @param lon1 first coordinate's longitude
+     * @param lat2 second coordinate's latitude
+     * @param lon2 second coordinate's longitude
+     * @return distance in meters
+     */
+    protected double computeDistanceInMeters(double lat1, double lon1, double lat2, double lon2) {
+        double a = iModel.a(), b = iModel.b(),  f = iModel.f();  // ellipsoid params
+        double L = deg2rad(lon2-lon1);
+        double U1 = Math.atan((1-f) * Math.tan(deg2rad(lat1)));
+        double U2 = Math.atan((1-f) * Math.tan(deg2rad(lat2)));
+        double sinU1 = Math.sin(U1), cosU1 = Math.cos(U1);
+        double sinU2 = Math.sin(U2), cosU2 = Math.cos(U2);
+        
+        double lambda = L, lambdaP, iterLimit = 100;
+        double cosSqAlpha, cos2SigmaM, sinSigma, cosSigma, sigma, sinLambda, cosLambda;
+        do {
+          sinLambda = Math.sin(lambda);
+          cosLambda = Math.cos(lambda);
+          sinSigma = Math.sqrt((cosU2*sinLambda) * (cosU2*sinLambda) + 
+            (cosU1*sinU2-sinU1*cosU2*cosLambda) * (cosU1*sinU2-sinU1*cosU2*cosLambda));
+          if (sinSigma==0) return 0;  // co-incident points
+          cosSigma = sinU1*sinU2 + cosU1*cosU2*cosLambda;
+          sigma = Math.atan2(sinSigma, cosSigma);
+          double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+          cosSqAlpha = 1 - sinAlpha*sinAlpha;
+          cos2SigmaM = cosSigma - 2*sinU1*sinU2/cosSqAlpha;
+          if (Double.isNaN(cos2SigmaM)) cos2SigmaM = 0;  // equatorial line: cosSqAlpha=0 (�6)
+          double C = f/16*cosSqAlpha*(4+f*(4-3*cosSqAlpha));
+          lambdaP = lambda;
+          lambda = L + (1-C) * f * sinAlpha *
+            (sigma + C*sinSigma*(cos2SigmaM+C*cosSigma*(-1+2*cos2SigmaM*cos2SigmaM)));
+        } while (Math.abs(lambda-lambdaP) > 1e-12 && --iterLimit>0);
+        if (iterLimit==0) return Double.NaN; // formula failed to converge
+       
+        double uSq = cosSqAlpha * (a*a - b*b) / (b*b);
+        double A = 1 + uSq/16384*(4096+uSq*(-768+uSq*(320-175*uSq)));
+        double B = uSq/1024 * (256+uSq*(-128+uSq*(74-47*uSq)));
+        double deltaSigma = B*sinSigma*(cos2SigmaM+B/4*(cosSigma*(-1+2*cos2SigmaM*cos2SigmaM)-
+          B/6*cos2SigmaM*(-3+4*sinSigma*sinSigma)*(-3+4*cos2SigmaM*cos2SigmaM)));
+        
+        // initial & final bearings
+        // double fwdAz = Math.atan2(cosU2*sinLambda, cosU1*sinU2-sinU1*cosU2*cosLambda);
+        // double revAz = Math.atan2(cosU1*sinLambda, -sinU1*cosU2+cosU1*sinU2*cosLambda);
+        
+        // s = s.toFixed(3); // round to 1mm precision
+
+        return b*A*(sigma-deltaSigma);
     }
     
     /**
@@ -363,6 +384,7 @@ public class DistanceMetric {
         iLock.writeLock().lock();
         try {
             if (roomId1 == null || roomId2 == null) return;
+            iMatrix = null; iNoMatrix = false; iVersion ++;
             if (roomId1 < roomId2) {
                 Map<Long, Integer> times = iTravelTimes.get(roomId1);
                 if (times == null) { times = new HashMap<Long, Integer>(); iTravelTimes.put(roomId1, times); }
@@ -414,13 +436,22 @@ public class DistanceMetric {
      * @return distance in minutes
      **/
     public Integer getDistanceInMinutes(Long roomId1, Double lat1, Double lon1, Long roomId2, Double lat2, Double lon2) {
+        TravelTimeMatrix matrix = getTravelTimeMatrix();
+        if (matrix != null) {
+            int index = matrix.index(roomId1, roomId2);
+            if (index >= 0) return matrix.iMinutes[index];
+        }
+        return computeDistanceInMinutes(roomId1, lat1, lon1, roomId2, lat2, lon2, true);
+    }
+    
+    private int computeDistanceInMinutes(Long roomId1, Double lat1, Double lon1, Long roomId2, Double lat2, Double lon2, boolean useCache) {
         Integer distance = getTravelTimeInMinutes(roomId1, roomId2);
         if (distance != null) return distance;
         
         if (lat1 == null || lat2 == null || lon1 == null || lon2 == null)
             return getMaxTravelDistanceInMinutes();
         else 
-            return (int) Math.min(getMaxTravelDistanceInMinutes(), Math.round(getDistanceInMeters(lat1, lon1, lat2, lon2) / iSpeed));
+            return (int) Math.min(getMaxTravelDistanceInMinutes(), Math.round(getDistanceInMeters(lat1, lon1, lat2, lon2, useCache) / iSpeed));
     }
     
     /** Return travel distance between two locations.  Travel times are used when available, use coordinates otherwise
@@ -433,10 +464,93 @@ public class DistanceMetric {
      * @return distance in meters
      **/
     public double getDistanceInMeters(Long roomId1, Double lat1, Double lon1, Long roomId2, Double lat2, Double lon2) {
+        TravelTimeMatrix matrix = getTravelTimeMatrix();
+        if (matrix != null) {
+            int index = matrix.index(roomId1, roomId2);
+            if (index >= 0) return matrix.iMeters[index];
+        }
+        return computeDistanceInMeters(roomId1, lat1, lon1, roomId2, lat2, lon2, true);
+    }
+    
+    private double computeDistanceInMeters(Long roomId1, Double lat1, Double lon1, Long roomId2, Double lat2, Double lon2, boolean useCache) {
         Integer distance = getTravelTimeInMinutes(roomId1, roomId2);
         if (distance != null) return minutes2meters(distance);
         
-        return getDistanceInMeters(lat1, lon1, lat2, lon2);
+        return getDistanceInMeters(lat1, lon1, lat2, lon2, useCache);
+    }
+    
+    /**
+     * Check whether the distance between the two rooms is available in the travel time matrix (see
+     * {@link DistanceMetric#addLocation(Long, Double, Double)}), i.e., it is looked up without any computation or locking.
+     * Callers that keep their own distance caches can use them only for the rooms that are not in the matrix.
+     * @param roomId1 first room's id
+     * @param roomId2 second room's id
+     * @return true if both rooms are in the travel time matrix
+     */
+    public boolean isInTravelTimeMatrix(Long roomId1, Long roomId2) {
+        TravelTimeMatrix matrix = getTravelTimeMatrix();
+        return matrix != null && matrix.index(roomId1, roomId2) >= 0;
+    }
+    
+    /**
+     * Register a location (room). Distances between the registered locations are precomputed into a dense matrix
+     * when needed (see {@link DistanceMetric#getDistanceInMinutes(Long, Double, Double, Long, Double, Double)}).
+     * A registration after the matrix has been computed causes the matrix to be recomputed.
+     * @param roomId room's id
+     * @param lat room's latitude
+     * @param lon room's longitude
+     */
+    public void addLocation(Long roomId, Double lat, Double lon) {
+        if (roomId == null) return;
+        iLock.writeLock().lock();
+        try {
+            Double[] coordinates = iLocations.get(roomId);
+            if (coordinates != null && equals(coordinates[0], lat) && equals(coordinates[1], lon)) return;
+            iLocations.put(roomId, new Double[] { lat, lon });
+            iMatrix = null; iNoMatrix = false; iVersion ++;
+        } finally {
+            iLock.writeLock().unlock();
+        }
+    }
+    
+    private static boolean equals(Double d1, Double d2) {
+        return (d1 == null ? d2 == null : d1.equals(d2));
+    }
+    
+    /**
+     * Travel time matrix between all the registered locations. The matrix is computed when it is first needed
+     * (or when a location or a travel time has changed since).
+     * @return travel time matrix, null if disabled or there are no (or too many) registered locations
+     */
+    protected TravelTimeMatrix getTravelTimeMatrix() {
+        TravelTimeMatrix matrix = iMatrix;
+        if (matrix != null || !iUseMatrix || iNoMatrix) return matrix;
+        synchronized (iLocations) {
+            matrix = iMatrix;
+            if (matrix != null) return matrix;
+            Map<Long, Double[]> locations = null;
+            long version;
+            iLock.readLock().lock();
+            try {
+                if (iLocations.isEmpty() || iLocations.size() > iMatrixMaxRooms) {
+                    iNoMatrix = true;
+                    return null;
+                }
+                locations = new LinkedHashMap<Long, Double[]>(iLocations);
+                version = iVersion;
+            } finally {
+                iLock.readLock().unlock();
+            }
+            matrix = new TravelTimeMatrix(locations);
+            iLock.readLock().lock();
+            try {
+                // do not publish the matrix when something has changed in the mean time
+                if (version == iVersion) iMatrix = matrix;
+            } finally {
+                iLock.readLock().unlock();
+            }
+            return matrix;
+        }
     }
     
     /** Return travel times matrix
@@ -472,4 +586,82 @@ public class DistanceMetric {
         System.out.println("Distance between ENAD and ME: " + new DistanceMetric().getDistanceInMinutes(40.428323, -86.912785, 40.429338, -86.91267) + " minutes");
     }
 
+    /**
+     * Key of the distance cache (the two coordinates)
+     */
+    private static final class Segment {
+        private double iLat1, iLon1, iLat2, iLon2;
+        private int iHashCode;
+        
+        private Segment(double lat1, double lon1, double lat2, double lon2) {
+            iLat1 = lat1; iLon1 = lon1; iLat2 = lat2; iLon2 = lon2;
+            long bits = Double.doubleToLongBits(lat1);
+            bits = 31 * bits + Double.doubleToLongBits(lon1);
+            bits = 31 * bits + Double.doubleToLongBits(lat2);
+            bits = 31 * bits + Double.doubleToLongBits(lon2);
+            iHashCode = (int)(bits ^ (bits >>> 32));
+        }
+        
+        @Override
+        public int hashCode() { return iHashCode; }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || !(o instanceof Segment)) return false;
+            Segment s = (Segment)o;
+            return iLat1 == s.iLat1 && iLon1 == s.iLon1 && iLat2 == s.iLat2 && iLon2 == s.iLon2;
+        }
+    }
+    
+    /**
+     * Dense (triangular) matrix of distances between all the registered locations, both in minutes and in meters.
+     * Once created, the matrix is never changed.
+     */
+    protected class TravelTimeMatrix {
+        private Map<Long, Integer> iIndex;
+        private int[] iMinutes;
+        private double[] iMeters;
+        
+        private TravelTimeMatrix(Map<Long, Double[]> locations) {
+            int size = locations.size();
+            iIndex = new HashMap<Long, Integer>(4 * size / 3 + 1);
+            Long[] ids = new Long[size];
+            Double[][] coordinates = new Double[size][];
+            for (Map.Entry<Long, Double[]> e: locations.entrySet()) {
+                ids[iIndex.size()] = e.getKey();
+                coordinates[iIndex.size()] = e.getValue();
+                iIndex.put(e.getKey(), iIndex.size());
+            }
+            iMinutes = new int[size * (size + 1) / 2];
+            iMeters = new double[size * (size + 1) / 2];
+            for (int j = 0; j < size; j++) {
+                for (int i = 0; i <= j; i++) {
+                    int index = j * (j + 1) / 2 + i;
+                    iMinutes[index] = computeDistanceInMinutes(ids[i], coordinates[i][0], coordinates[i][1], ids[j], coordinates[j][0], coordinates[j][1], false);
+                    iMeters[index] = computeDistanceInMeters(ids[i], coordinates[i][0], coordinates[i][1], ids[j], coordinates[j][0], coordinates[j][1], false);
+                }
+            }
+        }
+        
+        /**
+         * Index of the given pair of locations in the matrix
+         * @param roomId1 first room's id
+         * @param roomId2 second room's id
+         * @return index into the matrix, -1 if one of the rooms is not registered
+         */
+        private int index(Long roomId1, Long roomId2) {
+            if (roomId1 == null || roomId2 == null) return -1;
+            Integer i = iIndex.get(roomId1);
+            if (i == null) return -1;
+            Integer j = iIndex.get(roomId2);
+            if (j == null) return -1;
+            return (i <= j ? j * (j + 1) / 2 + i : i * (i + 1) / 2 + j);
+        }
+        
+        /** Number of locations in the matrix
+         * @return number of registered locations
+         **/
+        public int size() { return iIndex.size(); }
+    }
+
 }
@@ -7,6 +7,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.dom4j.Element;
 
@@ -37,6 +41,13 @@ import org.dom4j.Element;
  * </code>
  * </pre>
  * 
+ * The changes are recorded as events in a lock-free queue, which are then delivered to the progress listeners
+ * (and the messages are added into the log) in batches, by one thread at a time: the thread that records an event
+ * delivers all the pending events, unless some other thread is already delivering them. This way, a thread recording
+ * an event never waits for the listeners or for the log of another thread. The log is bounded (see
+ * {@link Progress#sMaxLogSize}), the oldest messages are dropped when the log gets too large
+ * (see {@link Progress#getNrDroppedMessages()}).
+ * 
  * @version IFS 1.3 (Iterative Forward Search)<br>
  *          Copyright (C) 2006 - 2014 Tomas Muller<br>
  *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
@@ -58,6 +69,8 @@ import org.dom4j.Element;
  */
 public class Progress {
     public static boolean sTraceEnabled = false;
+    /** Maximal number of messages kept in the log, zero or a negative number for no limit */
+    public static int sMaxLogSize = 100000;
     private static org.apache.log4j.Logger sLogger = org.apache.log4j.Logger.getLogger(Progress.class);
     public static SimpleDateFormat sDF = new SimpleDateFormat("MM/dd/yy HH:mm:ss.SSS");
     public static final int MSGLEVEL_TRACE = 0;
@@ -69,14 +82,17 @@ public class Progress {
     public static final int MSGLEVEL_ERROR = 6;
     public static final int MSGLEVEL_FATAL = 7;
 
-    private String iStatus = "";
-    private String iPhase = "";
-    private long iProgressMax = 0;
-    private long iProgressCurrent = 0;
-    private List<ProgressListener> iListeners = new ArrayList<ProgressListener>(5);
+    private volatile String iStatus = "";
+    private volatile String iPhase = "";
+    private volatile long iProgressMax = 0;
+    private volatile long iProgressCurrent = 0;
+    private List<ProgressListener> iListeners = new CopyOnWriteArrayList<ProgressListener>();
     private List<Object[]> iSave = new ArrayList<Object[]>(5);
     private List<Message> iLog = new ArrayList<Message>(1000);
-    private boolean iDisposed = false;
+    private long iNrDroppedMessages = 0;
+    private Queue<Event> iEvents = new ConcurrentLinkedQueue<Event>();
+    private AtomicBoolean iDelivering = new AtomicBoolean(false);
+    private volatile boolean iDisposed = false;
 
     private static HashMap<Object, Progress> sInstances = new HashMap<Object, Progress>();
 
@@ -94,7 +110,7 @@ public class Progress {
      * @param key an object (typically a problem model) for which the progress is to be returned
      * @return progress instance
      **/
-    public static Progress getInstance(Object key) {
+    public static synchronized Progress getInstance(Object key) {
         Progress progress = sInstances.get(key);
         if (progress == null) {
             progress = new Progress();
@@ -107,7 +123,7 @@ public class Progress {
      * @param oldKey old instance
      * @param newKey new instance
      **/
-    public static void changeInstance(Object oldKey, Object newKey) {
+    public static synchronized void changeInstance(Object oldKey, Object newKey) {
         removeInstance(newKey);
         Progress progress = sInstances.get(oldKey);
         if (progress != null) {
@@ -119,7 +135,7 @@ public class Progress {
     /** Remove progress instance for the given key 
      * @param key old instance
      **/
-    public static void removeInstance(Object key) {
+    public static synchronized void removeInstance(Object key) {
         Progress progress = sInstances.get(key);
         if (progress != null) {
             progress.iListeners.clear();
@@ -288,10 +304,7 @@ public class Progress {
                 sLogger.fatal(message, t);
                 break;
         }
-        synchronized (iLog) {
-            iLog.add(m);
-        }
-        fireMessagePrinted(m);
+        fire(new Event(m));
     }
 
     /** Prints a message 
@@ -467,39 +480,121 @@ public class Progress {
         }
     }
 
-    private void fireStatusChanged() {
-        for (ProgressListener listener : iListeners) {
-            listener.statusChanged(iStatus);
+    /** Number of messages that have been dropped from the log, because the log got too large (see {@link Progress#sMaxLogSize})
+     * @return number of dropped messages
+     **/
+    public long getNrDroppedMessages() {
+        synchronized (iLog) {
+            return iNrDroppedMessages;
         }
     }
 
-    private void firePhaseChanged() {
-        for (ProgressListener listener : iListeners) {
-            listener.phaseChanged(iPhase);
+    /** Add a message into the log, dropping the oldest messages when the log gets too large */
+    private void log(Message message) {
+        synchronized (iLog) {
+            iLog.add(message);
+            int max = sMaxLogSize;
+            if (max > 0 && iLog.size() > max + max / 10) {
+                // drop the oldest messages in a batch, not to shift the log with each message
+                int drop = iLog.size() - max;
+                iLog.subList(0, drop).clear();
+                iNrDroppedMessages += drop;
+            }
         }
     }
 
+    private void fireStatusChanged() {
+        fire(new Event(EventType.StatusChanged, iStatus));
+    }
+
+    private void firePhaseChanged() {
+        fire(new Event(EventType.PhaseChanged, iPhase));
+    }
+
     private void fireProgressChanged() {
-        for (ProgressListener listener : iListeners) {
-            listener.progressChanged(iProgressCurrent, iProgressMax);
-        }
+        fire(new Event(iProgressCurrent, iProgressMax));
     }
 
     private void fireProgressSaved() {
-        for (ProgressListener listener : iListeners) {
-            listener.progressSaved();
-        }
+        fire(new Event(EventType.ProgressSaved, null));
     }
 
     private void fireProgressRestored() {
-        for (ProgressListener listener : iListeners) {
-            listener.progressRestored();
+        fire(new Event(EventType.ProgressRestored, null));
+    }
+
+    /** Record an event and deliver the pending events (unless they are being delivered by some other thread) */
+    private void fire(Event event) {
+        iEvents.add(event);
+        deliver();
+    }
+
+    /**
+     * Deliver the pending events. Only one thread is delivering the events at a time, the events recorded
+     * in the meantime by the other threads are delivered in the same batch. The events are checked once more
+     * after the delivery is released, not to leave an event behind that was recorded just before that.
+     */
+    private void deliver() {
+        while (!iEvents.isEmpty() && iDelivering.compareAndSet(false, true)) {
+            try {
+                Event event = null;
+                while ((event = iEvents.poll()) != null) {
+                    if (event.iType == EventType.MessagePrinted)
+                        log(event.iMessage);
+                    for (ProgressListener listener : iListeners)
+                        event.deliver(listener);
+                }
+            } finally {
+                iDelivering.set(false);
+            }
         }
     }
 
-    private void fireMessagePrinted(Message message) {
-        for (ProgressListener listener : iListeners) {
-            listener.progressMessagePrinted(message);
+    /** Progress event types */
+    private static enum EventType {
+        StatusChanged, PhaseChanged, ProgressChanged, ProgressSaved, ProgressRestored, MessagePrinted,
+    }
+
+    /** Progress event, with the state at the time when the event was recorded */
+    private static class Event {
+        private EventType iType;
+        private String iText = null;
+        private long iCurrent = 0, iMax = 0;
+        private Message iMessage = null;
+
+        private Event(EventType type, String text) {
+            iType = type; iText = text;
+        }
+
+        private Event(long current, long max) {
+            iType = EventType.ProgressChanged; iCurrent = current; iMax = max;
+        }
+
+        private Event(Message message) {
+            iType = EventType.MessagePrinted; iMessage = message;
+        }
+
+        private void deliver(ProgressListener listener) {
+            switch (iType) {
+                case StatusChanged:
+                    listener.statusChanged(iText);
+                    break;
+                case PhaseChanged:
+                    listener.phaseChanged(iText);
+                    break;
+                case ProgressChanged:
+                    listener.progressChanged(iCurrent, iMax);
+                    break;
+                case ProgressSaved:
+                    listener.progressSaved();
+                    break;
+                case ProgressRestored:
+                    listener.progressRestored();
+                    break;
+                case MessagePrinted:
+                    listener.progressMessagePrinted(iMessage);
+                    break;
+            }
         }
     }
 
@@ -47,7 +47,6 @@ public class SoftCache<K, V> implements Map<K, V> {
     private ReferenceQueue<V> iQueue = new ReferenceQueue<V>();
 
     public SoftCache() {
-        new SoftCacheCleanupThread().start();
     }
 
     @Override
@@ -101,6 +100,7 @@ public class SoftCache<K, V> implements Map<K, V> {
     }
 
     private synchronized V putReference(K key, Reference<V> ref) {
+        expungeDeallocated();
         Reference<V> old = iCache.put(key, ref);
         return (old == null ? null : old.get());
     }
@@ -114,6 +114,7 @@ public class SoftCache<K, V> implements Map<K, V> {
 
     @Override
     public synchronized int size() {
+        expungeDeallocated();
         return iCache.size();
     }
 
@@ -156,34 +157,16 @@ public class SoftCache<K, V> implements Map<K, V> {
         sLogger.debug("cleaned " + nrCleaned + " of " + (iCache.size() + nrCleaned) + " items.");
     }
 
-    private ReferenceQueue<V> getQueue() {
-        return iQueue;
-    }
-
-    private class SoftCacheCleanupThread extends Thread {
-        private SoftCacheCleanupThread() {
-            setDaemon(true);
-            setName("SoftCacheCleanup");
-        }
-
-        @Override
-        public void run() {
-            try {
-                while (true) {
-                    ReferenceQueue<V> q = getQueue();
-                    if (q == null)
-                        break; // soft cache deallocated -- stop the thread
-                    if (q.remove(10000) == null)
-                        continue; // was there something deallocated?
-                    while (q.poll() != null) {
-                    } // pull all the deallocated references from the queue
-                    cleanDeallocated(); // clean the cache
-                }
-                sLogger.debug("cache terminated");
-            } catch (Exception e) {
-                sLogger.error("cleanup thread failed, reason:" + e.getMessage(), e);
-            }
-        }
+    /**
+     * Remove the entries with deallocated references, if there are any in the reference queue. This is
+     * called whenever the cache is updated, instead of having a cleanup thread for each cache.
+     */
+    private void expungeDeallocated() {
+        if (iQueue.poll() == null)
+            return; // was there something deallocated?
+        while (iQueue.poll() != null) {
+        } // pull all the deallocated references from the queue
+        cleanDeallocated(); // clean the cache
     }
 
     private static class Entry<K, V> implements Map.Entry<K, V> {
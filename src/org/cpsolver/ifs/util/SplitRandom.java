@@ -0,0 +1,93 @@
+package org.cpsolver.ifs.util;
+
+import java.util.Random;
+
+/**
+ * A splittable random number generator (SplitMix64). Unlike {@link Random}, the generator is not thread-safe:
+ * it is meant to be used by one thread only (see {@link ToolBox#setThreadRandom(Random)}), which makes the random draws
+ * free of any synchronization. Generators for multiple threads can be derived deterministically from a master seed and
+ * the thread index (see {@link SplitRandom#SplitRandom(long, int)}), or split from an existing generator
+ * (see {@link SplitRandom#split()}), so that a multi-threaded search can be replayed with the same seed.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class SplitRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+    private long iState;
+
+    /**
+     * Constructor
+     * @param seed initial seed
+     */
+    public SplitRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Generator of the given thread, derived from the master seed and the thread index
+     * @param seed master seed
+     * @param index thread index
+     */
+    public SplitRandom(long seed, int index) {
+        this(mix64(seed + (1l + index) * GOLDEN_GAMMA));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Split off a new generator, independent of this one
+     * @return a new generator, seeded from this one
+     */
+    public SplitRandom split() {
+        return new SplitRandom(mix64(nextLong()));
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        iState = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        iState += GOLDEN_GAMMA;
+        return mix64(iState);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int)(nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+}
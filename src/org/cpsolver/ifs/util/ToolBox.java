@@ -49,6 +49,7 @@ import org.apache.log4j.PropertyConfigurator;
 public class ToolBox {
     private static long sSeed = System.currentTimeMillis();
     private static Random sRandom = new Random(sSeed);
+    private static ThreadLocal<Random> sThreadRandom = new ThreadLocal<Random>();
 
     /** Returns random number (int) from the set 0 .. limit - 1 
      * @param limit a limit 
@@ -71,7 +72,7 @@ public class ToolBox {
                 return set.iterator().next();
             case 2:
                 Iterator<E> i = set.iterator();
-                if (sRandom.nextBoolean()) i.next();
+                if (getRandom().nextBoolean()) i.next();
                 return i.next();
             default:
                 int index = random(set.size());
@@ -227,7 +228,8 @@ public class ToolBox {
 
     /**
      * Sets seeds for {@link ToolBox#getRandom()} and {@link ToolBox#random()}
-     * methods.
+     * methods. This only affects threads without their own random number generator
+     * (see {@link ToolBox#setThreadRandom(Random)}).
      * @param seed random seed
      */
     public static void setSeed(long seed) {
@@ -242,18 +244,35 @@ public class ToolBox {
         return sSeed;
     }
 
-    /** Gets random number generator 
+    /** Gets random number generator: the one of the current thread, if set, the shared one otherwise
      * @return random number generator
      **/
     public static Random getRandom() {
-        return sRandom;
+        Random random = sThreadRandom.get();
+        return (random == null ? sRandom : random);
+    }
+
+    /**
+     * Sets random number generator of the current thread. Random draws of a thread with its own generator
+     * do not contend with the other threads and, if the generator is seeded deterministically (e.g., using
+     * {@link SplitRandom#SplitRandom(long, int)}), they do not depend on how the threads interleave.
+     * @param random random number generator to be used by the current thread, null to use the shared one
+     * @return previous random number generator of the current thread, null if there was none
+     */
+    public static Random setThreadRandom(Random random) {
+        Random previous = sThreadRandom.get();
+        if (random == null)
+            sThreadRandom.remove();
+        else
+            sThreadRandom.set(random);
+        return previous;
     }
 
     /** Generates random double number 
      * @return random number
      **/
     public static double random() {
-        return sRandom.nextDouble();
+        return getRandom().nextDouble();
     }
 
     /** Configurates log4j loging */
@@ -1,6 +1,7 @@
 package org.cpsolver.instructor.constraints;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.coursett.Constants;
@@ -157,14 +158,24 @@ public class SameLinkConstraint extends ConstraintWithContext<TeachingRequest.Va
      * number of additional requests of this link given to the same instructor if discouraged
      */
     public int getCurrentPreference(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment) {
+        return getCurrentPreference(assignment, (Map<TeachingRequest.Variable, TeachingAssignment>)null);
+    }
+    
+    /**
+     * Constraint preference (if soft) if the given changes were made (the assignment is not modified)
+     * @param assignment current assignment
+     * @param changes proposed changes (teaching request, new assignment or null if the request is to be unassigned), null if there are no changes
+     * @return constraint preference after the changes, see {@link SameLinkConstraint#getCurrentPreference(Assignment)}
+     */
+    public int getCurrentPreference(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
         if (isHard()) return 0; // no preference
         if (getPreference() < 0) { // preferred
             int ret = 0;
             Set<Instructor> checked = new HashSet<Instructor>();
             for (TeachingRequest.Variable tr: variables()) {
-                TeachingAssignment ta = assignment.getValue(tr);
+                TeachingAssignment ta = (changes != null && changes.containsKey(tr) ? changes.get(tr) : assignment.getValue(tr));
                 if (ta == null || !checked.add(ta.getInstructor())) continue;
-                Instructor.Context context = ta.getInstructor().getContext(assignment);
+                Instructor.Context context = (changes == null ? ta.getInstructor().getContext(assignment) : ta.getInstructor().getContext(assignment, changes));
                 for (TeachingAssignment other : context.getAssignments()) {
                     if (!variables().contains(other.variable())) {
                         ret++;
@@ -176,9 +187,9 @@ public class SameLinkConstraint extends ConstraintWithContext<TeachingRequest.Va
             int ret = 0;
             Set<Instructor> checked = new HashSet<Instructor>();
             for (TeachingRequest.Variable tr: variables()) {
-                TeachingAssignment ta = assignment.getValue(tr);
+                TeachingAssignment ta = (changes != null && changes.containsKey(tr) ? changes.get(tr) : assignment.getValue(tr));
                 if (ta == null || !checked.add(ta.getInstructor())) continue;
-                Instructor.Context context = ta.getInstructor().getContext(assignment);
+                Instructor.Context context = (changes == null ? ta.getInstructor().getContext(assignment) : ta.getInstructor().getContext(assignment, changes));
                 for (TeachingAssignment other : context.getAssignments()) {
                     if (!variables().equals(tr) && variables().contains(other.variable())) {
                         ret++;
@@ -1,6 +1,7 @@
 package org.cpsolver.instructor.criteria;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
@@ -95,6 +96,21 @@ public class BackToBack extends InstructorSchedulingCriterion {
         return value;
     }
 
+    @Override
+    protected double getContextValue(Instructor.Context context) {
+        return context.countBackToBackPreference(iDiffRoomWeight, iDiffTypeWeight);
+    }
+    
+    @Override
+    public double getDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        return getInstructorDelta(assignment, changes);
+    }
+    
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public String getAbbreviation() {
         return "Back2Back";
@@ -69,6 +69,21 @@ public class DifferentLecture extends InstructorSchedulingCriterion {
         return new double[] { 0.0, getInstructors(assignment, variables).size() };
     }
     
+    @Override
+    protected double getContextValue(Instructor.Context context) {
+        return context.countDifferentLectures();
+    }
+    
+    @Override
+    public double getDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        return getInstructorDelta(assignment, changes);
+    }
+    
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public String getAbbreviation() {
         return "DiffLecture";
@@ -1,5 +1,6 @@
 package org.cpsolver.instructor.criteria;
 
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
@@ -41,6 +42,16 @@ public class InstructorPreferences extends InstructorSchedulingCriterion {
     public double getValue(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, TeachingAssignment value, Set<TeachingAssignment> conflicts) {
         return value.getInstructorPreference();
     }
+    
+    @Override
+    public double getDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
 
     @Override
     public String getAbbreviation() {
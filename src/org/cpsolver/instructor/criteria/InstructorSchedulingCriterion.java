@@ -90,4 +90,47 @@ public abstract class InstructorSchedulingCriterion extends AbstractCriterion<Te
         }
         return instructors;
     }
+    
+    /**
+     * Instructors affected by the given changes
+     * @param assignment current instructors
+     * @param changes proposed changes (teaching request, new assignment or null if the request is to be unassigned)
+     * @return instructors of the current and of the proposed teaching assignments of the changed requests
+     */
+    public Set<Instructor> getChangedInstructors(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        Set<Instructor> instructors = new HashSet<Instructor>();
+        for (Map.Entry<TeachingRequest.Variable, TeachingAssignment> change: changes.entrySet()) {
+            TeachingAssignment ta = assignment.getValue(change.getKey());
+            if (ta != null)
+                instructors.add(ta.getInstructor());
+            if (change.getValue() != null)
+                instructors.add(change.getValue().getInstructor());
+        }
+        return instructors;
+    }
+    
+    /**
+     * Value of this criterion that is kept by the given instructor context (for criteria that are updated by the
+     * instructor context, see {@link Instructor.Context})
+     * @param context instructor context
+     * @return value of this criterion for the instructor
+     */
+    protected double getContextValue(Instructor.Context context) {
+        return 0.0;
+    }
+    
+    /**
+     * Change in the criterion value when the given changes are made, computed from the instructor contexts
+     * of the affected instructors before and after the changes (see {@link Instructor#getContext(Assignment, Map)}).
+     * To be used by the criteria that are updated by the instructor context.
+     * @param assignment current assignment
+     * @param changes proposed changes (teaching request, new assignment or null if the request is to be unassigned)
+     * @return change in this criterion value when the changes are made
+     */
+    protected double getInstructorDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        double delta = 0.0;
+        for (Instructor instructor: getChangedInstructors(assignment, changes))
+            delta += getContextValue(instructor.getContext(assignment, changes)) - getContextValue(instructor.getContext(assignment));
+        return delta;
+    }
 }
@@ -59,6 +59,16 @@ public class OriginalInstructor extends InstructorSchedulingCriterion {
         }
     }
     
+    @Override
+    public double getDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        return getUnaryDelta(assignment, changes);
+    }
+
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public String getAbbreviation() {
         return "Original";
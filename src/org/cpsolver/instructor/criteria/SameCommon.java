@@ -1,6 +1,7 @@
 package org.cpsolver.instructor.criteria;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
@@ -76,6 +77,21 @@ public class SameCommon extends InstructorSchedulingCriterion {
         return 0.5 * super.getValue(assignment, variables);
     }
 
+    @Override
+    protected double getContextValue(Instructor.Context context) {
+        return context.countSameCommonPenalty();
+    }
+    
+    @Override
+    public double getDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        return getInstructorDelta(assignment, changes);
+    }
+    
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public String getAbbreviation() {
         return "SameCommon";
@@ -2,9 +2,11 @@ package org.cpsolver.instructor.criteria;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.OverlayAssignment;
 import org.cpsolver.ifs.model.Constraint;
 import org.cpsolver.ifs.util.DataProperties;
 import org.cpsolver.instructor.constraints.SameInstructorConstraint;
@@ -66,6 +68,25 @@ public class SameInstructor extends InstructorSchedulingCriterion {
         return ret;
     }
     
+    @Override
+    public double getDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        double delta = 0;
+        OverlayAssignment<TeachingRequest.Variable, TeachingAssignment> overlay = new OverlayAssignment<TeachingRequest.Variable, TeachingAssignment>(assignment, changes);
+        Set<Constraint<TeachingRequest.Variable, TeachingAssignment>> constraints = new HashSet<Constraint<TeachingRequest.Variable, TeachingAssignment>>();
+        for (TeachingRequest.Variable req: changes.keySet()) {
+            for (Constraint<TeachingRequest.Variable, TeachingAssignment> c : req.constraints()) {
+                if (c instanceof SameInstructorConstraint && constraints.add(c))
+                    delta += ((SameInstructorConstraint)c).getCurrentPreference(overlay) - ((SameInstructorConstraint)c).getContext(assignment).getPreference();
+            }
+        }
+        return delta;
+    }
+    
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     protected double[] computeBounds(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment) {
         double[] bounds = new double[] { 0.0, 0.0 };
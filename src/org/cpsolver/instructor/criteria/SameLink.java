@@ -2,6 +2,7 @@ package org.cpsolver.instructor.criteria;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
@@ -66,6 +67,24 @@ public class SameLink extends InstructorSchedulingCriterion {
         return ret;
     }
     
+    @Override
+    public double getDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        double delta = 0;
+        Set<Constraint<TeachingRequest.Variable, TeachingAssignment>> constraints = new HashSet<Constraint<TeachingRequest.Variable, TeachingAssignment>>();
+        for (TeachingRequest.Variable req: changes.keySet()) {
+            for (Constraint<TeachingRequest.Variable, TeachingAssignment> c : req.constraints()) {
+                if (c instanceof SameLinkConstraint && constraints.add(c))
+                    delta += ((SameLinkConstraint)c).getCurrentPreference(assignment, changes) - ((SameLinkConstraint)c).getContext(assignment).getPreference();
+            }
+        }
+        return delta;
+    }
+    
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     protected double[] computeBounds(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment) {
         double[] bounds = new double[] { 0.0, 0.0 };
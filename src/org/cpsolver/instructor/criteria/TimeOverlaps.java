@@ -59,6 +59,21 @@ public class TimeOverlaps extends InstructorSchedulingCriterion {
         return value;
     }
     
+    @Override
+    protected double getContextValue(Instructor.Context context) {
+        return context.countTimeOverlaps();
+    }
+    
+    @Override
+    public double getDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        return getInstructorDelta(assignment, changes);
+    }
+    
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public String getAbbreviation() {
         return "Overlaps";
@@ -2,6 +2,7 @@ package org.cpsolver.instructor.criteria;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
@@ -71,6 +72,21 @@ public class UnusedInstructorLoad extends InstructorSchedulingCriterion {
         return unused;
     }
 
+    @Override
+    protected double getContextValue(Instructor.Context context) {
+        return context.getUnusedLoad();
+    }
+    
+    @Override
+    public double getDelta(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        return getInstructorDelta(assignment, changes);
+    }
+    
+    @Override
+    public boolean isExactDelta() {
+        return true;
+    }
+    
     @Override
     public String getAbbreviation() {
         return "UnusedLoad";
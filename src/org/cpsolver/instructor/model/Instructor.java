@@ -3,6 +3,7 @@ package org.cpsolver.instructor.model;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.coursett.Constants;
@@ -493,6 +494,26 @@ public class Instructor extends AbstractClassWithContext<TeachingRequest.Variabl
     public Context inheritAssignmentContext(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Context parentContext) {
         return new Context(assignment, parentContext);
     }
+    
+    /**
+     * Instructor context if the given changes were made (the assignment is not modified). The returned context is not
+     * registered with the assignment and it does not update any criteria, it is only to be used to count the preferences
+     * of the instructor after the changes.
+     * @param assignment current assignment
+     * @param changes proposed changes (teaching request, new assignment or null if the request is to be unassigned)
+     * @return instructor context after the changes
+     */
+    public Context getContext(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Map<TeachingRequest.Variable, TeachingAssignment> changes) {
+        HashSet<TeachingAssignment> assignments = new HashSet<TeachingAssignment>(getContext(assignment).getAssignments());
+        for (Map.Entry<TeachingRequest.Variable, TeachingAssignment> change: changes.entrySet()) {
+            TeachingAssignment current = assignment.getValue(change.getKey());
+            if (current != null && current.getInstructor().equals(this))
+                assignments.remove(current);
+            if (change.getValue() != null && change.getValue().getInstructor().equals(this))
+                assignments.add(change.getValue());
+        }
+        return new Context(assignments);
+    }
 
     
     /**
@@ -531,6 +552,14 @@ public class Instructor extends AbstractClassWithContext<TeachingRequest.Variabl
                 updateCriteria(assignment);
         }
         
+        /**
+         * Constructor of a detached context, see {@link Instructor#getContext(Assignment, Map)}
+         * @param assignments teaching assignments of the instructor
+         */
+        private Context(HashSet<TeachingAssignment> assignments) {
+            iAssignments = assignments;
+        }
+        
         /**
          * Instructor
          * @return instructor of this context
@@ -578,7 +607,7 @@ public class Instructor extends AbstractClassWithContext<TeachingRequest.Variabl
             SameRoom sr = (SameRoom)getModel().getCriterion(SameRoom.class);
             if (sr != null) {
                 sr.inc(assignment, -iSameRooms);
-                iSameRooms = countSameRoomPreference(sd.getDifferentTypeWeight());
+                iSameRooms = countSameRoomPreference(sr.getDifferentTypeWeight());
                 sr.inc(assignment, iSameRooms);
             }
             
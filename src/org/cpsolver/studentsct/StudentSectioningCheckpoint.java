@@ -0,0 +1,89 @@
+package org.cpsolver.studentsct;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.solution.SolutionCheckpoint;
+import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.studentsct.model.Config;
+import org.cpsolver.studentsct.model.Course;
+import org.cpsolver.studentsct.model.CourseRequest;
+import org.cpsolver.studentsct.model.Enrollment;
+import org.cpsolver.studentsct.model.FreeTimeRequest;
+import org.cpsolver.studentsct.model.Request;
+import org.cpsolver.studentsct.model.Section;
+import org.cpsolver.studentsct.reservation.Reservation;
+
+/**
+ * Binary checkpoint of a student sectioning solution (see {@link SolutionCheckpoint}). Since the enrollments of
+ * a course request are not enumerated, an enrollment is encoded as the course id, the reservation id (-1 when there
+ * is no reservation), and the ids of the enrolled sections. An enrollment of a free time request is encoded
+ * as an empty array.
+ * 
+ * @version StudentSct 1.3 (Student Sectioning)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class StudentSectioningCheckpoint extends SolutionCheckpoint<Request, Enrollment> {
+
+    public StudentSectioningCheckpoint() {
+        super();
+    }
+
+    public StudentSectioningCheckpoint(DataProperties properties) {
+        super(properties);
+    }
+
+    @Override
+    protected long[] encode(Assignment<Request, Enrollment> assignment, Request request, Enrollment enrollment) {
+        if (request instanceof FreeTimeRequest) return new long[0];
+        if (enrollment.getCourse() == null) return null;
+        long[] code = new long[2 + enrollment.getSections().size()];
+        code[0] = enrollment.getCourse().getId();
+        code[1] = (enrollment.getReservation() == null ? -1 : enrollment.getReservation().getId());
+        int idx = 2;
+        for (Section section: enrollment.getSections())
+            code[idx++] = section.getId();
+        return code;
+    }
+
+    @Override
+    protected Enrollment decode(Assignment<Request, Enrollment> assignment, Request request, long[] code) {
+        if (request instanceof FreeTimeRequest)
+            return ((FreeTimeRequest) request).createEnrollment();
+        if (!(request instanceof CourseRequest) || code.length < 3) return null;
+        CourseRequest courseRequest = (CourseRequest) request;
+        Course course = null;
+        for (Course c: courseRequest.getCourses())
+            if (c.getId() == code[0]) { course = c; break; }
+        if (course == null) return null;
+        Reservation reservation = null;
+        if (code[1] >= 0)
+            for (Reservation r: course.getOffering().getReservations())
+                if (r.getId() == code[1]) { reservation = r; break; }
+        Set<Section> sections = new HashSet<Section>();
+        for (int i = 2; i < code.length; i++) {
+            Section section = course.getOffering().getSection(code[i]);
+            if (section == null) return null;
+            sections.add(section);
+        }
+        Config config = sections.iterator().next().getSubpart().getConfig();
+        return new Enrollment(request, courseRequest.getCourses().indexOf(course), course, config, sections, reservation);
+    }
+}
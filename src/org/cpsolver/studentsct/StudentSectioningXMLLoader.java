@@ -1,6 +1,10 @@
 package org.cpsolver.studentsct;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
@@ -11,6 +15,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
 
 import org.cpsolver.coursett.model.Placement;
 import org.cpsolver.coursett.model.RoomLocation;
@@ -46,8 +58,10 @@ import org.cpsolver.studentsct.reservation.Reservation;
 import org.cpsolver.studentsct.reservation.ReservationOverride;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
+import org.dom4j.DocumentFactory;
 import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
+import org.dom4j.io.STAXEventReader;
 
 /**
  * Load student sectioning model from an XML file.
@@ -97,7 +111,14 @@ import org.dom4j.io.SAXReader;
  * <td>{@link StudentFilter}</td>
  * <td>If provided, students are filtered by the given student filter</td>
  * </tr>
+ * <tr>
+ * <td>Xml.StreamingLoader</td>
+ * <td>{@link Boolean}</td>
+ * <td>If true, the input is parsed using StAX, and only a single offering or student is kept
+ * in the memory at a time (see {@link StudentSectioningXMLLoader#load(XMLEventReader)})</td>
+ * </tr>
  * </table>
+ * The input file can be compressed using gzip (file name ending with .gz).
  * 
  * <br>
  * <br>
@@ -141,6 +162,7 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
     private StudentFilter iStudentFilter = null;
     private boolean iWaitlistCritical = false;
     private boolean iMoveCriticalUp = false;
+    private boolean iStreaming = false;
 
     /**
      * Constructor
@@ -162,6 +184,7 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         iLoadStudents = getModel().getProperties().getPropertyBoolean("Xml.LoadStudents", true);
         iWaitlistCritical = getModel().getProperties().getPropertyBoolean("Xml.WaitlistCritical", false);
         iMoveCriticalUp = getModel().getProperties().getPropertyBoolean("Xml.MoveCriticalUp", false);
+        iStreaming = getModel().getProperties().getPropertyBoolean("Xml.StreamingLoader", false);
         if (getModel().getProperties().getProperty("Xml.StudentFilter") != null) {
             try {
                 iStudentFilter = (StudentFilter) Class.forName(
@@ -215,10 +238,31 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
     public void load() throws Exception {
         sLogger.debug("Reading XML data from " + iInputFile);
 
-        Document document = (new SAXReader()).read(iInputFile);
-        Element root = document.getRootElement();
+        InputStream in = openInputStream();
+        try {
+            if (iStreaming) {
+                load(XMLInputFactory.newInstance().createXMLEventReader(in));
+            } else {
+                Document document = (new SAXReader()).read(in);
+                Element root = document.getRootElement();
 
-        load(root);
+                load(root);
+            }
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Open the input file. When the file name ends with .gz, the input is decompressed on the fly.
+     * @return input stream of the input file
+     * @throws IOException when the file cannot be opened
+     */
+    protected InputStream openInputStream() throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(iInputFile));
+        if (iInputFile.getName().toLowerCase().endsWith(".gz"))
+            return new GZIPInputStream(in);
+        return in;
     }
     
     public void load(Document document) {
@@ -269,25 +313,14 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         
         Map<Long, Placement> timetable = null;
         if (iTimetableFile != null) {
-            sLogger.info("Reading timetable from " + iTimetableFile + " ...");
-            Document timetableDocument = (new SAXReader()).read(iTimetableFile);
-            Element timetableRoot = timetableDocument.getRootElement();
-            if (!"timetable".equals(timetableRoot.getName())) {
-                sLogger.error("Given XML file is not course timetabling problem.");
-                return;
-            }
-            timetable = loadTimetable(timetableRoot);
+            timetable = loadTimetable(iTimetableFile);
+            if (timetable == null) return;
         }
 
         Progress.getInstance(getModel()).load(root, true);
         Progress.getInstance(getModel()).message(Progress.MSGLEVEL_STAGE, "Restoring from backup ...");
 
-        if (root.attributeValue("term") != null)
-            getModel().getProperties().setProperty("Data.Term", root.attributeValue("term"));
-        if (root.attributeValue("year") != null)
-            getModel().getProperties().setProperty("Data.Year", root.attributeValue("year"));
-        if (root.attributeValue("initiative") != null)
-            getModel().getProperties().setProperty("Data.Initiative", root.attributeValue("initiative"));
+        loadAttributes(root);
 
         Map<Long, Offering> offeringTable = new HashMap<Long, Offering>();
         Map<Long, Course> courseTable = new HashMap<Long, Course>();
@@ -295,12 +328,7 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         if (iLoadOfferings && root.element("offerings") != null) {
             loadOfferings(root.element("offerings"), offeringTable, courseTable, timetable);
         } else {
-            for (Offering offering : getModel().getOfferings()) {
-                offeringTable.put(new Long(offering.getId()), offering);
-                for (Course course : offering.getCourses()) {
-                    courseTable.put(new Long(course.getId()), course);
-                }
-            }
+            loadModelOfferings(offeringTable, courseTable);
         }
 
         List<Enrollment> bestEnrollments = new ArrayList<Enrollment>();
@@ -320,6 +348,156 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         sLogger.debug("Model successfully loaded.");
     }
     
+    /**
+     * Load data from the given XML event reader. Unlike {@link StudentSectioningXMLLoader#load(Element)}, only a single
+     * offering, student, linked sections, or travel time is read into the memory at a time. Offerings must precede students
+     * and linked sections, which is the order in which they are written by {@link StudentSectioningXMLSaver}.
+     * @param reader XML event reader of the input file
+     * @throws XMLStreamException when the input cannot be parsed
+     * @throws DocumentException when the timetable file cannot be read
+     */
+    protected void load(XMLEventReader reader) throws XMLStreamException, DocumentException {
+        STAXEventReader elementReader = new STAXEventReader();
+        Element root = null;
+        Map<Long, Placement> timetable = null;
+        Map<Long, Offering> offeringTable = new HashMap<Long, Offering>();
+        Map<Long, Course> courseTable = new HashMap<Long, Course>();
+        HashMap<Long, Config> configTable = new HashMap<Long, Config>();
+        HashMap<Long, Subpart> subpartTable = new HashMap<Long, Subpart>();
+        HashMap<Long, Section> sectionTable = new HashMap<Long, Section>();
+        List<Enrollment> bestEnrollments = new ArrayList<Enrollment>();
+        List<Enrollment> currentEnrollments = new ArrayList<Enrollment>();
+        boolean offeringsLoaded = !iLoadOfferings;
+        while (reader.hasNext()) {
+            XMLEvent event = reader.peek();
+            if (!event.isStartElement()) {
+                reader.nextEvent();
+                continue;
+            }
+            if (root == null) {
+                root = createElement(event.asStartElement());
+                reader.nextEvent();
+                sLogger.debug("Root element: " + root.getName());
+                if (!"sectioning".equals(root.getName())) {
+                    sLogger.error("Given XML file is not student sectioning problem.");
+                    return;
+                }
+                if (iTimetableFile != null) {
+                    timetable = loadTimetable(iTimetableFile);
+                    if (timetable == null) return;
+                }
+                Progress.getInstance(getModel()).load(root, true);
+                Progress.getInstance(getModel()).message(Progress.MSGLEVEL_STAGE, "Restoring from backup ...");
+                loadAttributes(root);
+                if (!iLoadOfferings)
+                    loadModelOfferings(offeringTable, courseTable);
+                continue;
+            }
+            String name = event.asStartElement().getName().getLocalPart();
+            if ("offerings".equals(name) && iLoadOfferings) {
+                reader.nextEvent();
+                for (Element offeringEl = nextElement(reader, elementReader); offeringEl != null; offeringEl = nextElement(reader, elementReader))
+                    if ("offering".equals(offeringEl.getName()))
+                        loadOffering(offeringEl, offeringTable, courseTable, configTable, subpartTable, sectionTable, timetable);
+                offeringsLoaded = true;
+            } else if ("students".equals(name) && iLoadStudents) {
+                if (!offeringsLoaded)
+                    throw new IllegalArgumentException("Element offerings must precede element students (or set Xml.StreamingLoader to false).");
+                reader.nextEvent();
+                for (Element studentEl = nextElement(reader, elementReader); studentEl != null; studentEl = nextElement(reader, elementReader))
+                    if ("student".equals(studentEl.getName()))
+                        loadStudent(studentEl, offeringTable, courseTable, bestEnrollments, currentEnrollments);
+            } else if ("constraints".equals(name) && iLoadOfferings) {
+                if (!offeringsLoaded)
+                    throw new IllegalArgumentException("Element offerings must precede element constraints (or set Xml.StreamingLoader to false).");
+                reader.nextEvent();
+                for (Element linkedEl = nextElement(reader, elementReader); linkedEl != null; linkedEl = nextElement(reader, elementReader))
+                    if ("linked-sections".equals(linkedEl.getName()))
+                        loadLinkedSection(linkedEl, offeringTable);
+            } else if ("travel-times".equals(name) && iLoadOfferings && getModel().getDistanceConflict() != null) {
+                reader.nextEvent();
+                for (Element travelTimeEl = nextElement(reader, elementReader); travelTimeEl != null; travelTimeEl = nextElement(reader, elementReader))
+                    if ("travel-time".equals(travelTimeEl.getName()))
+                        loadTravelTime(travelTimeEl, getModel().getDistanceConflict().getDistanceMetric());
+            } else if ("log".equals(name)) {
+                root.add(elementReader.readElement(reader));
+                Progress.getInstance(getModel()).load(root, false);
+            } else {
+                skipElement(reader);
+            }
+        }
+        
+        if (!bestEnrollments.isEmpty()) assignBest(bestEnrollments);
+        if (!currentEnrollments.isEmpty()) assignCurrent(currentEnrollments);
+        
+        if (iMoveCriticalUp) moveCriticalRequestsUp();
+
+        sLogger.debug("Model successfully loaded.");
+    }
+    
+    /** Create an element with the name and attributes of the given start element */
+    private static Element createElement(StartElement start) {
+        Element element = DocumentFactory.getInstance().createElement(start.getName().getLocalPart());
+        for (Iterator<?> i = start.getAttributes(); i.hasNext(); ) {
+            Attribute attribute = (Attribute) i.next();
+            element.addAttribute(attribute.getName().getLocalPart(), attribute.getValue());
+        }
+        return element;
+    }
+    
+    /** Read the next child element of the current element, null when the current element ends (its end is consumed) */
+    private static Element nextElement(XMLEventReader reader, STAXEventReader elementReader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            XMLEvent event = reader.peek();
+            if (event.isStartElement())
+                return elementReader.readElement(reader);
+            reader.nextEvent();
+            if (event.isEndElement())
+                return null;
+        }
+        return null;
+    }
+    
+    /** Skip the next element, including all its content */
+    private static void skipElement(XMLEventReader reader) throws XMLStreamException {
+        int depth = 0;
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                if (--depth == 0) return;
+            }
+        }
+    }
+    
+    /**
+     * Load problem properties (term, year, and initiative) from the attributes of the root element
+     * @param root document root
+     */
+    protected void loadAttributes(Element root) {
+        if (root.attributeValue("term") != null)
+            getModel().getProperties().setProperty("Data.Term", root.attributeValue("term"));
+        if (root.attributeValue("year") != null)
+            getModel().getProperties().setProperty("Data.Year", root.attributeValue("year"));
+        if (root.attributeValue("initiative") != null)
+            getModel().getProperties().setProperty("Data.Initiative", root.attributeValue("initiative"));
+    }
+    
+    /**
+     * Fill in the offering and course tables with the offerings that are already in the model (used when offerings are not loaded)
+     * @param offeringTable offering table
+     * @param courseTable course table
+     */
+    protected void loadModelOfferings(Map<Long, Offering> offeringTable, Map<Long, Course> courseTable) {
+        for (Offering offering : getModel().getOfferings()) {
+            offeringTable.put(new Long(offering.getId()), offering);
+            for (Course course : offering.getCourses()) {
+                courseTable.put(new Long(course.getId()), course);
+            }
+        }
+    }
+    
     /**
      * Load offerings
      * @param offeringsEl offerings element
@@ -333,31 +511,48 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         HashMap<Long, Section> sectionTable = new HashMap<Long, Section>();
         for (Iterator<?> i = offeringsEl.elementIterator("offering"); i.hasNext();) {
             Element offeringEl = (Element) i.next();
-            Offering offering = new Offering(
-                    Long.parseLong(offeringEl.attributeValue("id")),
-                    offeringEl.attributeValue("name", "O" + offeringEl.attributeValue("id")));
-            offeringTable.put(new Long(offering.getId()), offering);
-            getModel().addOffering(offering);
-            
-            for (Iterator<?> j = offeringEl.elementIterator("course"); j.hasNext();) {
-                Element courseEl = (Element) j.next();
-                Course course = loadCourse(courseEl, offering);
-                courseTable.put(new Long(course.getId()), course);
-            }
-            
-            for (Iterator<?> j = offeringEl.elementIterator("config"); j.hasNext();) {
-                Element configEl = (Element) j.next();
-                Config config = loadConfig(configEl, offering, subpartTable, sectionTable, timetable);
-                configTable.put(config.getId(), config);
-            }
-            
-            for (Iterator<?> j = offeringEl.elementIterator("reservation"); j.hasNext(); ) {
-                Element reservationEl = (Element)j.next();
-                loadReservation(reservationEl, offering, configTable, sectionTable);
-            } 
+            loadOffering(offeringEl, offeringTable, courseTable, configTable, subpartTable, sectionTable, timetable);
         }
     }
     
+    /**
+     * Load offering
+     * @param offeringEl offering element
+     * @param offeringTable offering table
+     * @param courseTable course table
+     * @param configTable configuration table
+     * @param subpartTable subpart table
+     * @param sectionTable section table
+     * @param timetable provided timetable (null if to be loaded from the given document)
+     * @return loaded offering
+     */
+    protected Offering loadOffering(Element offeringEl, Map<Long, Offering> offeringTable, Map<Long, Course> courseTable,
+            HashMap<Long, Config> configTable, HashMap<Long, Subpart> subpartTable, HashMap<Long, Section> sectionTable, Map<Long, Placement> timetable) {
+        Offering offering = new Offering(
+                Long.parseLong(offeringEl.attributeValue("id")),
+                offeringEl.attributeValue("name", "O" + offeringEl.attributeValue("id")));
+        offeringTable.put(new Long(offering.getId()), offering);
+        getModel().addOffering(offering);
+        
+        for (Iterator<?> j = offeringEl.elementIterator("course"); j.hasNext();) {
+            Element courseEl = (Element) j.next();
+            Course course = loadCourse(courseEl, offering);
+            courseTable.put(new Long(course.getId()), course);
+        }
+        
+        for (Iterator<?> j = offeringEl.elementIterator("config"); j.hasNext();) {
+            Element configEl = (Element) j.next();
+            Config config = loadConfig(configEl, offering, subpartTable, sectionTable, timetable);
+            configTable.put(config.getId(), config);
+        }
+        
+        for (Iterator<?> j = offeringEl.elementIterator("reservation"); j.hasNext(); ) {
+            Element reservationEl = (Element)j.next();
+            loadReservation(reservationEl, offering, configTable, sectionTable);
+        }
+        return offering;
+    }
+    
     /**
      * Load course
      * @param courseEl course element
@@ -488,6 +683,8 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
                         0, Integer.parseInt(roomEl.attributeValue("capacity")),
                         posX, posY, "true".equals(roomEl.attributeValue("ignoreTooFar")), null);
                 rooms.add(room);
+                if (getModel().getDistanceMetric() != null)
+                    getModel().getDistanceMetric().addLocation(room.getId(), posX, posY);
             }
             placement = (time == null ? null : new Placement(null, time, rooms));
         }
@@ -614,6 +811,23 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         return r;
     }
     
+    /**
+     * Load timetable from the given file
+     * @param timetableFile XML file in the course timetabling format
+     * @return loaded timetable (map class id: assigned placement), null if the given file is not a course timetabling problem
+     * @throws DocumentException when the file cannot be read
+     */
+    protected Map<Long, Placement> loadTimetable(File timetableFile) throws DocumentException {
+        sLogger.info("Reading timetable from " + timetableFile + " ...");
+        Document timetableDocument = (new SAXReader()).read(timetableFile);
+        Element timetableRoot = timetableDocument.getRootElement();
+        if (!"timetable".equals(timetableRoot.getName())) {
+            sLogger.error("Given XML file is not course timetabling problem.");
+            return null;
+        }
+        return loadTimetable(timetableRoot);
+    }
+    
     /**
      * Load given timetable
      * @param timetableRoot document root in the course timetabling XML format
@@ -638,6 +852,8 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
                     0, Integer.parseInt(roomEl.attributeValue("capacity")),
                     posX, posY, "true".equals(roomEl.attributeValue("ignoreTooFar")), null);
             rooms.put(roomId, room);
+            if (getModel().getDistanceMetric() != null)
+                getModel().getDistanceMetric().addLocation(roomId, posX, posY);
         }
         for (Iterator<?> i = timetableRoot.element("classes").elementIterator("class"); i.hasNext();) {
             Element classEl = (Element)i.next();
@@ -680,13 +896,22 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
     protected void loadTravelTimes(Element travelTimesEl, DistanceMetric metric) {
         for (Iterator<?> i = travelTimesEl.elementIterator("travel-time"); i.hasNext();) {
             Element travelTimeEl = (Element)i.next();
-            metric.addTravelTime(
-                    Long.valueOf(travelTimeEl.attributeValue("id1")),
-                    Long.valueOf(travelTimeEl.attributeValue("id2")),
-                    Integer.valueOf(travelTimeEl.attributeValue("minutes")));
+            loadTravelTime(travelTimeEl, metric);
         }
     }
     
+    /**
+     * Load travel time
+     * @param travelTimeEl travel-time element
+     * @param metric distance metric to be populated
+     */
+    protected void loadTravelTime(Element travelTimeEl, DistanceMetric metric) {
+        metric.addTravelTime(
+                Long.valueOf(travelTimeEl.attributeValue("id1")),
+                Long.valueOf(travelTimeEl.attributeValue("id2")),
+                Integer.valueOf(travelTimeEl.attributeValue("minutes")));
+    }
+    
     /**
      * Load linked sections
      * @param constraintsEl constraints element
@@ -695,16 +920,25 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
     protected void loadLinkedSections(Element constraintsEl, Map<Long, Offering> offeringTable) {
         for (Iterator<?> i = constraintsEl.elementIterator("linked-sections"); i.hasNext();) {
             Element linkedEl = (Element) i.next();
-            List<Section> sections = new ArrayList<Section>();
-            for (Iterator<?> j = linkedEl.elementIterator("section"); j.hasNext();) {
-                Element sectionEl = (Element) j.next();
-                Offering offering = offeringTable.get(Long.valueOf(sectionEl.attributeValue("offering")));
-                sections.add(offering.getSection(Long.valueOf(sectionEl.attributeValue("id"))));
-            }
-            getModel().addLinkedSections("true".equals(linkedEl.attributeValue("mustBeUsed", "false")), sections);
+            loadLinkedSection(linkedEl, offeringTable);
         }
     }
     
+    /**
+     * Load linked sections
+     * @param linkedEl linked-sections element
+     * @param offeringTable offering table
+     */
+    protected void loadLinkedSection(Element linkedEl, Map<Long, Offering> offeringTable) {
+        List<Section> sections = new ArrayList<Section>();
+        for (Iterator<?> j = linkedEl.elementIterator("section"); j.hasNext();) {
+            Element sectionEl = (Element) j.next();
+            Offering offering = offeringTable.get(Long.valueOf(sectionEl.attributeValue("offering")));
+            sections.add(offering.getSection(Long.valueOf(sectionEl.attributeValue("id"))));
+        }
+        getModel().addLinkedSections("true".equals(linkedEl.attributeValue("mustBeUsed", "false")), sections);
+    }
+    
     /**
      * Load students
      * @param studentsEl students element
@@ -714,35 +948,49 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
     protected void loadStudents(Element studentsEl, Map<Long, Offering> offeringTable, Map<Long, Course> courseTable, List<Enrollment> bestEnrollments, List<Enrollment> currentEnrollments) {
         for (Iterator<?> i = studentsEl.elementIterator("student"); i.hasNext();) {
             Element studentEl = (Element) i.next();
-            Student student = loadStudent(studentEl, offeringTable);
-            if (iStudentFilter != null && !iStudentFilter.accept(student))
-                continue;
-            for (Iterator<?> j = studentEl.elementIterator(); j.hasNext();) {
-                Element requestEl = (Element) j.next();
-                Request request = loadRequest(requestEl, student, offeringTable, courseTable);
-                if (request == null) continue;
-                
-                Element initialEl = requestEl.element("initial");
-                if (iLoadInitial && initialEl != null) {
-                    Enrollment enrollment = loadEnrollment(initialEl, request);
-                    if (enrollment != null)
-                        request.setInitialAssignment(enrollment);
-                }
-                Element currentEl = requestEl.element("current");
-                if (iLoadCurrent && currentEl != null) {
-                    Enrollment enrollment = loadEnrollment(currentEl, request);
-                    if (enrollment != null)
-                        currentEnrollments.add(enrollment);
-                }
-                Element bestEl = requestEl.element("best");
-                if (iLoadBest && bestEl != null) {
-                    Enrollment enrollment = loadEnrollment(bestEl, request);
-                    if (enrollment != null)
-                        bestEnrollments.add(enrollment);
-                }
+            loadStudent(studentEl, offeringTable, courseTable, bestEnrollments, currentEnrollments);
+        }
+    }
+    
+    /**
+     * Load student, including its requests and enrollments, and add it into the model
+     * @param studentEl student element
+     * @param offeringTable offering table
+     * @param courseTable course table
+     * @param bestEnrollments best enrollments (to be populated)
+     * @param currentEnrollments current enrollments (to be populated)
+     * @return loaded student, null if the student was not accepted by the student filter
+     */
+    protected Student loadStudent(Element studentEl, Map<Long, Offering> offeringTable, Map<Long, Course> courseTable, List<Enrollment> bestEnrollments, List<Enrollment> currentEnrollments) {
+        Student student = loadStudent(studentEl, offeringTable);
+        if (iStudentFilter != null && !iStudentFilter.accept(student))
+            return null;
+        for (Iterator<?> j = studentEl.elementIterator(); j.hasNext();) {
+            Element requestEl = (Element) j.next();
+            Request request = loadRequest(requestEl, student, offeringTable, courseTable);
+            if (request == null) continue;
+            
+            Element initialEl = requestEl.element("initial");
+            if (iLoadInitial && initialEl != null) {
+                Enrollment enrollment = loadEnrollment(initialEl, request);
+                if (enrollment != null)
+                    request.setInitialAssignment(enrollment);
+            }
+            Element currentEl = requestEl.element("current");
+            if (iLoadCurrent && currentEl != null) {
+                Enrollment enrollment = loadEnrollment(currentEl, request);
+                if (enrollment != null)
+                    currentEnrollments.add(enrollment);
+            }
+            Element bestEl = requestEl.element("best");
+            if (iLoadBest && bestEl != null) {
+                Enrollment enrollment = loadEnrollment(bestEl, request);
+                if (enrollment != null)
+                    bestEnrollments.add(enrollment);
             }
-            getModel().addStudent(student);
         }
+        getModel().addStudent(student);
+        return student;
     }
     
     /**
@@ -1,17 +1,22 @@
 package org.cpsolver.studentsct;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.math.RoundingMode;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.BitSet;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.zip.GZIPOutputStream;
 
 import org.cpsolver.coursett.IdConvertor;
 import org.cpsolver.coursett.model.RoomLocation;
@@ -48,6 +53,7 @@ import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
 import org.dom4j.io.OutputFormat;
 import org.dom4j.io.XMLWriter;
+import org.xml.sax.SAXException;
 
 
 /**
@@ -104,7 +110,14 @@ import org.dom4j.io.XMLWriter;
  * <td>If true, save student information (i.e., academic area classification,
  * major, minor)</td>
  * </tr>
+ * <tr>
+ * <td>Xml.StreamingSaver</td>
+ * <td>{@link Boolean}</td>
+ * <td>If true, offerings and students are written into the output one by one, without
+ * creating the whole document in the memory (see {@link StudentSectioningXMLSaver#populate(XMLWriter)})</td>
+ * </tr>
  * </table>
+ * The output file is compressed using gzip when its name ends with .gz.
  * <br>
  * <br>
  * Usage:
@@ -148,6 +161,7 @@ public class StudentSectioningXMLSaver extends StudentSectioningSaver {
 
     private boolean iConvertIds = false;
     private boolean iShowNames = false;
+    private boolean iStreaming = false;
     
     static {
         sStudentWeightFormat.setRoundingMode(RoundingMode.DOWN);
@@ -170,6 +184,7 @@ public class StudentSectioningXMLSaver extends StudentSectioningSaver {
         iSaveStudentInfo = getModel().getProperties().getPropertyBoolean("Xml.SaveStudentInfo", true);
         iShowNames = getModel().getProperties().getPropertyBoolean("Xml.ShowNames", true);
         iConvertIds = getModel().getProperties().getPropertyBoolean("Xml.ConvertIds", false);
+        iStreaming = getModel().getProperties().getPropertyBoolean("Xml.StreamingSaver", false);
     }
 
     /** Convert bitset to a bit string */
@@ -218,15 +233,24 @@ public class StudentSectioningXMLSaver extends StudentSectioningSaver {
         }
         sLogger.debug("Writting XML data to:" + outFile);
 
-        Document document = DocumentHelper.createDocument();
-        document.addComment("Student Sectioning");
-        
-        populate(document);
+        Document document = null;
+        if (!iStreaming) {
+            document = DocumentHelper.createDocument();
+            document.addComment("Student Sectioning");
+            
+            populate(document);
+        }
 
-        FileOutputStream fos = null;
+        OutputStream fos = null;
         try {
-            fos = new FileOutputStream(outFile);
-            (new XMLWriter(fos, OutputFormat.createPrettyPrint())).write(document);
+            fos = openOutputStream(outFile);
+            if (document != null) {
+                (new XMLWriter(fos, OutputFormat.createPrettyPrint())).write(document);
+            } else {
+                XMLWriter writer = new StreamingXMLWriter(fos);
+                populate(writer);
+                writer.flush();
+            }
             fos.flush();
             fos.close();
             fos = null;
@@ -242,6 +266,19 @@ public class StudentSectioningXMLSaver extends StudentSectioningSaver {
             IdConvertor.getInstance().save();
     }
     
+    /**
+     * Open the output file. When the file name ends with .gz, the output is compressed using gzip.
+     * @param outFile output file
+     * @return buffered output stream of the output file
+     * @throws IOException when the file cannot be created
+     */
+    protected OutputStream openOutputStream(File outFile) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(outFile));
+        if (outFile.getName().toLowerCase().endsWith(".gz"))
+            return new GZIPOutputStream(out);
+        return out;
+    }
+    
     public Document saveDocument() {
         Document document = DocumentHelper.createDocument();
         document.addComment("Student Sectioning");
@@ -256,22 +293,12 @@ public class StudentSectioningXMLSaver extends StudentSectioningSaver {
      * @param document document to be populated
      */
     protected void populate(Document document) {
-        if (iSaveCurrent || iSaveBest) {
-            StringBuffer comments = new StringBuffer("Solution Info:\n");
-            Map<String, String> solutionInfo = (getSolution() == null ? getModel().getExtendedInfo(getAssignment()) : getSolution().getExtendedInfo());
-            for (String key : new TreeSet<String>(solutionInfo.keySet())) {
-                String value = solutionInfo.get(key);
-                comments.append("    " + key + ": " + value + "\n");
-            }
-            document.addComment(comments.toString());
-        }
+        String comments = getSolutionInfoComment();
+        if (comments != null)
+            document.addComment(comments);
 
         Element root = document.addElement("sectioning");
-        root.addAttribute("version", "1.0");
-        root.addAttribute("initiative", getModel().getProperties().getProperty("Data.Initiative"));
-        root.addAttribute("term", getModel().getProperties().getProperty("Data.Term"));
-        root.addAttribute("year", getModel().getProperties().getProperty("Data.Year"));
-        root.addAttribute("created", String.valueOf(new Date()));
+        saveAttributes(root);
 
         saveOfferings(root);
 
@@ -286,16 +313,109 @@ public class StudentSectioningXMLSaver extends StudentSectioningSaver {
         }
     }
     
+    /**
+     * Write the solution into the given XML writer. Unlike {@link StudentSectioningXMLSaver#populate(Document)},
+     * offerings and students are written one by one, so that the whole document is never kept in the memory.
+     * The output is the same.
+     * @param writer XML writer
+     * @throws IOException when the output cannot be written
+     * @throws SAXException when the output cannot be written
+     */
+    protected void populate(XMLWriter writer) throws IOException, SAXException {
+        writer.startDocument();
+        writer.write(DocumentHelper.createComment("Student Sectioning"));
+        String comments = getSolutionInfoComment();
+        if (comments != null)
+            writer.write(DocumentHelper.createComment(comments));
+        
+        Element root = DocumentHelper.createElement("sectioning");
+        saveAttributes(root);
+        writer.writeOpen(root);
+        
+        saveOfferings(root, writer);
+        
+        saveStudents(root, writer);
+        
+        // the remaining elements are written as a whole
+        saveLinkedSections(root);
+        
+        saveTravelTimes(root);
+        
+        if (iShowNames) {
+            Progress.getInstance(getModel()).save(root);
+        }
+        for (Iterator<?> i = root.elementIterator(); i.hasNext(); )
+            writer.write((Element) i.next());
+        
+        writer.writeClose(root);
+        writer.println();
+        writer.endDocument();
+    }
+    
+    /**
+     * Solution info comment
+     * @return solution info (when the best or the current solution is saved), null otherwise
+     */
+    protected String getSolutionInfoComment() {
+        if (iSaveCurrent || iSaveBest) {
+            StringBuffer comments = new StringBuffer("Solution Info:\n");
+            Map<String, String> solutionInfo = (getSolution() == null ? getModel().getExtendedInfo(getAssignment()) : getSolution().getExtendedInfo());
+            for (String key : new TreeSet<String>(solutionInfo.keySet())) {
+                String value = solutionInfo.get(key);
+                comments.append("    " + key + ": " + value + "\n");
+            }
+            return comments.toString();
+        }
+        return null;
+    }
+    
+    /**
+     * Save attributes of the document root
+     * @param root document root
+     */
+    protected void saveAttributes(Element root) {
+        root.addAttribute("version", "1.0");
+        root.addAttribute("initiative", getModel().getProperties().getProperty("Data.Initiative"));
+        root.addAttribute("term", getModel().getProperties().getProperty("Data.Term"));
+        root.addAttribute("year", getModel().getProperties().getProperty("Data.Year"));
+        root.addAttribute("created", String.valueOf(new Date()));
+    }
+    
     /**
      * Save offerings
      * @param root document root
      */
     protected void saveOfferings(Element root) {
+        try {
+            saveOfferings(root, null);
+        } catch (IOException e) {
+            // cannot happen, nothing is written without a writer
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * Save offerings. When a writer is provided, each offering is written as soon as it is populated
+     * and the offerings element is not kept in the document root.
+     * @param root document root
+     * @param writer XML writer, null when the offerings are only to be added to the document root
+     * @throws IOException when the output cannot be written
+     */
+    protected void saveOfferings(Element root, XMLWriter writer) throws IOException {
         Element offeringsEl = root.addElement("offerings");
+        if (writer != null) writer.writeOpen(offeringsEl);
         for (Offering offering : getModel().getOfferings()) {
             Element offeringEl = offeringsEl.addElement("offering");
             saveOffering(offeringEl, offering);
             saveReservations(offeringEl, offering);
+            if (writer != null) {
+                writer.write(offeringEl);
+                offeringsEl.remove(offeringEl);
+            }
+        }
+        if (writer != null) {
+            writer.writeClose(offeringsEl);
+            root.remove(offeringsEl);
         }
     }
     
@@ -550,13 +670,38 @@ public class StudentSectioningXMLSaver extends StudentSectioningSaver {
      * @param root document root
      */
     protected void saveStudents(Element root) {
+        try {
+            saveStudents(root, null);
+        } catch (IOException e) {
+            // cannot happen, nothing is written without a writer
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * Save students. When a writer is provided, each student is written as soon as it is populated
+     * and the students element is not kept in the document root.
+     * @param root document root
+     * @param writer XML writer, null when the students are only to be added to the document root
+     * @throws IOException when the output cannot be written
+     */
+    protected void saveStudents(Element root, XMLWriter writer) throws IOException {
         Element studentsEl = root.addElement("students");
+        if (writer != null) writer.writeOpen(studentsEl);
         for (Student student : getModel().getStudents()) {
             Element studentEl = studentsEl.addElement("student");
             saveStudent(studentEl, student);
             for (Request request : student.getRequests()) {
                 saveRequest(studentEl, request);
             }
+            if (writer != null) {
+                writer.write(studentEl);
+                studentsEl.remove(studentEl);
+            }
+        }
+        if (writer != null) {
+            writer.writeClose(studentsEl);
+            root.remove(studentsEl);
         }
     }
     
@@ -784,4 +929,33 @@ public class StudentSectioningXMLSaver extends StudentSectioningSaver {
             }
         }
     }
+    
+    /**
+     * Pretty printing XML writer that also indents the elements written by {@link XMLWriter#writeOpen(Element)}
+     * and {@link XMLWriter#writeClose(Element)}, so that the streamed output looks the same as a written document.
+     */
+    protected static class StreamingXMLWriter extends XMLWriter {
+        private int iLevel = 0;
+        
+        public StreamingXMLWriter(OutputStream out) throws UnsupportedEncodingException {
+            super(out, OutputFormat.createPrettyPrint());
+        }
+        
+        @Override
+        public void writeOpen(Element element) throws IOException {
+            setIndentLevel(iLevel);
+            writePrintln();
+            indent();
+            super.writeOpen(element);
+            setIndentLevel(++iLevel);
+        }
+        
+        @Override
+        public void writeClose(Element element) throws IOException {
+            setIndentLevel(--iLevel);
+            writePrintln();
+            indent();
+            super.writeClose(element);
+        }
+    }
 }
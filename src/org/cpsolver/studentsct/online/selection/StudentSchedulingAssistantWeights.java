@@ -4,6 +4,7 @@ import java.util.Hashtable;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.solution.RankedSolutionComparator;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.util.DataProperties;
 import org.cpsolver.studentsct.extension.DistanceConflict;
@@ -56,7 +57,7 @@ import org.cpsolver.studentsct.weights.StudentWeights;
  *          href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
  * 
  */
-public class StudentSchedulingAssistantWeights implements StudentWeights {
+public class StudentSchedulingAssistantWeights implements StudentWeights, RankedSolutionComparator<Request, Enrollment> {
     /** deduction for section with no time assignment */
     private double iNoTimeFactor = 0.050;
     /**
@@ -260,6 +261,11 @@ public class StudentSchedulingAssistantWeights implements StudentWeights {
         return iParent.isBetterThanBestSolution(currentSolution);
     }
 
+    @Override
+    public double[] getRank(Solution<Request, Enrollment> currentSolution) {
+        return ((RankedSolutionComparator<Request, Enrollment>)iParent).getRank(currentSolution);
+    }
+
     @Override
     public double getBound(Request request) {
         return iParent.getBound(request);
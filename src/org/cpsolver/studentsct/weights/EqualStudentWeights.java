@@ -85,6 +85,14 @@ public class EqualStudentWeights extends PriorityStudentWeights {
         return ((StudentSectioningModel)currentSolution.getModel()).getTotalValue(currentSolution.getAssignment(), iPreciseComparison) < currentSolution.getBestValue();
     }
     
+    @Override
+    public double[] getRank(Solution<Request, Enrollment> currentSolution) {
+        if (iMPP) return super.getRank(currentSolution);
+        return new double[] {
+                currentSolution.getModel().nrUnassignedVariables(currentSolution.getAssignment()),
+                ((StudentSectioningModel)currentSolution.getModel()).getTotalValue(currentSolution.getAssignment(), iPreciseComparison) };
+    }
+    
     @Override
     public boolean isFreeTimeAllowOverlaps() {
         return true;
@@ -11,6 +11,7 @@ import org.cpsolver.coursett.model.RoomLocation;
 import org.cpsolver.coursett.model.TimeLocation;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.solution.RankedSolutionComparator;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.util.DataProperties;
 import org.cpsolver.ifs.util.ToolBox;
@@ -52,7 +53,7 @@ import org.cpsolver.studentsct.model.Subpart;
  *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
  */
 
-public class OriginalStudentWeights implements StudentWeights {
+public class OriginalStudentWeights implements StudentWeights, RankedSolutionComparator<Request, Enrollment> {
     private double iPriorityWeight = 0.90;
     private double iAlterativeWeight = 1.0;
     private double iInitialWeight = 1.2;
@@ -149,6 +150,13 @@ public class OriginalStudentWeights implements StudentWeights {
         return currentSolution.getModel().getTotalValue(currentSolution.getAssignment()) < currentSolution.getBestValue();
     }
 
+    @Override
+    public double[] getRank(Solution<Request, Enrollment> currentSolution) {
+        return new double[] {
+                currentSolution.getModel().nrUnassignedVariables(currentSolution.getAssignment()),
+                currentSolution.getModel().getTotalValue(currentSolution.getAssignment()) };
+    }
+
     /**
      * Test case -- run to see the weights for a few courses
      * @param args program arguments
@@ -11,6 +11,7 @@ import org.cpsolver.coursett.model.RoomLocation;
 import org.cpsolver.coursett.model.TimeLocation;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.solution.RankedSolutionComparator;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.util.DataProperties;
 import org.cpsolver.ifs.util.ToolBox;
@@ -65,7 +66,7 @@ import org.cpsolver.studentsct.model.Subpart;
  *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
  */
 
-public class PriorityStudentWeights implements StudentWeights {
+public class PriorityStudentWeights implements StudentWeights, RankedSolutionComparator<Request, Enrollment> {
     protected double iPriorityFactor = 0.5010;
     protected double iFirstAlternativeFactor = 0.5010;
     protected double iSecondAlternativeFactor = 0.2510;
@@ -478,6 +479,16 @@ public class PriorityStudentWeights implements StudentWeights {
         return ((StudentSectioningModel)currentSolution.getModel()).getTotalValue(currentSolution.getAssignment(), iPreciseComparison) < currentSolution.getBestValue();
     }
     
+    @Override
+    public double[] getRank(Solution<Request, Enrollment> currentSolution) {
+        double value = ((StudentSectioningModel)currentSolution.getModel()).getTotalValue(currentSolution.getAssignment(), iPreciseComparison);
+        if (iMaximizeAssignment) {
+            long acr = Math.round(((StudentSectioningModel)currentSolution.getModel()).getContext(currentSolution.getAssignment()).getAssignedCourseRequestWeight());
+            return new double[] { -acr, value };
+        }
+        return new double[] { value };
+    }
+    
     @Override
     public boolean isFreeTimeAllowOverlaps() {
         return false;